@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.web;
+
+import org.springframework.social.facebook.api.impl.ObjectCache;
+
+/**
+ * {@link UpdateHandler} that removes the objects reported as changed by real-time updates from an {@link ObjectCache},
+ * so that they are fetched again on their next use rather than when their time to live expires.
+ * Objects are only removed if they were fetched with any of the fields that changed.
+ */
+public class CacheInvalidatingUpdateHandler implements UpdateHandler {
+
+	private final ObjectCache objectCache;
+
+	public CacheInvalidatingUpdateHandler(ObjectCache objectCache) {
+		this.objectCache = objectCache;
+	}
+
+	public void handleUpdate(String subscription, RealTimeUpdate update) {
+		if (update.getEntries() == null) {
+			return;
+		}
+		for (RealTimeUpdate.Entry entry : update.getEntries()) {
+			objectCache.invalidate(String.valueOf(entry.getId()), entry.getChangedFields());
+		}
+	}
+
+}
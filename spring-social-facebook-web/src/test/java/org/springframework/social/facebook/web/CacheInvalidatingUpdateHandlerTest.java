@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.web;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.social.facebook.api.impl.FacebookTemplate;
+import org.springframework.social.facebook.api.impl.ObjectCache;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CacheInvalidatingUpdateHandlerTest {
+
+	@Test
+	public void invalidatesChangedObjects() throws Exception {
+		ObjectCache cache = new ObjectCache();
+		FacebookTemplate facebook = new FacebookTemplate("someAccessToken");
+		facebook.setObjectCache(cache);
+		MockRestServiceServer mockServer = MockRestServiceServer.createServer(facebook.getRestTemplate());
+		mockServer.expect(requestTo(startsWith(facebook.getBaseGraphApiUrl() + "424711?fields=")))
+			.andRespond(withSuccess("{\"id\":\"424711\",\"name\":\"Craig Walls\"}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(startsWith(facebook.getBaseGraphApiUrl() + "me?fields=")))
+			.andRespond(withSuccess("{\"id\":\"620448186\",\"name\":\"Roy Clarkson\"}", MediaType.APPLICATION_JSON));
+		facebook.userOperations().getUserProfile("424711");
+		facebook.userOperations().getUserProfile();
+		assertEquals(2, cache.size());
+
+		// only the fields of the second entry include a profile field
+		String json = StreamUtils.copyToString(new ClassPathResource("rtupdate-many.json", getClass()).getInputStream(), Charset.forName("UTF-8"));
+		RealTimeUpdate update = new ObjectMapper().readValue(json.replace("\"feed\"", "\"name\""), RealTimeUpdate.class);
+		new CacheInvalidatingUpdateHandler(cache).handleUpdate("foo", update);
+		assertEquals(1, cache.size());
+		facebook.userOperations().getUserProfile("424711");
+		assertEquals(1, cache.getHitCount());
+		mockServer.verify();
+	}
+
+}
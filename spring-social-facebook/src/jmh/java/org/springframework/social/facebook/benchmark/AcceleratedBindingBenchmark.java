@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.social.facebook.api.InstagramMedia;
+import org.springframework.social.facebook.api.Page;
+import org.springframework.social.facebook.api.Post;
+import org.springframework.social.facebook.api.impl.json.FacebookModule;
+import org.springframework.util.FileCopyUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptorModule;
+
+/**
+ * Compares binding a {@link Post}, a {@link Page} and an {@link InstagramMedia} with and without the Afterburner module,
+ * configured as FacebookTemplate.setAcceleratedBinding() configures it.
+ * Run with "-prof gc" to see the allocation per call (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AcceleratedBindingBenchmark {
+
+	@Param({ "post", "page", "instagramMedia" })
+	private String fixture;
+
+	@Param({ "false", "true" })
+	private boolean accelerated;
+
+	private byte[] json;
+
+	private ObjectReader reader;
+
+	@Setup
+	public void setup() throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.registerModule(new FacebookModule());
+		objectMapper.registerModule(new JsonInterceptorModule());
+		if (accelerated) {
+			objectMapper.registerModule(new AfterburnerModule());
+		}
+		String resource;
+		if (fixture.equals("post")) {
+			resource = "org/springframework/social/facebook/api/post.json";
+			reader = objectMapper.readerFor(Post.class);
+		} else if (fixture.equals("page")) {
+			resource = "org/springframework/social/facebook/api/page-with-extra-data.json";
+			reader = objectMapper.readerFor(Page.class);
+		} else {
+			resource = "org/springframework/social/facebook/benchmark/instagram-media.json";
+			reader = objectMapper.readerFor(InstagramMedia.class);
+		}
+		json = FileCopyUtils.copyToByteArray(new ClassPathResource(resource).getInputStream());
+	}
+
+	@Benchmark
+	public Object deserialize() throws IOException {
+		return reader.readValue(json);
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.social.facebook.api.Facebook;
+import org.springframework.social.facebook.api.UserOperations;
+import org.springframework.social.facebook.api.impl.FacebookClientFactory;
+import org.springframework.social.facebook.api.impl.FacebookTemplate;
+import org.springframework.social.facebook.connect.FacebookServiceProvider;
+
+/**
+ * Measures the cost of creating a per-token {@link Facebook} instance.
+ * Run with "-prof gc" to see the allocation per call (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacebookCreationBenchmark {
+
+	private FacebookServiceProvider serviceProvider;
+
+	private FacebookClientFactory clientFactory;
+
+	@Setup
+	public void setup() {
+		clientFactory = new FacebookClientFactory();
+		serviceProvider = new FacebookServiceProvider("appId", "appSecret", "namespace", clientFactory);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		clientFactory.destroy();
+	}
+
+	@Benchmark
+	public Facebook serviceProviderGetApi() {
+		return serviceProvider.getApi("accessToken");
+	}
+
+	@Benchmark
+	public Facebook clientFactoryGetFacebook() {
+		return clientFactory.getFacebook("accessToken");
+	}
+
+	@Benchmark
+	public UserOperations clientFactoryGetFacebookAndUserOperations() {
+		return clientFactory.getFacebook("accessToken").userOperations();
+	}
+
+	@Benchmark
+	public Facebook newFacebookTemplate() {
+		return new FacebookTemplate("accessToken");
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.social.facebook.api.Post;
+import org.springframework.social.facebook.api.impl.json.FacebookModule;
+import org.springframework.util.FileCopyUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Measures binding the feed fixtures used by the tests to {@link Post}s.
+ * Posts carry nested "data"-wrapped lists (attachments, tags, recipients), so this exercises the nested list deserializers.
+ * Run with "-prof gc" to see the allocation per call (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedDeserializationBenchmark {
+
+	@Param({ "feed", "feedPage1", "post" })
+	private String fixture;
+
+	private byte[] json;
+
+	private ObjectReader reader;
+
+	@Setup
+	public void setup() throws IOException {
+		ClassPathResource resource = new ClassPathResource("org/springframework/social/facebook/api/" + fixture + ".json");
+		json = FileCopyUtils.copyToByteArray(resource.getInputStream());
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.registerModule(new FacebookModule());
+		reader = objectMapper.readerFor(fixture.equals("post") ? Post.class : Feed.class);
+	}
+
+	@Benchmark
+	public Object deserialize() throws IOException {
+		return reader.readValue(json);
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Feed {
+		public List<Post> data;
+	}
+
+}
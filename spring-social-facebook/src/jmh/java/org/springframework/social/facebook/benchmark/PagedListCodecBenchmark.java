@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.social.facebook.api.PagedList;
+import org.springframework.social.facebook.api.PagingParameters;
+import org.springframework.social.facebook.api.Post;
+import org.springframework.social.facebook.api.impl.PagedListCodec;
+import org.springframework.social.facebook.api.impl.json.FacebookModule;
+import org.springframework.util.FileCopyUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares encoding and decoding a {@link PagedList} of {@link Post}s with {@link PagedListCodec} in the Smile and JSON formats.
+ * Run with "-prof gc" to see the allocation per call (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PagedListCodecBenchmark {
+
+	@Param({ "feed", "feedPage1" })
+	private String fixture;
+
+	@Param({ "smile", "json" })
+	private String format;
+
+	private PagedListCodec codec;
+
+	private PagedList<Post> posts;
+
+	private byte[] encoded;
+
+	@Setup
+	public void setup() throws IOException {
+		ClassPathResource resource = new ClassPathResource("org/springframework/social/facebook/api/" + fixture + ".json");
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.registerModule(new FacebookModule());
+		Feed feed = objectMapper.readValue(FileCopyUtils.copyToByteArray(resource.getInputStream()), Feed.class);
+		posts = new PagedList<Post>(feed.data, new PagingParameters(25, null, 1300894817L, null), new PagingParameters(25, null, null, 1294351475L));
+		codec = format.equals("smile") ? new PagedListCodec() : new PagedListCodec(new JsonFactory());
+		encoded = codec.encode(posts, Post.class);
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		return codec.encode(posts, Post.class);
+	}
+
+	@Benchmark
+	public Object decode() throws IOException {
+		return codec.decode(encoded, Post.class);
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Feed {
+		public List<Post> data;
+	}
+
+}
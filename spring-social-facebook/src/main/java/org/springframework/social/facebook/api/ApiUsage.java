@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.io.Serializable;
+
+/**
+ * Rate limit usage as reported by Facebook in the X-App-Usage, X-Page-Usage and X-Business-Use-Case-Usage response headers.
+ * Usage is given as a percentage of the limit over a rolling one-hour window; requests are throttled by Facebook once any of
+ * the percentages reaches 100.
+ * @see org.springframework.social.facebook.api.impl.UsageThrottlingInterceptor
+ */
+public class ApiUsage implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String type;
+
+	private final int callCount;
+
+	private final int totalCputime;
+
+	private final int totalTime;
+
+	private final int estimatedTimeToRegainAccess;
+
+	public ApiUsage(int callCount, int totalCputime, int totalTime) {
+		this(null, callCount, totalCputime, totalTime, 0);
+	}
+
+	public ApiUsage(String type, int callCount, int totalCputime, int totalTime, int estimatedTimeToRegainAccess) {
+		this.type = type;
+		this.callCount = callCount;
+		this.totalCputime = totalCputime;
+		this.totalTime = totalTime;
+		this.estimatedTimeToRegainAccess = estimatedTimeToRegainAccess;
+	}
+
+	/**
+	 * @return the business use case the usage applies to (e.g., "pages", "ads_management"). Null for app and page usage.
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return the percentage of allowed calls made.
+	 */
+	public int getCallCount() {
+		return callCount;
+	}
+
+	/**
+	 * @return the percentage of allowed CPU time used.
+	 */
+	public int getTotalCputime() {
+		return totalCputime;
+	}
+
+	/**
+	 * @return the percentage of allowed total time used.
+	 */
+	public int getTotalTime() {
+		return totalTime;
+	}
+
+	/**
+	 * @return the time in minutes until requests are no longer throttled. 0 if requests are not being throttled.
+	 */
+	public int getEstimatedTimeToRegainAccess() {
+		return estimatedTimeToRegainAccess;
+	}
+
+	/**
+	 * @return the highest of the call count, CPU time and total time percentages.
+	 */
+	public int getPercentage() {
+		return Math.max(callCount, Math.max(totalCputime, totalTime));
+	}
+
+	@Override
+	public String toString() {
+		return (type != null ? type + " " : "") + "{call_count=" + callCount + ", total_cputime=" + totalCputime + ", total_time=" + totalTime
+				+ (estimatedTimeToRegainAccess > 0 ? ", estimated_time_to_regain_access=" + estimatedTimeToRegainAccess : "") + "}";
+	}
+
+}
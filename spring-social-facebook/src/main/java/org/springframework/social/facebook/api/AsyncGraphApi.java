@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Defines low-level, non-blocking operations against Facebook's Graph API.
+ * This is the asynchronous counterpart of {@link GraphApi}: every operation returns immediately with a {@link CompletableFuture}
+ * that is completed when Facebook's response has been received and bound. Failures complete the future exceptionally
+ * with the same exceptions that {@link GraphApi} operations throw.
+ */
+public interface AsyncGraphApi {
+
+	/**
+	 * Fetches an object, extracting it into the given Java type
+	 * Requires appropriate permission to fetch the object.
+	 * @param objectId the Facebook object's ID
+	 * @param type the Java type to fetch
+	 * @param fields the fields to include in the response.
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a future completed with a Java object representing the requested Facebook object.
+	 */
+	<T> CompletableFuture<T> fetchObject(String objectId, Class<T> type, String... fields);
+
+	/**
+	 * Fetches an object, extracting it into the given Java type
+	 * Requires appropriate permission to fetch the object.
+	 * @param objectId the Facebook object's ID
+	 * @param type the Java type to fetch
+	 * @param queryParameters query parameters to include in the request
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a future completed with a Java object representing the requested Facebook object.
+	 */
+	<T> CompletableFuture<T> fetchObject(String objectId, Class<T> type, MultiValueMap<String, String> queryParameters);
+
+	/**
+	 * Fetches connections, extracting them into a collection of the given Java type 
+	 * Requires appropriate permission to fetch the object connection.
+	 * @param objectId the ID of the object to retrieve the connections for.
+	 * @param connectionName the connection name.
+	 * @param type the Java type of each connection.
+	 * @param fields the fields to include in the response.
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a future completed with a list of Java objects representing the Facebook objects in the connections.
+	 */
+	<T> CompletableFuture<PagedList<T>> fetchConnections(String objectId, String connectionName, Class<T> type, String... fields);
+
+	/**
+	 * Fetches connections, extracting them into a collection of the given Java type 
+	 * Requires appropriate permission to fetch the object connection.
+	 * @param objectId the ID of the object to retrieve the connections for.
+	 * @param connectionName the connection name.
+	 * @param type the Java type of each connection.
+	 * @param queryParameters query parameters to include in the request
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a future completed with a list of Java objects representing the Facebook objects in the connections.
+	 */
+	<T> CompletableFuture<PagedList<T>> fetchConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters);
+
+	/**
+	 * Fetches the page following the given one.
+	 * @param page the page to fetch the next one for.
+	 * @param type the Java type of each connection.
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a future completed with the next page, or with null if there is no next page.
+	 */
+	<T> CompletableFuture<PagedList<T>> fetchNextPagedConnections(PagedList<T> page, Class<T> type);
+
+	/**
+	 * Publishes data to an object's connection.
+	 * Requires appropriate permission to publish to the object connection.
+	 * @param objectId the object ID to publish to.
+	 * @param connectionName the connection name to publish to.
+	 * @param data the data to publish to the connection.
+	 * @return a future completed with the ID of the newly published object.
+	 */
+	CompletableFuture<String> publish(String objectId, String connectionName, MultiValueMap<String, Object> data);
+
+	/**
+	 * Publishes data to an object's connection without attempting to extract an ID from the response.
+	 * Requires appropriate permission to publish to the object connection.
+	 * @param objectId the object ID to publish to.
+	 * @param connectionName the connection name to publish to (may be null).
+	 * @param data the data to publish to the connection.
+	 * @return a future completed when the data has been published.
+	 */
+	CompletableFuture<Void> post(String objectId, String connectionName, MultiValueMap<String, Object> data);
+
+	/**
+	 * Deletes an object.
+	 * Requires appropriate permission to delete the object.
+	 * @param objectId the object ID
+	 * @return a future completed when the object has been deleted.
+	 */
+	CompletableFuture<Void> delete(String objectId);
+
+	/**
+	 * Deletes an object connection.
+	 * Requires appropriate permission to delete the object connection.
+	 * @param objectId the object ID
+	 * @param connectionName the connection name
+	 * @return a future completed when the object connection has been deleted.
+	 */
+	CompletableFuture<Void> delete(String objectId, String connectionName);
+
+	/**
+	 * @return The base URL for the Graph API.
+	 */
+	String getBaseGraphApiUrl();
+
+}
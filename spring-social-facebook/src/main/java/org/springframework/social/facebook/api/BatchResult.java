@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+/**
+ * The result of a single operation in a {@link GraphBatch}.
+ * Before the batch is executed, the operation may be named and made dependent on other operations.
+ * After the batch is executed, the result carries either the operation's typed value or the exception that describes its failure.
+ * @param <T> the type of the operation's value
+ */
+public interface BatchResult<T> {
+
+	/**
+	 * Names the operation, so that other operations may depend on it or refer to its result.
+	 * @param name the operation name
+	 * @return this result
+	 */
+	BatchResult<T> name(String name);
+
+	/**
+	 * Makes the operation wait for the named operation to complete before it is executed.
+	 * @param name the name of the operation to depend on
+	 * @return this result
+	 */
+	BatchResult<T> dependsOn(String name);
+
+	/**
+	 * Makes the operation depend on another operation in the same batch, naming that operation if needed.
+	 * @param operation the operation to depend on
+	 * @return this result
+	 */
+	BatchResult<T> dependsOn(BatchResult<?> operation);
+
+	/**
+	 * Sets whether Facebook should omit the operation's response body when it succeeds.
+	 * Facebook omits the responses of operations that are referenced by other operations by default, so named operations
+	 * (including those named by {@link #reference(String)} or {@link #dependsOn(BatchResult)}) keep their response unless this is set.
+	 * A missing response only counts as a success if this is set to true; otherwise, as Facebook also omits the responses of
+	 * operations whose dependency failed, the operation fails.
+	 * @param omitResponseOnSuccess true to omit the response on success
+	 * @return this result
+	 */
+	BatchResult<T> omitResponseOnSuccess(boolean omitResponseOnSuccess);
+
+	/**
+	 * Creates a reference to a value in this operation's response, for use in the object ID, fields or parameters of a later operation.
+	 * The operation is given a generated name if it hasn't been named yet.
+	 * @param jsonPath a JSONPath expression into the response, such as "$.id" or "$.data.*.id"
+	 * @return the reference expression, such as "{result=me:$.id}"
+	 */
+	String reference(String jsonPath);
+
+	/**
+	 * @return the operation name, or null if it hasn't been named.
+	 */
+	String getName();
+
+	/**
+	 * @return true if the batch containing this operation has been executed.
+	 */
+	boolean isDone();
+
+	/**
+	 * @return true if the operation completed without an error.
+	 */
+	boolean isSuccessful();
+
+	/**
+	 * @return the HTTP status code of the operation's response, or null if Facebook returned no response for it.
+	 */
+	Integer getStatusCode();
+
+	/**
+	 * @return the exception describing the operation's failure, or null if it succeeded.
+	 */
+	RuntimeException getException();
+
+	/**
+	 * Returns the operation's value, throwing the exception describing its failure if it failed.
+	 * @return the operation's value. May be null if Facebook omitted the response on success.
+	 * @throws IllegalStateException if the batch hasn't been executed yet
+	 */
+	T get();
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+/**
+ * How the items of a connection are bound to their Java type by {@link GraphApi#fetchConnections(String, String, Class, org.springframework.util.MultiValueMap, BindingMode, String...)}.
+ */
+public enum BindingMode {
+
+	/**
+	 * Every property of every item is bound when the response is read.
+	 */
+	EAGER,
+
+	/**
+	 * Each item is a view over its own JSON, which is kept as compact UTF-8 bytes when the response is read.
+	 * A property is bound the first time its getter is called, so callers that only read a few properties of each item
+	 * don't pay for binding the rest. Getters that do more than return a field, and any other method, bind the whole item first.
+	 * Items are bound eagerly if their type can't be viewed lazily: final types, types without a no-argument constructor,
+	 * and types bound through a creator or a custom deserializer.
+	 */
+	LAZY
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+/**
+ * Describes a page of connections whose items were handed to a callback rather than returned in a {@link PagedList}.
+ * See {@link GraphApi#forEachConnection(String, String, Class, org.springframework.util.MultiValueMap, java.util.function.Predicate)}.
+ */
+public class ConnectionPageSummary {
+
+	private final int itemCount;
+
+	private final boolean stopped;
+
+	private final PagingParameters previousPage;
+
+	private final PagingParameters nextPage;
+
+	private final Integer totalCount;
+
+	public ConnectionPageSummary(int itemCount, boolean stopped, PagingParameters previousPage, PagingParameters nextPage, Integer totalCount) {
+		this.itemCount = itemCount;
+		this.stopped = stopped;
+		this.previousPage = previousPage;
+		this.nextPage = nextPage;
+		this.totalCount = totalCount;
+	}
+
+	/**
+	 * @return the number of items handed to the callback
+	 */
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	/**
+	 * @return true if the callback stopped the page before its last item, in which case the rest of the page's items were skipped.
+	 * The next page follows the whole page, so the skipped items aren't on it.
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * @return the parameters of the previous page, or null if there is none
+	 */
+	public PagingParameters getPreviousPage() {
+		return previousPage;
+	}
+
+	/**
+	 * @return the parameters of the next page, or null if there is none
+	 */
+	public PagingParameters getNextPage() {
+		return nextPage;
+	}
+
+	/**
+	 * @return the total number of items in the connection, or null if unavailable
+	 */
+	public Integer getTotalCount() {
+		return totalCount;
+	}
+
+}
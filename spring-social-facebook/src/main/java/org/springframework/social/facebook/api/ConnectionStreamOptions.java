@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.io.Serializable;
+
+/**
+ * Options for streaming the items of a connection with {@link GraphApi#streamConnections(String, String, Class, org.springframework.util.MultiValueMap, ConnectionStreamOptions)}.
+ * By default, one page is fetched ahead of the page being consumed and the stream continues until the connection runs out of pages.
+ */
+public class ConnectionStreamOptions implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private int lookahead = 1;
+
+	private int maxItems = Integer.MAX_VALUE;
+
+	private int maxPages = Integer.MAX_VALUE;
+
+	/**
+	 * Sets how many pages to fetch in the background ahead of the page being consumed.
+	 * @param lookahead the number of pages to prefetch. 0 fetches each page only when the previous one has been consumed.
+	 * @return this options object
+	 */
+	public ConnectionStreamOptions lookahead(int lookahead) {
+		if (lookahead < 0) {
+			throw new IllegalArgumentException("lookahead must not be negative");
+		}
+		this.lookahead = lookahead;
+		return this;
+	}
+
+	/**
+	 * Limits the number of items the stream returns. No pages are fetched once enough items have been fetched.
+	 * @param maxItems the maximum number of items
+	 * @return this options object
+	 */
+	public ConnectionStreamOptions maxItems(int maxItems) {
+		if (maxItems < 0) {
+			throw new IllegalArgumentException("maxItems must not be negative");
+		}
+		this.maxItems = maxItems;
+		return this;
+	}
+
+	/**
+	 * Limits the number of pages fetched for the stream.
+	 * @param maxPages the maximum number of pages
+	 * @return this options object
+	 */
+	public ConnectionStreamOptions maxPages(int maxPages) {
+		if (maxPages < 0) {
+			throw new IllegalArgumentException("maxPages must not be negative");
+		}
+		this.maxPages = maxPages;
+		return this;
+	}
+
+	public int getLookahead() {
+		return lookahead;
+	}
+
+	public int getMaxItems() {
+		return maxItems;
+	}
+
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+}
@@ -15,6 +15,8 @@
  */
 package org.springframework.social.facebook.api;
 
+import java.io.OutputStream;
+
 import org.springframework.social.ApiException;
 import org.springframework.social.InsufficientPermissionException;
 import org.springframework.social.MissingAuthorizationException;
@@ -50,6 +52,19 @@ public interface EventOperations {
 	 * @throws ApiException if there is an error while communicating with Facebook.
 	 */
 	byte[] getEventImage(String eventId, ImageType imageType);
+
+	/**
+	 * Retrieves an event's image, streaming it into the given output stream without holding the whole image in memory.
+	 * The default implementation retrieves the image into memory and then writes it out.
+	 * @param eventId the event ID
+	 * @param imageType the image type (eg., small, normal, large. square)
+	 * @param out the output stream to write the image to. It is not closed.
+	 * @return the number of bytes written.
+	 * @throws ApiException if there is an error while communicating with Facebook.
+	 */
+	default long getEventImage(String eventId, ImageType imageType, OutputStream out) {
+		return GraphApiDefaults.copy(getEventImage(eventId, imageType), out);
+	}
 	
 	/**
 	 * Retrieves the list of an event's invitees.
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Map backing {@link FacebookObject#getExtraData()}.
+ * Most objects carry no more than a handful of unmapped properties, so entries are kept in a flat key/value array
+ * and only moved into a {@link LinkedHashMap} once there are more than {@link #ARRAY_LIMIT} of them.
+ * Iteration follows insertion order in both representations.
+ */
+class ExtraDataMap extends AbstractMap<String, Object> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final int ARRAY_LIMIT = 8;
+
+	private static final int INITIAL_CAPACITY = 2;
+
+	private Object[] table;
+
+	private int size;
+
+	private Map<String, Object> hashed;
+
+	@Override
+	public int size() {
+		return hashed != null ? hashed.size() : size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return hashed != null ? hashed.containsKey(key) : indexOf(key) >= 0;
+	}
+
+	@Override
+	public Object get(Object key) {
+		if (hashed != null) {
+			return hashed.get(key);
+		}
+		int index = indexOf(key);
+		return index >= 0 ? table[index + 1] : null;
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		if (hashed != null) {
+			return hashed.put(key, value);
+		}
+		int index = indexOf(key);
+		if (index >= 0) {
+			Object previous = table[index + 1];
+			table[index + 1] = value;
+			return previous;
+		}
+		if (size == ARRAY_LIMIT) {
+			hashed = new LinkedHashMap<String, Object>();
+			for (int i = 0; i < size * 2; i += 2) {
+				hashed.put((String) table[i], table[i + 1]);
+			}
+			hashed.put(key, value);
+			table = null;
+			size = 0;
+			return null;
+		}
+		if (table == null) {
+			table = new Object[INITIAL_CAPACITY * 2];
+		} else if (size * 2 == table.length) {
+			Object[] grown = new Object[Math.min(table.length * 2, ARRAY_LIMIT * 2)];
+			System.arraycopy(table, 0, grown, 0, table.length);
+			table = grown;
+		}
+		table[size * 2] = key;
+		table[size * 2 + 1] = value;
+		size++;
+		return null;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		if (hashed != null) {
+			return hashed.remove(key);
+		}
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		Object previous = table[index + 1];
+		removeAt(index);
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		hashed = null;
+		table = null;
+		size = 0;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		if (hashed != null) {
+			return hashed.entrySet();
+		}
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new ArrayEntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return ExtraDataMap.this.size();
+			}
+		};
+	}
+
+	private int indexOf(Object key) {
+		for (int i = 0; i < size * 2; i += 2) {
+			if (ObjectUtils.nullSafeEquals(table[i], key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int index) {
+		int last = size * 2 - 2;
+		System.arraycopy(table, index + 2, table, index, last - index);
+		table[last] = null;
+		table[last + 1] = null;
+		size--;
+	}
+
+	private class ArrayEntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+		private int next;
+
+		private int current = -1;
+
+		public boolean hasNext() {
+			return hashed == null && next < size * 2;
+		}
+
+		public Map.Entry<String, Object> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			current = next;
+			next += 2;
+			return new SimpleEntry<String, Object>((String) table[current], table[current + 1]) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public Object setValue(Object value) {
+					put(getKey(), value);
+					return super.setValue(value);
+				}
+			};
+		}
+
+		public void remove() {
+			if (current < 0) {
+				throw new IllegalStateException();
+			}
+			removeAt(current);
+			next = current;
+			current = -1;
+		}
+
+	}
+
+}
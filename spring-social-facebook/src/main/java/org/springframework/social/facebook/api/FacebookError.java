@@ -15,11 +15,15 @@
  */
 package org.springframework.social.facebook.api;
 
+import java.io.Serializable;
+
 /**
  * Represents an error returned from a bad Graph API request.
  * @author Craig Walls
  */
-public class FacebookError {
+public class FacebookError implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private final Integer code;
 	
@@ -32,14 +36,24 @@ public class FacebookError {
 	private final String userMessage;
 	
 	private final String userTitle;
+
+	private final String traceId;
+
+	private final boolean isTransient;
 	
 	public FacebookError(Integer code, String type, String message, Integer subcode, String userMessage, String userTitle) {
+		this(code, type, message, subcode, userMessage, userTitle, null, false);
+	}
+
+	public FacebookError(Integer code, String type, String message, Integer subcode, String userMessage, String userTitle, String traceId, boolean isTransient) {
 		this.code = code != null && code != 0 ? code : null;
 		this.type = type;
 		this.message = message;
 		this.subcode = subcode;
 		this.userMessage = userMessage;
 		this.userTitle = userTitle;
+		this.traceId = traceId;
+		this.isTransient = isTransient;
 	}
 	
 	public Integer getCode() {
@@ -65,5 +79,19 @@ public class FacebookError {
 	public String getUserTitle() {
 		return userTitle;
 	}
+
+	/**
+	 * @return the "fbtrace_id" of the error, which identifies the request to Facebook support.
+	 */
+	public String getTraceId() {
+		return traceId;
+	}
+
+	/**
+	 * @return true if Facebook reported the error as transient ("is_transient"), meaning the request may succeed if retried.
+	 */
+	public boolean isTransient() {
+		return isTransient;
+	}
 	
 }
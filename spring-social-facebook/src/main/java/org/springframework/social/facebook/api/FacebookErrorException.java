@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+/**
+ * Carries the {@link FacebookError} a Graph API request failed with.
+ * It is attached to the exceptions thrown for Graph API errors, as their cause or, where the exception's cause is already set, as a suppressed
+ * exception, so that callers such as retry logic can look at the error's code, subcode, trace ID and transient flag without parsing the
+ * response again. It has no stack trace of its own.
+ */
+@SuppressWarnings("serial")
+public class FacebookErrorException extends RuntimeException {
+
+	private final FacebookError error;
+
+	public FacebookErrorException(FacebookError error) {
+		super(error.getMessage(), null, false, false);
+		this.error = error;
+	}
+
+	public FacebookError getError() {
+		return error;
+	}
+
+	/**
+	 * Finds the error a Graph API request failed with in an exception, its causes and their suppressed exceptions.
+	 * @param exception the exception the request failed with
+	 * @return the error, or null if the exception wasn't caused by a Graph API error
+	 */
+	public static FacebookError findError(Throwable exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause instanceof FacebookErrorException) {
+				return ((FacebookErrorException) cause).getError();
+			}
+			for (Throwable suppressed : cause.getSuppressed()) {
+				if (suppressed instanceof FacebookErrorException) {
+					return ((FacebookErrorException) suppressed).getError();
+				}
+			}
+		}
+		return null;
+	}
+
+}
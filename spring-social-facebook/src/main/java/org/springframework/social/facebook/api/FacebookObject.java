@@ -15,15 +15,17 @@
  */
 package org.springframework.social.facebook.api;
 
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Base class for all Facebook types.
  * Offers an extraData property for carrying any data in response from Facebook that won't be otherwise mapped to any properties of the subclass.
+ * The extraData map is only allocated once a property is added or it is first requested.
  * @author Craig Walls
  */
 public abstract class FacebookObject {
@@ -32,14 +34,18 @@ public abstract class FacebookObject {
 
 	private JsonNode rawJson;
 
+	private byte[] rawJsonBytes;
+
 	public FacebookObject() {
-		this.extraData = new HashMap<String, Object>();
 	}
 	
 	/**
 	 * @return Any fields in response from Facebook that are otherwise not mapped to any properties.
 	 */
 	public Map<String, Object> getExtraData() {
+		if (extraData == null) {
+			extraData = new ExtraDataMap();
+		}
 		return extraData;
 	}
 	
@@ -49,15 +55,41 @@ public abstract class FacebookObject {
 	 * @param value The property's value.
 	 */
 	protected void add(String key, Object value) {
-		extraData.put(key, value);
+		getExtraData().put(key, value);
 	}
 
-	public JsonNode getRawJson() {
+	/**
+	 * @return The JSON this object was bound from, or null if it wasn't retained.
+	 * @see RawJsonRetention
+	 */
+	public synchronized JsonNode getRawJson() {
+		if (rawJson == null && rawJsonBytes != null) {
+			try {
+				rawJson = RawJsonMapperHolder.MAPPER.readTree(rawJsonBytes);
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to parse the retained raw JSON", e);
+			}
+			rawJsonBytes = null;
+		}
 		return rawJson;
 	}
 
-	public void setRawJson(JsonNode rawJson) {
+	public synchronized void setRawJson(JsonNode rawJson) {
 		this.rawJson = rawJson;
+		this.rawJsonBytes = null;
+	}
+
+	/**
+	 * Sets the JSON this object was bound from as UTF-8 bytes, to be parsed when {@link #getRawJson()} is first called.
+	 * @param rawJsonBytes the JSON
+	 */
+	public synchronized void setRawJsonBytes(byte[] rawJsonBytes) {
+		this.rawJsonBytes = rawJsonBytes;
+		this.rawJson = null;
+	}
+
+	private static class RawJsonMapperHolder {
+		static final ObjectMapper MAPPER = new ObjectMapper();
 	}
 
 }
@@ -15,13 +15,28 @@
  */
 package org.springframework.social.facebook.api;
 
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 /**
  * Defines low-level operations against Facebook's Graph API
  * @author Craig Walls
  */
 public interface GraphApi {
+
+	/**
+	 * The maximum number of IDs that Facebook accepts in a single multi-ID ("?ids=") request.
+	 */
+	static final int MAX_OBJECT_IDS = 50;
 	
 	/**
 	 * Fetches an object, extracting it into the given Java type
@@ -55,6 +70,54 @@ public interface GraphApi {
 	 */
 	<T> T fetchObject(String objectId, Class<T> type, MultiValueMap<String, String> queryParameters);
 
+	/**
+	 * Fetches an object with the fields selected by a query, extracting it into the query's Java type.
+	 * Requires appropriate permission to fetch the object.
+	 * @param objectId the Facebook object's ID
+	 * @param query the compiled query
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return an Java object representing the requested Facebook object.
+	 */
+	default <T> T fetchObject(String objectId, GraphQuery<T> query) {
+		return fetchObject(objectId, query.getType(), query.getFields());
+	}
+
+	/**
+	 * Fetches an object as the JSON returned by the Graph API, without binding it, for passing it on as it is.
+	 * The request goes through the same error handling and interceptors as {@link #fetchObject(String, Class, MultiValueMap)}.
+	 * The default implementation binds the object to a {@link JsonNode} and writes it back out.
+	 * @param objectId the Facebook object's ID
+	 * @param queryParameters query parameters to include in the request, may be null
+	 * @return the response body, in UTF-8
+	 */
+	default byte[] fetchRawObject(String objectId, MultiValueMap<String, String> queryParameters) {
+		return GraphApiDefaults.toBytes(fetchObject(objectId, JsonNode.class, GraphApiDefaults.orEmpty(queryParameters)));
+	}
+
+	/**
+	 * Fetches several objects of the same type, extracting them into the given Java type.
+	 * The objects are fetched with multi-ID requests ("?ids=a,b,c") of up to {@link #MAX_OBJECT_IDS} IDs each, sent in parallel.
+	 * An object that can't be fetched doesn't fail the whole call: its ID is left out of the returned map and the error
+	 * is reported in {@link ObjectsById#getErrors()}.
+	 * The default implementation fetches the objects one at a time.
+	 * @param objectIds the Facebook objects' IDs
+	 * @param type the Java type to fetch
+	 * @param fields the fields to include in the response.
+	 * @param <T> The Java type to bind the Facebook objects to
+	 * @return a map of the fetched objects, keyed by ID, in the order the IDs were given.
+	 */
+	default <T> ObjectsById<T> fetchObjects(Collection<String> objectIds, Class<T> type, String... fields) {
+		ObjectsById<T> objects = new ObjectsById<T>();
+		for (String objectId : new LinkedHashSet<String>(objectIds)) {
+			try {
+				objects.put(objectId, fetchObject(objectId, type, fields));
+			} catch (RuntimeException e) {
+				objects.addError(objectId, e);
+			}
+		}
+		return objects;
+	}
+
 	/**
 	 * Fetches connections, extracting them into a collection of the given Java type 
 	 * Requires appropriate permission to fetch the object connection.
@@ -92,6 +155,127 @@ public interface GraphApi {
 	 */
 	<T> PagedList<T> fetchConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters, String... fields);
 
+	/**
+	 * Fetches connections, extracting them into a collection of the given Java type, bound as specified by the binding mode.
+	 * With {@link BindingMode#LAZY}, each item only binds the properties whose getters are called, which saves binding
+	 * wide types such as {@link Post} or {@link Page} when only a few of their properties are read.
+	 * Requires appropriate permission to fetch the object connection.
+	 * The default implementation ignores the binding mode and binds each item eagerly.
+	 * @param objectId the ID of the object to retrieve the connections for.
+	 * @param connectionName the connection name.
+	 * @param type the Java type of each connection.
+	 * @param queryParameters query parameters to include in the request, may be null
+	 * @param bindingMode whether to bind each item when the response is read or as its properties are read
+	 * @param fields the fields to include in the response.
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a list of Java objects representing the Facebook objects in the connections.
+	 */
+	default <T> PagedList<T> fetchConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters, BindingMode bindingMode, String... fields) {
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		if (queryParameters != null) {
+			parameters.putAll(queryParameters);
+		}
+		return fetchConnections(objectId, connectionName, type, parameters, fields);
+	}
+
+	/**
+	 * Fetches connections with the fields selected by a query, extracting them into a collection of the query's Java type.
+	 * Requires appropriate permission to fetch the object connection.
+	 * @param objectId the ID of the object to retrieve the connections for.
+	 * @param connectionName the connection name.
+	 * @param query the compiled query
+	 * @param queryParameters query parameters to include in the request, may be null. A "fields" parameter is replaced by the query's fields.
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a list of Java objects representing the Facebook objects in the connections.
+	 */
+	default <T> PagedList<T> fetchConnections(String objectId, String connectionName, GraphQuery<T> query, MultiValueMap<String, String> queryParameters) {
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		if (queryParameters != null) {
+			parameters.putAll(queryParameters);
+		}
+		parameters.set("fields", query.getFields());
+		return fetchConnections(objectId, connectionName, query.getType(), parameters);
+	}
+
+	/**
+	 * Fetches a page of connections as the JSON returned by the Graph API, without binding its items, for passing it on as it is.
+	 * The paging parameters and total count of the page are read from the response as by {@link #fetchConnections(String, String, Class, MultiValueMap)}.
+	 * The request goes through the same error handling and interceptors.
+	 * The default implementation binds the items to {@link JsonNode}s and writes them back out under "data".
+	 * @param objectId the ID of the object to retrieve the connections for.
+	 * @param connectionName the connection name.
+	 * @param queryParameters query parameters to include in the request, may be null
+	 * @return the response body and the paging parameters of the page
+	 */
+	default RawConnectionPage fetchRawConnections(String objectId, String connectionName, MultiValueMap<String, String> queryParameters) {
+		return GraphApiDefaults.rawPage(fetchConnections(objectId, connectionName, JsonNode.class, GraphApiDefaults.orEmpty(queryParameters)));
+	}
+
+	/**
+	 * Streams the items of a connection across all of its pages.
+	 * The stream is lazy: pages are fetched as the stream is consumed, following the "next" links (or the "after" cursors)
+	 * of each page, and the next page is fetched in the background while the current one is being consumed.
+	 * Close the stream (or consume it fully) to stop any pending prefetch.
+	 * @param objectId the ID of the object to retrieve the connections for.
+	 * @param connectionName the connection name.
+	 * @param type the Java type of each connection.
+	 * @param queryParameters query parameters to include in the request for the first page
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a lazy stream of the Java objects representing the Facebook objects in the connection.
+	 */
+	default <T> Stream<T> streamConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters) {
+		return streamConnections(objectId, connectionName, type, queryParameters, new ConnectionStreamOptions());
+	}
+
+	/**
+	 * Streams the items of a connection across all of its pages.
+	 * The stream is lazy: pages are fetched as the stream is consumed, following the "next" links (or the "after" cursors)
+	 * of each page, and up to {@link ConnectionStreamOptions#getLookahead()} pages are fetched in the background ahead of the
+	 * page being consumed. Close the stream (or consume it fully) to stop any pending prefetch.
+	 * The default implementation fetches each page when the previous one has been consumed, without prefetching.
+	 * @param objectId the ID of the object to retrieve the connections for.
+	 * @param connectionName the connection name.
+	 * @param type the Java type of each connection.
+	 * @param queryParameters query parameters to include in the request for the first page
+	 * @param options the prefetch depth and item/page limits of the stream
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return a lazy stream of the Java objects representing the Facebook objects in the connection.
+	 */
+	default <T> Stream<T> streamConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters, ConnectionStreamOptions options) {
+		return GraphApiDefaults.stream(this, objectId, connectionName, type, queryParameters, options);
+	}
+
+	/**
+	 * Fetches a page of connections, handing each item to the callback as soon as it is bound from the response rather than building a list,
+	 * so that only one item at a time is held in memory.
+	 * The callback returns false to stop: the rest of the page's items are then skipped without being bound.
+	 * The paging parameters and total count of the page are read after the items, and are reported in the returned summary
+	 * whether or not the callback stopped.
+	 * The default implementation binds the whole page before handing its items to the callback.
+	 * @param objectId the ID of the object to retrieve the connections for.
+	 * @param connectionName the connection name.
+	 * @param type the Java type of each connection.
+	 * @param queryParameters query parameters to include in the request, may be null
+	 * @param callback called with each item in turn; returns true to go on to the next item, false to stop
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return the number of items handed to the callback and the paging parameters of the page
+	 */
+	default <T> ConnectionPageSummary forEachConnection(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters, Predicate<? super T> callback) {
+		PagedList<T> page = fetchConnections(objectId, connectionName, type, GraphApiDefaults.orEmpty(queryParameters));
+		int itemCount = 0;
+		boolean stopped = false;
+		for (T item : page) {
+			if (item != null) {
+				itemCount++;
+				if (!callback.test(item)) {
+					stopped = true;
+					break;
+				}
+			}
+		}
+		return new ConnectionPageSummary(itemCount, stopped, page.getPreviousPage(), page.getNextPage(), page.getTotalCount());
+	}
+
 	/**
 	 * Fetches an image as an array of bytes.
 	 * @param objectId the object ID
@@ -111,6 +295,64 @@ public interface GraphApi {
 	 */
 	byte[] fetchImage(String objectId, String connectionName, Integer width, Integer height);
 
+	/**
+	 * Fetches an image, streaming it into the given output stream as it is received, without holding the whole image in memory.
+	 * The output stream is not closed.
+	 * The default implementation fetches the image into memory and then writes it out.
+	 * @param objectId the object ID
+	 * @param connectionName the connection name
+	 * @param imageType the type of image to retrieve (eg., small, normal, large, or square)
+	 * @param out the output stream to write the image to
+	 * @return the number of bytes written.
+	 */
+	default long fetchImage(String objectId, String connectionName, ImageType imageType, OutputStream out) {
+		return GraphApiDefaults.copy(fetchImage(objectId, connectionName, imageType), out);
+	}
+
+	/**
+	 * Fetches an image, streaming it into the given output stream as it is received, without holding the whole image in memory.
+	 * The output stream is not closed.
+	 * The default implementation fetches the image into memory and then writes it out.
+	 * @param objectId the object ID
+	 * @param connectionName the connection name
+	 * @param width desired width of the image (optional)
+	 * @param height desired height of the image (optional)
+	 * @param out the output stream to write the image to
+	 * @return the number of bytes written.
+	 */
+	default long fetchImage(String objectId, String connectionName, Integer width, Integer height, OutputStream out) {
+		return GraphApiDefaults.copy(fetchImage(objectId, connectionName, width, height), out);
+	}
+
+	/**
+	 * Fetches an image, streaming it into the given channel (e.g., a {@link java.nio.channels.FileChannel}) as it is received,
+	 * without holding the whole image in memory. The channel is not closed.
+	 * The default implementation fetches the image into memory and then writes it out.
+	 * @param objectId the object ID
+	 * @param connectionName the connection name
+	 * @param imageType the type of image to retrieve (eg., small, normal, large, or square)
+	 * @param channel the channel to write the image to
+	 * @return the number of bytes written.
+	 */
+	default long fetchImage(String objectId, String connectionName, ImageType imageType, WritableByteChannel channel) {
+		return GraphApiDefaults.copy(fetchImage(objectId, connectionName, imageType), channel);
+	}
+
+	/**
+	 * Fetches an image, streaming it into the given channel (e.g., a {@link java.nio.channels.FileChannel}) as it is received,
+	 * without holding the whole image in memory. The channel is not closed.
+	 * The default implementation fetches the image into memory and then writes it out.
+	 * @param objectId the object ID
+	 * @param connectionName the connection name
+	 * @param width desired width of the image (optional)
+	 * @param height desired height of the image (optional)
+	 * @param channel the channel to write the image to
+	 * @return the number of bytes written.
+	 */
+	default long fetchImage(String objectId, String connectionName, Integer width, Integer height, WritableByteChannel channel) {
+		return GraphApiDefaults.copy(fetchImage(objectId, connectionName, width, height), channel);
+	}
+
 	/**
 	 * Publishes data to an object's connection.
 	 * Requires appropriate permission to publish to the object connection.
@@ -166,6 +408,16 @@ public interface GraphApi {
 	 */
 	void delete(String objectId, String connectionName, MultiValueMap<String, String> data);
 
+	/**
+	 * Starts a batch of Graph API operations to be sent to Facebook in a single request.
+	 * Add operations to the returned {@link GraphBatch} and call {@link GraphBatch#execute()} to send them.
+	 * The default implementation sends each operation as a request of its own, one at a time, when the batch is executed.
+	 * @return a new, empty batch.
+	 */
+	default GraphBatch batch() {
+		return new SequentialGraphBatch(this);
+	}
+
 	/**
 	 * @return The application namespace associated with this GraphApi instance. Useful for interacting with Facebook's OpenGraph actions.
 	 * 			May be null if no namespace was specified.
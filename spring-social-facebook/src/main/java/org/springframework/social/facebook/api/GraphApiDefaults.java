@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Support for the default methods of {@link GraphApi} and the operations interfaces, which implement the newer operations
+ * on top of the original ones for implementations that don't provide their own.
+ */
+final class GraphApiDefaults {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private GraphApiDefaults() {
+	}
+
+	// the original GraphApi methods don't accept null query parameters
+	static MultiValueMap<String, String> orEmpty(MultiValueMap<String, String> queryParameters) {
+		return queryParameters != null ? queryParameters : new LinkedMultiValueMap<String, String>();
+	}
+
+	static byte[] toBytes(JsonNode node) {
+		return node != null ? node.toString().getBytes(UTF8) : new byte[0];
+	}
+
+	// the items of the page under "data", without the paging and summary, which the RawConnectionPage carries
+	static RawConnectionPage rawPage(PagedList<JsonNode> page) {
+		ObjectNode body = JsonNodeFactory.instance.objectNode();
+		body.putArray("data").addAll(page);
+		return new RawConnectionPage(toBytes(body), page.getPreviousPage(), page.getNextPage(), page.getTotalCount());
+	}
+
+	static long copy(byte[] image, OutputStream out) {
+		if (image == null) {
+			return 0;
+		}
+		try {
+			out.write(image);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncategorizedApiException("facebook", "Unable to copy the image: " + e.getMessage(), e);
+		}
+		return image.length;
+	}
+
+	static long copy(byte[] image, WritableByteChannel channel) {
+		if (image == null) {
+			return 0;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(image);
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncategorizedApiException("facebook", "Unable to copy the image: " + e.getMessage(), e);
+		}
+		return image.length;
+	}
+
+	static <T> Stream<T> stream(GraphApi graphApi, String objectId, String connectionName, Class<T> type,
+			MultiValueMap<String, String> queryParameters, ConnectionStreamOptions options) {
+		Iterator<T> iterator = new PageIterator<T>(graphApi, objectId, connectionName, type, queryParameters, options);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+	}
+
+	/**
+	 * Iterates over the items of a connection, fetching each page when the previous one has been consumed.
+	 * Later pages are requested with the paging parameters of the page before them.
+	 */
+	private static class PageIterator<T> implements Iterator<T> {
+
+		private final GraphApi graphApi;
+
+		private final String objectId;
+
+		private final String connectionName;
+
+		private final Class<T> type;
+
+		private final ConnectionStreamOptions options;
+
+		private MultiValueMap<String, String> nextPageParameters;
+
+		private int pagesFetched;
+
+		private int itemsReturned;
+
+		private Iterator<T> currentPage = Collections.<T>emptyList().iterator();
+
+		public PageIterator(GraphApi graphApi, String objectId, String connectionName, Class<T> type,
+				MultiValueMap<String, String> queryParameters, ConnectionStreamOptions options) {
+			this.graphApi = graphApi;
+			this.objectId = objectId;
+			this.connectionName = connectionName;
+			this.type = type;
+			this.options = options;
+			this.nextPageParameters = orEmpty(queryParameters);
+		}
+
+		public boolean hasNext() {
+			while (!currentPage.hasNext()) {
+				if (nextPageParameters == null || pagesFetched >= options.getMaxPages() || itemsReturned >= options.getMaxItems()) {
+					return false;
+				}
+				PagedList<T> page = graphApi.fetchConnections(objectId, connectionName, type, nextPageParameters);
+				pagesFetched++;
+				nextPageParameters = page.isEmpty() || page.getNextPage() == null ? null : merge(nextPageParameters, page.getNextPage());
+				currentPage = page.iterator();
+			}
+			return itemsReturned < options.getMaxItems();
+		}
+
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			itemsReturned++;
+			return currentPage.next();
+		}
+
+		private static MultiValueMap<String, String> merge(MultiValueMap<String, String> parameters, PagingParameters nextPage) {
+			MultiValueMap<String, String> merged = new LinkedMultiValueMap<String, String>(parameters);
+			merged.setAll(nextPage.toMap().toSingleValueMap());
+			return merged;
+		}
+
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.util.List;
+
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Collects Graph API operations to be sent to Facebook as a single batch request.
+ * Each operation added to the batch returns a {@link BatchResult} that is completed when the batch is executed.
+ * A batch may contain at most {@link #MAX_OPERATIONS} operations and can only be executed once.
+ * 
+ * Operations may refer to the results of earlier operations in the same batch by name, using JSONPath expressions
+ * such as "{result=get-friends:$.data.*.id}" (see {@link BatchResult#reference(String)}).
+ */
+public interface GraphBatch {
+
+	/**
+	 * The maximum number of operations that Facebook accepts in a single batch request.
+	 */
+	static final int MAX_OPERATIONS = 50;
+
+	/**
+	 * Adds an operation that fetches an object, extracting it into the given Java type.
+	 * @param objectId the Facebook object's ID (may contain result references)
+	 * @param type the Java type to fetch
+	 * @param fields the fields to include in the response.
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return the result of the operation, completed when the batch is executed.
+	 */
+	<T> BatchResult<T> fetchObject(String objectId, Class<T> type, String... fields);
+
+	/**
+	 * Adds an operation that fetches an object, extracting it into the given Java type.
+	 * @param objectId the Facebook object's ID (may contain result references)
+	 * @param type the Java type to fetch
+	 * @param queryParameters query parameters to include in the request
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return the result of the operation, completed when the batch is executed.
+	 */
+	<T> BatchResult<T> fetchObject(String objectId, Class<T> type, MultiValueMap<String, String> queryParameters);
+
+	/**
+	 * Adds an operation that fetches connections, extracting them into a {@link PagedList} of the given Java type.
+	 * @param objectId the ID of the object to retrieve the connections for (may contain result references)
+	 * @param connectionName the connection name.
+	 * @param type the Java type of each connection.
+	 * @param fields the fields to include in the response.
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return the result of the operation, completed when the batch is executed.
+	 */
+	<T> BatchResult<PagedList<T>> fetchConnections(String objectId, String connectionName, Class<T> type, String... fields);
+
+	/**
+	 * Adds an operation that fetches connections, extracting them into a {@link PagedList} of the given Java type.
+	 * @param objectId the ID of the object to retrieve the connections for (may contain result references)
+	 * @param connectionName the connection name.
+	 * @param type the Java type of each connection.
+	 * @param queryParameters query parameters to include in the request
+	 * @param <T> The Java type to bind the Facebook object to
+	 * @return the result of the operation, completed when the batch is executed.
+	 */
+	<T> BatchResult<PagedList<T>> fetchConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters);
+
+	/**
+	 * Adds an operation that publishes data to an object's connection.
+	 * Binary data (such as photo uploads) is not supported in batch operations.
+	 * @param objectId the object ID to publish to.
+	 * @param connectionName the connection name to publish to.
+	 * @param data the data to publish to the connection.
+	 * @return the result of the operation, carrying the ID of the newly published object.
+	 */
+	BatchResult<String> publish(String objectId, String connectionName, MultiValueMap<String, Object> data);
+
+	/**
+	 * Adds an operation that posts data to an object or an object's connection without extracting an ID from the response.
+	 * Binary data (such as photo uploads) is not supported in batch operations.
+	 * @param objectId the object ID to post to.
+	 * @param connectionName the connection name to post to (may be null).
+	 * @param data the data to post.
+	 * @return the result of the operation.
+	 */
+	BatchResult<Void> post(String objectId, String connectionName, MultiValueMap<String, Object> data);
+
+	/**
+	 * Adds an operation that deletes an object.
+	 * @param objectId the object ID
+	 * @return the result of the operation.
+	 */
+	BatchResult<Void> delete(String objectId);
+
+	/**
+	 * Adds an operation that deletes an object connection.
+	 * @param objectId the object ID
+	 * @param connectionName the connection name
+	 * @return the result of the operation.
+	 */
+	BatchResult<Void> delete(String objectId, String connectionName);
+
+	/**
+	 * @return the number of operations in the batch.
+	 */
+	int size();
+
+	/**
+	 * Sends all operations to Facebook in a single request and completes their results.
+	 * Failures of individual operations do not cause this method to fail; they are reported through each operation's {@link BatchResult}.
+	 * @return the results of all operations, in the order in which they were added.
+	 */
+	List<BatchResult<?>> execute();
+
+}
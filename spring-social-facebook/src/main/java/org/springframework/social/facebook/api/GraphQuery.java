@@ -0,0 +1,258 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>A selection of the fields of a Graph API object or connection, along with the Java type to bind them to.</p>
+ * <p>
+ * A query is built with {@link #select(Class)} and compiled once: the fields parameter is joined and URL-encoded when the query is
+ * compiled, and reused as is by every request made with the query, whatever its access token. Queries are immutable and are meant
+ * to be kept in constants.
+ * </p>
+ * <pre>
+ * static final GraphQuery&lt;Post&gt; POSTS = GraphQuery.select(Post.class)
+ *     .fields("id", "message")
+ *     .field(GraphQuery.field("comments").modifier("limit", 0).modifier("summary", true))
+ *     .field(GraphQuery.field("from").fields("id", "name"))
+ *     .compile();
+ * </pre>
+ * @param <T> the Java type the selected objects are bound to
+ * @see GraphApi#fetchObject(String, GraphQuery)
+ * @see GraphApi#fetchConnections(String, String, GraphQuery, org.springframework.util.MultiValueMap)
+ */
+public final class GraphQuery<T> {
+
+	private final Class<T> type;
+
+	private final String[] fieldNames;
+
+	private final String fields;
+
+	private final String encodedFields;
+
+	private GraphQuery(Class<T> type, List<String> selection) {
+		this.type = type;
+		this.fieldNames = new String[selection.size()];
+		for (int i = 0; i < fieldNames.length; i++) {
+			fieldNames[i] = nameOf(selection.get(i));
+		}
+		this.fields = join(selection);
+		try {
+			this.encodedFields = URLEncoder.encode(fields, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Starts building a query.
+	 * @param type the Java type to bind the selected objects to
+	 * @param <T> the Java type
+	 * @return a builder for the query
+	 */
+	public static <T> Builder<T> select(Class<T> type) {
+		return new Builder<T>(type);
+	}
+
+	/**
+	 * Starts building a field with modifiers or subfields.
+	 * @param name the field's name
+	 * @return the field
+	 */
+	public static Field field(String name) {
+		return new Field(name);
+	}
+
+	public Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * @return the selected fields, as given in the fields parameter. Empty if no fields are selected.
+	 */
+	public String getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return the selected fields, URL-encoded.
+	 */
+	public String getEncodedFields() {
+		return encodedFields;
+	}
+
+	/**
+	 * @return the names of the selected fields, without their modifiers and subfields.
+	 */
+	public String[] getFieldNames() {
+		return fieldNames.clone();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof GraphQuery)) {
+			return false;
+		}
+		GraphQuery<?> other = (GraphQuery<?>) obj;
+		return type == other.type && fields.equals(other.fields);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * type.hashCode() + fields.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return type.getSimpleName() + "{" + fields + "}";
+	}
+
+	private static String nameOf(String field) {
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c == '{' || c == '.' || c == '(') {
+				return field.substring(0, i);
+			}
+		}
+		return field;
+	}
+
+	private static String join(List<String> fields) {
+		StringBuilder builder = new StringBuilder();
+		for (String field : fields) {
+			if (builder.length() > 0) {
+				builder.append(',');
+			}
+			builder.append(field);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Builds a {@link GraphQuery}.
+	 * @param <T> the Java type the selected objects are bound to
+	 */
+	public static final class Builder<T> {
+
+		private final Class<T> type;
+
+		private final List<String> selection = new ArrayList<String>();
+
+		private Builder(Class<T> type) {
+			if (type == null) {
+				throw new IllegalArgumentException("The type must not be null");
+			}
+			this.type = type;
+		}
+
+		/**
+		 * Selects fields. A field may carry its own modifiers and subfields in the Graph API's syntax, e.g. "from{id,name}".
+		 * @param fields the fields
+		 * @return this builder
+		 */
+		public Builder<T> fields(String... fields) {
+			selection.addAll(Arrays.asList(fields));
+			return this;
+		}
+
+		/**
+		 * Selects a field with modifiers or subfields.
+		 * @param field the field
+		 * @return this builder
+		 */
+		public Builder<T> field(Field field) {
+			selection.add(field.toString());
+			return this;
+		}
+
+		/**
+		 * @return the compiled query. Later changes to this builder or to the fields it was given don't affect it.
+		 */
+		public GraphQuery<T> compile() {
+			return new GraphQuery<T>(type, selection);
+		}
+
+	}
+
+	/**
+	 * A field with modifiers, e.g. "comments.limit(0).summary(true)", or subfields, e.g. "from{id,name}".
+	 */
+	public static final class Field {
+
+		private final StringBuilder modifiers = new StringBuilder();
+
+		private final List<String> subfields = new ArrayList<String>();
+
+		private final String name;
+
+		private Field(String name) {
+			if (name == null || name.length() == 0) {
+				throw new IllegalArgumentException("The field name must not be empty");
+			}
+			this.name = name;
+		}
+
+		/**
+		 * Adds a modifier, rendered as ".name(value)".
+		 * @param name the modifier's name, e.g. "limit"
+		 * @param value the modifier's value
+		 * @return this field
+		 */
+		public Field modifier(String name, Object value) {
+			modifiers.append('.').append(name).append('(').append(value).append(')');
+			return this;
+		}
+
+		/**
+		 * Selects subfields of the field.
+		 * @param fields the subfields
+		 * @return this field
+		 */
+		public Field fields(String... fields) {
+			subfields.addAll(Arrays.asList(fields));
+			return this;
+		}
+
+		/**
+		 * Selects a subfield with modifiers or subfields of its own.
+		 * @param field the subfield
+		 * @return this field
+		 */
+		public Field field(Field field) {
+			subfields.add(field.toString());
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			if (subfields.isEmpty()) {
+				return name + modifiers;
+			}
+			return name + modifiers + "{" + join(subfields) + "}";
+		}
+
+	}
+
+}
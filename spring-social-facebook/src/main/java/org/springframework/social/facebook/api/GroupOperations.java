@@ -15,6 +15,8 @@
  */
 package org.springframework.social.facebook.api;
 
+import java.io.OutputStream;
+
 import org.springframework.social.ApiException;
 import org.springframework.social.InsufficientPermissionException;
 import org.springframework.social.MissingAuthorizationException;
@@ -50,6 +52,19 @@ public interface GroupOperations {
 	 * @throws ApiException if there is an error while communicating with Facebook.
 	 */
 	byte[] getGroupImage(String groupId, ImageType imageType);
+
+	/**
+	 * Retrieves a group's image, streaming it into the given output stream without holding the whole image in memory.
+	 * The default implementation retrieves the image into memory and then writes it out.
+	 * @param groupId the group ID
+	 * @param imageType the image type (eg., small, normal, large. square)
+	 * @param out the output stream to write the image to. It is not closed.
+	 * @return the number of bytes written.
+	 * @throws ApiException if there is an error while communicating with Facebook.
+	 */
+	default long getGroupImage(String groupId, ImageType imageType, OutputStream out) {
+		return GraphApiDefaults.copy(getGroupImage(groupId, imageType), out);
+	}
 	
 	/**
 	 * Retrieves the members of the specified group.
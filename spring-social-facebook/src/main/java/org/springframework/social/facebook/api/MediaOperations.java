@@ -15,6 +15,8 @@
  */
 package org.springframework.social.facebook.api;
 
+import java.io.OutputStream;
+
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -128,6 +130,21 @@ public interface MediaOperations {
 	 */
 	byte[] getAlbumImage(String albumId, ImageType imageType);
 
+	/**
+	 * Retrieves an album's image, streaming it into the given output stream without holding the whole image in memory.
+	 * Requires "user_photos" permission if the album is not public.
+	 * The default implementation retrieves the image into memory and then writes it out.
+	 * @param albumId the album ID
+	 * @param imageType the image type (eg., small, normal, large. square)
+	 * @param out the output stream to write the image to. It is not closed.
+	 * @return the number of bytes written.
+	 * @throws ApiException if there is an error while communicating with Facebook.
+	 * @throws InsufficientPermissionException if the album is not public and if the user has not granted "user_photos" permission.
+	 */
+	default long getAlbumImage(String albumId, ImageType imageType, OutputStream out) {
+		return GraphApiDefaults.copy(getAlbumImage(albumId, imageType), out);
+	}
+
 	/**
 	 * Retrieves data for up to 25 photos from a specific album or that a user is tagged in.
 	 * If the objectId parameter is the ID of an album, the photos returned are the photos from that album.
@@ -183,6 +200,21 @@ public interface MediaOperations {
 	 * @throws InsufficientPermissionException if the photo is not public and if the user has not granted "user_photos" permission.
 	 */
 	byte[] getPhotoImage(String photoId, ImageType imageType);
+
+	/**
+	 * Retrieves a photo's image, streaming it into the given output stream without holding the whole image in memory.
+	 * Requires "user_photos" permission if the photo is not public.
+	 * The default implementation retrieves the image into memory and then writes it out.
+	 * @param photoId the photo ID
+	 * @param imageType the image type (eg., small, normal, large. square)
+	 * @param out the output stream to write the image to. It is not closed.
+	 * @return the number of bytes written.
+	 * @throws ApiException if there is an error while communicating with Facebook.
+	 * @throws InsufficientPermissionException if the photo is not public and if the user has not granted "user_photos" permission.
+	 */
+	default long getPhotoImage(String photoId, ImageType imageType, OutputStream out) {
+		return GraphApiDefaults.copy(getPhotoImage(photoId, imageType), out);
+	}
 	
 	/**
 	 * Uploads a photo to an album created specifically for the application.
@@ -300,6 +332,20 @@ public interface MediaOperations {
 	 */
 	byte[] getVideoImage(String videoId);
 
+	/**
+	 * Retrieves a video's image, streaming it into the given output stream without holding the whole image in memory.
+	 * Requires "user_videos" permission.
+	 * The default implementation retrieves the image into memory and then writes it out.
+	 * @param videoId the video ID
+	 * @param out the output stream to write the image to. It is not closed.
+	 * @return the number of bytes written.
+	 * @throws ApiException if there is an error while communicating with Facebook.
+	 * @throws InsufficientPermissionException if the user has not granted "user_videos" permission.
+	 */
+	default long getVideoImage(String videoId, OutputStream out) {
+		return GraphApiDefaults.copy(getVideoImage(videoId), out);
+	}
+
 	/**
 	 * Uploads a video for the authenticated user.
 	 * Requires "publish_actions" permission.
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The objects fetched by {@link GraphApi#fetchObjects(java.util.Collection, Class, String...)}, keyed by the ID they were requested with.
+ * IDs that could not be fetched are left out of the map and reported in {@link #getErrors()} instead.
+ * @param <T> the type of the fetched objects
+ */
+public class ObjectsById<T> extends LinkedHashMap<String, T> {
+	private static final long serialVersionUID = 1L;
+
+	private final Map<String, RuntimeException> errors = new LinkedHashMap<String, RuntimeException>();
+
+	public ObjectsById() {
+	}
+
+	public ObjectsById(int initialCapacity) {
+		super(initialCapacity);
+	}
+
+	/**
+	 * The errors for the IDs that could not be fetched, keyed by ID.
+	 * @return the errors for the IDs missing from this map. Empty if every object was fetched.
+	 */
+	public Map<String, RuntimeException> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * @return true if any of the requested objects could not be fetched.
+	 */
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+
+	public void addError(String id, RuntimeException error) {
+		errors.put(id, error);
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A page of connections as the JSON returned by the Graph API, unbound, with its paging parameters.
+ * See {@link GraphApi#fetchRawConnections(String, String, org.springframework.util.MultiValueMap)}.
+ */
+public class RawConnectionPage {
+
+	private final byte[] body;
+
+	private final PagingParameters previousPage;
+
+	private final PagingParameters nextPage;
+
+	private final Integer totalCount;
+
+	public RawConnectionPage(byte[] body, PagingParameters previousPage, PagingParameters nextPage, Integer totalCount) {
+		this.body = body;
+		this.previousPage = previousPage;
+		this.nextPage = nextPage;
+		this.totalCount = totalCount;
+	}
+
+	/**
+	 * @return the response body as returned by the Graph API, in UTF-8. The array is not copied, so it must not be modified.
+	 */
+	public byte[] getBody() {
+		return body;
+	}
+
+	/**
+	 * @return a read-only buffer over the response body
+	 */
+	public ByteBuffer getBodyAsByteBuffer() {
+		return ByteBuffer.wrap(body).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return the parameters of the previous page, or null if there is none
+	 */
+	public PagingParameters getPreviousPage() {
+		return previousPage;
+	}
+
+	/**
+	 * @return the parameters of the next page, or null if there is none
+	 */
+	public PagingParameters getNextPage() {
+		return nextPage;
+	}
+
+	/**
+	 * @return the total number of items in the connection, or null if unavailable
+	 */
+	public Integer getTotalCount() {
+		return totalCount;
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+/**
+ * How much of the JSON that Facebook objects are bound from is kept for {@link FacebookObject#getRawJson()}.
+ * Applies to the types whose raw JSON is retained: posts, comments, messages, conversations and Instagram media, comments and mentions.
+ */
+public enum RawJsonRetention {
+
+	/**
+	 * The raw JSON is not kept. {@link FacebookObject#getRawJson()} returns null.
+	 */
+	OFF,
+
+	/**
+	 * The raw JSON is kept as compact UTF-8 bytes and only parsed into a tree when {@link FacebookObject#getRawJson()} is first called.
+	 */
+	LAZY,
+
+	/**
+	 * The raw JSON is kept as the tree the object was bound from.
+	 */
+	FULL
+
+}
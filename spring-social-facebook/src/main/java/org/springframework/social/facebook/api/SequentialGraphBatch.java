@@ -0,0 +1,358 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * {@link GraphBatch} that sends each of its operations as a separate request through a {@link GraphApi}, for the default
+ * {@link GraphApi#batch()} of implementations that can't send batch requests.
+ * The operations are executed one at a time, in the order they were added. An operation fails without being sent if the
+ * operation it depends on failed. References to the results of earlier operations are resolved against their Java values,
+ * following the JSONPath's property names (such as "$.id" or "$.data.*.id") through bean properties and extra data.
+ * Results carry no status code, as the responses aren't seen.
+ */
+class SequentialGraphBatch implements GraphBatch {
+
+	private static final Pattern RESULT_REFERENCE = Pattern.compile("\\{result=([^:}]*):([^}]*)\\}");
+
+	private final GraphApi graphApi;
+
+	private final List<Operation<?>> operations = new ArrayList<Operation<?>>();
+
+	private boolean executed;
+
+	public SequentialGraphBatch(GraphApi graphApi) {
+		this.graphApi = graphApi;
+	}
+
+	public <T> BatchResult<T> fetchObject(final String objectId, final Class<T> type, final String... fields) {
+		return add(new Operation<T>() {
+			T run() {
+				String[] resolvedFields = new String[fields.length];
+				for (int i = 0; i < fields.length; i++) {
+					resolvedFields[i] = resolve(fields[i]);
+				}
+				return graphApi.fetchObject(resolve(objectId), type, resolvedFields);
+			}
+		});
+	}
+
+	public <T> BatchResult<T> fetchObject(final String objectId, final Class<T> type, final MultiValueMap<String, String> queryParameters) {
+		return add(new Operation<T>() {
+			T run() {
+				return graphApi.fetchObject(resolve(objectId), type, resolve(queryParameters));
+			}
+		});
+	}
+
+	public <T> BatchResult<PagedList<T>> fetchConnections(final String objectId, final String connectionName, final Class<T> type, final String... fields) {
+		return add(new Operation<PagedList<T>>() {
+			PagedList<T> run() {
+				String[] resolvedFields = new String[fields.length];
+				for (int i = 0; i < fields.length; i++) {
+					resolvedFields[i] = resolve(fields[i]);
+				}
+				return graphApi.fetchConnections(resolve(objectId), resolve(connectionName), type, resolvedFields);
+			}
+		});
+	}
+
+	public <T> BatchResult<PagedList<T>> fetchConnections(final String objectId, final String connectionName, final Class<T> type, final MultiValueMap<String, String> queryParameters) {
+		return add(new Operation<PagedList<T>>() {
+			PagedList<T> run() {
+				return graphApi.fetchConnections(resolve(objectId), resolve(connectionName), type, resolve(queryParameters));
+			}
+		});
+	}
+
+	public BatchResult<String> publish(final String objectId, final String connectionName, final MultiValueMap<String, Object> data) {
+		return add(new Operation<String>() {
+			String run() {
+				return graphApi.publish(resolve(objectId), resolve(connectionName), resolve(data));
+			}
+		});
+	}
+
+	public BatchResult<Void> post(final String objectId, final String connectionName, final MultiValueMap<String, Object> data) {
+		return add(new Operation<Void>() {
+			Void run() {
+				if (connectionName != null) {
+					graphApi.post(resolve(objectId), resolve(connectionName), resolve(data));
+				} else {
+					graphApi.post(resolve(objectId), resolve(data));
+				}
+				return null;
+			}
+		});
+	}
+
+	public BatchResult<Void> delete(String objectId) {
+		return delete(objectId, null);
+	}
+
+	public BatchResult<Void> delete(final String objectId, final String connectionName) {
+		return add(new Operation<Void>() {
+			Void run() {
+				if (connectionName != null) {
+					graphApi.delete(resolve(objectId), resolve(connectionName));
+				} else {
+					graphApi.delete(resolve(objectId));
+				}
+				return null;
+			}
+		});
+	}
+
+	public int size() {
+		return operations.size();
+	}
+
+	public List<BatchResult<?>> execute() {
+		if (executed) {
+			throw new IllegalStateException("This batch has already been executed");
+		}
+		executed = true;
+		for (Operation<?> operation : operations) {
+			operation.execute();
+		}
+		return new ArrayList<BatchResult<?>>(operations);
+	}
+
+	// private helpers
+
+	private <T> Operation<T> add(Operation<T> operation) {
+		if (executed) {
+			throw new IllegalStateException("This batch has already been executed");
+		}
+		if (operations.size() >= MAX_OPERATIONS) {
+			throw new IllegalStateException("A batch may contain at most " + MAX_OPERATIONS + " operations");
+		}
+		operations.add(operation);
+		return operation;
+	}
+
+	private Operation<?> findOperation(String name) {
+		for (Operation<?> operation : operations) {
+			if (name.equals(operation.name)) {
+				return operation;
+			}
+		}
+		return null;
+	}
+
+	private <V> MultiValueMap<String, V> resolve(MultiValueMap<String, V> parameters) {
+		MultiValueMap<String, V> resolved = new LinkedMultiValueMap<String, V>();
+		if (parameters != null) {
+			for (Map.Entry<String, List<V>> entry : parameters.entrySet()) {
+				for (V value : entry.getValue()) {
+					@SuppressWarnings("unchecked")
+					V resolvedValue = value instanceof String ? (V) resolve((String) value) : value;
+					resolved.add(entry.getKey(), resolvedValue);
+				}
+			}
+		}
+		return resolved;
+	}
+
+	// replaces each "{result=name:jsonPath}" with the values it selects from the named operation's value, joined by commas
+	private String resolve(String value) {
+		if (value == null) {
+			return null;
+		}
+		Matcher matcher = RESULT_REFERENCE.matcher(value);
+		StringBuffer resolved = new StringBuffer();
+		while (matcher.find()) {
+			Operation<?> operation = findOperation(matcher.group(1));
+			if (operation == null || !operation.isSuccessful()) {
+				throw new IllegalStateException("The operation " + matcher.group(1) + " referred to by " + matcher.group() + " did not succeed before it was referred to");
+			}
+			StringBuilder values = new StringBuilder();
+			for (Object selected : select(operation.value, matcher.group(2))) {
+				values.append(values.length() > 0 ? "," : "").append(selected);
+			}
+			matcher.appendReplacement(resolved, Matcher.quoteReplacement(values.toString()));
+		}
+		matcher.appendTail(resolved);
+		return resolved.toString();
+	}
+
+	private List<Object> select(Object value, String jsonPath) {
+		if (!jsonPath.startsWith("$")) {
+			throw new IllegalArgumentException("Unsupported JSONPath: " + jsonPath);
+		}
+		List<Object> selected = Collections.singletonList(value);
+		for (String segment : jsonPath.substring(1).split("\\.")) {
+			if (segment.length() == 0) {
+				continue;
+			}
+			List<Object> next = new ArrayList<Object>();
+			for (Object current : selected) {
+				if (current == null) {
+					continue;
+				}
+				if ("*".equals(segment) && current instanceof Collection) {
+					next.addAll((Collection<?>) current);
+				} else if ("data".equals(segment) && current instanceof Collection) {
+					next.add(current);
+				} else if ("id".equals(segment) && current instanceof String) {
+					// the value of a publish operation is the ID from its response
+					next.add(current);
+				} else {
+					next.add(property(current, segment));
+				}
+			}
+			selected = next;
+		}
+		return selected;
+	}
+
+	private Object property(Object object, String name) {
+		if (object instanceof Map) {
+			return ((Map<?, ?>) object).get(name);
+		}
+		BeanWrapper bean = PropertyAccessorFactory.forBeanPropertyAccess(object);
+		String propertyName = camelCase(name);
+		if (bean.isReadableProperty(propertyName)) {
+			return bean.getPropertyValue(propertyName);
+		}
+		if (object instanceof FacebookObject && ((FacebookObject) object).getExtraData().containsKey(name)) {
+			return ((FacebookObject) object).getExtraData().get(name);
+		}
+		throw new IllegalArgumentException("No property '" + name + "' in " + object.getClass().getName());
+	}
+
+	private static String camelCase(String name) {
+		StringBuilder camelCase = new StringBuilder(name.length());
+		boolean upper = false;
+		for (char c : name.toCharArray()) {
+			if (c == '_') {
+				upper = true;
+			} else {
+				camelCase.append(upper ? Character.toUpperCase(c) : c);
+				upper = false;
+			}
+		}
+		return camelCase.toString();
+	}
+
+	private abstract class Operation<T> implements BatchResult<T> {
+
+		private String name;
+
+		private String dependsOn;
+
+		private boolean done;
+
+		private T value;
+
+		private RuntimeException exception;
+
+		abstract T run();
+
+		void execute() {
+			try {
+				if (dependsOn != null) {
+					Operation<?> dependency = findOperation(dependsOn);
+					if (dependency == null || !dependency.isSuccessful()) {
+						throw new UncategorizedApiException("facebook", "The batch operation " + dependsOn + " that this operation depends on did not succeed", null);
+					}
+				}
+				value = run();
+			} catch (RuntimeException e) {
+				exception = e;
+			}
+			done = true;
+		}
+
+		public BatchResult<T> name(String name) {
+			this.name = name;
+			return this;
+		}
+
+		public BatchResult<T> dependsOn(String name) {
+			this.dependsOn = name;
+			return this;
+		}
+
+		public BatchResult<T> dependsOn(BatchResult<?> operation) {
+			if (operation.getName() == null) {
+				operation.name(generateName(operation));
+			}
+			return dependsOn(operation.getName());
+		}
+
+		public BatchResult<T> omitResponseOnSuccess(boolean omitResponseOnSuccess) {
+			// every response is read, as each operation is a request of its own
+			return this;
+		}
+
+		public String reference(String jsonPath) {
+			if (name == null) {
+				name = generateName(this);
+			}
+			return "{result=" + name + ":" + jsonPath + "}";
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isDone() {
+			return done;
+		}
+
+		public boolean isSuccessful() {
+			return done && exception == null;
+		}
+
+		public Integer getStatusCode() {
+			return null;
+		}
+
+		public RuntimeException getException() {
+			return exception;
+		}
+
+		public T get() {
+			if (!done) {
+				throw new IllegalStateException("The batch has not been executed yet");
+			}
+			if (exception != null) {
+				throw exception;
+			}
+			return value;
+		}
+
+	}
+
+	private String generateName(BatchResult<?> operation) {
+		return "operation" + operations.indexOf(operation);
+	}
+
+}
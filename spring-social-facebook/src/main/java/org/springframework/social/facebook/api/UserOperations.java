@@ -18,6 +18,7 @@ package org.springframework.social.facebook.api;
 import org.springframework.social.ApiException;
 import org.springframework.social.MissingAuthorizationException;
 
+import java.io.OutputStream;
 import java.util.List;
 
 public interface UserOperations {
@@ -95,6 +96,34 @@ public interface UserOperations {
 	 */
 	byte[] getUserProfileImage(String userId, Integer width, Integer height);
 
+	/**
+	 * Retrieves the user's profile image, streaming it into the given output stream without holding the whole image in memory.
+	 * The default implementation retrieves the image into memory and then writes it out.
+	 * @param userId the Facebook user ID.
+	 * @param imageType the image type (eg., small, normal, large. square)
+	 * @param out the output stream to write the image to. It is not closed.
+	 * @return the number of bytes written.
+	 * @throws ApiException if there is an error while communicating with Facebook.
+	 */
+	default long getUserProfileImage(String userId, ImageType imageType, OutputStream out) {
+		return GraphApiDefaults.copy(getUserProfileImage(userId, imageType), out);
+	}
+
+	/**
+	 * Retrieves the user's profile image, streaming it into the given output stream without holding the whole image in memory.
+	 * When height and width are both used, the image will be scaled as close to the dimensions as possible and then cropped down.
+	 * The default implementation retrieves the image into memory and then writes it out.
+	 * @param userId the Facebook user ID.
+	 * @param width the desired image width
+	 * @param height the desired image height
+	 * @param out the output stream to write the image to. It is not closed.
+	 * @return the number of bytes written.
+	 * @throws ApiException if there is an error while communicating with Facebook.
+	 */
+	default long getUserProfileImage(String userId, Integer width, Integer height, OutputStream out) {
+		return GraphApiDefaults.copy(getUserProfileImage(userId, width, height), out);
+	}
+
 	/**
 	 * Retrieves a list of permissions that the application has been granted for the authenticated user.
 	 * @return the permissions granted for the user.
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.social.facebook.api.AsyncGraphApi;
+import org.springframework.social.facebook.api.Facebook;
+import org.springframework.social.facebook.api.PagedList;
+import org.springframework.social.facebook.api.impl.json.FacebookModule;
+import org.springframework.social.facebook.security.FacebookAppSecretProofInterceptor;
+import org.springframework.social.support.URIBuilder;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.web.client.AsyncRequestCallback;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.ResponseExtractor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * <p>Non-blocking counterpart of {@link FacebookTemplate} for the low-level Graph API operations.</p>
+ * <p>
+ * Requests are sent through an {@link AsyncRestTemplate}. By default it runs on Apache HttpAsyncClient (if present on the classpath),
+ * so that no thread is blocked while a request is in flight. If HttpAsyncClient is not available, requests fall back
+ * to the JDK's HttpURLConnection running on a task executor.
+ * Responses are bound with the same {@link FacebookModule} mappings as {@link FacebookTemplate} and errors are translated by the same
+ * error handler, so the returned futures fail with the same exceptions that {@link FacebookTemplate} throws.
+ * </p>
+ * <p>
+ * The number of requests in flight is limited to {@link #setMaxConcurrentRequests(int) maxConcurrentRequests}. Requests beyond the
+ * limit are queued without blocking the caller and sent as earlier requests complete.
+ * The futures are completed, and queued requests sent, on the {@link #setCallbackExecutor(Executor) callback executor}
+ * rather than on the HTTP client's I/O threads.
+ * </p>
+ */
+public class AsyncFacebookTemplate implements AsyncGraphApi, DisposableBean {
+
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+	private static final boolean HTTP_ASYNC_CLIENT_PRESENT = ClassUtils.isPresent("org.apache.http.nio.client.HttpAsyncClient", AsyncFacebookTemplate.class.getClassLoader());
+
+	private final String accessToken;
+
+	private final AsyncRestTemplate asyncRestTemplate;
+
+	private final ObjectMapper objectMapper;
+
+	private volatile Executor callbackExecutor = ForkJoinPool.commonPool();
+
+	private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(DEFAULT_MAX_CONCURRENT_REQUESTS, new Executor() {
+		public void execute(Runnable command) {
+			callbackExecutor.execute(command);
+		}
+	});
+
+	private final ConcurrentMap<Class<?>, ObjectReader> listReaders = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+	private AsyncClientHttpRequestFactory ownedRequestFactory;
+
+	private String apiVersion = Facebook.DEFAULT_API_VERSION;
+
+	/**
+	 * Create a new instance of AsyncFacebookTemplate using a given access token.
+	 * @param accessToken An access token given by Facebook after a successful OAuth 2 authentication (or through Facebook's JS library).
+	 */
+	public AsyncFacebookTemplate(String accessToken) {
+		this(accessToken, null);
+	}
+
+	/**
+	 * Create a new instance of AsyncFacebookTemplate using a given access token and application secret.
+	 * @param accessToken An access token given by Facebook after a successful OAuth 2 authentication (or through Facebook's JS library).
+	 * @param appSecret The application's secret, used to sign requests with an appsecret_proof. May be null.
+	 */
+	public AsyncFacebookTemplate(String accessToken, String appSecret) {
+		this(accessToken, appSecret, null);
+	}
+
+	/**
+	 * Create a new instance of AsyncFacebookTemplate that sends requests through the given request factory.
+	 * @param accessToken An access token given by Facebook after a successful OAuth 2 authentication (or through Facebook's JS library).
+	 * @param appSecret The application's secret, used to sign requests with an appsecret_proof. May be null.
+	 * @param requestFactory the non-blocking request factory to send requests with. If null, a default request factory is created
+	 * and destroyed along with this template.
+	 */
+	public AsyncFacebookTemplate(String accessToken, String appSecret, AsyncClientHttpRequestFactory requestFactory) {
+		this.accessToken = accessToken;
+		if (requestFactory == null) {
+			requestFactory = ownedRequestFactory = createRequestFactory();
+		}
+		this.objectMapper = FacebookTemplate.createObjectMapper();
+		this.asyncRestTemplate = new AsyncRestTemplate(requestFactory);
+		asyncRestTemplate.setMessageConverters(getMessageConverters());
+		asyncRestTemplate.setErrorHandler(new FacebookErrorHandler());
+		List<AsyncClientHttpRequestInterceptor> interceptors = new ArrayList<AsyncClientHttpRequestInterceptor>();
+		if (accessToken != null) {
+			interceptors.add(new OAuthAuthorizationInterceptor(accessToken));
+			if (appSecret != null) {
+				interceptors.add(new FacebookAppSecretProofInterceptor(accessToken, appSecret));
+			}
+		}
+		asyncRestTemplate.setInterceptors(interceptors);
+	}
+
+	/**
+	 * Set the Graph API version (e.g., "2.10"). If set to null, the version will be left out of the request URLs to the
+	 * Graph API.
+	 * @param apiVersion the API version. Default is {@link Facebook#DEFAULT_API_VERSION}.
+	 */
+	public void setApiVersion(String apiVersion) {
+		this.apiVersion = apiVersion;
+	}
+
+	/**
+	 * Set the interceptor that delays this template's requests as the rate limit usage reported by Facebook approaches the limits.
+	 * Delayed requests are scheduled to be sent later; the calling thread is not blocked.
+	 * Share one interceptor between all the templates that make requests on behalf of the same application.
+	 * @param usageThrottlingInterceptor the interceptor. If null, requests are not throttled.
+	 */
+	public void setUsageThrottlingInterceptor(UsageThrottlingInterceptor usageThrottlingInterceptor) {
+		List<AsyncClientHttpRequestInterceptor> interceptors = new ArrayList<AsyncClientHttpRequestInterceptor>();
+		for (AsyncClientHttpRequestInterceptor interceptor : asyncRestTemplate.getInterceptors()) {
+			if (!(interceptor instanceof UsageThrottlingInterceptor)) {
+				interceptors.add(interceptor);
+			}
+		}
+		if (usageThrottlingInterceptor != null) {
+			interceptors.add(usageThrottlingInterceptor);
+		}
+		asyncRestTemplate.setInterceptors(interceptors);
+	}
+
+	/**
+	 * Set the maximum number of requests this template keeps in flight at once.
+	 * Requests issued beyond this limit are queued and sent as earlier requests complete.
+	 * @param maxConcurrentRequests the maximum number of concurrent requests. Default is {@link #DEFAULT_MAX_CONCURRENT_REQUESTS}.
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		limiter.setMaxConcurrency(maxConcurrentRequests);
+	}
+
+	/**
+	 * Set the executor that completes the returned futures, running their dependent stages, and sends the requests queued
+	 * beyond {@link #setMaxConcurrentRequests(int) maxConcurrentRequests}. It keeps the HTTP client's I/O threads from running
+	 * the caller's code.
+	 * @param callbackExecutor the executor. Default is the {@link ForkJoinPool#commonPool() common pool}.
+	 */
+	public void setCallbackExecutor(Executor callbackExecutor) {
+		if (callbackExecutor == null) {
+			throw new IllegalArgumentException("The callback executor must not be null");
+		}
+		this.callbackExecutor = callbackExecutor;
+	}
+
+	/**
+	 * @return the number of requests currently in flight.
+	 */
+	public int getRequestsInFlight() {
+		return limiter.getInFlight();
+	}
+
+	/**
+	 * @return the number of requests waiting for an in-flight request to complete.
+	 */
+	public int getPendingRequests() {
+		return limiter.getPending();
+	}
+
+	public boolean isAuthorized() {
+		return accessToken != null;
+	}
+
+	/**
+	 * Obtains a reference to the {@link AsyncRestTemplate} backing this template.
+	 * @return the {@link AsyncRestTemplate} used to perform API calls.
+	 */
+	public AsyncRestTemplate getAsyncRestTemplate() {
+		return asyncRestTemplate;
+	}
+
+	public String getBaseGraphApiUrl() {
+		if (apiVersion != null) {
+			return "https://graph.facebook.com/v" + apiVersion + "/";
+		}
+		return "https://graph.facebook.com/";
+	}
+
+	public <T> CompletableFuture<T> fetchObject(String objectId, Class<T> type, String... fields) {
+		return fetchObject(objectId, type, fieldsParameter(fields));
+	}
+
+	public <T> CompletableFuture<T> fetchObject(String objectId, final Class<T> type, MultiValueMap<String, String> queryParameters) {
+		final URI uri = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId).queryParams(queryParameters).build();
+		return submit(new RequestSupplier<T>() {
+			public ListenableFuture<T> send() {
+				return asyncRestTemplate.execute(uri, HttpMethod.GET, JSON_ACCEPT_CALLBACK, new ObjectResponseExtractor<T>(type));
+			}
+		});
+	}
+
+	public <T> CompletableFuture<PagedList<T>> fetchConnections(String objectId, String connectionName, Class<T> type, String... fields) {
+		return fetchConnections(objectId, connectionName, type, fieldsParameter(fields));
+	}
+
+	public <T> CompletableFuture<PagedList<T>> fetchConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters) {
+		String connectionPath = connectionName != null && connectionName.length() > 0 ? "/" + connectionName : "";
+		URI uri = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + connectionPath).queryParams(queryParameters).build();
+		return fetchPagedList(uri, type);
+	}
+
+	public <T> CompletableFuture<PagedList<T>> fetchNextPagedConnections(PagedList<T> page, Class<T> type) {
+		if (null != page && null != page.getNextPage() && page.getNextPage().getFullUrl() != null && !"".equals(page.getNextPage().getFullUrl().trim())) {
+			return fetchPagedList(URIBuilder.fromUri(page.getNextPage().getFullUrl()).build(), type);
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@SuppressWarnings("rawtypes")
+	public CompletableFuture<String> publish(String objectId, String connectionName, MultiValueMap<String, Object> data) {
+		final URI uri = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + "/" + connectionName).build();
+		final HttpEntity<MultiValueMap<String, Object>> entity = new HttpEntity<MultiValueMap<String, Object>>(new LinkedMultiValueMap<String, Object>(data));
+		return submit(new RequestSupplier<ResponseEntity<Map>>() {
+			public ListenableFuture<ResponseEntity<Map>> send() {
+				return asyncRestTemplate.postForEntity(uri, entity, Map.class);
+			}
+		}).thenApply(new Function<ResponseEntity<Map>, String>() {
+			public String apply(ResponseEntity<Map> response) {
+				Map body = response.getBody();
+				return body != null ? (String) body.get("id") : null;
+			}
+		});
+	}
+
+	public CompletableFuture<Void> post(String objectId, String connectionName, MultiValueMap<String, Object> data) {
+		String connectionPath = connectionName != null ? "/" + connectionName : "";
+		URI uri = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + connectionPath).build();
+		return postForVoid(uri, new LinkedMultiValueMap<String, Object>(data));
+	}
+
+	public CompletableFuture<Void> delete(String objectId) {
+		return delete(objectId, null);
+	}
+
+	public CompletableFuture<Void> delete(String objectId, String connectionName) {
+		String connectionPath = connectionName != null ? "/" + connectionName : "";
+		URI uri = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + connectionPath).build();
+		MultiValueMap<String, Object> deleteRequest = new LinkedMultiValueMap<String, Object>();
+		deleteRequest.set("method", "delete");
+		return postForVoid(uri, deleteRequest);
+	}
+
+	public void destroy() throws Exception {
+		if (ownedRequestFactory instanceof DisposableBean) {
+			((DisposableBean) ownedRequestFactory).destroy();
+		}
+	}
+
+	// private helpers
+
+	private <T> CompletableFuture<PagedList<T>> fetchPagedList(final URI uri, Class<T> type) {
+		final ResponseExtractor<PagedList<T>> extractor = new PagedListResponseExtractor<T>(objectMapper, getListReader(type));
+		return submit(new RequestSupplier<PagedList<T>>() {
+			public ListenableFuture<PagedList<T>> send() {
+				return asyncRestTemplate.execute(uri, HttpMethod.GET, JSON_ACCEPT_CALLBACK, extractor);
+			}
+		});
+	}
+
+	private CompletableFuture<Void> postForVoid(final URI uri, MultiValueMap<String, Object> data) {
+		final HttpEntity<MultiValueMap<String, Object>> entity = new HttpEntity<MultiValueMap<String, Object>>(data);
+		return submit(new RequestSupplier<ResponseEntity<String>>() {
+			public ListenableFuture<ResponseEntity<String>> send() {
+				return asyncRestTemplate.postForEntity(uri, entity, String.class);
+			}
+		}).thenApply(new Function<Object, Void>() {
+			public Void apply(Object response) {
+				return null;
+			}
+		});
+	}
+
+	private <T> CompletableFuture<T> submit(final RequestSupplier<T> supplier) {
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+		limiter.submit(new Runnable() {
+			public void run() {
+				ListenableFuture<T> future;
+				try {
+					future = supplier.send();
+				} catch (RuntimeException e) {
+					limiter.release();
+					result.completeExceptionally(e);
+					return;
+				}
+				// called back on the HTTP client's I/O thread, so the result is completed on the callback executor
+				future.addCallback(new ListenableFutureCallback<T>() {
+					public void onSuccess(final T value) {
+						limiter.release();
+						callbackExecutor.execute(new Runnable() {
+							public void run() {
+								result.complete(value);
+							}
+						});
+					}
+
+					public void onFailure(final Throwable ex) {
+						limiter.release();
+						callbackExecutor.execute(new Runnable() {
+							public void run() {
+								result.completeExceptionally(ex);
+							}
+						});
+					}
+				});
+			}
+		});
+		return result;
+	}
+
+	private ObjectReader getListReader(Class<?> elementType) {
+		ObjectReader reader = listReaders.get(elementType);
+		if (reader == null) {
+			reader = PagedListUtils.listReader(objectMapper, elementType);
+			listReaders.putIfAbsent(elementType, reader);
+		}
+		return reader;
+	}
+
+	private MultiValueMap<String, String> fieldsParameter(String... fields) {
+		MultiValueMap<String, String> queryParameters = new LinkedMultiValueMap<String, String>();
+		if (fields.length > 0) {
+			StringBuilder joinedFields = new StringBuilder(fields[0]);
+			for (int i = 1; i < fields.length; i++) {
+				joinedFields.append(',').append(fields[i]);
+			}
+			queryParameters.set("fields", joinedFields.toString());
+		}
+		return queryParameters;
+	}
+
+	private List<HttpMessageConverter<?>> getMessageConverters() {
+		List<HttpMessageConverter<?>> messageConverters = new ArrayList<HttpMessageConverter<?>>();
+		messageConverters.add(new StringHttpMessageConverter());
+		FormHttpMessageConverter formConverter = new FormHttpMessageConverter();
+		formConverter.setCharset(Charset.forName("UTF-8"));
+		List<HttpMessageConverter<?>> partConverters = new ArrayList<HttpMessageConverter<?>>();
+		partConverters.add(new ByteArrayHttpMessageConverter());
+		StringHttpMessageConverter stringConverter = new StringHttpMessageConverter(Charset.forName("UTF-8"));
+		stringConverter.setWriteAcceptCharset(false);
+		partConverters.add(stringConverter);
+		partConverters.add(new ResourceHttpMessageConverter());
+		formConverter.setPartConverters(partConverters);
+		messageConverters.add(formConverter);
+		messageConverters.add(new MappingJackson2HttpMessageConverter(objectMapper));
+		ByteArrayHttpMessageConverter byteArrayConverter = new ByteArrayHttpMessageConverter();
+		byteArrayConverter.setSupportedMediaTypes(Arrays.asList(MediaType.IMAGE_JPEG, MediaType.IMAGE_GIF, MediaType.IMAGE_PNG));
+		messageConverters.add(byteArrayConverter);
+		return messageConverters;
+	}
+
+	private static AsyncClientHttpRequestFactory createRequestFactory() {
+		if (HTTP_ASYNC_CLIENT_PRESENT) {
+			return HttpAsyncClientRequestFactoryCreator.createRequestFactory();
+		}
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setTaskExecutor(new SimpleAsyncTaskExecutor("facebook-async-"));
+		return requestFactory;
+	}
+
+	private static final AsyncRequestCallback JSON_ACCEPT_CALLBACK = new AsyncRequestCallback() {
+		public void doWithRequest(AsyncClientHttpRequest request) throws IOException {
+			request.getHeaders().setAccept(Arrays.asList(MediaType.APPLICATION_JSON, MediaType.valueOf("application/*+json")));
+		}
+	};
+
+	private interface RequestSupplier<T> {
+		ListenableFuture<T> send();
+	}
+
+	private class ObjectResponseExtractor<T> implements ResponseExtractor<T> {
+		private final Class<T> type;
+
+		public ObjectResponseExtractor(Class<T> type) {
+			this.type = type;
+		}
+
+		public T extractData(ClientHttpResponse response) throws IOException {
+			return objectMapper.readValue(response.getBody(), type);
+		}
+	}
+
+	// sends the access token the same way FacebookTemplate does (OAuth2Version.DRAFT_10)
+	private static class OAuthAuthorizationInterceptor implements AsyncClientHttpRequestInterceptor {
+		private final String authorization;
+
+		public OAuthAuthorizationInterceptor(String accessToken) {
+			this.authorization = "OAuth " + accessToken;
+		}
+
+		public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body, AsyncClientHttpRequestExecution execution) throws IOException {
+			request.getHeaders().set(HttpHeaders.AUTHORIZATION, authorization);
+			return execution.executeAsync(request, body);
+		}
+	}
+
+	// kept in a separate class so that HttpAsyncClient is only loaded when present
+	private static class HttpAsyncClientRequestFactoryCreator {
+		public static AsyncClientHttpRequestFactory createRequestFactory() {
+			return new HttpComponentsAsyncClientHttpRequestFactory(HttpAsyncClients.custom()
+					.useSystemProperties()
+					.setMaxConnTotal(DEFAULT_MAX_CONCURRENT_REQUESTS)
+					.setMaxConnPerRoute(DEFAULT_MAX_CONCURRENT_REQUESTS)
+					.build());
+		}
+	}
+
+}
@@ -20,6 +20,7 @@ import static org.springframework.social.facebook.api.impl.PagedListUtils.*;
 import org.springframework.social.facebook.api.Comment;
 import org.springframework.social.facebook.api.CommentOperations;
 import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.GraphQuery;
 import org.springframework.social.facebook.api.PagedList;
 import org.springframework.social.facebook.api.PagingParameters;
 import org.springframework.social.support.URIBuilder;
@@ -31,6 +32,8 @@ import java.net.URI;
 
 class CommentTemplate implements CommentOperations {
 
+	private static final GraphQuery<Comment> COMMENTS = GraphQuery.select(Comment.class).fields(ALL_COMMENT_FIELDS).compile();
+
 	private final GraphApi graphApi;
 	private final RestTemplate restTemplate;
 
@@ -44,11 +47,11 @@ class CommentTemplate implements CommentOperations {
 	}
 
 	public PagedList<Comment> getComments(String objectId, PagingParameters pagedListParameters) {
-		return graphApi.fetchConnections(objectId, "comments", Comment.class, getPagingParameters(pagedListParameters), ALL_COMMENT_FIELDS);
+		return graphApi.fetchConnections(objectId, "comments", COMMENTS, getPagingParameters(pagedListParameters));
 	}
 
 	public Comment getComment(String commentId) {
-		return graphApi.fetchObject(commentId, Comment.class, ALL_COMMENT_FIELDS);
+		return graphApi.fetchObject(commentId, COMMENTS);
 	}
 
 	public String addComment(String objectId, String message) {
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking limiter for the number of requests in flight.
+ * Submitted tasks start immediately, on the submitting thread, while fewer than the maximum number of tasks are running and are queued otherwise.
+ * A queued task is started on the executor once a permit is released, so no thread ever blocks waiting for a permit and the thread
+ * releasing it, typically an HTTP client's I/O thread, doesn't run the task.
+ * Each started task must call {@link #release()} exactly once when its request has completed.
+ */
+class ConcurrencyLimiter {
+
+	private final Queue<Runnable> pending = new ConcurrentLinkedQueue<Runnable>();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final Executor executor;
+
+	private volatile int maxConcurrency;
+
+	public ConcurrencyLimiter(int maxConcurrency, Executor executor) {
+		this.executor = executor;
+		setMaxConcurrency(maxConcurrency);
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("The maximum concurrency must be at least 1");
+		}
+		this.maxConcurrency = maxConcurrency;
+		drain(false);
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public int getPending() {
+		return pending.size();
+	}
+
+	public void submit(Runnable task) {
+		pending.add(task);
+		drain(false);
+	}
+
+	public void release() {
+		inFlight.decrementAndGet();
+		drain(true);
+	}
+
+	private void drain(boolean dispatch) {
+		while (!pending.isEmpty()) {
+			int current = inFlight.get();
+			if (current >= maxConcurrency) {
+				return;
+			}
+			if (!inFlight.compareAndSet(current, current + 1)) {
+				continue;
+			}
+			Runnable task = pending.poll();
+			if (task == null) {
+				inFlight.decrementAndGet();
+				continue;
+			}
+			if (dispatch) {
+				executor.execute(task);
+			} else {
+				task.run();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cache.Cache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+/**
+ * <p>Caches the JSON responses of Graph API GET requests along with the ETag Facebook sends with them, and revalidates them
+ * with an If-None-Match header when the same request is made again. When Facebook answers 304 (Not Modified), the cached
+ * response is returned in its place, so an unchanged object is neither transferred nor parsed from a new response.</p>
+ * <p>
+ * Responses are keyed by their URI, which includes the requested fields and any other parameters, and by a digest of the
+ * request's access token, so a response is only ever returned for requests made with the token that fetched it.
+ * By default the responses are kept in memory, up to {@link #DEFAULT_MAX_SIZE} bytes of response bodies, and the least recently
+ * used responses are evicted first. Any Spring {@link Cache} can be given instead to choose another store or eviction policy.
+ * </p>
+ * <p>
+ * One instance can be shared by the templates of different access tokens, as is done by {@link FacebookClientFactory}.
+ * Only synchronous requests are cached.
+ * </p>
+ * @see FacebookTemplate#setConditionalRequestCache(ConditionalRequestCache)
+ */
+public class ConditionalRequestCache implements ClientHttpRequestInterceptor {
+
+	public static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Cache cache;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong revalidationCount = new AtomicLong();
+
+	/**
+	 * Creates a cache that keeps up to {@link #DEFAULT_MAX_SIZE} bytes of responses in memory.
+	 */
+	public ConditionalRequestCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a cache that keeps responses in memory, evicting the least recently used responses first.
+	 * @param maxSize the maximum total size of the cached response bodies, in bytes
+	 */
+	public ConditionalRequestCache(long maxSize) {
+		this(new SizeBoundedCache("facebookResponses", maxSize) {
+			@Override
+			protected long sizeOf(Object key, Object value) {
+				return ((CachedResponse) value).body.length;
+			}
+		});
+	}
+
+	/**
+	 * Creates a cache that keeps responses in the given cache, which decides how many are kept and which are evicted.
+	 * The values stored are serializable.
+	 * @param cache the cache
+	 */
+	public ConditionalRequestCache(Cache cache) {
+		if (cache == null) {
+			throw new IllegalArgumentException("The cache must not be null");
+		}
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the number of requests answered from the cache after Facebook reported the cached response unchanged.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of requests that had no cached response.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of requests sent with the ETag of a cached response. Those that were not answered from the cache
+	 * received a new response.
+	 */
+	public long getRevalidationCount() {
+		return revalidationCount.get();
+	}
+
+	/**
+	 * Removes all cached responses.
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		if (request.getMethod() != HttpMethod.GET || request.getHeaders().getIfNoneMatch().size() > 0) {
+			return execution.execute(request, body);
+		}
+		String key = getKey(request);
+		CachedResponse cached = cache.get(key, CachedResponse.class);
+		if (cached != null) {
+			revalidationCount.incrementAndGet();
+			request.getHeaders().setIfNoneMatch(cached.etag);
+		} else {
+			missCount.incrementAndGet();
+		}
+
+		ClientHttpResponse response = execution.execute(request, body);
+		int status = response.getRawStatusCode();
+		if (cached != null && status == HttpStatus.NOT_MODIFIED.value()) {
+			response.close();
+			hitCount.incrementAndGet();
+			return cached.toResponse();
+		}
+		String etag = response.getHeaders().getETag();
+		if (status == HttpStatus.OK.value() && etag != null && isJson(response.getHeaders().getContentType())) {
+			CachedResponse fetched;
+			try {
+				fetched = new CachedResponse(etag, response.getStatusText(), response.getHeaders(), StreamUtils.copyToByteArray(response.getBody()));
+			} finally {
+				response.close();
+			}
+			cache.put(key, fetched);
+			return fetched.toResponse();
+		}
+		if (cached != null) {
+			cache.evict(key);
+		}
+		return response;
+	}
+
+	private static boolean isJson(MediaType contentType) {
+		// Facebook sends JSON as text/javascript to some clients
+		return contentType != null && (contentType.getSubtype().contains("json") || contentType.getSubtype().equals("javascript"));
+	}
+
+	// the token is digested so that it isn't kept in the cache, which may be stored outside of the application
+	private static String getKey(HttpRequest request) {
+		String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+		String uri = request.getURI().toString();
+		if (authorization == null) {
+			return uri;
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(authorization.getBytes(UTF_8));
+			StringBuilder key = new StringBuilder(uri.length() + 1 + digest.length * 2).append(uri).append(' ');
+			for (byte b : digest) {
+				key.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
+	private static class CachedResponse implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final String etag;
+
+		final String statusText;
+
+		final HttpHeaders headers;
+
+		final byte[] body;
+
+		CachedResponse(String etag, String statusText, HttpHeaders headers, byte[] body) {
+			this.etag = etag;
+			this.statusText = statusText;
+			this.headers = new HttpHeaders();
+			this.headers.putAll(headers);
+			this.body = body;
+		}
+
+		ClientHttpResponse toResponse() {
+			final HttpHeaders responseHeaders = HttpHeaders.readOnlyHttpHeaders(headers);
+			return new ClientHttpResponse() {
+				private final InputStream bodyStream = new ByteArrayInputStream(body);
+				public HttpStatus getStatusCode() {
+					return HttpStatus.OK;
+				}
+				public int getRawStatusCode() {
+					return HttpStatus.OK.value();
+				}
+				public String getStatusText() {
+					return statusText;
+				}
+				public HttpHeaders getHeaders() {
+					return responseHeaders;
+				}
+				public InputStream getBody() {
+					return bodyStream;
+				}
+				public void close() {
+				}
+			};
+		}
+
+	}
+
+}
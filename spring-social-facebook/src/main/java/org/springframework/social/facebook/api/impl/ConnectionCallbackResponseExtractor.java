@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.IOException;
+import java.util.function.Predicate;
+
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.social.facebook.api.ConnectionPageSummary;
+import org.springframework.web.client.ResponseExtractor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * {@link ResponseExtractor} that binds the items of a Graph API connection response one at a time from the response stream,
+ * handing each to a callback before the next is read, until the callback returns false or the items run out.
+ * Items after a stop are skipped unbound; the paging parameters and summary are read either way.
+ */
+class ConnectionCallbackResponseExtractor<T> implements ResponseExtractor<ConnectionPageSummary> {
+
+	private final ObjectMapper objectMapper;
+
+	private final ObjectReader reader;
+
+	private final Predicate<? super T> callback;
+
+	public ConnectionCallbackResponseExtractor(ObjectMapper objectMapper, Class<T> type, Predicate<? super T> callback) {
+		this.objectMapper = objectMapper;
+		this.reader = objectMapper.readerFor(type);
+		this.callback = callback;
+	}
+
+	public ConnectionPageSummary extractData(ClientHttpResponse response) throws IOException {
+		JsonParser parser = objectMapper.getFactory().createParser(response.getBody());
+		try {
+			int itemCount = 0;
+			boolean stopped = false;
+			JsonNode pagingNode = null;
+			JsonNode summaryNode = null;
+			if (parser.nextToken() == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String fieldName = parser.getCurrentName();
+					JsonToken valueToken = parser.nextToken();
+					if ("data".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+						JsonToken token;
+						while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+							if (token == JsonToken.VALUE_NULL) {
+								continue;
+							} else if (stopped) {
+								// skip the rest of the items without binding them, so paging and summary can still be read
+								parser.skipChildren();
+								continue;
+							}
+							T item = reader.readValue(parser);
+							itemCount++;
+							stopped = !callback.test(item);
+						}
+					} else if ("paging".equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+						pagingNode = parser.readValueAsTree();
+					} else if ("summary".equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+						summaryNode = parser.readValueAsTree();
+					} else {
+						parser.skipChildren();
+					}
+				}
+			}
+			return PagedListUtils.summarize(itemCount, stopped, pagingNode, summaryNode);
+		} catch (JsonProcessingException e) {
+			throw new UncategorizedApiException("facebook", "Error deserializing data from Facebook: " + e.getMessage(), e);
+		} finally {
+			parser.close();
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.social.facebook.api.ConnectionStreamOptions;
+import org.springframework.social.facebook.api.PagedList;
+import org.springframework.social.facebook.api.PagingParameters;
+import org.springframework.social.support.URIBuilder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Iterates over the items of a connection, page by page, fetching up to {@link ConnectionStreamOptions#getLookahead()} pages
+ * ahead of the page being consumed.
+ * Each page can only be requested once the previous page has arrived, so the pages are fetched as a chain of futures,
+ * each fetching the page after the one before it. The chain is extended as pages are consumed.
+ */
+class ConnectionIterator<T> implements Iterator<T>, Closeable {
+
+	private final FacebookTemplate facebook;
+
+	private final String objectId;
+
+	private final String connectionName;
+
+	private final Class<T> type;
+
+	private final MultiValueMap<String, String> queryParameters;
+
+	private final ConnectionStreamOptions options;
+
+	private final Executor executor;
+
+	private final Deque<CompletableFuture<PagedList<T>>> pages = new ArrayDeque<CompletableFuture<PagedList<T>>>();
+
+	private CompletableFuture<PagedList<T>> lastPage;
+
+	private int pagesRequested;
+
+	// only updated by the chain of page fetches, which run one after the other
+	private volatile int itemsFetched;
+
+	private int itemsReturned;
+
+	private Iterator<T> currentPage = Collections.<T>emptyList().iterator();
+
+	private volatile boolean closed;
+
+	public ConnectionIterator(FacebookTemplate facebook, String objectId, String connectionName, Class<T> type,
+			MultiValueMap<String, String> queryParameters, ConnectionStreamOptions options, Executor executor) {
+		this.facebook = facebook;
+		this.objectId = objectId;
+		this.connectionName = connectionName;
+		this.type = type;
+		this.queryParameters = queryParameters != null ? queryParameters : new LinkedMultiValueMap<String, String>();
+		this.options = options;
+		this.executor = options.getLookahead() > 0 ? executor : new Executor() {
+			public void execute(Runnable command) {
+				command.run();
+			}
+		};
+	}
+
+	public boolean hasNext() {
+		while (!currentPage.hasNext()) {
+			if (closed || itemsReturned >= options.getMaxItems()) {
+				return false;
+			}
+			requestPages();
+			CompletableFuture<PagedList<T>> nextPage = pages.poll();
+			if (nextPage == null) {
+				return false;
+			}
+			PagedList<T> page = join(nextPage);
+			if (page == null) {
+				close();
+				return false;
+			}
+			currentPage = page.iterator();
+			requestPages();
+		}
+		return itemsReturned < options.getMaxItems();
+	}
+
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		itemsReturned++;
+		return currentPage.next();
+	}
+
+	/**
+	 * Stops fetching pages. Pages that are already being fetched are discarded.
+	 */
+	public void close() {
+		closed = true;
+		for (CompletableFuture<PagedList<T>> page : pages) {
+			page.cancel(false);
+		}
+		pages.clear();
+	}
+
+	// tops up the chain of page fetches to the lookahead depth (or to one page, if there is no lookahead)
+	private void requestPages() {
+		int depth = Math.max(options.getLookahead(), 1);
+		while (!closed && pages.size() < depth && pagesRequested < options.getMaxPages()) {
+			if (lastPage == null) {
+				lastPage = CompletableFuture.supplyAsync(new Supplier<PagedList<T>>() {
+					public PagedList<T> get() {
+						return countItems(facebook.fetchConnections(objectId, connectionName, type, queryParameters));
+					}
+				}, executor);
+			} else {
+				lastPage = lastPage.thenApplyAsync(new Function<PagedList<T>, PagedList<T>>() {
+					public PagedList<T> apply(PagedList<T> previousPage) {
+						return countItems(fetchNextPage(previousPage));
+					}
+				}, executor);
+			}
+			pages.add(lastPage);
+			pagesRequested++;
+		}
+	}
+
+	private PagedList<T> fetchNextPage(PagedList<T> previousPage) {
+		if (closed || previousPage == null || previousPage.isEmpty() || itemsFetched >= options.getMaxItems()) {
+			return null;
+		}
+		PagingParameters nextPage = previousPage.getNextPage();
+		if (nextPage == null) {
+			return null;
+		}
+		if (nextPage.getFullUrl() != null && nextPage.getFullUrl().trim().length() > 0) {
+			return facebook.fetchPagedList(URIBuilder.fromUri(nextPage.getFullUrl()).build(), type);
+		}
+		if (nextPage.getAfter() != null) {
+			MultiValueMap<String, String> nextPageParameters = new LinkedMultiValueMap<String, String>(queryParameters);
+			nextPageParameters.set("after", nextPage.getAfter());
+			return facebook.fetchConnections(objectId, connectionName, type, nextPageParameters);
+		}
+		return null;
+	}
+
+	private PagedList<T> countItems(PagedList<T> page) {
+		if (page != null) {
+			itemsFetched += page.size();
+		}
+		return page;
+	}
+
+	private PagedList<T> join(CompletableFuture<PagedList<T>> page) {
+		try {
+			return page.join();
+		} catch (CompletionException e) {
+			close();
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
+	}
+
+}
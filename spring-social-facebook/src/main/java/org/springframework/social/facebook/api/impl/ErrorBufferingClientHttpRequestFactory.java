@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpRequestFactoryWrapper;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Request factory wrapper that buffers the body of error responses (4xx and 5xx), so that {@link FacebookErrorHandler} can read
+ * an error body and still leave it in place to be read again. Successful responses, such as images, are streamed without being buffered.
+ */
+class ErrorBufferingClientHttpRequestFactory extends AbstractClientHttpRequestFactoryWrapper {
+
+	public ErrorBufferingClientHttpRequestFactory(ClientHttpRequestFactory requestFactory) {
+		super(requestFactory);
+	}
+
+	@Override
+	protected ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod, ClientHttpRequestFactory requestFactory) throws IOException {
+		return new ErrorBufferingClientHttpRequest(requestFactory.createRequest(uri, httpMethod));
+	}
+
+	private static class ErrorBufferingClientHttpRequest implements ClientHttpRequest {
+
+		private final ClientHttpRequest request;
+
+		public ErrorBufferingClientHttpRequest(ClientHttpRequest request) {
+			this.request = request;
+		}
+
+		public HttpMethod getMethod() {
+			return request.getMethod();
+		}
+
+		public URI getURI() {
+			return request.getURI();
+		}
+
+		public HttpHeaders getHeaders() {
+			return request.getHeaders();
+		}
+
+		public OutputStream getBody() throws IOException {
+			return request.getBody();
+		}
+
+		public ClientHttpResponse execute() throws IOException {
+			ClientHttpResponse response = request.execute();
+			if (response.getRawStatusCode() >= 400) {
+				return new BufferedErrorResponse(response);
+			}
+			return response;
+		}
+
+	}
+
+	private static class BufferedErrorResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse response;
+
+		private byte[] body;
+
+		public BufferedErrorResponse(ClientHttpResponse response) {
+			this.response = response;
+		}
+
+		public HttpStatus getStatusCode() throws IOException {
+			return response.getStatusCode();
+		}
+
+		public int getRawStatusCode() throws IOException {
+			return response.getRawStatusCode();
+		}
+
+		public String getStatusText() throws IOException {
+			return response.getStatusText();
+		}
+
+		public HttpHeaders getHeaders() {
+			return response.getHeaders();
+		}
+
+		public InputStream getBody() throws IOException {
+			if (body == null) {
+				InputStream in = response.getBody();
+				body = in != null ? StreamUtils.copyToByteArray(in) : new byte[0];
+			}
+			return new ByteArrayInputStream(body);
+		}
+
+		public void close() {
+			response.close();
+		}
+
+	}
+
+}
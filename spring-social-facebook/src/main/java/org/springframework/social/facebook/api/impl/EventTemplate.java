@@ -17,10 +17,13 @@ package org.springframework.social.facebook.api.impl;
 
 import static org.springframework.social.facebook.api.impl.PagedListUtils.*;
 
+import java.io.OutputStream;
+
 import org.springframework.social.facebook.api.Event;
 import org.springframework.social.facebook.api.EventInvitee;
 import org.springframework.social.facebook.api.EventOperations;
 import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.GraphQuery;
 import org.springframework.social.facebook.api.ImageType;
 import org.springframework.social.facebook.api.Invitation;
 import org.springframework.social.facebook.api.PagedList;
@@ -37,7 +40,7 @@ class EventTemplate implements EventOperations {
 	}
 
 	public Event getEvent(String eventId) {
-		return graphApi.fetchObject(eventId, Event.class, ALL_FIELDS);
+		return graphApi.fetchObject(eventId, EVENT);
 	}
 	
 	public byte[] getEventImage(String eventId) {
@@ -48,6 +51,10 @@ class EventTemplate implements EventOperations {
 		return graphApi.fetchImage(eventId, "picture", imageType);
 	}
 
+	public long getEventImage(String eventId, ImageType imageType, OutputStream out) {
+		return graphApi.fetchImage(eventId, "picture", imageType, out);
+	}
+
 	public PagedList<EventInvitee> getInvited(String eventId) {
 		return graphApi.fetchConnections(eventId, "invited", EventInvitee.class);
 	}
@@ -138,6 +145,6 @@ class EventTemplate implements EventOperations {
 		return graphApi.fetchConnections(userId, "events/" + status, Invitation.class, parameters);
 	}
 	
-	private static final String[] ALL_FIELDS = { "id", "cover", "description", "end_time", "is_date_only", "name", "owner", 
-		"parent_group", "privacy", "start_time", "ticket_uri", "timezone", "updated_time", "place"};
+	private static final GraphQuery<Event> EVENT = GraphQuery.select(Event.class).fields("id", "cover", "description", "end_time", "is_date_only", "name", "owner",
+		"parent_group", "privacy", "start_time", "ticket_uri", "timezone", "updated_time", "place").compile();
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.social.facebook.api.Facebook;
+import org.springframework.social.facebook.api.RawJsonRetention;
+import org.springframework.util.ClassUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>Creates {@link Facebook} instances for any number of access tokens that all share one HTTP transport and one object mapper.</p>
+ * <p>
+ * Each {@link FacebookTemplate} created with a constructor has its own request factory (and, with Apache HttpClient, its own connection pool)
+ * and its own {@link ObjectMapper}, so a service that handles many users' access tokens opens new connections, repeats TLS handshakes
+ * and re-introspects the API model classes for every token. The templates created by this factory instead send their requests through a
+ * single pooled, keep-alive HttpClient and bind responses with a single pre-configured object mapper, so creating one per token is cheap.
+ * </p>
+ * <p>
+ * Apache HttpClient is used if it is on the classpath. Otherwise the templates share the JDK's HttpURLConnection, which keeps connections
+ * alive in its own JVM-wide cache. HttpClient 4 speaks HTTP/1.1 only, so requests are not multiplexed over HTTP/2.
+ * </p>
+ */
+public class FacebookClientFactory implements DisposableBean {
+
+	public static final int DEFAULT_MAX_CONNECTIONS = 200;
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 100;
+
+	public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+
+	private static final boolean HTTP_COMPONENTS_AVAILABLE = ClassUtils.isPresent("org.apache.http.client.HttpClient", FacebookClientFactory.class.getClassLoader());
+
+	private final ClientHttpRequestFactory requestFactory;
+
+	private final Closeable httpClient;
+
+	private ObjectMapper objectMapper = FacebookTemplate.createObjectMapper();
+
+	// the lazy object binders created for the object mapper by the templates that share it
+	private ConcurrentMap<Class<?>, Object> lazyObjectBinders = new ConcurrentHashMap<Class<?>, Object>();
+
+	private String applicationNamespace;
+
+	private String appId;
+
+	private String appSecret;
+
+	private String apiVersion = Facebook.DEFAULT_API_VERSION;
+
+	private UsageThrottlingInterceptor usageThrottlingInterceptor;
+
+	private ConditionalRequestCache conditionalRequestCache;
+
+	private ObjectCache objectCache;
+
+	private PageTokenCache pageTokenCache = new PageTokenCache();
+
+	private ImageCache imageCache;
+
+	private RawJsonRetention rawJsonRetention = RawJsonRetention.LAZY;
+
+	private boolean acceleratedBinding;
+
+	/**
+	 * Creates a factory with a connection pool of {@link #DEFAULT_MAX_CONNECTIONS} connections,
+	 * up to {@link #DEFAULT_MAX_CONNECTIONS_PER_ROUTE} of them to the same host.
+	 */
+	public FacebookClientFactory() {
+		this(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_IDLE_CONNECTION_TIMEOUT);
+	}
+
+	/**
+	 * Creates a factory with a connection pool of the given size.
+	 * @param maxConnections the maximum number of pooled connections
+	 * @param maxConnectionsPerRoute the maximum number of pooled connections to the same host
+	 * @param idleConnectionTimeout the time in milliseconds after which idle connections are closed and evicted from the pool
+	 */
+	public FacebookClientFactory(int maxConnections, int maxConnectionsPerRoute, long idleConnectionTimeout) {
+		if (HTTP_COMPONENTS_AVAILABLE) {
+			CloseableHttpClient pooledClient = PooledHttpClientCreator.createHttpClient(maxConnections, maxConnectionsPerRoute, idleConnectionTimeout);
+			this.requestFactory = new HttpComponentsClientHttpRequestFactory(pooledClient);
+			this.httpClient = pooledClient;
+		} else {
+			this.requestFactory = new SimpleClientHttpRequestFactory();
+			this.httpClient = null;
+		}
+	}
+
+	/**
+	 * Creates a factory whose templates send their requests through the given request factory.
+	 * The request factory is owned by the caller and is not closed when this factory is destroyed.
+	 * @param requestFactory the request factory to share between the templates
+	 */
+	public FacebookClientFactory(ClientHttpRequestFactory requestFactory) {
+		this.requestFactory = requestFactory;
+		this.httpClient = null;
+	}
+
+	/**
+	 * @param applicationNamespace the application namespace of the created templates. Enables use of Open Graph operations.
+	 */
+	public void setApplicationNamespace(String applicationNamespace) {
+		this.applicationNamespace = applicationNamespace;
+	}
+
+	/**
+	 * @param appId the application ID of the created templates.
+	 */
+	public void setAppId(String appId) {
+		this.appId = appId;
+	}
+
+	/**
+	 * @param appSecret the application secret, used to sign the created templates' requests with an appsecret_proof.
+	 */
+	public void setAppSecret(String appSecret) {
+		this.appSecret = appSecret;
+	}
+
+	/**
+	 * Set the Graph API version of the created templates (e.g., "2.10").
+	 * @param apiVersion the API version. Default is {@link Facebook#DEFAULT_API_VERSION}.
+	 */
+	public void setApiVersion(String apiVersion) {
+		this.apiVersion = apiVersion;
+	}
+
+	/**
+	 * Set how much of the JSON that posts, comments, messages and Instagram media are bound from is kept for
+	 * {@link org.springframework.social.facebook.api.FacebookObject#getRawJson()} by the templates created after this call.
+	 * @param rawJsonRetention the retention policy. Default is {@link RawJsonRetention#LAZY}.
+	 */
+	public void setRawJsonRetention(RawJsonRetention rawJsonRetention) {
+		this.rawJsonRetention = rawJsonRetention;
+		this.objectMapper = FacebookTemplate.createObjectMapper(rawJsonRetention, acceleratedBinding);
+		this.lazyObjectBinders = new ConcurrentHashMap<Class<?>, Object>();
+	}
+
+	/**
+	 * Set whether the templates created after this call bind responses with the accessors generated by the Jackson Afterburner module.
+	 * Requires com.fasterxml.jackson.module:jackson-module-afterburner on the classpath.
+	 * @param acceleratedBinding true to bind with generated accessors. Default is false.
+	 * @throws IllegalStateException if Afterburner isn't on the classpath
+	 * @see FacebookTemplate#setAcceleratedBinding(boolean)
+	 */
+	public void setAcceleratedBinding(boolean acceleratedBinding) {
+		this.acceleratedBinding = acceleratedBinding;
+		this.objectMapper = FacebookTemplate.createObjectMapper(rawJsonRetention, acceleratedBinding);
+		this.lazyObjectBinders = new ConcurrentHashMap<Class<?>, Object>();
+	}
+
+	/**
+	 * Set the interceptor that throttles the requests of all the templates created by this factory based on the rate limit usage
+	 * reported by Facebook. By default, requests are not throttled, as with a {@link FacebookTemplate} created directly.
+	 * @param usageThrottlingInterceptor the interceptor, shared by the templates. If null, requests are not throttled.
+	 */
+	public void setUsageThrottlingInterceptor(UsageThrottlingInterceptor usageThrottlingInterceptor) {
+		this.usageThrottlingInterceptor = usageThrottlingInterceptor;
+	}
+
+	/**
+	 * @return the interceptor that throttles the requests of the templates created by this factory, for monitoring their rate limit usage.
+	 * Null if requests are not throttled.
+	 */
+	public UsageThrottlingInterceptor getUsageThrottlingInterceptor() {
+		return usageThrottlingInterceptor;
+	}
+
+	/**
+	 * Set the cache shared by all the templates created by this factory to revalidate their GET requests with the ETags of previous responses.
+	 * The cached responses of different access tokens are kept apart. By default, responses are not cached.
+	 * @param conditionalRequestCache the cache. If null, responses are not cached.
+	 */
+	public void setConditionalRequestCache(ConditionalRequestCache conditionalRequestCache) {
+		this.conditionalRequestCache = conditionalRequestCache;
+	}
+
+	/**
+	 * @return the cache of the templates created by this factory, for monitoring its hits and misses. Null if responses are not cached.
+	 */
+	public ConditionalRequestCache getConditionalRequestCache() {
+		return conditionalRequestCache;
+	}
+
+	/**
+	 * Set the cache shared by all the templates created by this factory for the user profiles, pages and Instagram profiles they fetch.
+	 * The objects fetched with different access tokens are kept apart. By default, objects are not cached.
+	 * @param objectCache the cache. If null, objects are not cached.
+	 */
+	public void setObjectCache(ObjectCache objectCache) {
+		this.objectCache = objectCache;
+	}
+
+	/**
+	 * @return the object cache of the templates created by this factory, for invalidating objects that changed. Null if objects are not cached.
+	 */
+	public ObjectCache getObjectCache() {
+		return objectCache;
+	}
+
+	/**
+	 * Set the cache shared by all the templates created by this factory to look the access tokens of users' pages up.
+	 * By default, a {@link PageTokenCache} with default settings is shared by the templates.
+	 * @param pageTokenCache the cache
+	 */
+	public void setPageTokenCache(PageTokenCache pageTokenCache) {
+		if (pageTokenCache == null) {
+			throw new IllegalArgumentException("The page token cache must not be null");
+		}
+		this.pageTokenCache = pageTokenCache;
+	}
+
+	/**
+	 * @return the page token cache of the templates created by this factory, for invalidating the pages of users.
+	 */
+	public PageTokenCache getPageTokenCache() {
+		return pageTokenCache;
+	}
+
+	/**
+	 * Set the cache shared by all the templates created by this factory for the images they fetch.
+	 * By default, images are not cached.
+	 * Each image is still kept per access token, so that no user is served an image that the Graph API would only show to another;
+	 * enable {@link ImageCache#setSharedAcrossTokens(boolean)} only if all the images fetched are public.
+	 * @param imageCache the cache. If null, images are not cached.
+	 */
+	public void setImageCache(ImageCache imageCache) {
+		this.imageCache = imageCache;
+	}
+
+	/**
+	 * @return the image cache of the templates created by this factory, for monitoring its size and hit ratio. Null if images are not cached.
+	 */
+	public ImageCache getImageCache() {
+		return imageCache;
+	}
+
+	/**
+	 * Creates a {@link Facebook} instance for the given access token, backed by this factory's shared transport.
+	 * @param accessToken the access token
+	 * @return a {@link FacebookTemplate} for the access token
+	 */
+	public FacebookTemplate getFacebook(String accessToken) {
+		return getFacebook(accessToken, applicationNamespace, appId, appSecret);
+	}
+
+	/**
+	 * Creates a {@link Facebook} instance for the given access token and application settings, backed by this factory's shared transport.
+	 * The given settings are used in place of this factory's own, so one factory may serve several applications.
+	 * @param accessToken the access token
+	 * @param applicationNamespace the application's namespace
+	 * @param appId the application's App ID
+	 * @param appSecret the application's App Secret, used to sign requests with an appsecret_proof. May be null.
+	 * @return a {@link FacebookTemplate} for the access token
+	 */
+	public FacebookTemplate getFacebook(String accessToken, String applicationNamespace, String appId, String appSecret) {
+		FacebookTemplate facebook = new FacebookTemplate(accessToken, applicationNamespace, appId, appSecret, requestFactory, objectMapper, lazyObjectBinders);
+		facebook.setApiVersion(apiVersion);
+		if (usageThrottlingInterceptor != null) {
+			facebook.setUsageThrottlingInterceptor(usageThrottlingInterceptor);
+		}
+		if (conditionalRequestCache != null) {
+			facebook.setConditionalRequestCache(conditionalRequestCache);
+		}
+		facebook.setObjectCache(objectCache);
+		facebook.setPageTokenCache(pageTokenCache);
+		facebook.setImageCache(imageCache);
+		return facebook;
+	}
+
+	/**
+	 * @return the request factory shared by the templates created by this factory.
+	 */
+	public ClientHttpRequestFactory getRequestFactory() {
+		return requestFactory;
+	}
+
+	/**
+	 * @return the object mapper shared by the templates created by this factory.
+	 */
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	/**
+	 * Closes the pooled HttpClient, if this factory created one.
+	 */
+	public void destroy() throws IOException {
+		if (httpClient != null) {
+			httpClient.close();
+		}
+	}
+
+	// kept in a separate class so that HttpClient is only loaded when present
+	private static class PooledHttpClientCreator {
+		public static CloseableHttpClient createHttpClient(int maxConnections, int maxConnectionsPerRoute, long idleConnectionTimeout) {
+			return HttpClients.custom()
+					.useSystemProperties()
+					.setMaxConnTotal(maxConnections)
+					.setMaxConnPerRoute(maxConnectionsPerRoute)
+					.setDefaultRequestConfig(RequestConfig.custom().setExpectContinueEnabled(false).build())
+					.evictExpiredConnections()
+					.evictIdleConnections(idleConnectionTimeout, TimeUnit.MILLISECONDS)
+					.build();
+		}
+	}
+
+}
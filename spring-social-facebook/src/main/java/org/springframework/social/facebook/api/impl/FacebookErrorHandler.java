@@ -17,10 +17,9 @@ package org.springframework.social.facebook.api.impl;
 
 import static org.springframework.social.facebook.api.FacebookErrors.*;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -36,16 +35,20 @@ import org.springframework.social.RevokedAuthorizationException;
 import org.springframework.social.ServerException;
 import org.springframework.social.UncategorizedApiException;
 import org.springframework.social.facebook.api.FacebookError;
+import org.springframework.social.facebook.api.FacebookErrorException;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.DefaultResponseErrorHandler;
 
 import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 
 /**
  * Subclass of {@link DefaultResponseErrorHandler} that handles errors from Facebook's
  * Graph API, interpreting them into appropriate exceptions.
+ * The "error" object of the response is read with a streaming parser, and the rest of the response is not read.
+ * The exceptions thrown carry the error in a {@link FacebookErrorException}.
  * @author Craig Walls
  */
 class FacebookErrorHandler extends DefaultResponseErrorHandler {
@@ -53,10 +56,18 @@ class FacebookErrorHandler extends DefaultResponseErrorHandler {
 	private static final String FACEBOOK_PROVIDER_ID = "facebook";
 	private final static Log logger = LogFactory.getLog(FacebookErrorHandler.class);
 
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
 	@Override
 	public void handleError(ClientHttpResponse response) throws IOException {
 		FacebookError error = extractErrorFromResponse(response);
 		handleFacebookError(response.getStatusCode(), error);
+		if (error == null && response.getStatusCode().is5xxServerError()) {
+			// not a Graph API error (e.g., a gateway error page): surface the status rather than trying to bind the body
+			super.handleError(response);
+		}
 	}
 	
 	/**
@@ -64,82 +75,144 @@ class FacebookErrorHandler extends DefaultResponseErrorHandler {
 	 * @param errorDetails a Map containing a "type" and a "message" corresponding to the Graph API's error response structure.
 	 */
 	void handleFacebookError(HttpStatus statusCode, FacebookError error) {
+		RuntimeException exception = translateFacebookError(statusCode, error);
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	/**
+	 * Examines the error data returned from Facebook and creates the most applicable exception.
+	 * The exception carries the error in a {@link FacebookErrorException}, see {@link FacebookErrorException#findError(Throwable)}.
+	 * @return the exception to throw, or null if the error carries no error code.
+	 */
+	RuntimeException translateFacebookError(HttpStatus statusCode, FacebookError error) {
 		if (error != null && error.getCode() != null) {
 			int code = error.getCode();
+			FacebookErrorException cause = new FacebookErrorException(error);
 			
 			if (code == UNKNOWN) {
-				throw new UncategorizedApiException(FACEBOOK_PROVIDER_ID, error.getMessage(), null);
+				return new UncategorizedApiException(FACEBOOK_PROVIDER_ID, error.getMessage(), cause);
 			} else if (code == SERVICE) {
-				throw new ServerException(FACEBOOK_PROVIDER_ID, error.getMessage());
+				return withError(new ServerException(FACEBOOK_PROVIDER_ID, error.getMessage()), cause);
 			} else if (code == TOO_MANY_CALLS || code == USER_TOO_MANY_CALLS || code == EDIT_FEED_TOO_MANY_USER_CALLS || code == EDIT_FEED_TOO_MANY_USER_ACTION_CALLS) {
-				throw new RateLimitExceededException(FACEBOOK_PROVIDER_ID);
+				return withError(new RateLimitExceededException(FACEBOOK_PROVIDER_ID), cause);
 			} else if (code == PERMISSION_DENIED || isUserPermissionError(code)) {
-				throw new InsufficientPermissionException(FACEBOOK_PROVIDER_ID);
+				return withError(new InsufficientPermissionException(FACEBOOK_PROVIDER_ID), cause);
 			} else if (code == PARAM_SESSION_KEY || code == PARAM_SIGNATURE) {
-				throw new InvalidAuthorizationException(FACEBOOK_PROVIDER_ID, error.getMessage());
+				return withError(new InvalidAuthorizationException(FACEBOOK_PROVIDER_ID, error.getMessage()), cause);
 			} else if (code == PARAM_ACCESS_TOKEN && error.getSubcode() == null) {
-				throw new InvalidAuthorizationException(FACEBOOK_PROVIDER_ID, error.getMessage());
+				return withError(new InvalidAuthorizationException(FACEBOOK_PROVIDER_ID, error.getMessage()), cause);
 			} else if (code == PARAM_ACCESS_TOKEN && error.getSubcode() == 463) {
-				throw new ExpiredAuthorizationException(FACEBOOK_PROVIDER_ID);
+				return withError(new ExpiredAuthorizationException(FACEBOOK_PROVIDER_ID), cause);
 			} else if (code == PARAM_ACCESS_TOKEN) {
-				throw new RevokedAuthorizationException(FACEBOOK_PROVIDER_ID, error.getMessage());
+				return withError(new RevokedAuthorizationException(FACEBOOK_PROVIDER_ID, error.getMessage()), cause);
 			} else if (code == MESG_DUPLICATE) { 
-				throw new DuplicateStatusException(FACEBOOK_PROVIDER_ID, error.getMessage());
+				return withError(new DuplicateStatusException(FACEBOOK_PROVIDER_ID, error.getMessage()), cause);
 			} else if (code == DATA_OBJECT_NOT_FOUND || code == PATH_UNKNOWN) {
-				throw new ResourceNotFoundException(FACEBOOK_PROVIDER_ID, error.getMessage());
+				return withError(new ResourceNotFoundException(FACEBOOK_PROVIDER_ID, error.getMessage()), cause);
 			} else {
-				throw new UncategorizedApiException(FACEBOOK_PROVIDER_ID, error.getMessage(), null);
+				return new UncategorizedApiException(FACEBOOK_PROVIDER_ID, error.getMessage(), cause);
 			}
 		}
+		return null;
+	}
 
+	// the spring-social exceptions initialize their cause to null, so the error can't be set as the cause
+	private static RuntimeException withError(RuntimeException exception, FacebookErrorException error) {
+		exception.addSuppressed(error);
+		return exception;
 	}
 	
 	private FacebookError extractErrorFromResponse(ClientHttpResponse response) throws IOException {
-		String json = readResponseJson(response);
+		InputStream body = response.getBody();
+		if (body == null) {
+			return null;
+		}
+		if (logger.isDebugEnabled()) {
+			String json = StreamUtils.copyToString(body, UTF_8);
+			logger.debug("Error from Facebook: " + json);
+			return extractErrorFromJson(json);
+		}
+		return extractError(JSON_FACTORY.createParser(body));
+	}
+
+	/**
+	 * Extracts the error details from the body of a Graph API error response.
+	 * @return the error, or null if the body isn't a Graph API error.
+	 */
+	FacebookError extractErrorFromJson(String json) throws IOException {
+		return extractError(JSON_FACTORY.createParser(json));
+	}
+
+	// reads up to the end of the "error" object, skipping any other fields
+	private FacebookError extractError(JsonParser parser) throws IOException {
 		try {
-			ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-			JsonNode jsonNode = mapper.readValue(json, JsonNode.class);
-			if (jsonNode.has("error")) {
-				JsonNode errorNode = jsonNode.get("error");
-				Integer code = errorNode.has("code") ? errorNode.get("code").intValue() : null;
-				String type = errorNode.has("type") ? errorNode.get("type").asText() : null;
-				String message = errorNode.has("message") ? errorNode.get("message").asText() : null;
-				Integer subcode = errorNode.has("error_subcode") ? errorNode.get("error_subcode").intValue() : null;
-				String userMessage = errorNode.has("error_user_msg") ? errorNode.get("error_user_msg").asText() : null;
-				String userTitle = errorNode.has("error_user_title") ? errorNode.get("error_user_title").asText() : null;
-				
-				FacebookError error = new FacebookError(code, type, message, subcode, userMessage, userTitle);
-				if (logger.isDebugEnabled()) {
-					logger.debug("Facebook error: ");
-					logger.debug("   CODE        : " + error.getCode());
-					logger.debug("   TYPE        : " + error.getType());
-					logger.debug("   SUBCODE     : " + error.getSubcode());
-					logger.debug("   MESSAGE     : " + error.getMessage());
-					logger.debug("   USER TITLE  : " + error.getUserTitle());
-					logger.debug("   USER MESSAGE: " + error.getUserMessage());
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				if (parser.nextToken() == JsonToken.START_OBJECT && "error".equals(fieldName)) {
+					return readError(parser);
 				}
-				return error;
+				parser.skipChildren();
 			}
-		} catch (JsonParseException e) {
 			return null;
+		} catch (JsonProcessingException e) {
+			return null;
+		} finally {
+			parser.close();
 		}
-		return null;
 	}
 
-	private String readResponseJson(ClientHttpResponse response) throws IOException {
-		String json = readFully(response.getBody());
-		if (logger.isDebugEnabled()) {
-			logger.debug("Error from Facebook: " + json);
+	private FacebookError readError(JsonParser parser) throws IOException {
+		Integer code = null;
+		String type = null;
+		String message = null;
+		Integer subcode = null;
+		String userMessage = null;
+		String userTitle = null;
+		String traceId = null;
+		boolean isTransient = false;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+			} else if (token == JsonToken.VALUE_NULL) {
+				continue;
+			} else if ("code".equals(fieldName)) {
+				code = parser.getValueAsInt();
+			} else if ("type".equals(fieldName)) {
+				type = parser.getValueAsString();
+			} else if ("message".equals(fieldName)) {
+				message = parser.getValueAsString();
+			} else if ("error_subcode".equals(fieldName)) {
+				subcode = parser.getValueAsInt();
+			} else if ("error_user_msg".equals(fieldName)) {
+				userMessage = parser.getValueAsString();
+			} else if ("error_user_title".equals(fieldName)) {
+				userTitle = parser.getValueAsString();
+			} else if ("fbtrace_id".equals(fieldName)) {
+				traceId = parser.getValueAsString();
+			} else if ("is_transient".equals(fieldName)) {
+				isTransient = parser.getValueAsBoolean();
+			}
 		}
-		return json;
-	}
-	
-	private String readFully(InputStream in) throws IOException {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-		StringBuilder sb = new StringBuilder();
-		while (reader.ready()) {
-			sb.append(reader.readLine());
+
+		FacebookError error = new FacebookError(code, type, message, subcode, userMessage, userTitle, traceId, isTransient);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Facebook error: ");
+			logger.debug("   CODE        : " + error.getCode());
+			logger.debug("   TYPE        : " + error.getType());
+			logger.debug("   SUBCODE     : " + error.getSubcode());
+			logger.debug("   MESSAGE     : " + error.getMessage());
+			logger.debug("   USER TITLE  : " + error.getUserTitle());
+			logger.debug("   USER MESSAGE: " + error.getUserMessage());
+			logger.debug("   TRACE ID    : " + error.getTraceId());
+			logger.debug("   TRANSIENT   : " + error.isTransient());
 		}
-		return sb.toString();
+		return error;
 	}
 }
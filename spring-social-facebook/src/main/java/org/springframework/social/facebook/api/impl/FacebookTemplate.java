@@ -17,37 +17,73 @@ package org.springframework.social.facebook.api.impl;
 
 import static org.springframework.social.facebook.api.impl.PagedListUtils.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptorModule;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.social.NotAuthorizedException;
 import org.springframework.social.UncategorizedApiException;
 import org.springframework.social.facebook.api.AchievementOperations;
+import org.springframework.social.facebook.api.BindingMode;
 import org.springframework.social.facebook.api.CommentOperations;
+import org.springframework.social.facebook.api.ConnectionPageSummary;
+import org.springframework.social.facebook.api.ConnectionStreamOptions;
 import org.springframework.social.facebook.api.EventOperations;
 import org.springframework.social.facebook.api.Facebook;
 import org.springframework.social.facebook.api.FeedOperations;
 import org.springframework.social.facebook.api.FriendOperations;
+import org.springframework.social.facebook.api.GraphBatch;
+import org.springframework.social.facebook.api.GraphQuery;
 import org.springframework.social.facebook.api.GroupOperations;
 import org.springframework.social.facebook.api.ImageType;
 import org.springframework.social.facebook.api.InstagramOperations;
 import org.springframework.social.facebook.api.LikeOperations;
 import org.springframework.social.facebook.api.MediaOperations;
+import org.springframework.social.facebook.api.ObjectsById;
 import org.springframework.social.facebook.api.OpenGraphOperations;
 import org.springframework.social.facebook.api.PageOperations;
 import org.springframework.social.facebook.api.PagedList;
 import org.springframework.social.facebook.api.PagingParameters;
+import org.springframework.social.facebook.api.RawConnectionPage;
+import org.springframework.social.facebook.api.RawJsonRetention;
 import org.springframework.social.facebook.api.SocialContextOperations;
 import org.springframework.social.facebook.api.TestUserOperations;
 import org.springframework.social.facebook.api.UserOperations;
@@ -55,17 +91,19 @@ import org.springframework.social.facebook.api.impl.json.FacebookModule;
 import org.springframework.social.facebook.security.FacebookAppSecretProofInterceptor;
 import org.springframework.social.oauth2.AbstractOAuth2ApiBinding;
 import org.springframework.social.oauth2.OAuth2Version;
-import org.springframework.social.support.ClientHttpRequestFactorySelector;
 import org.springframework.social.support.URIBuilder;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestOperations;
 import org.springframework.web.client.RestTemplate;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.CollectionType;
-import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 
 /**
  * <p>This is the central class for interacting with Facebook.</p>
@@ -80,45 +118,75 @@ import com.fasterxml.jackson.databind.type.TypeFactory;
  */
 public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Facebook {
 
+	private static final boolean AFTERBURNER_AVAILABLE = ClassUtils.isPresent("com.fasterxml.jackson.module.afterburner.AfterburnerModule", FacebookTemplate.class.getClassLoader());
+
 	private String appId;
 
 	private String appSecret;
 
 	private String accessToken;
 
-	private AchievementOperations achievementOperations;
+	// Sub-APIs are created on first use, as most callers only use one or two of them. They hold no state (PageTemplate keeps
+	// page access tokens in this template's page token cache), so an extra instance created by a racing thread is harmless.
+	private volatile AchievementOperations achievementOperations;
 	
-	private UserOperations userOperations;
+	private volatile UserOperations userOperations;
 
-	private InstagramOperations instagramOperations;
+	private volatile InstagramOperations instagramOperations;
 
-	private FriendOperations friendOperations;
+	private volatile FriendOperations friendOperations;
 	
-	private FeedOperations feedOperations;
+	private volatile FeedOperations feedOperations;
 	
-	private GroupOperations groupOperations;
+	private volatile GroupOperations groupOperations;
 	
-	private CommentOperations commentOperations;
+	private volatile CommentOperations commentOperations;
 	
-	private LikeOperations likeOperations;
+	private volatile LikeOperations likeOperations;
 	
-	private EventOperations eventOperations;
+	private volatile EventOperations eventOperations;
 	
-	private MediaOperations mediaOperations;
+	private volatile MediaOperations mediaOperations;
 	
-	private PageOperations pageOperations;
+	private volatile PageOperations pageOperations;
 	
-	private OpenGraphOperations openGraphOperations;
+	private volatile OpenGraphOperations openGraphOperations;
 	
-	private SocialContextOperations socialContextOperations;
+	private volatile SocialContextOperations socialContextOperations;
 	
-	private TestUserOperations testUserOperations;
+	private volatile TestUserOperations testUserOperations;
 	
 	private ObjectMapper objectMapper;
 
+	private final ConcurrentMap<Class<?>, ObjectReader> listReaders = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+	// the lazy object binders of the object mapper, keyed by type (or mapping the type to itself if it can't be bound lazily),
+	// shared by the templates that share the mapper
+	private ConcurrentMap<Class<?>, Object> lazyObjectBinders = new ConcurrentHashMap<Class<?>, Object>();
+
 	private String applicationNamespace;
 
 	private String apiVersion = DEFAULT_API_VERSION;
+
+	private Executor taskExecutor;
+
+	private ClientHttpRequestFactory sharedRequestFactory;
+
+	private UsageThrottlingInterceptor usageThrottlingInterceptor;
+
+	private ConditionalRequestCache conditionalRequestCache;
+
+	private ObjectCache objectCache;
+
+	private PageTokenCache pageTokenCache = new PageTokenCache();
+
+	private ImageCache imageCache;
+
+	private volatile String accessTokenDigest;
+
+	private RawJsonRetention rawJsonRetention = RawJsonRetention.LAZY;
+
+	private boolean acceleratedBinding;
 	
 	/**
 	 * Create a new instance of FacebookTemplate.
@@ -149,11 +217,26 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 			setAppSecretInterceptor(getRestTemplate());
 		}
 	}
+
+	/**
+	 * Creates a FacebookTemplate that sends its requests through a request factory and binds responses with an object mapper,
+	 * and the lazy object binders created for it, shared with other FacebookTemplate instances.
+	 * @see FacebookClientFactory
+	 */
+	FacebookTemplate(String accessToken, String applicationNamespace, String appId, String appSecret, ClientHttpRequestFactory requestFactory,
+			ObjectMapper objectMapper, ConcurrentMap<Class<?>, Object> lazyObjectBinders) {
+		this(accessToken, applicationNamespace, appId, appSecret);
+		setObjectMapper(objectMapper, lazyObjectBinders);
+		if (requestFactory != null) {
+			setRequestFactory(requestFactory);
+			this.sharedRequestFactory = requestFactory;
+		}
+	}
 	
 	@Override
 	public void setRequestFactory(ClientHttpRequestFactory requestFactory) {
-		// Wrap the request factory with a BufferingClientHttpRequestFactory so that the error handler can do repeat reads on the response.getBody()
-		super.setRequestFactory(ClientHttpRequestFactorySelector.bufferRequests(requestFactory));
+		// Wrap the request factory so that the error handler can do repeat reads on the response.getBody() of error responses
+		super.setRequestFactory(new ErrorBufferingClientHttpRequestFactory(requestFactory));
 	}
 	
 	/**
@@ -165,47 +248,207 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 		this.apiVersion = apiVersion;
 	}
 
+	/**
+	 * Set the executor that runs the requests of {@link #fetchObjects(Collection, Class, String...)} in parallel
+	 * and prefetches pages for {@link #streamConnections(String, String, Class, MultiValueMap, ConnectionStreamOptions)}.
+	 * If not set, a small thread pool shared by all FacebookTemplate instances is used.
+	 * @param taskExecutor the executor to send parallel requests with.
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Set how much of the JSON that posts, comments, messages and Instagram media are bound from is kept for
+	 * {@link org.springframework.social.facebook.api.FacebookObject#getRawJson()}.
+	 * If this template shares its object mapper with other templates, it gets an object mapper of its own.
+	 * @param rawJsonRetention the retention policy. Default is {@link RawJsonRetention#LAZY}.
+	 */
+	public void setRawJsonRetention(RawJsonRetention rawJsonRetention) {
+		this.rawJsonRetention = rawJsonRetention;
+		setObjectMapper(createObjectMapper(rawJsonRetention, acceleratedBinding));
+	}
+
+	/**
+	 * Set whether responses are bound with generated accessors and constructors instead of reflection, using the
+	 * Jackson Afterburner module. Requires com.fasterxml.jackson.module:jackson-module-afterburner on the classpath.
+	 * Only non-private fields, setters and constructors are accelerated; the others are still accessed reflectively.
+	 * If this template shares its object mapper with other templates, it gets an object mapper of its own.
+	 * @param acceleratedBinding true to bind with generated accessors. Default is false.
+	 * @throws IllegalStateException if Afterburner isn't on the classpath
+	 */
+	public void setAcceleratedBinding(boolean acceleratedBinding) {
+		this.acceleratedBinding = acceleratedBinding;
+		setObjectMapper(createObjectMapper(rawJsonRetention, acceleratedBinding));
+	}
+
+	/**
+	 * Set the interceptor that slows this template's requests down as the rate limit usage reported by Facebook approaches the limits.
+	 * Share one interceptor between all the templates that make requests on behalf of the same application.
+	 * @param usageThrottlingInterceptor the interceptor. If null, requests are not throttled.
+	 */
+	public void setUsageThrottlingInterceptor(UsageThrottlingInterceptor usageThrottlingInterceptor) {
+		List<ClientHttpRequestInterceptor> interceptors = getRestTemplate().getInterceptors();
+		for (Iterator<ClientHttpRequestInterceptor> iterator = interceptors.iterator(); iterator.hasNext();) {
+			if (iterator.next() instanceof UsageThrottlingInterceptor) {
+				iterator.remove();
+			}
+		}
+		if (usageThrottlingInterceptor != null) {
+			interceptors.add(usageThrottlingInterceptor);
+		}
+		getRestTemplate().setInterceptors(interceptors);
+		this.usageThrottlingInterceptor = usageThrottlingInterceptor;
+	}
+
+	/**
+	 * Set the cache that revalidates this template's GET requests with the ETags of previous responses, answering them
+	 * from the cache when Facebook reports that the response hasn't changed.
+	 * The cache is consulted before any {@link UsageThrottlingInterceptor}, so that the interceptor only sees the responses actually sent by Facebook.
+	 * @param conditionalRequestCache the cache. If null, responses are not cached.
+	 */
+	public void setConditionalRequestCache(ConditionalRequestCache conditionalRequestCache) {
+		List<ClientHttpRequestInterceptor> interceptors = getRestTemplate().getInterceptors();
+		int index = -1;
+		for (Iterator<ClientHttpRequestInterceptor> iterator = interceptors.iterator(); iterator.hasNext();) {
+			if (iterator.next() instanceof ConditionalRequestCache) {
+				iterator.remove();
+			}
+		}
+		for (int i = 0; i < interceptors.size() && index < 0; i++) {
+			if (interceptors.get(i) instanceof UsageThrottlingInterceptor) {
+				index = i;
+			}
+		}
+		if (conditionalRequestCache != null) {
+			interceptors.add(index >= 0 ? index : interceptors.size(), conditionalRequestCache);
+		}
+		getRestTemplate().setInterceptors(interceptors);
+		this.conditionalRequestCache = conditionalRequestCache;
+	}
+
+	/**
+	 * Set the cache of the user profiles, pages and Instagram profiles fetched by this template's operations.
+	 * @param objectCache the cache. If null, objects are not cached.
+	 * @see ObjectCache
+	 */
+	public void setObjectCache(ObjectCache objectCache) {
+		this.objectCache = objectCache;
+	}
+
+	/**
+	 * Set the cache that page operations look the access tokens of the user's pages up in.
+	 * Share one cache between the templates of an application to fetch each user's pages only once.
+	 * By default, each template has a cache of its own.
+	 * @param pageTokenCache the cache
+	 */
+	public void setPageTokenCache(PageTokenCache pageTokenCache) {
+		if (pageTokenCache == null) {
+			throw new IllegalArgumentException("The page token cache must not be null");
+		}
+		this.pageTokenCache = pageTokenCache;
+	}
+
+	/**
+	 * Set the cache of the images fetched by this template, such as profile pictures.
+	 * Images are cached per access token, unless the cache is {@link ImageCache#setSharedAcrossTokens(boolean) shared across tokens}.
+	 * @param imageCache the cache. If null, images are not cached.
+	 * @see ImageCache
+	 */
+	public void setImageCache(ImageCache imageCache) {
+		this.imageCache = imageCache;
+	}
+
+	ObjectCache getObjectCache() {
+		return objectCache;
+	}
+
+	PageTokenCache getPageTokenCache() {
+		return pageTokenCache;
+	}
+
+	String getAccessToken() {
+		return accessToken;
+	}
+
 	public AchievementOperations achievementOperations() {
+		if (achievementOperations == null) {
+			achievementOperations = new AchievementTemplate(this);
+		}
 		return achievementOperations;
 	}
 	
 	public UserOperations userOperations() {
+		if (userOperations == null) {
+			userOperations = new UserTemplate(this, getRestTemplate());
+		}
 		return userOperations;
 	}
 
 	public InstagramOperations instagramOperations() {
+		if (instagramOperations == null) {
+			instagramOperations = new InstagramTemplate(this, getRestTemplate());
+		}
 		return instagramOperations;
 	}
 
 	public LikeOperations likeOperations() {
+		if (likeOperations == null) {
+			likeOperations = new LikeTemplate(this);
+		}
 		return likeOperations;
 	}
 
 	public FriendOperations friendOperations() {
+		if (friendOperations == null) {
+			friendOperations = new FriendTemplate(this, getRestTemplate());
+		}
 		return friendOperations;
 	}
 	
 	public FeedOperations feedOperations() {
+		if (feedOperations == null) {
+			feedOperations = new FeedTemplate(this);
+		}
 		return feedOperations;
 	}
 	
 	public GroupOperations groupOperations() {
+		if (groupOperations == null) {
+			groupOperations = new GroupTemplate(this);
+		}
 		return groupOperations;
 	}
 
 	public CommentOperations commentOperations() {
+		if (commentOperations == null) {
+			commentOperations = new CommentTemplate(this, getRestTemplate());
+		}
 		return commentOperations;
 	}
 	
 	public EventOperations eventOperations() {
+		if (eventOperations == null) {
+			eventOperations = new EventTemplate(this);
+		}
 		return eventOperations;
 	}
 	
 	public MediaOperations mediaOperations() {
+		if (mediaOperations == null) {
+			mediaOperations = new MediaTemplate(this, getRestTemplate());
+		}
 		return mediaOperations;
 	}
 	
 	public PageOperations pageOperations() {
+		if (pageOperations == null) {
+			synchronized (this) {
+				if (pageOperations == null) {
+					pageOperations = new PageTemplate(this);
+				}
+			}
+		}
 		return pageOperations;
 	}
 	
@@ -214,10 +457,16 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 	}
 	
 	public OpenGraphOperations openGraphOperations() {
+		if (openGraphOperations == null) {
+			openGraphOperations = new OpenGraphTemplate(this);
+		}
 		return openGraphOperations;
 	}
 	
 	public SocialContextOperations socialContextOperations() {
+		if (socialContextOperations == null) {
+			socialContextOperations = new SocialContextTemplate(this, getRestTemplate());
+		}
 		return socialContextOperations;
 	}
 	
@@ -226,6 +475,9 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 	}
 	
 	public TestUserOperations testUserOperations() {
+		if (testUserOperations == null) {
+			testUserOperations = new TestUserTemplate(this, getRestTemplate(), appId);
+		}
 		return testUserOperations;
 	}
 	
@@ -249,6 +501,22 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 		return getRestTemplate().getForObject(uri, type);
 	}
 
+	public <T> T fetchObject(String objectId, GraphQuery<T> query) {
+		return getRestTemplate().getForObject(queryUri(objectId, null, query, null), query.getType());
+	}
+
+	public byte[] fetchRawObject(String objectId, MultiValueMap<String, String> queryParameters) {
+		URIBuilder uriBuilder = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId);
+		if (queryParameters != null) {
+			uriBuilder.queryParams(queryParameters);
+		}
+		return getRestTemplate().execute(uriBuilder.build(), HttpMethod.GET, JSON_ACCEPT_CALLBACK, RAW_RESPONSE_EXTRACTOR);
+	}
+
+	public <T> ObjectsById<T> fetchObjects(Collection<String> objectIds, Class<T> type, String... fields) {
+		return new MultiIdFetcher<T>(getRestTemplate(), getBaseGraphApiUrl(), objectMapper.readerFor(type), getTaskExecutor(), join(fields)).fetch(objectIds);
+	}
+
 	public <T> PagedList<T> fetchConnections(String objectId, String connectionType, Class<T> type, String... fields) {
 		MultiValueMap<String, String> queryParameters = new LinkedMultiValueMap<String, String>();
 		if(fields.length > 0) {
@@ -261,15 +529,13 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 	public <T> PagedList<T> fetchConnections(String objectId, String connectionType, Class<T> type, MultiValueMap<String, String> queryParameters) {
 		String connectionPath = connectionType != null && connectionType.length() > 0 ? "/" + connectionType : "";
 		URIBuilder uriBuilder = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + connectionPath).queryParams(queryParameters);
-		JsonNode jsonNode = getRestTemplate().getForObject(uriBuilder.build(), JsonNode.class);
-		return pagify(type, jsonNode);
+		return fetchPagedList(uriBuilder.build(), type);
 	}
 
 	public <T> PagedList<T> fetchPagedConnections(String objectId, String connectionType, Class<T> type, MultiValueMap<String, String> queryParameters) {
 		String connectionPath = connectionType != null && connectionType.length() > 0 ? "/" + connectionType : "";
 		URIBuilder uriBuilder = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + connectionPath).queryParams(queryParameters);
-		JsonNode jsonNode = getRestTemplate().getForObject(uriBuilder.build(), JsonNode.class);
-		return pagify(type, jsonNode);
+		return fetchPagedList(uriBuilder.build(), type);
 	}
 
 	public <T> PagedList<T> fetchConnections(String objectId, String connectionType, Class<T> type, MultiValueMap<String, String> queryParameters, String... fields) {
@@ -280,6 +546,59 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 		return fetchPagedConnections(objectId, connectionType, type, queryParameters);
 	}
 
+	public <T> PagedList<T> fetchConnections(String objectId, String connectionType, Class<T> type, MultiValueMap<String, String> queryParameters, BindingMode bindingMode, String... fields) {
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		if (queryParameters != null) {
+			parameters.putAll(queryParameters);
+		}
+		if (fields.length > 0) {
+			parameters.set("fields", join(fields));
+		}
+		String connectionPath = connectionType != null && connectionType.length() > 0 ? "/" + connectionType : "";
+		URIBuilder uriBuilder = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + connectionPath).queryParams(parameters);
+		return fetchPagedList(uriBuilder.build(), type, bindingMode);
+	}
+
+	public <T> PagedList<T> fetchConnections(String objectId, String connectionType, GraphQuery<T> query, MultiValueMap<String, String> queryParameters) {
+		return fetchPagedList(queryUri(objectId, connectionType, query, queryParameters), query.getType());
+	}
+
+	public RawConnectionPage fetchRawConnections(String objectId, String connectionType, MultiValueMap<String, String> queryParameters) {
+		String connectionPath = connectionType != null && connectionType.length() > 0 ? "/" + connectionType : "";
+		URIBuilder uriBuilder = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + connectionPath);
+		if (queryParameters != null) {
+			uriBuilder.queryParams(queryParameters);
+		}
+		byte[] body = getRestTemplate().execute(uriBuilder.build(), HttpMethod.GET, JSON_ACCEPT_CALLBACK, RAW_RESPONSE_EXTRACTOR);
+		try {
+			return PagedListUtils.rawPage(objectMapper.getFactory().createParser(body), body);
+		} catch (IOException e) {
+			throw new UncategorizedApiException("facebook", "Error reading paging data from Facebook: " + e.getMessage(), e);
+		}
+	}
+
+	public <T> ConnectionPageSummary forEachConnection(String objectId, String connectionType, Class<T> type, MultiValueMap<String, String> queryParameters, Predicate<? super T> callback) {
+		String connectionPath = connectionType != null && connectionType.length() > 0 ? "/" + connectionType : "";
+		URIBuilder uriBuilder = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + connectionPath);
+		if (queryParameters != null) {
+			uriBuilder.queryParams(queryParameters);
+		}
+		return getRestTemplate().execute(uriBuilder.build(), HttpMethod.GET, JSON_ACCEPT_CALLBACK, new ConnectionCallbackResponseExtractor<T>(objectMapper, type, callback));
+	}
+
+	public <T> Stream<T> streamConnections(String objectId, String connectionType, Class<T> type, MultiValueMap<String, String> queryParameters) {
+		return streamConnections(objectId, connectionType, type, queryParameters, new ConnectionStreamOptions());
+	}
+
+	public <T> Stream<T> streamConnections(String objectId, String connectionType, Class<T> type, MultiValueMap<String, String> queryParameters, ConnectionStreamOptions options) {
+		final ConnectionIterator<T> iterator = new ConnectionIterator<T>(this, objectId, connectionType, type, queryParameters, options, getTaskExecutor());
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(new Runnable() {
+			public void run() {
+				iterator.close();
+			}
+		});
+	}
+
 	/**
 	 * Fetches the next {@link org.springframework.social.facebook.api.PagedList PagedList} of the current one.
 	 * @param page source {@link org.springframework.social.facebook.api.PagedList PagedList} to fetch the next one.
@@ -291,8 +610,7 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 	public <T> PagedList<T> fetchNextPagedConnections(PagedList<T> page, Class<T> type) {
 		if (null != page && null != page.getNextPage() && !"".equals(page.getNextPage().getFullUrl().trim())) {
 			URIBuilder uriBuilder = URIBuilder.fromUri(page.getNextPage().getFullUrl());
-			JsonNode jsonNode = getRestTemplate().getForObject(uriBuilder.build(), JsonNode.class);
-			return pagify(type, jsonNode);
+			return fetchPagedList(uriBuilder.build(), type);
 		}
 		return null;
 	}
@@ -308,12 +626,15 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 	public <T> PagedList<T> fetchPreviousPagedConnections(PagedList<T> page, Class<T> type) {
 		if (null != page && null != page.getPreviousPage() && !"".equals(page.getPreviousPage().getFullUrl().trim())) {
 			URIBuilder uriBuilder = URIBuilder.fromUri(page.getPreviousPage().getFullUrl());
-			JsonNode jsonNode = getRestTemplate().getForObject(uriBuilder.build(), JsonNode.class);
-			return pagify(type, jsonNode);
+			return fetchPagedList(uriBuilder.build(), type);
 		}
 		return null;
 	}
 	
+	public GraphBatch batch() {
+		return new GraphBatchTemplate(this);
+	}
+
 	public String getBaseGraphApiUrl() {
 		if (apiVersion != null) {
 			return "https://graph.facebook.com/v" + apiVersion + "/";
@@ -329,7 +650,71 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 		return fetchImage(objectId, connectionType, null, width, height);
 	}
 
+	public long fetchImage(String objectId, String connectionType, ImageType type, OutputStream out) {
+		return fetchImage(objectId, connectionType, type, null, null, out, null);
+	}
+
+	public long fetchImage(String objectId, String connectionType, Integer width, Integer height, OutputStream out) {
+		return fetchImage(objectId, connectionType, null, width, height, out, null);
+	}
+
+	public long fetchImage(String objectId, String connectionType, ImageType type, WritableByteChannel channel) {
+		return fetchImage(objectId, connectionType, type, null, null, null, channel);
+	}
+
+	public long fetchImage(String objectId, String connectionType, Integer width, Integer height, WritableByteChannel channel) {
+		return fetchImage(objectId, connectionType, null, width, height, null, channel);
+	}
+
 	private byte[] fetchImage(String objectId, String connectionType, ImageType type, Integer width, Integer height) {
+		URI uri = imageUri(objectId, connectionType, type, width, height);
+		if (imageCache != null) {
+			try {
+				return imageCache.getImage(getRestTemplate(), uri, imageCacheKey(objectId, uri), IMAGE_ACCEPT_CALLBACK);
+			} catch (IOException e) {
+				throw new UncategorizedApiException("facebook", "Unable to read the image cache: " + e.getMessage(), e);
+			}
+		}
+		ResponseEntity<byte[]> response = getRestTemplate().getForEntity(uri, byte[].class);
+		if(response.getStatusCode() == HttpStatus.FOUND) {
+			throw redirectNotFollowed();
+		}
+		return response.getBody();
+	}
+
+	private long fetchImage(String objectId, String connectionType, ImageType type, Integer width, Integer height, OutputStream out, WritableByteChannel channel) {
+		URI uri = imageUri(objectId, connectionType, type, width, height);
+		if (imageCache != null) {
+			try {
+				if (channel == null) {
+					long count = imageCache.copyImage(getRestTemplate(), uri, imageCacheKey(objectId, uri), IMAGE_ACCEPT_CALLBACK, Channels.newChannel(out));
+					out.flush();
+					return count;
+				}
+				return imageCache.copyImage(getRestTemplate(), uri, imageCacheKey(objectId, uri), IMAGE_ACCEPT_CALLBACK, channel);
+			} catch (IOException e) {
+				throw new UncategorizedApiException("facebook", "Unable to copy the image: " + e.getMessage(), e);
+			}
+		}
+		return getRestTemplate().execute(uri, HttpMethod.GET, IMAGE_ACCEPT_CALLBACK, new ImageCopyingResponseExtractor(out, channel));
+	}
+
+	// the image's path and query, which don't depend on the API version, scoped by the access token unless the cache is shared
+	private String imageCacheKey(String objectId, URI uri) {
+		String key = uri.getRawPath().substring(uri.getRawPath().indexOf('/' + objectId + '/') + 1);
+		if (uri.getRawQuery() != null) {
+			key += '?' + uri.getRawQuery();
+		}
+		if (imageCache.isSharedAcrossTokens() && !"me".equals(objectId)) {
+			return key;
+		}
+		if (accessTokenDigest == null) {
+			accessTokenDigest = ImageCache.digest(String.valueOf(accessToken));
+		}
+		return accessTokenDigest + ' ' + key;
+	}
+
+	private URI imageUri(String objectId, String connectionType, ImageType type, Integer width, Integer height) {
 		URIBuilder uriBuilder = URIBuilder.fromUri(getBaseGraphApiUrl() + objectId + "/" + connectionType);
 		if (type != null) {
 		  uriBuilder.queryParam("type", type.toString().toLowerCase());
@@ -340,13 +725,12 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 		if (height != null) {
 			uriBuilder.queryParam("height", height.toString());
 		}
-		URI uri = uriBuilder.build();
-		ResponseEntity<byte[]> response = getRestTemplate().getForEntity(uri, byte[].class);
-		if(response.getStatusCode() == HttpStatus.FOUND) {
-			throw new UnsupportedOperationException("Attempt to fetch image resulted in a redirect which could not be followed. Add Apache HttpComponents HttpClient to the classpath " +
-					"to be able to follow redirects.");
-		}
-		return response.getBody();
+		return uriBuilder.build();
+	}
+
+	static UnsupportedOperationException redirectNotFollowed() {
+		return new UnsupportedOperationException("Attempt to fetch image resulted in a redirect which could not be followed. Add Apache HttpComponents HttpClient to the classpath " +
+				"to be able to follow redirects.");
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -407,38 +791,281 @@ public class FacebookTemplate extends AbstractOAuth2ApiBinding implements  Faceb
 
 	@Override
 	protected MappingJackson2HttpMessageConverter getJsonMessageConverter() {
-		MappingJackson2HttpMessageConverter converter = super.getJsonMessageConverter();
-		objectMapper = new ObjectMapper();
-		objectMapper.registerModule(new FacebookModule());
+		// not calling super: its default converter builds an ObjectMapper of its own, only for it to be replaced.
+		// Each template starts with its own copy of a default mapper, so that reconfiguring it doesn't affect other templates.
+		// Copying the prototype skips building and registering the modules again.
+		objectMapper = DefaultObjectMapperHolder.PROTOTYPE.copy();
+		return new MappingJackson2HttpMessageConverter(objectMapper);
+	}
+
+	/**
+	 * Creates an {@link ObjectMapper} configured to bind Graph API responses.
+	 * @return a new object mapper
+	 */
+	static ObjectMapper createObjectMapper() {
+		return createObjectMapper(RawJsonRetention.LAZY);
+	}
+
+	/**
+	 * Creates an {@link ObjectMapper} configured to bind Graph API responses.
+	 * @param rawJsonRetention how much of the raw JSON of bound objects to keep
+	 * @return a new object mapper
+	 */
+	static ObjectMapper createObjectMapper(RawJsonRetention rawJsonRetention) {
+		return createObjectMapper(rawJsonRetention, false);
+	}
+
+	/**
+	 * Creates an {@link ObjectMapper} configured to bind Graph API responses.
+	 * @param rawJsonRetention how much of the raw JSON of bound objects to keep
+	 * @param acceleratedBinding whether to bind with the accessors generated by the Afterburner module
+	 * @return a new object mapper
+	 * @throws IllegalStateException if accelerated binding is requested and Afterburner isn't on the classpath
+	 */
+	static ObjectMapper createObjectMapper(RawJsonRetention rawJsonRetention, boolean acceleratedBinding) {
+		if (acceleratedBinding && !AFTERBURNER_AVAILABLE) {
+			throw new IllegalStateException("Accelerated binding requires com.fasterxml.jackson.module:jackson-module-afterburner on the classpath");
+		}
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.registerModule(new FacebookModule(rawJsonRetention));
 		objectMapper.registerModule(new JsonInterceptorModule());
-		converter.setObjectMapper(objectMapper);
-		return converter;
+		if (acceleratedBinding) {
+			// registered last so that its deserializer modifier runs before the one wrapping the raw JSON retaining types
+			AfterburnerRegistrar.register(objectMapper);
+		}
+		return objectMapper;
+	}
+
+	/**
+	 * Creates a FacebookTemplate for another access token (e.g., a page access token) that shares this template's
+	 * object mapper and, if this template was created by a {@link FacebookClientFactory}, its HTTP connection pool.
+	 */
+	FacebookTemplate withAccessToken(String accessToken) {
+		FacebookTemplate facebook = new FacebookTemplate(accessToken, null, null, null, sharedRequestFactory, objectMapper, lazyObjectBinders);
+		facebook.setApiVersion(apiVersion);
+		facebook.setTaskExecutor(taskExecutor);
+		if (usageThrottlingInterceptor != null) {
+			facebook.setUsageThrottlingInterceptor(usageThrottlingInterceptor);
+		}
+		if (conditionalRequestCache != null) {
+			facebook.setConditionalRequestCache(conditionalRequestCache);
+		}
+		facebook.setObjectCache(objectCache);
+		facebook.setPageTokenCache(pageTokenCache);
+		facebook.setImageCache(imageCache);
+		return facebook;
+	}
+
+	private static class DefaultObjectMapperHolder {
+		static final ObjectMapper PROTOTYPE = createObjectMapper();
+	}
+
+	private void setObjectMapper(ObjectMapper objectMapper) {
+		setObjectMapper(objectMapper, new ConcurrentHashMap<Class<?>, Object>());
+	}
+
+	private void setObjectMapper(ObjectMapper objectMapper, ConcurrentMap<Class<?>, Object> lazyObjectBinders) {
+		for (HttpMessageConverter<?> converter : getRestTemplate().getMessageConverters()) {
+			if (converter instanceof MappingJackson2HttpMessageConverter) {
+				((MappingJackson2HttpMessageConverter) converter).setObjectMapper(objectMapper);
+			}
+		}
+		this.objectMapper = objectMapper;
+		this.lazyObjectBinders = lazyObjectBinders;
+		listReaders.clear();
 	}
 	
 	// private helpers
+	<T> PagedList<T> fetchPagedList(URI uri, Class<T> type) {
+		return fetchPagedList(uri, type, BindingMode.EAGER);
+	}
+
+	<T> PagedList<T> fetchPagedList(URI uri, Class<T> type, BindingMode bindingMode) {
+		LazyObjectBinder<T> lazyObjectBinder = bindingMode == BindingMode.LAZY ? getLazyObjectBinder(type) : null;
+		if (lazyObjectBinder != null) {
+			return getRestTemplate().execute(uri, HttpMethod.GET, JSON_ACCEPT_CALLBACK, new PagedListResponseExtractor<T>(objectMapper, lazyObjectBinder));
+		}
+		return getRestTemplate().execute(uri, HttpMethod.GET, JSON_ACCEPT_CALLBACK, new PagedListResponseExtractor<T>(objectMapper, getListReader(type)));
+	}
+
+	Executor getTaskExecutor() {
+		return taskExecutor != null ? taskExecutor : DefaultTaskExecutorHolder.EXECUTOR;
+	}
+
+	ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	ObjectReader getListReader(Class<?> elementType) {
+		ObjectReader reader = listReaders.get(elementType);
+		if (reader == null) {
+			reader = listReader(objectMapper, elementType);
+			listReaders.putIfAbsent(elementType, reader);
+		}
+		return reader;
+	}
+
+	// returns null if the type can't be bound lazily
+	@SuppressWarnings("unchecked")
+	<T> LazyObjectBinder<T> getLazyObjectBinder(Class<T> type) {
+		Object binder = lazyObjectBinders.get(type);
+		if (binder == null) {
+			binder = LazyObjectBinder.forType(objectMapper, type);
+			lazyObjectBinders.putIfAbsent(type, binder != null ? binder : type);
+		}
+		return binder instanceof LazyObjectBinder ? (LazyObjectBinder<T>) binder : null;
+	}
+
 	private void initialize() {
-		// Wrap the request factory with a BufferingClientHttpRequestFactory so that the error handler can do repeat reads on the response.getBody()
-		super.setRequestFactory(ClientHttpRequestFactorySelector.bufferRequests(getRestTemplate().getRequestFactory()));
-		initSubApis();
+		// Wrap the request factory so that the error handler can do repeat reads on the response.getBody() of error responses
+		super.setRequestFactory(new ErrorBufferingClientHttpRequestFactory(getRestTemplate().getRequestFactory()));
 	}
 		
-	private void initSubApis() {
-		achievementOperations = new AchievementTemplate(this);
-		openGraphOperations = new OpenGraphTemplate(this);
-		userOperations = new UserTemplate(this, getRestTemplate());
-		instagramOperations = new InstagramTemplate(this, getRestTemplate());
-		friendOperations = new FriendTemplate(this, getRestTemplate());
-		feedOperations = new FeedTemplate(this);
-		commentOperations = new CommentTemplate(this, getRestTemplate());
-		likeOperations = new LikeTemplate(this);
-		eventOperations = new EventTemplate(this);
-		mediaOperations = new MediaTemplate(this, getRestTemplate());
-		groupOperations = new GroupTemplate(this);
-		pageOperations = new PageTemplate(this);
-		testUserOperations = new TestUserTemplate(this, getRestTemplate(), appId);
-		socialContextOperations = new SocialContextTemplate(this, getRestTemplate());
-	}
 	
+	// keeps the optional Afterburner classes from being loaded unless accelerated binding is enabled
+	private static class AfterburnerRegistrar {
+
+		static void register(ObjectMapper objectMapper) {
+			objectMapper.registerModule(new AfterburnerModule());
+		}
+
+	}
+
+	private static final RequestCallback IMAGE_ACCEPT_CALLBACK = new RequestCallback() {
+		public void doWithRequest(ClientHttpRequest request) throws IOException {
+			request.getHeaders().setAccept(Arrays.asList(MediaType.IMAGE_JPEG, MediaType.IMAGE_GIF, MediaType.IMAGE_PNG));
+		}
+	};
+
+	// copies an image response into an output stream or a channel, a buffer at a time
+	private static class ImageCopyingResponseExtractor implements ResponseExtractor<Long> {
+
+		private final OutputStream out;
+
+		private final WritableByteChannel channel;
+
+		public ImageCopyingResponseExtractor(OutputStream out, WritableByteChannel channel) {
+			this.out = out;
+			this.channel = channel;
+		}
+
+		public Long extractData(ClientHttpResponse response) throws IOException {
+			if (response.getStatusCode() == HttpStatus.FOUND) {
+				throw redirectNotFollowed();
+			}
+			InputStream in = response.getBody();
+			if (in == null) {
+				return 0L;
+			}
+			long count = 0;
+			if (channel != null) {
+				ReadableByteChannel source = Channels.newChannel(in);
+				ByteBuffer buffer = ByteBuffer.allocate(8192);
+				while (source.read(buffer) != -1) {
+					buffer.flip();
+					while (buffer.hasRemaining()) {
+						count += channel.write(buffer);
+					}
+					buffer.clear();
+				}
+			} else {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+					count += read;
+				}
+				out.flush();
+			}
+			return count;
+		}
+
+	}
+
+	// the largest Content-Length that raw responses are preallocated for; larger bodies are buffered as they arrive
+	private static final int MAX_PREALLOCATED_BODY_SIZE = 8 * 1024 * 1024;
+
+	// reads the response body into an array, sized by the content length when it's known
+	private static final ResponseExtractor<byte[]> RAW_RESPONSE_EXTRACTOR = new ResponseExtractor<byte[]>() {
+		public byte[] extractData(ClientHttpResponse response) throws IOException {
+			InputStream in = response.getBody();
+			if (in == null) {
+				return new byte[0];
+			}
+			long contentLength = response.getHeaders().getContentLength();
+			if (contentLength < 0 || contentLength > MAX_PREALLOCATED_BODY_SIZE) {
+				return StreamUtils.copyToByteArray(in);
+			}
+			// read straight into an array of the announced length, falling back to copying if the body turns out longer
+			byte[] body = new byte[(int) contentLength];
+			int count = 0;
+			int read;
+			while (count < body.length && (read = in.read(body, count, body.length - count)) != -1) {
+				count += read;
+			}
+			if (count < body.length) {
+				return Arrays.copyOf(body, count);
+			}
+			int next = in.read();
+			if (next == -1) {
+				return body;
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + StreamUtils.BUFFER_SIZE);
+			out.write(body);
+			out.write(next);
+			StreamUtils.copy(in, out);
+			return out.toByteArray();
+		}
+	};
+
+	private static final RequestCallback JSON_ACCEPT_CALLBACK = new RequestCallback() {
+		public void doWithRequest(ClientHttpRequest request) throws IOException {
+			request.getHeaders().setAccept(Arrays.asList(MediaType.APPLICATION_JSON, MediaType.valueOf("application/*+json")));
+		}
+	};
+
+	// created on first use, so that templates that never fetch objects in parallel don't start any threads
+	private static class DefaultTaskExecutorHolder {
+		static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "facebook-template-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// the query's fields come pre-encoded, so only the per-call parameters are encoded here
+	private URI queryUri(String objectId, String connectionType, GraphQuery<?> query, MultiValueMap<String, String> queryParameters) {
+		StringBuilder uri = new StringBuilder(getBaseGraphApiUrl()).append(objectId);
+		if (connectionType != null && connectionType.length() > 0) {
+			uri.append('/').append(connectionType);
+		}
+		char separator = '?';
+		try {
+			if (queryParameters != null) {
+				for (Map.Entry<String, List<String>> parameter : queryParameters.entrySet()) {
+					if (query.getFields().length() > 0 && "fields".equals(parameter.getKey())) {
+						continue;
+					}
+					String name = URLEncoder.encode(parameter.getKey(), "UTF-8");
+					for (String value : parameter.getValue()) {
+						uri.append(separator).append(name).append('=').append(URLEncoder.encode(value, "UTF-8"));
+						separator = '&';
+					}
+				}
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		if (query.getFields().length() > 0) {
+			uri.append(separator).append("fields=").append(query.getEncodedFields());
+		}
+		return URI.create(uri.toString());
+	}
+
 	private String join(String[] strings) {
 		StringBuilder builder = new StringBuilder();
 		if(strings.length > 0) {
@@ -20,18 +20,20 @@ import static org.springframework.social.facebook.api.impl.PagedListUtils.*;
 import org.springframework.social.facebook.api.FacebookLink;
 import org.springframework.social.facebook.api.FeedOperations;
 import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.GraphQuery;
 import org.springframework.social.facebook.api.PagedList;
 import org.springframework.social.facebook.api.PagingParameters;
 import org.springframework.social.facebook.api.Post;
 import org.springframework.social.facebook.api.PostData;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.util.StringUtils;
 
 class FeedTemplate implements FeedOperations {
 
 	private static final PagingParameters FIRST_PAGE = new PagingParameters(25, null, null, null);
 
+	private static final GraphQuery<Post> POSTS = GraphQuery.select(Post.class).fields(ALL_POST_FIELDS).compile();
+
 	private final GraphApi graphApi;
 	
 	public FeedTemplate(GraphApi graphApi) {
@@ -52,8 +54,7 @@ class FeedTemplate implements FeedOperations {
 		
 	public PagedList<Post> getFeed(String ownerId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		params.set("fields", StringUtils.arrayToCommaDelimitedString(ALL_POST_FIELDS));
-		return graphApi.fetchConnections(ownerId, "feed", Post.class, params);
+		return graphApi.fetchConnections(ownerId, "feed", POSTS, params);
 	}
 
 	public PagedList<Post> getHomeFeed() {
@@ -62,8 +63,7 @@ class FeedTemplate implements FeedOperations {
 	
 	public PagedList<Post> getHomeFeed(PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		params.set("fields", StringUtils.arrayToCommaDelimitedString(ALL_POST_FIELDS));
-		return graphApi.fetchConnections("me", "home", Post.class, params);
+		return graphApi.fetchConnections("me", "home", POSTS, params);
 	}
 
 	public PagedList<Post> getStatuses() {
@@ -80,8 +80,7 @@ class FeedTemplate implements FeedOperations {
 	
 	public PagedList<Post> getStatuses(String userId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		params.set("fields", StringUtils.arrayToCommaDelimitedString(ALL_POST_FIELDS));
-		return overridePostType(graphApi.fetchConnections(userId, "statuses", Post.class, params), Post.PostType.STATUS);
+		return overridePostType(graphApi.fetchConnections(userId, "statuses", POSTS, params), Post.PostType.STATUS);
 	}
 
 	public PagedList<Post> getLinks() {
@@ -98,8 +97,7 @@ class FeedTemplate implements FeedOperations {
 	
 	public PagedList<Post> getLinks(String ownerId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		params.set("fields", StringUtils.arrayToCommaDelimitedString(ALL_POST_FIELDS));
-		return overridePostType(graphApi.fetchConnections(ownerId, "links", Post.class, params), Post.PostType.LINK);
+		return overridePostType(graphApi.fetchConnections(ownerId, "links", POSTS, params), Post.PostType.LINK);
 	}
 
 	public PagedList<Post> getPosts() {
@@ -116,8 +114,7 @@ class FeedTemplate implements FeedOperations {
 	
 	public PagedList<Post> getPosts(String ownerId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		params.set("fields", StringUtils.arrayToCommaDelimitedString(ALL_POST_FIELDS));
-		return graphApi.fetchConnections(ownerId, "posts", Post.class, params);
+		return graphApi.fetchConnections(ownerId, "posts", POSTS, params);
 	}
 
 	public PagedList<Post> getTagged() {
@@ -134,15 +131,11 @@ class FeedTemplate implements FeedOperations {
 	
 	public PagedList<Post> getTagged(String ownerId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		params.set("fields", StringUtils.arrayToCommaDelimitedString(ALL_POST_FIELDS));
-		return graphApi.fetchConnections(ownerId, "tagged", Post.class, params);
+		return graphApi.fetchConnections(ownerId, "tagged", POSTS, params);
 	}
 
 	public Post getPost(String entryId) {
-		MultiValueMap<String, String> params = new LinkedMultiValueMap<String, String>();
-//		params.set("fields", StringUtils.arrayToCommaDelimitedString(ALL_POST_FIELDS) + "," + StringUtils.arrayToCommaDelimitedString(REACTION_FIELDS));
-		params.set("fields", StringUtils.arrayToCommaDelimitedString(ALL_POST_FIELDS));
-		return graphApi.fetchObject(entryId, Post.class, params);
+		return graphApi.fetchObject(entryId, POSTS);
 	}
 
 	public String updateStatus(String message) {
@@ -21,9 +21,6 @@ import java.util.List;
 
 import org.springframework.social.facebook.api.*;
 import org.springframework.social.support.URIBuilder;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -83,15 +80,11 @@ class FriendTemplate implements FriendOperations {
 	}
 	
 	public PagedList<User> getFriendProfiles(String userId) {
-		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
-		parameters.set("fields", FULL_PROFILE_FIELDS);
-		return graphApi.fetchConnections(userId, "friends", User.class, parameters);
+		return graphApi.fetchConnections(userId, "friends", PROFILES, null);
 	}
 
 	public PagedList<User> getFriendProfiles(String userId, PagingParameters pagedListParameters) {
-		MultiValueMap<String, String> parameters = PagedListUtils.getPagingParameters(pagedListParameters);
-		parameters.set("fields", FULL_PROFILE_FIELDS);
-		return graphApi.fetchConnections(userId, "friends", User.class, parameters);
+		return graphApi.fetchConnections(userId, "friends", PROFILES, PagedListUtils.getPagingParameters(pagedListParameters));
 	}
 	
 	public PagedList<FamilyMember> getFamily() {
@@ -103,15 +96,19 @@ class FriendTemplate implements FriendOperations {
 	}
 
 	public PagedList<UserInvitableFriend> getInvitableFriends() {
-		return graphApi.fetchConnections("me", "invitable_friends", UserInvitableFriend.class, 
-				"id", "name" ,"first_name", "last_name", "middle_name");
+		return graphApi.fetchConnections("me", "invitable_friends", INVITABLE_FRIENDS, null);
 	}
 
 	public PagedList<UserTaggableFriend> getTaggableFriends() {
-		return graphApi.fetchConnections("me", "taggable_friends", UserTaggableFriend.class, 
-				"id", "name" ,"picture", "first_name", "last_name", "middle_name");  
+		return graphApi.fetchConnections("me", "taggable_friends", TAGGABLE_FRIENDS, null);
 	}
 	
-	private static final String FULL_PROFILE_FIELDS = StringUtils.arrayToCommaDelimitedString(UserOperations.PROFILE_FIELDS);
+	private static final GraphQuery<User> PROFILES = GraphQuery.select(User.class).fields(UserOperations.PROFILE_FIELDS).compile();
+
+	private static final GraphQuery<UserInvitableFriend> INVITABLE_FRIENDS = GraphQuery.select(UserInvitableFriend.class)
+			.fields("id", "name", "first_name", "last_name", "middle_name").compile();
+
+	private static final GraphQuery<UserTaggableFriend> TAGGABLE_FRIENDS = GraphQuery.select(UserTaggableFriend.class)
+			.fields("id", "name", "picture", "first_name", "last_name", "middle_name").compile();
 
 }
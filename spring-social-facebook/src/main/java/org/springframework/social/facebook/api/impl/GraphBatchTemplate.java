@@ -0,0 +1,408 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.social.facebook.api.BatchResult;
+import org.springframework.social.facebook.api.FacebookError;
+import org.springframework.social.facebook.api.GraphBatch;
+import org.springframework.social.facebook.api.PagedList;
+import org.springframework.social.support.URIBuilder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Implementation of {@link GraphBatch} that sends its operations as a single POST to the Graph API's batch endpoint.
+ */
+class GraphBatchTemplate implements GraphBatch {
+
+	private static final Pattern RESULT_REFERENCE = Pattern.compile("\\{result=[^}]*\\}");
+
+	private final FacebookTemplate facebook;
+
+	private final FacebookErrorHandler errorHandler = new FacebookErrorHandler();
+
+	private final List<Operation<?>> operations = new ArrayList<Operation<?>>();
+
+	private boolean executed;
+
+	public GraphBatchTemplate(FacebookTemplate facebook) {
+		this.facebook = facebook;
+	}
+
+	public <T> BatchResult<T> fetchObject(String objectId, Class<T> type, String... fields) {
+		return fetchObject(objectId, type, fieldsParameter(fields));
+	}
+
+	public <T> BatchResult<T> fetchObject(String objectId, Class<T> type, MultiValueMap<String, String> queryParameters) {
+		return add(new Operation<T>("GET", relativeUrl(objectId, null, queryParameters), null, new ObjectBinder<T>(type)));
+	}
+
+	public <T> BatchResult<PagedList<T>> fetchConnections(String objectId, String connectionName, Class<T> type, String... fields) {
+		return fetchConnections(objectId, connectionName, type, fieldsParameter(fields));
+	}
+
+	public <T> BatchResult<PagedList<T>> fetchConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters) {
+		return add(new Operation<PagedList<T>>("GET", relativeUrl(objectId, connectionName, queryParameters), null, new PagedListBinder<T>(type)));
+	}
+
+	public BatchResult<String> publish(String objectId, String connectionName, MultiValueMap<String, Object> data) {
+		return add(new Operation<String>("POST", relativeUrl(objectId, connectionName, null), encodeBody(data), new IdBinder()));
+	}
+
+	public BatchResult<Void> post(String objectId, String connectionName, MultiValueMap<String, Object> data) {
+		return add(new Operation<Void>("POST", relativeUrl(objectId, connectionName, null), encodeBody(data), null));
+	}
+
+	public BatchResult<Void> delete(String objectId) {
+		return delete(objectId, null);
+	}
+
+	public BatchResult<Void> delete(String objectId, String connectionName) {
+		return add(new Operation<Void>("DELETE", relativeUrl(objectId, connectionName, null), null, null));
+	}
+
+	public int size() {
+		return operations.size();
+	}
+
+	public List<BatchResult<?>> execute() {
+		if (executed) {
+			throw new IllegalStateException("This batch has already been executed");
+		}
+		executed = true;
+		List<BatchResult<?>> results = new ArrayList<BatchResult<?>>(operations);
+		if (operations.isEmpty()) {
+			return results;
+		}
+
+		MultiValueMap<String, Object> request = new LinkedMultiValueMap<String, Object>();
+		request.set("batch", toBatchJson());
+		request.set("include_headers", "false");
+		URI uri = URIBuilder.fromUri(facebook.getBaseGraphApiUrl()).build();
+		JsonNode responses = facebook.getRestTemplate().postForObject(uri, request, JsonNode.class);
+
+		for (int i = 0; i < operations.size(); i++) {
+			JsonNode response = responses != null && responses.isArray() ? responses.get(i) : null;
+			operations.get(i).complete(response);
+		}
+		return results;
+	}
+
+	// private helpers
+
+	private <T> Operation<T> add(Operation<T> operation) {
+		if (executed) {
+			throw new IllegalStateException("This batch has already been executed");
+		}
+		if (operations.size() >= MAX_OPERATIONS) {
+			throw new IllegalStateException("A batch may contain at most " + MAX_OPERATIONS + " operations");
+		}
+		operations.add(operation);
+		return operation;
+	}
+
+	private String toBatchJson() {
+		List<Map<String, Object>> batch = new ArrayList<Map<String, Object>>(operations.size());
+		for (Operation<?> operation : operations) {
+			Map<String, Object> request = new LinkedHashMap<String, Object>();
+			request.put("method", operation.method);
+			request.put("relative_url", operation.relativeUrl);
+			if (operation.body != null) {
+				request.put("body", operation.body);
+			}
+			if (operation.name != null) {
+				request.put("name", operation.name);
+			}
+			if (operation.dependsOn != null) {
+				request.put("depends_on", operation.dependsOn);
+			}
+			if (operation.omitResponseOnSuccess != null) {
+				request.put("omit_response_on_success", operation.omitResponseOnSuccess);
+			} else if (operation.name != null) {
+				// Facebook omits the responses of operations that others depend on or refer to, which would leave them without a value
+				request.put("omit_response_on_success", false);
+			}
+			batch.add(request);
+		}
+		try {
+			return facebook.getObjectMapper().writeValueAsString(batch);
+		} catch (IOException e) {
+			throw new UncategorizedApiException("facebook", "Error serializing batch request: " + e.getMessage(), e);
+		}
+	}
+
+	private MultiValueMap<String, String> fieldsParameter(String... fields) {
+		MultiValueMap<String, String> queryParameters = new LinkedMultiValueMap<String, String>();
+		if (fields.length > 0) {
+			StringBuilder joinedFields = new StringBuilder(fields[0]);
+			for (int i = 1; i < fields.length; i++) {
+				joinedFields.append(',').append(fields[i]);
+			}
+			queryParameters.set("fields", joinedFields.toString());
+		}
+		return queryParameters;
+	}
+
+	private String relativeUrl(String objectId, String connectionName, MultiValueMap<String, String> queryParameters) {
+		StringBuilder url = new StringBuilder(objectId);
+		if (connectionName != null && connectionName.length() > 0) {
+			url.append('/').append(connectionName);
+		}
+		if (queryParameters != null && !queryParameters.isEmpty()) {
+			url.append('?');
+			appendParameters(url, queryParameters);
+		}
+		return url.toString();
+	}
+
+	private String encodeBody(MultiValueMap<String, Object> data) {
+		StringBuilder body = new StringBuilder();
+		appendParameters(body, data);
+		return body.toString();
+	}
+
+	private void appendParameters(StringBuilder builder, MultiValueMap<String, ?> parameters) {
+		boolean first = true;
+		for (Map.Entry<String, ? extends List<?>> entry : parameters.entrySet()) {
+			for (Object value : entry.getValue()) {
+				if (value instanceof Resource || value instanceof byte[]) {
+					throw new IllegalArgumentException("Binary data for '" + entry.getKey() + "' cannot be sent in a batch operation");
+				}
+				if (!first) {
+					builder.append('&');
+				}
+				builder.append(encode(entry.getKey())).append('=').append(value != null ? encode(value.toString()) : "");
+				first = false;
+			}
+		}
+	}
+
+	// encodes a parameter value while keeping any result references intact, since Facebook resolves them before decoding
+	private static String encode(String value) {
+		Matcher matcher = RESULT_REFERENCE.matcher(value);
+		StringBuilder encoded = new StringBuilder();
+		int last = 0;
+		while (matcher.find()) {
+			encoded.append(urlEncode(value.substring(last, matcher.start()))).append(matcher.group());
+			last = matcher.end();
+		}
+		return encoded.append(urlEncode(value.substring(last))).toString();
+	}
+
+	private static String urlEncode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// shouldn't happen
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private RuntimeException translateError(int statusCode, String body) {
+		FacebookError error = null;
+		if (body != null && body.length() > 0) {
+			try {
+				error = errorHandler.extractErrorFromJson(body);
+			} catch (IOException e) {
+				// not a Graph API error; fall through to a generic exception
+			}
+		}
+		RuntimeException exception = errorHandler.translateFacebookError(HttpStatus.valueOf(statusCode), error);
+		if (exception == null) {
+			exception = new UncategorizedApiException("facebook", "Batch operation failed with status " + statusCode + ": " + body, null);
+		}
+		return exception;
+	}
+
+	private interface Binder<T> {
+		T bind(String body) throws IOException;
+	}
+
+	private class ObjectBinder<T> implements Binder<T> {
+		private final Class<T> type;
+
+		public ObjectBinder(Class<T> type) {
+			this.type = type;
+		}
+
+		public T bind(String body) throws IOException {
+			return facebook.getObjectMapper().readValue(body, type);
+		}
+	}
+
+	private class PagedListBinder<T> implements Binder<PagedList<T>> {
+		private final Class<T> type;
+
+		public PagedListBinder(Class<T> type) {
+			this.type = type;
+		}
+
+		public PagedList<T> bind(String body) throws IOException {
+			JsonParser parser = facebook.getObjectMapper().getFactory().createParser(body);
+			try {
+				return PagedListUtils.pagify(facebook.getListReader(type), parser);
+			} finally {
+				parser.close();
+			}
+		}
+	}
+
+	private class IdBinder implements Binder<String> {
+		public String bind(String body) throws IOException {
+			JsonNode node = facebook.getObjectMapper().readTree(body);
+			return node != null && node.has("id") ? node.get("id").asText() : null;
+		}
+	}
+
+	private class Operation<T> implements BatchResult<T> {
+
+		private final String method;
+
+		private final String relativeUrl;
+
+		private final String body;
+
+		private final Binder<T> binder;
+
+		private String name;
+
+		private String dependsOn;
+
+		private Boolean omitResponseOnSuccess;
+
+		private boolean done;
+
+		private Integer statusCode;
+
+		private T value;
+
+		private RuntimeException exception;
+
+		public Operation(String method, String relativeUrl, String body, Binder<T> binder) {
+			this.method = method;
+			this.relativeUrl = relativeUrl;
+			this.body = body;
+			this.binder = binder;
+		}
+
+		public BatchResult<T> name(String name) {
+			this.name = name;
+			return this;
+		}
+
+		public BatchResult<T> dependsOn(String name) {
+			this.dependsOn = name;
+			return this;
+		}
+
+		public BatchResult<T> dependsOn(BatchResult<?> operation) {
+			if (operation.getName() == null) {
+				operation.name(generateName(operation));
+			}
+			return dependsOn(operation.getName());
+		}
+
+		public BatchResult<T> omitResponseOnSuccess(boolean omitResponseOnSuccess) {
+			this.omitResponseOnSuccess = omitResponseOnSuccess;
+			return this;
+		}
+
+		public String reference(String jsonPath) {
+			if (name == null) {
+				name = generateName(this);
+			}
+			return "{result=" + name + ":" + jsonPath + "}";
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isDone() {
+			return done;
+		}
+
+		public boolean isSuccessful() {
+			return done && exception == null;
+		}
+
+		public Integer getStatusCode() {
+			return statusCode;
+		}
+
+		public RuntimeException getException() {
+			return exception;
+		}
+
+		public T get() {
+			if (!done) {
+				throw new IllegalStateException("The batch has not been executed yet");
+			}
+			if (exception != null) {
+				throw exception;
+			}
+			return value;
+		}
+
+		void complete(JsonNode response) {
+			done = true;
+			if (response == null || response.isNull()) {
+				// Facebook also omits the responses of operations whose dependency failed, so only an omission that was asked for is a success
+				if (!Boolean.TRUE.equals(omitResponseOnSuccess)) {
+					exception = new UncategorizedApiException("facebook", "Facebook returned no response for the batch operation " +
+							(name != null ? name : generateName(this)) + "; an operation it depends on may have failed", null);
+				}
+				return;
+			}
+			statusCode = response.has("code") ? response.get("code").intValue() : null;
+			String responseBody = response.has("body") && !response.get("body").isNull() ? response.get("body").asText() : null;
+			if (statusCode != null && statusCode >= 400) {
+				exception = translateError(statusCode, responseBody);
+				return;
+			}
+			if (binder != null && responseBody != null) {
+				try {
+					value = binder.bind(responseBody);
+				} catch (IOException e) {
+					exception = new UncategorizedApiException("facebook", "Error deserializing data from Facebook: " + e.getMessage(), e);
+				}
+			}
+		}
+
+	}
+
+	private String generateName(BatchResult<?> operation) {
+		return "operation" + operations.indexOf(operation);
+	}
+
+}
@@ -15,8 +15,11 @@
  */
 package org.springframework.social.facebook.api.impl;
 
+import java.io.OutputStream;
+
 import org.springframework.social.facebook.api.User;
 import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.GraphQuery;
 import org.springframework.social.facebook.api.Group;
 import org.springframework.social.facebook.api.GroupMemberReference;
 import org.springframework.social.facebook.api.GroupMembership;
@@ -45,13 +48,17 @@ class GroupTemplate implements GroupOperations {
 	public byte[] getGroupImage(String groupId, ImageType imageType) {
 		return graphApi.fetchImage(groupId, "picture", imageType);
 	}
+
+	public long getGroupImage(String groupId, ImageType imageType, OutputStream out) {
+		return graphApi.fetchImage(groupId, "picture", imageType, out);
+	}
 	
 	public PagedList<GroupMemberReference> getMembers(String groupId) {
 		return graphApi.fetchConnections(groupId, "members", GroupMemberReference.class);
 	}
 
 	public PagedList<User> getMemberProfiles(String groupId) {
-		return graphApi.fetchConnections(groupId, "members", User.class, FULL_PROFILE_FIELDS);
+		return graphApi.fetchConnections(groupId, "members", MEMBER_PROFILES, null);
 	}
 	
 	public PagedList<GroupMembership> getMemberships() {
@@ -70,10 +77,11 @@ class GroupTemplate implements GroupOperations {
 		MultiValueMap<String, String> queryMap = PagedListUtils.getPagingParameters(pagedListParameters);
 		queryMap.add("q", query);
 		queryMap.add("type", "group");
-		queryMap.add("fields", "owner,name,description,privacy,icon,updated_time,email");
-		return graphApi.fetchConnections("search", "", Group.class, queryMap);
+		return graphApi.fetchConnections("search", "", SEARCHED_GROUPS, queryMap);
 	}	
 	
-	private static final String[] FULL_PROFILE_FIELDS = {"id", "name", "first_name", "last_name", "gender", "locale", "education", "work", "email", "third_party_id", "link", "timezone", "updated_time", "verified", "about", "birthday", "location", "hometown", "interested_in", "religion", "political", "quotes", "relationship_status", "significant_other", "website"};
+	private static final GraphQuery<User> MEMBER_PROFILES = GraphQuery.select(User.class).fields("id", "name", "first_name", "last_name", "gender", "locale", "education", "work", "email", "third_party_id", "link", "timezone", "updated_time", "verified", "about", "birthday", "location", "hometown", "interested_in", "religion", "political", "quotes", "relationship_status", "significant_other", "website").compile();
+
+	private static final GraphQuery<Group> SEARCHED_GROUPS = GraphQuery.select(Group.class).fields("owner", "name", "description", "privacy", "icon", "updated_time", "email").compile();
 
 }
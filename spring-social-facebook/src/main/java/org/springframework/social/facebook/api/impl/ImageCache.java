@@ -0,0 +1,556 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * <p>Two-tier cache of the images fetched by {@link FacebookTemplate#fetchImage(String, String, org.springframework.social.facebook.api.ImageType)}
+ * and its variants, such as profile pictures, album covers and event images.</p>
+ * <p>
+ * Images are keyed by object ID, connection, image type and dimensions. They are kept in memory, up to a maximum size,
+ * and optionally in files of a local directory, up to another maximum size; in both tiers the least recently used images are
+ * evicted first. Images read from the directory are copied to the output with {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+ * and are written to a temporary file that is then moved into place, so that concurrent readers never see a partly written image.
+ * </p>
+ * <p>
+ * Once an image is older than its time to live, it is revalidated with the ETag and Last-Modified date it was served with:
+ * if the image hasn't changed, the cached copy is used for another time to live without being downloaded again.
+ * </p>
+ * <p>
+ * Images are kept per access token, keyed by a digest of the token, since the Graph API may serve an image only to the users allowed
+ * to see it. Images can be shared across access tokens with {@link #setSharedAcrossTokens(boolean)} when all the images fetched are
+ * public; those of the "me" alias are still kept per access token.
+ * </p>
+ * @see FacebookTemplate#setImageCache(ImageCache)
+ */
+public class ImageCache {
+
+	public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.DAYS.toMillis(1);
+
+	private static final int MAGIC = 0x46424943;
+
+	private static final int HEADER_SIZE = 20;
+
+	private static final String FILE_SUFFIX = ".img";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final SizeBoundedCache memory;
+
+	private final Path directory;
+
+	private final long maxDiskSize;
+
+	private final AtomicLong diskSize = new AtomicLong();
+
+	private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+	private volatile boolean sharedAcrossTokens;
+
+	private final AtomicLong memoryHitCount = new AtomicLong();
+
+	private final AtomicLong diskHitCount = new AtomicLong();
+
+	private final AtomicLong notModifiedCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Creates a cache that keeps images in memory only.
+	 * @param maxMemorySize the maximum total size of the images kept in memory, in bytes
+	 */
+	public ImageCache(long maxMemorySize) {
+		this.memory = createMemoryTier(maxMemorySize);
+		this.directory = null;
+		this.maxDiskSize = 0;
+	}
+
+	/**
+	 * Creates a cache that keeps images in memory and in a directory. Images left in the directory by a previous instance are reused.
+	 * @param maxMemorySize the maximum total size of the images kept in memory, in bytes
+	 * @param directory the directory to keep images in. It is created if it doesn't exist.
+	 * @param maxDiskSize the maximum total size of the image files, in bytes
+	 * @throws IOException if the directory can't be created or read
+	 */
+	public ImageCache(long maxMemorySize, File directory, long maxDiskSize) throws IOException {
+		if (maxDiskSize <= 0) {
+			throw new IllegalArgumentException("The maximum disk size must be positive");
+		}
+		this.memory = createMemoryTier(maxMemorySize);
+		this.directory = Files.createDirectories(directory.toPath());
+		this.maxDiskSize = maxDiskSize;
+		for (Path file : listFiles()) {
+			diskSize.addAndGet(Files.size(file));
+		}
+	}
+
+	private static SizeBoundedCache createMemoryTier(long maxMemorySize) {
+		return new SizeBoundedCache("facebookImages", maxMemorySize) {
+			@Override
+			protected long sizeOf(Object key, Object value) {
+				return ((Image) value).body.length;
+			}
+		};
+	}
+
+	/**
+	 * Sets the time images are used for before they are revalidated.
+	 * @param timeToLive the time to live in milliseconds. Default is {@link #DEFAULT_TIME_TO_LIVE}.
+	 */
+	public void setTimeToLive(long timeToLive) {
+		if (timeToLive < 0) {
+			throw new IllegalArgumentException("The time to live must not be negative");
+		}
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets whether an image fetched with one access token is served to templates with other access tokens.
+	 * Sharing skips the Graph API's check that a user may see an image, so only enable it if all the images fetched through the cache
+	 * are public, such as the profile pictures and page pictures of a public directory.
+	 * @param sharedAcrossTokens true to share images across access tokens. Default is false.
+	 */
+	public void setSharedAcrossTokens(boolean sharedAcrossTokens) {
+		this.sharedAcrossTokens = sharedAcrossTokens;
+	}
+
+	public boolean isSharedAcrossTokens() {
+		return sharedAcrossTokens;
+	}
+
+	/**
+	 * @return the number of images served from memory.
+	 */
+	public long getMemoryHitCount() {
+		return memoryHitCount.get();
+	}
+
+	/**
+	 * @return the number of images served from the directory.
+	 */
+	public long getDiskHitCount() {
+		return diskHitCount.get();
+	}
+
+	/**
+	 * @return the number of expired images that were served from the cache after Facebook reported them unchanged.
+	 */
+	public long getNotModifiedCount() {
+		return notModifiedCount.get();
+	}
+
+	/**
+	 * @return the number of images that were downloaded.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the proportion of images served without being downloaded, between 0 and 1.
+	 */
+	public double getHitRatio() {
+		long hits = memoryHitCount.get() + diskHitCount.get() + notModifiedCount.get();
+		long total = hits + missCount.get();
+		return total > 0 ? (double) hits / total : 0;
+	}
+
+	/**
+	 * @return the total size of the images kept in memory, in bytes.
+	 */
+	public long getMemorySize() {
+		return memory.getSize();
+	}
+
+	/**
+	 * @return the total size of the image files, in bytes.
+	 */
+	public long getDiskSize() {
+		return diskSize.get();
+	}
+
+	/**
+	 * Removes all the images from memory and from the directory.
+	 * @throws IOException if an image file can't be deleted
+	 */
+	public void clear() throws IOException {
+		memory.clear();
+		if (directory != null) {
+			for (Path file : listFiles()) {
+				delete(file);
+			}
+		}
+	}
+
+	/**
+	 * Fetches an image through the cache.
+	 */
+	byte[] getImage(RestTemplate restTemplate, URI uri, String key, RequestCallback acceptCallback) throws IOException {
+		Image image = lookup(key);
+		if (image == null || image.isExpired()) {
+			image = fetch(restTemplate, uri, key, image, acceptCallback);
+		}
+		if (image.body == null) {
+			// found in the directory: keep it in memory for the next time it's requested
+			image = image.withBody(readBody(image));
+			memory.put(key, image);
+		}
+		return image.body;
+	}
+
+	/**
+	 * Fetches an image through the cache, copying it to the channel.
+	 */
+	long copyImage(RestTemplate restTemplate, URI uri, String key, RequestCallback acceptCallback, WritableByteChannel channel) throws IOException {
+		Image image = lookup(key);
+		if (image == null || image.isExpired()) {
+			image = fetch(restTemplate, uri, key, image, acceptCallback);
+		}
+		if (image.body != null) {
+			ByteBuffer buffer = ByteBuffer.wrap(image.body);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			return image.body.length;
+		}
+		FileChannel file = FileChannel.open(image.file, StandardOpenOption.READ);
+		try {
+			long count = 0;
+			while (count < image.bodyLength) {
+				long transferred = file.transferTo(image.bodyOffset + count, image.bodyLength - count, channel);
+				if (transferred <= 0) {
+					throw new IOException("Image file " + image.file + " was truncated");
+				}
+				count += transferred;
+			}
+			return count;
+		} finally {
+			file.close();
+		}
+	}
+
+	// finds an image in memory, then in the directory; the images found in the directory have no body
+	private Image lookup(String key) throws IOException {
+		Image image = memory.get(key, Image.class);
+		if (image != null) {
+			if (!image.isExpired()) {
+				memoryHitCount.incrementAndGet();
+			}
+			return image;
+		}
+		if (directory == null) {
+			return null;
+		}
+		image = readHeader(fileOf(key));
+		if (image != null && !image.isExpired()) {
+			diskHitCount.incrementAndGet();
+			try {
+				Files.setLastModifiedTime(image.file, FileTime.fromMillis(System.currentTimeMillis()));
+			} catch (NoSuchFileException e) {
+				// evicted since it was read
+			}
+		}
+		return image;
+	}
+
+	private Image fetch(RestTemplate restTemplate, URI uri, String key, final Image expired, final RequestCallback acceptCallback) throws IOException {
+		Image fetched = restTemplate.execute(uri, HttpMethod.GET, new RequestCallback() {
+			public void doWithRequest(ClientHttpRequest request) throws IOException {
+				acceptCallback.doWithRequest(request);
+				if (expired != null && expired.etag != null) {
+					request.getHeaders().setIfNoneMatch(expired.etag);
+				}
+				if (expired != null && expired.lastModified != null) {
+					request.getHeaders().set("If-Modified-Since", expired.lastModified);
+				}
+			}
+		}, new ResponseExtractor<Image>() {
+			public Image extractData(ClientHttpResponse response) throws IOException {
+				if (response.getStatusCode() == HttpStatus.FOUND) {
+					throw FacebookTemplate.redirectNotFollowed();
+				}
+				if (expired != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+					return null;
+				}
+				InputStream in = response.getBody();
+				byte[] body = in != null ? StreamUtils.copyToByteArray(in) : new byte[0];
+				return new Image(body, null, 0, body.length, response.getHeaders().getETag(), response.getHeaders().getFirst("Last-Modified"), expiresAt());
+			}
+		});
+		if (fetched == null) {
+			notModifiedCount.incrementAndGet();
+			return renew(key, expired);
+		}
+		missCount.incrementAndGet();
+		memory.put(key, fetched);
+		if (directory != null) {
+			write(key, fetched);
+		}
+		return fetched;
+	}
+
+	private Image renew(String key, Image expired) throws IOException {
+		Image renewed = expired.withExpiry(expiresAt());
+		if (renewed.body != null) {
+			memory.put(key, renewed);
+		}
+		if (directory != null) {
+			Path file = renewed.file != null ? renewed.file : fileOf(key);
+			try {
+				FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+				try {
+					ByteBuffer expiry = ByteBuffer.allocate(8);
+					expiry.putLong(0, renewed.expiresAt);
+					channel.write(expiry, 4);
+				} finally {
+					channel.close();
+				}
+			} catch (NoSuchFileException e) {
+				// evicted since it was read
+			}
+		}
+		return renewed;
+	}
+
+	private long expiresAt() {
+		return System.currentTimeMillis() + timeToLive;
+	}
+
+	// file layout: magic, expiry, ETag length, Last-Modified length, ETag, Last-Modified, body
+	private void write(String key, Image image) throws IOException {
+		byte[] etag = image.etag != null ? image.etag.getBytes(UTF_8) : new byte[0];
+		byte[] lastModified = image.lastModified != null ? image.lastModified.getBytes(UTF_8) : new byte[0];
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + etag.length + lastModified.length);
+		header.putInt(MAGIC).putLong(image.expiresAt).putInt(image.etag != null ? etag.length : -1).putInt(image.lastModified != null ? lastModified.length : -1);
+		header.put(etag).put(lastModified).flip();
+		long size = header.remaining() + image.body.length;
+		if (size > maxDiskSize) {
+			return;
+		}
+		Path file = fileOf(key);
+		Path temp = Files.createTempFile(directory, "image", ".tmp");
+		try {
+			FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+			try {
+				ByteBuffer[] buffers = { header, ByteBuffer.wrap(image.body) };
+				while (buffers[1].hasRemaining()) {
+					channel.write(buffers);
+				}
+			} finally {
+				channel.close();
+			}
+			long replaced = Files.exists(file) ? Files.size(file) : 0;
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			diskSize.addAndGet(size - replaced);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		if (diskSize.get() > maxDiskSize) {
+			evictFiles(file);
+		}
+	}
+
+	// file modification times may be too coarse to tell the file just written from older ones, so it's kept explicitly
+	private synchronized void evictFiles(Path written) throws IOException {
+		List<Path> files = listFiles();
+		files.remove(written);
+		final List<FileTime> times = new ArrayList<FileTime>(files.size());
+		for (Path file : files) {
+			times.add(Files.getLastModifiedTime(file));
+		}
+		List<Integer> order = new ArrayList<Integer>(files.size());
+		for (int i = 0; i < files.size(); i++) {
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return times.get(a).compareTo(times.get(b));
+			}
+		});
+		for (int i = 0; i < order.size() && diskSize.get() > maxDiskSize; i++) {
+			delete(files.get(order.get(i)));
+		}
+	}
+
+	private void delete(Path file) throws IOException {
+		try {
+			long size = Files.size(file);
+			if (Files.deleteIfExists(file)) {
+				diskSize.addAndGet(-size);
+			}
+		} catch (NoSuchFileException e) {
+			// deleted by another thread
+		}
+	}
+
+	private Image readHeader(Path file) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			if (!readFully(channel, header, 0) || header.getInt(0) != MAGIC) {
+				return null;
+			}
+			long expiresAt = header.getLong(4);
+			int etagLength = header.getInt(12);
+			int lastModifiedLength = header.getInt(16);
+			ByteBuffer validators = ByteBuffer.allocate(Math.max(etagLength, 0) + Math.max(lastModifiedLength, 0));
+			if (!readFully(channel, validators, HEADER_SIZE)) {
+				return null;
+			}
+			String etag = etagLength >= 0 ? new String(validators.array(), 0, etagLength, UTF_8) : null;
+			String lastModified = lastModifiedLength >= 0 ? new String(validators.array(), Math.max(etagLength, 0), lastModifiedLength, UTF_8) : null;
+			long bodyOffset = HEADER_SIZE + validators.capacity();
+			return new Image(null, file, bodyOffset, channel.size() - bodyOffset, etag, lastModified, expiresAt);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private byte[] readBody(Image image) throws IOException {
+		FileChannel channel = FileChannel.open(image.file, StandardOpenOption.READ);
+		try {
+			ByteBuffer body = ByteBuffer.allocate((int) image.bodyLength);
+			if (!readFully(channel, body, image.bodyOffset)) {
+				throw new IOException("Image file " + image.file + " was truncated");
+			}
+			return body.array();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read == -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private List<Path> listFiles() throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX);
+		try {
+			for (Path file : stream) {
+				files.add(file);
+			}
+		} finally {
+			stream.close();
+		}
+		return files;
+	}
+
+	private Path fileOf(String key) {
+		return directory.resolve(digest(key) + FILE_SUFFIX);
+	}
+
+	// hex SHA-256 digest, also used to scope keys by access token without keeping the token
+	static String digest(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(UTF_8));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
+	// an image held in memory, or found in the directory without its body having been read
+	private static class Image {
+
+		final byte[] body;
+
+		final Path file;
+
+		final long bodyOffset;
+
+		final long bodyLength;
+
+		final String etag;
+
+		final String lastModified;
+
+		final long expiresAt;
+
+		Image(byte[] body, Path file, long bodyOffset, long bodyLength, String etag, String lastModified, long expiresAt) {
+			this.body = body;
+			this.file = file;
+			this.bodyOffset = bodyOffset;
+			this.bodyLength = bodyLength;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired() {
+			return expiresAt - System.currentTimeMillis() <= 0;
+		}
+
+		Image withBody(byte[] body) {
+			return new Image(body, null, 0, body.length, etag, lastModified, expiresAt);
+		}
+
+		Image withExpiry(long expiresAt) {
+			return new Image(body, file, bodyOffset, bodyLength, etag, lastModified, expiresAt);
+		}
+
+	}
+
+}
@@ -27,6 +27,27 @@ import static org.springframework.social.facebook.api.impl.PagedListUtils.getPag
 
 class InstagramTemplate implements InstagramOperations {
 
+    private static final GraphQuery<InstagramUser> PROFILE = GraphQuery.select(InstagramUser.class).fields(BASIC_PROFILE_FIELDS).compile();
+
+    private static final GraphQuery<InstagramMedia> MEDIA = GraphQuery.select(InstagramMedia.class).fields(BASIC_MEDIA_FIELDS).compile();
+
+    private static final GraphQuery<InstagramMedia> TAGGED_MEDIA = GraphQuery.select(InstagramMedia.class).fields(SHADOW_MEDIA_FIELDS).compile();
+
+    private static final GraphQuery<InstagramMedia> STORIES = GraphQuery.select(InstagramMedia.class).fields(BASIC_STORY_FIELDS).compile();
+
+    private static final GraphQuery<InstagramMedia> CAROUSEL_CHILDREN = GraphQuery.select(InstagramMedia.class).fields(BASIC_CAROUSEL_FIELDS).compile();
+
+    private static final GraphQuery<InstagramComment> COMMENTS = GraphQuery.select(InstagramComment.class).fields(BASIC_COMMENT_FIELDS).compile();
+
+    private static final GraphQuery<InstagramComment> REPLIES = GraphQuery.select(InstagramComment.class).fields(BASIC_REPLIES_FIELDS).compile();
+
+    private static final GraphQuery<InstagramComment> REPLY = GraphQuery.select(InstagramComment.class).fields(BASIC_REPLY_FIELDS).compile();
+
+    // the mentioned media and comment queries embed the ID of the mention, so only their subfields can be joined up front
+    private static final String SHADOW_MEDIA_SELECTION = "{" + StringUtils.arrayToCommaDelimitedString(SHADOW_MEDIA_FIELDS) + "}";
+
+    private static final String SHADOW_COMMENT_SELECTION = "{" + StringUtils.arrayToCommaDelimitedString(SHADOW_COMMENT_FIELDS) + "}";
+
     private final GraphApi graphApi;
     private final RestTemplate restTemplate;
 
@@ -36,60 +57,56 @@ class InstagramTemplate implements InstagramOperations {
     }
 
     public InstagramUser getUserProfile(String userId) {
-        return graphApi.fetchObject(userId, InstagramUser.class, BASIC_PROFILE_FIELDS);
+        return ObjectCache.fetchObject(graphApi, userId, PROFILE);
     }
 
     public PagedList<InstagramMedia> getMedia(String ownerId) {
-        return graphApi.fetchConnections(ownerId, "media", InstagramMedia.class, BASIC_MEDIA_FIELDS);
+        return graphApi.fetchConnections(ownerId, "media", MEDIA, null);
     }
 
     public PagedList<InstagramMedia> getMedia(String ownerId, PagingParameters pagedListParameters) {
         MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-        params.set("fields", StringUtils.arrayToCommaDelimitedString(BASIC_MEDIA_FIELDS));
-        return graphApi.fetchConnections(ownerId, "media", InstagramMedia.class, params);
+        return graphApi.fetchConnections(ownerId, "media", MEDIA, params);
     }
 
     public PagedList<InstagramMedia> getTaggedMedia(String ownerId, PagingParameters pagedListParameters) {
         MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-        params.set("fields", StringUtils.arrayToCommaDelimitedString(SHADOW_MEDIA_FIELDS));
-        return graphApi.fetchConnections(ownerId, "tags", InstagramMedia.class, params);
+        return graphApi.fetchConnections(ownerId, "tags", TAGGED_MEDIA, params);
     }
 
     public InstagramMedia getSingleMedia(String mediaId) {
-        return graphApi.fetchObject(mediaId, InstagramMedia.class, BASIC_MEDIA_FIELDS);
+        return graphApi.fetchObject(mediaId, MEDIA);
     }
 
     public InstagramMedia getStory(String mediaId) {
-        return graphApi.fetchObject(mediaId, InstagramMedia.class, BASIC_STORY_FIELDS);
+        return graphApi.fetchObject(mediaId, STORIES);
     }
 
     public PagedList<InstagramComment> getComments(String mediaId) {
-        return graphApi.fetchConnections(mediaId, "comments", InstagramComment.class, BASIC_COMMENT_FIELDS);
+        return graphApi.fetchConnections(mediaId, "comments", COMMENTS, null);
     }
 
     public PagedList<InstagramComment> getComments(String mediaId, PagingParameters pagedListParameters) {
         MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-        params.set("fields", StringUtils.arrayToCommaDelimitedString(BASIC_COMMENT_FIELDS));
-        return graphApi.fetchConnections(mediaId, "comments", InstagramComment.class, params);
+        return graphApi.fetchConnections(mediaId, "comments", COMMENTS, params);
     }
 
     public PagedList<InstagramComment> getReplies(String commentId, PagingParameters pagedListParameters) {
         MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-        params.set("fields", StringUtils.arrayToCommaDelimitedString(BASIC_REPLIES_FIELDS));
-        return graphApi.fetchConnections(commentId, "replies", InstagramComment.class, params);
+        return graphApi.fetchConnections(commentId, "replies", REPLIES, params);
     }
 
     public InstagramComment getComment(String commentId) {
-        return graphApi.fetchObject(commentId, InstagramComment.class, BASIC_COMMENT_FIELDS);
+        return graphApi.fetchObject(commentId, COMMENTS);
     }
 
     public InstagramComment getReply(String commentId) {
-        return graphApi.fetchObject(commentId, InstagramComment.class, BASIC_REPLY_FIELDS);
+        return graphApi.fetchObject(commentId, REPLY);
     }
 
     @Override
     public InstagramMedia getMentionedMedia(String userId, String mediaId) {
-        return graphApi.fetchObject(userId, MentionedMedia.class, "mentioned_media.media_id(" + mediaId +"){" + StringUtils.arrayToCommaDelimitedString(SHADOW_MEDIA_FIELDS) + "}").getMentionedMedia();
+        return graphApi.fetchObject(userId, MentionedMedia.class, "mentioned_media.media_id(" + mediaId + ")" + SHADOW_MEDIA_SELECTION).getMentionedMedia();
     }
 
     @Override
@@ -100,26 +117,25 @@ class InstagramTemplate implements InstagramOperations {
         } else if (!StringUtils.isEmpty(pagedListParameters.getBefore())) {
             pager += ".before(" + pagedListParameters.getBefore() + ")";
         }
-        return (PagedList<InstagramComment>) graphApi.fetchObject(userId, MentionedMedia.class, "mentioned_media.media_id(" + mediaId + "){comments" + pager + "{" + StringUtils.arrayToCommaDelimitedString(SHADOW_COMMENT_FIELDS) + "}}").getMentionedMedia().getComments();
+        return (PagedList<InstagramComment>) graphApi.fetchObject(userId, MentionedMedia.class, "mentioned_media.media_id(" + mediaId + "){comments" + pager + SHADOW_COMMENT_SELECTION + "}").getMentionedMedia().getComments();
     }
 
     @Override
     public InstagramComment getMentionedComment(String userId, String commentId) {
-        return graphApi.fetchObject(userId, MentionedComment.class, "mentioned_comment.comment_id(" + commentId +"){" + StringUtils.arrayToCommaDelimitedString(SHADOW_COMMENT_FIELDS) + "}").getMentionedComment();
+        return graphApi.fetchObject(userId, MentionedComment.class, "mentioned_comment.comment_id(" + commentId + ")" + SHADOW_COMMENT_SELECTION).getMentionedComment();
     }
 
     public PagedList<InstagramMedia> getCarouselChildren(String mediaId) {
-        return graphApi.fetchConnections(mediaId, "children", InstagramMedia.class, BASIC_CAROUSEL_FIELDS);
+        return graphApi.fetchConnections(mediaId, "children", CAROUSEL_CHILDREN, null);
     }
 
     public PagedList<InstagramMedia> getStories(String ownerId) {
-        return graphApi.fetchConnections(ownerId, "stories", InstagramMedia.class, BASIC_STORY_FIELDS);
+        return graphApi.fetchConnections(ownerId, "stories", STORIES, null);
     }
 
     public PagedList<InstagramMedia> getStories(String ownerId, PagingParameters pagedListParameters) {
         MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-        params.set("fields", StringUtils.arrayToCommaDelimitedString(BASIC_STORY_FIELDS));
-        return graphApi.fetchConnections(ownerId, "stories", InstagramMedia.class, params);
+        return graphApi.fetchConnections(ownerId, "stories", STORIES, params);
     }
 
     public void toggleComments(String mediaId, boolean enabled) {
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.Handle;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.cglib.proxy.Callback;
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.Factory;
+import org.springframework.cglib.proxy.MethodInterceptor;
+import org.springframework.cglib.proxy.MethodProxy;
+import org.springframework.cglib.proxy.NoOp;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.social.facebook.api.BindingMode;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.BeanDeserializer;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.ValueInstantiator;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+/**
+ * Binds objects of a given type lazily, for {@link BindingMode#LAZY}.
+ * Each object is a CGLIB subclass of the type that keeps the location of the object's JSON within the response bytes.
+ * Getters that only return a field are found by reading their bytecode. The first call to one of them binds the JSON property
+ * mapped to that field into the object, straight from the response bytes. Any other method binds the whole object first, by binding a regular instance and copying
+ * its fields, so the lazy object ends up in the same state as an eagerly bound one (including its extra data and raw JSON).
+ */
+class LazyObjectBinder<T> {
+
+	private static final String BIND_ALL = "";
+
+	private static final CallbackFilter OBJECT_METHODS_FILTER = new CallbackFilter() {
+		public int accept(Method method) {
+			return method.getDeclaringClass() == Object.class ? 1 : 0;
+		}
+	};
+
+	private final ObjectMapper objectMapper;
+
+	private final JavaType type;
+
+	private final ObjectReader reader;
+
+	private final BeanDeserializer beanDeserializer;
+
+	private final Class<?> viewClass;
+
+	private final Constructor<?> viewConstructor;
+
+	private final Map<String, String> getterProperties;
+
+	private final ConcurrentMap<Method, String> methodProperties = new ConcurrentHashMap<Method, String>();
+
+	private LazyObjectBinder(ObjectMapper objectMapper, JavaType type, BeanDeserializer beanDeserializer, Map<String, String> getterProperties) {
+		this.objectMapper = objectMapper;
+		this.type = type;
+		this.reader = objectMapper.readerFor(type);
+		this.beanDeserializer = beanDeserializer;
+		this.getterProperties = getterProperties;
+		Enhancer enhancer = new Enhancer();
+		enhancer.setSuperclass(type.getRawClass());
+		enhancer.setClassLoader(type.getRawClass().getClassLoader());
+		enhancer.setInterceptDuringConstruction(false);
+		enhancer.setCallbackFilter(OBJECT_METHODS_FILTER);
+		enhancer.setCallbackTypes(new Class<?>[] { MethodInterceptor.class, NoOp.class });
+		this.viewClass = enhancer.createClass();
+		this.viewConstructor = ClassUtils.getConstructorIfAvailable(viewClass);
+		ReflectionUtils.makeAccessible(viewConstructor);
+	}
+
+	/**
+	 * Creates a binder for the given type. Scanning and introspecting the type is costly, so callers keep the binders with the mapper they bind with.
+	 * @param objectMapper the mapper that binds the objects
+	 * @param type the type to bind
+	 * @param <T> the type to bind
+	 * @return a binder for the type, or null if the type can't be bound lazily
+	 */
+	public static <T> LazyObjectBinder<T> forType(ObjectMapper objectMapper, Class<T> type) {
+		if (!Modifier.isPublic(type.getModifiers()) || Modifier.isFinal(type.getModifiers()) || Modifier.isAbstract(type.getModifiers()) || type.isMemberClass() && !Modifier.isStatic(type.getModifiers())) {
+			return null;
+		}
+		Constructor<T> constructor = ClassUtils.getConstructorIfAvailable(type);
+		if (constructor == null || Modifier.isPrivate(constructor.getModifiers())) {
+			return null;
+		}
+		DeserializationConfig config = objectMapper.getDeserializationConfig();
+		JavaType javaType = config.constructType(type);
+		BeanDescription beanDescription = config.introspect(javaType);
+		if (config.getAnnotationIntrospector().findTypeResolver(config, beanDescription.getClassInfo(), javaType) != null) {
+			return null;
+		}
+		BeanDeserializer beanDeserializer = findPlainBeanDeserializer(objectMapper, javaType);
+		if (beanDeserializer == null) {
+			return null;
+		}
+		Map<String, String> fieldProperties = new HashMap<String, String>();
+		for (BeanPropertyDefinition property : beanDescription.findProperties()) {
+			AnnotatedField field = property.getField();
+			if (field != null && property.couldDeserialize()) {
+				fieldProperties.put(fieldKey(Type.getInternalName(field.getDeclaringClass()), field.getName()), property.getName());
+			}
+		}
+		Map<String, String> getterProperties = new HashMap<String, String>();
+		for (Map.Entry<String, String> getter : findFieldGetters(type).entrySet()) {
+			String property = fieldProperties.get(getter.getValue());
+			if (property != null) {
+				getterProperties.put(getter.getKey(), property);
+			}
+		}
+		return new LazyObjectBinder<T>(objectMapper, javaType, beanDeserializer, getterProperties);
+	}
+
+	/**
+	 * Binds the whole of an object if it's a lazily bound view, so that all of its fields are set.
+	 * @param object the object, which may be a regular instance
+	 */
+	public static void bindFully(Object object) {
+		if (object instanceof Factory) {
+			Callback callback = ((Factory) object).getCallback(0);
+			if (callback instanceof LazyObjectBinder.LazyView) {
+				((LazyObjectBinder<?>.LazyView) callback).bind(object, BIND_ALL);
+			}
+		}
+	}
+
+	/**
+	 * Reads a JSON array of objects into lazily bound views over the bytes the objects are read from.
+	 * @param parser a parser positioned at the start of the array
+	 * @param json the UTF-8 bytes the parser reads, which the views keep
+	 * @return the lazily bound objects
+	 * @throws IOException if the array cannot be read
+	 */
+	public List<T> readList(JsonParser parser, byte[] json) throws IOException {
+		List<T> list = new ArrayList<T>();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token == JsonToken.START_OBJECT) {
+				int start = (int) parser.getTokenLocation().getByteOffset();
+				parser.skipChildren();
+				int end = (int) parser.getCurrentLocation().getByteOffset();
+				list.add(newView(json, start, end - start));
+			} else if (token == JsonToken.VALUE_NULL) {
+				list.add(null);
+			} else {
+				list.add(reader.<T>readValue(parser));
+			}
+		}
+		return list;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T newView(byte[] json, int offset, int length) {
+		Enhancer.registerCallbacks(viewClass, new Callback[] { new LazyView(json, offset, length), NoOp.INSTANCE });
+		try {
+			return (T) viewConstructor.newInstance();
+		} catch (Exception e) {
+			throw new IllegalStateException("Unable to create a lazy " + type.getRawClass().getName(), e);
+		} finally {
+			Enhancer.registerCallbacks(viewClass, null);
+		}
+	}
+
+	private String propertyFor(Method method) {
+		String property = methodProperties.get(method);
+		if (property == null) {
+			property = getterProperties.get(method.getName() + Type.getMethodDescriptor(method));
+			if (property == null) {
+				property = BIND_ALL;
+			}
+			methodProperties.putIfAbsent(method, property);
+		}
+		return property;
+	}
+
+	private void bindProperty(Object view, byte[] json, int offset, int length, String property) throws IOException {
+		SettableBeanProperty beanProperty = beanDeserializer.findProperty(property);
+		if (beanProperty == null) {
+			return;
+		}
+		JsonParser parser = objectMapper.getFactory().createParser(json, offset, length);
+		try {
+			parser.nextToken();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				if (property.equals(fieldName)) {
+					DeserializationContext context = ((DefaultDeserializationContext) objectMapper.getDeserializationContext())
+							.createInstance(objectMapper.getDeserializationConfig(), parser, objectMapper.getInjectableValues());
+					beanProperty.deserializeAndSet(parser, context, view);
+					return;
+				}
+				parser.skipChildren();
+			}
+		} finally {
+			parser.close();
+		}
+	}
+
+	private void bindAll(Object view, byte[] json, int offset, int length) throws IOException {
+		Object bound = reader.readValue(json, offset, length);
+		ReflectionUtils.shallowCopyFieldState(bound, view);
+	}
+
+	// the deserializer of the type if it's a bean deserializer that creates objects with their no-argument constructor, or null
+	private static BeanDeserializer findPlainBeanDeserializer(ObjectMapper objectMapper, JavaType type) {
+		DeserializationContext context = ((DefaultDeserializationContext) objectMapper.getDeserializationContext())
+				.createInstance(objectMapper.getDeserializationConfig(), null, null);
+		JsonDeserializer<?> deserializer;
+		try {
+			deserializer = context.findRootValueDeserializer(type);
+		} catch (IOException e) {
+			return null;
+		}
+		while (deserializer instanceof DelegatingDeserializer) {
+			deserializer = ((DelegatingDeserializer) deserializer).getDelegatee();
+		}
+		if (!(deserializer instanceof BeanDeserializer)) {
+			return null;
+		}
+		ValueInstantiator instantiator = ((BeanDeserializer) deserializer).getValueInstantiator();
+		if (!instantiator.canCreateUsingDefault() || instantiator.canCreateFromObjectWith() || instantiator.canCreateUsingDelegate()) {
+			return null;
+		}
+		return (BeanDeserializer) deserializer;
+	}
+
+	// maps "name + descriptor" of each getter that only returns a field to the key of that field, most derived declaration first
+	private static Map<String, String> findFieldGetters(Class<?> type) {
+		Map<String, String> getters = new HashMap<String, String>();
+		Set<String> declared = new HashSet<String>();
+		for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+			String resource = ClassUtils.convertClassNameToResourcePath(clazz.getName()) + ClassUtils.CLASS_FILE_SUFFIX;
+			InputStream in = clazz.getClassLoader() != null ? clazz.getClassLoader().getResourceAsStream(resource) : null;
+			if (in == null) {
+				continue;
+			}
+			try {
+				try {
+					new ClassReader(in).accept(new FieldGetterClassVisitor(getters, declared), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				// getters of this class will bind the whole object
+			}
+		}
+		return getters;
+	}
+
+	private static String fieldKey(String owner, String name) {
+		return owner + "." + name;
+	}
+
+	private static class FieldGetterClassVisitor extends ClassVisitor {
+
+		private final Map<String, String> getters;
+
+		private final Set<String> declared;
+
+		public FieldGetterClassVisitor(Map<String, String> getters, Set<String> declared) {
+			super(Opcodes.ASM5);
+			this.getters = getters;
+			this.declared = declared;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, final String name, final String desc, String signature, String[] exceptions) {
+			final String key = name + desc;
+			if ((access & Opcodes.ACC_STATIC) != 0 || !declared.add(key) || !desc.startsWith("()") || desc.endsWith(")V")) {
+				return null;
+			}
+			return new FieldGetterMethodVisitor() {
+				@Override
+				public void visitEnd() {
+					if (isFieldGetter()) {
+						getters.put(key, getField());
+					}
+				}
+			};
+		}
+
+	}
+
+	// recognizes a method body that is exactly "return this.field;"
+	private static class FieldGetterMethodVisitor extends MethodVisitor {
+
+		private int step;
+
+		private String field;
+
+		public FieldGetterMethodVisitor() {
+			super(Opcodes.ASM5);
+		}
+
+		protected boolean isFieldGetter() {
+			return step == 3;
+		}
+
+		protected String getField() {
+			return field;
+		}
+
+		@Override
+		public void visitVarInsn(int opcode, int var) {
+			step = step == 0 && opcode == Opcodes.ALOAD && var == 0 ? 1 : -1;
+		}
+
+		@Override
+		public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+			if (step == 1 && opcode == Opcodes.GETFIELD) {
+				field = fieldKey(owner, name);
+				step = 2;
+			} else {
+				step = -1;
+			}
+		}
+
+		@Override
+		public void visitInsn(int opcode) {
+			step = step == 2 && opcode >= Opcodes.IRETURN && opcode <= Opcodes.ARETURN ? 3 : -1;
+		}
+
+		@Override
+		public void visitIntInsn(int opcode, int operand) {
+			step = -1;
+		}
+
+		@Override
+		public void visitTypeInsn(int opcode, String type) {
+			step = -1;
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+			step = -1;
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+			step = -1;
+		}
+
+		@Override
+		public void visitJumpInsn(int opcode, Label label) {
+			step = -1;
+		}
+
+		@Override
+		public void visitLdcInsn(Object cst) {
+			step = -1;
+		}
+
+		@Override
+		public void visitIincInsn(int var, int increment) {
+			step = -1;
+		}
+
+		@Override
+		public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+			step = -1;
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+			step = -1;
+		}
+
+		@Override
+		public void visitMultiANewArrayInsn(String desc, int dims) {
+			step = -1;
+		}
+
+	}
+
+	// the state of one lazily bound object
+	private class LazyView implements MethodInterceptor {
+
+		private byte[] json;
+
+		private final int offset;
+
+		private final int length;
+
+		private Set<String> boundProperties;
+
+		private boolean binding;
+
+		private volatile boolean bound;
+
+		public LazyView(byte[] json, int offset, int length) {
+			this.json = json;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public Object intercept(Object view, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
+			if (!bound) {
+				bind(view, propertyFor(method));
+			}
+			return methodProxy.invokeSuper(view, args);
+		}
+
+		private synchronized void bind(Object view, String property) {
+			if (binding || bound) {
+				// methods called by the binding itself, such as the JSON any-setter, go straight through
+				return;
+			}
+			binding = true;
+			try {
+				if (property == BIND_ALL) {
+					bindAll(view, json, offset, length);
+					json = null;
+					bound = true;
+				} else if (boundProperties == null || !boundProperties.contains(property)) {
+					bindProperty(view, json, offset, length, property);
+					if (boundProperties == null) {
+						boundProperties = new HashSet<String>();
+					}
+					boundProperties.add(property);
+				}
+			} catch (IOException e) {
+				throw new UncategorizedApiException("facebook", "Error deserializing data from Facebook: " + e.getMessage(), e);
+			} finally {
+				binding = false;
+			}
+		}
+
+	}
+
+}
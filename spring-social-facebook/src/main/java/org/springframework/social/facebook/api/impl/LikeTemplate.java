@@ -17,7 +17,6 @@ package org.springframework.social.facebook.api.impl;
 
 import org.springframework.social.facebook.api.*;
 import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.StringUtils;
 
 class LikeTemplate implements LikeOperations {
 
@@ -52,11 +51,11 @@ class LikeTemplate implements LikeOperations {
 	}
 
 	public PagedList<Page> getPagesLiked(String userId) {
-		return graphApi.fetchConnections(userId, "likes", Page.class, PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "likes", PAGES, null);
 	}
 
 	public PagedList<Page> getPagesLiked(String userId, PagingParameters pagingParameters) {
-		return graphApi.fetchConnections(userId, "likes", Page.class, pagingParameters.toMap(), PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "likes", PAGES, pagingParameters.toMap());
 	}
 
 	public PagedList<Page> getBooks() {
@@ -68,11 +67,11 @@ class LikeTemplate implements LikeOperations {
 	}
 
 	public PagedList<Page> getBooks(String userId) {
-		return graphApi.fetchConnections(userId, "books", Page.class, PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "books", PAGES, null);
 	}
 
 	public PagedList<Page> getBooks(String userId, PagingParameters pagingParameters) {
-		return graphApi.fetchConnections(userId, "books", Page.class, pagingParameters.toMap(), PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "books", PAGES, pagingParameters.toMap());
 	}
 
 	public PagedList<Page> getMovies() {
@@ -84,11 +83,11 @@ class LikeTemplate implements LikeOperations {
 	}
 
 	public PagedList<Page> getMovies(String userId) {
-		return graphApi.fetchConnections(userId, "movies", Page.class, PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "movies", PAGES, null);
 	}
 
 	public PagedList<Page> getMovies(String userId, PagingParameters pagingParameters) {
-		return graphApi.fetchConnections(userId, "movies", Page.class, pagingParameters.toMap(), PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "movies", PAGES, pagingParameters.toMap());
 	}
 
 	public PagedList<Page> getMusic() {
@@ -100,11 +99,11 @@ class LikeTemplate implements LikeOperations {
 	}
 
 	public PagedList<Page> getMusic(String userId) {
-		return graphApi.fetchConnections(userId, "music", Page.class, PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "music", PAGES, null);
 	}
 
 	public PagedList<Page> getMusic(String userId, PagingParameters pagingParameters) {
-		return graphApi.fetchConnections(userId, "music", Page.class, pagingParameters.toMap(), PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "music", PAGES, pagingParameters.toMap());
 	}
 
 	public PagedList<Page> getTelevision() {
@@ -116,11 +115,11 @@ class LikeTemplate implements LikeOperations {
 	}
 
 	public PagedList<Page> getTelevision(String userId) {
-		return graphApi.fetchConnections(userId, "television", Page.class, PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "television", PAGES, null);
 	}
 	
 	public PagedList<Page> getTelevision(String userId, PagingParameters pagingParameters) {
-		return graphApi.fetchConnections(userId, "television", Page.class, pagingParameters.toMap(), PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "television", PAGES, pagingParameters.toMap());
 	}
 	
 	public PagedList<Page> getGames() {
@@ -132,12 +131,12 @@ class LikeTemplate implements LikeOperations {
 	}
 
 	public PagedList<Page> getGames(String userId) {
-		return graphApi.fetchConnections(userId, "games", Page.class, PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "games", PAGES, null);
 	}
 
 	public PagedList<Page> getGames(String userId, PagingParameters pagingParameters) {
-		return graphApi.fetchConnections(userId, "games", Page.class, pagingParameters.toMap(), PAGE_FIELDS);
+		return graphApi.fetchConnections(userId, "games", PAGES, pagingParameters.toMap());
 	}
 
-	private static final String PAGE_FIELDS = StringUtils.arrayToCommaDelimitedString(PageOperations.BASIC_PAGE_FIELDS);
+	private static final GraphQuery<Page> PAGES = GraphQuery.select(Page.class).fields(PageOperations.BASIC_PAGE_FIELDS).compile();
 }
@@ -17,11 +17,13 @@ package org.springframework.social.facebook.api.impl;
 
 import static org.springframework.social.facebook.api.impl.PagedListUtils.*;
 
+import java.io.OutputStream;
 import java.util.Map;
 
 import org.springframework.core.io.Resource;
 import org.springframework.social.facebook.api.Album;
 import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.GraphQuery;
 import org.springframework.social.facebook.api.ImageType;
 import org.springframework.social.facebook.api.MediaOperations;
 import org.springframework.social.facebook.api.PagedList;
@@ -34,6 +36,10 @@ import org.springframework.web.client.RestTemplate;
 
 class MediaTemplate implements MediaOperations {
 
+	private static final GraphQuery<Album> ALBUMS = GraphQuery.select(Album.class).fields(ALL_ALBUM_FIELDS).compile();
+
+	private static final GraphQuery<Photo> PHOTOS = GraphQuery.select(Photo.class).fields(ALL_PHOTO_FIELDS).compile();
+
 	private final GraphApi graphApi;
 	
 	private final RestTemplate restTemplate;
@@ -56,7 +62,7 @@ class MediaTemplate implements MediaOperations {
 	}
 	
 	public PagedList<Album> getAlbums(String userId, PagingParameters pagedListParameters) {
-		return graphApi.fetchConnections(userId, "albums", Album.class, getPagingParameters(pagedListParameters), ALL_ALBUM_FIELDS);
+		return graphApi.fetchConnections(userId, "albums", ALBUMS, getPagingParameters(pagedListParameters));
 	}
 
 	public Album getAlbum(String albumId) {
@@ -81,13 +87,17 @@ class MediaTemplate implements MediaOperations {
 	public byte[] getAlbumImage(String albumId, ImageType imageType) {
 		return graphApi.fetchImage(albumId, "picture", imageType);
 	}
+
+	public long getAlbumImage(String albumId, ImageType imageType, OutputStream out) {
+		return graphApi.fetchImage(albumId, "picture", imageType, out);
+	}
 	
 	public PagedList<Photo> getPhotos(String objectId) {
 		return getPhotos(objectId, new PagingParameters(25, 0, null, null));
 	}
 	
 	public PagedList<Photo> getPhotos(String objectId, PagingParameters pagedListParameters) {
-		return graphApi.fetchConnections(objectId, "photos", Photo.class, getPagingParameters(pagedListParameters), ALL_PHOTO_FIELDS);
+		return graphApi.fetchConnections(objectId, "photos", PHOTOS, getPagingParameters(pagedListParameters));
 	}
 	
 	public Photo getPhoto(String photoId) {
@@ -102,6 +112,10 @@ class MediaTemplate implements MediaOperations {
 		return graphApi.fetchImage(photoId, "picture", imageType);
 	}
 
+	public long getPhotoImage(String photoId, ImageType imageType, OutputStream out) {
+		return graphApi.fetchImage(photoId, "picture", imageType, out);
+	}
+
 	public String postPhoto(Resource photo) {
 		MultiValueMap<String, Object> parts = new LinkedMultiValueMap<String, Object>();
 		parts.set("source", photo);
@@ -151,6 +165,10 @@ class MediaTemplate implements MediaOperations {
 	public byte[] getVideoImage(String videoId) {
 		return graphApi.fetchImage(videoId, "picture", ImageType.SMALL);
 	}
+
+	public long getVideoImage(String videoId, OutputStream out) {
+		return graphApi.fetchImage(videoId, "picture", ImageType.SMALL, out);
+	}
 	
 	@SuppressWarnings("unchecked")
 	public String postVideo(Resource video) {
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import static org.springframework.social.facebook.api.FacebookErrors.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.social.ResourceNotFoundException;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.social.facebook.api.FacebookError;
+import org.springframework.social.facebook.api.FacebookErrorException;
+import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.ObjectsById;
+import org.springframework.social.support.URIBuilder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Fetches objects by ID with multi-ID ("?ids=") requests, splitting the IDs into chunks of {@link GraphApi#MAX_OBJECT_IDS}
+ * and fetching the chunks in parallel on the given executor.
+ * Facebook fails a whole multi-ID request if any of its IDs is bad, so a chunk that fails that way is refetched one ID at a time
+ * to isolate the bad IDs.
+ */
+class MultiIdFetcher<T> {
+
+	private final RestTemplate restTemplate;
+
+	private final String baseGraphApiUrl;
+
+	private final ObjectReader reader;
+
+	private final Executor executor;
+
+	private final MultiValueMap<String, String> queryParameters;
+
+	public MultiIdFetcher(RestTemplate restTemplate, String baseGraphApiUrl, ObjectReader reader, Executor executor, String fields) {
+		this.restTemplate = restTemplate;
+		this.baseGraphApiUrl = baseGraphApiUrl;
+		this.reader = reader;
+		this.executor = executor;
+		this.queryParameters = new LinkedMultiValueMap<String, String>();
+		if (fields != null && fields.length() > 0) {
+			queryParameters.set("fields", fields);
+		}
+	}
+
+	public ObjectsById<T> fetch(Collection<String> objectIds) {
+		List<String> ids = new ArrayList<String>(new LinkedHashSet<String>(objectIds));
+		List<List<String>> chunks = new ArrayList<List<String>>();
+		for (int i = 0; i < ids.size(); i += GraphApi.MAX_OBJECT_IDS) {
+			chunks.add(ids.subList(i, Math.min(i + GraphApi.MAX_OBJECT_IDS, ids.size())));
+		}
+
+		List<Map<String, Object>> chunkResults = new ArrayList<Map<String, Object>>(chunks.size());
+		if (chunks.size() == 1) {
+			chunkResults.add(fetchChunk(chunks.get(0)));
+		} else if (chunks.size() > 1) {
+			List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<CompletableFuture<Map<String, Object>>>(chunks.size());
+			for (final List<String> chunk : chunks) {
+				futures.add(CompletableFuture.supplyAsync(new Supplier<Map<String, Object>>() {
+					public Map<String, Object> get() {
+						return fetchChunk(chunk);
+					}
+				}, executor));
+			}
+			for (CompletableFuture<Map<String, Object>> future : futures) {
+				try {
+					chunkResults.add(future.join());
+				} catch (CompletionException e) {
+					throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+				}
+			}
+		}
+
+		Map<String, Object> results = new LinkedHashMap<String, Object>(ids.size() * 2);
+		for (Map<String, Object> chunkResult : chunkResults) {
+			results.putAll(chunkResult);
+		}
+		ObjectsById<T> objects = new ObjectsById<T>(ids.size() * 2);
+		for (String id : ids) {
+			Object result = results.get(id);
+			if (result instanceof RuntimeException) {
+				objects.addError(id, (RuntimeException) result);
+			} else if (result == null) {
+				objects.addError(id, new ResourceNotFoundException("facebook", "No object returned for ID " + id));
+			} else {
+				@SuppressWarnings("unchecked")
+				T object = (T) result;
+				objects.put(id, object);
+			}
+		}
+		return objects;
+	}
+
+	// Each chunk resolves to a map of ID to either the fetched object or the exception that kept it from being fetched
+	private Map<String, Object> fetchChunk(List<String> ids) {
+		try {
+			return fetchIds(ids);
+		} catch (RuntimeException e) {
+			Map<String, Object> results = new LinkedHashMap<String, Object>(ids.size() * 2);
+			if (ids.size() > 1 && isObjectError(e)) {
+				for (String id : ids) {
+					try {
+						results.putAll(fetchIds(Collections.singletonList(id)));
+					} catch (RuntimeException idError) {
+						results.put(id, idError);
+					}
+				}
+			} else {
+				for (String id : ids) {
+					results.put(id, e);
+				}
+			}
+			return results;
+		}
+	}
+
+	private Map<String, Object> fetchIds(List<String> ids) {
+		StringBuilder joinedIds = new StringBuilder(ids.get(0));
+		for (int i = 1; i < ids.size(); i++) {
+			joinedIds.append(',').append(ids.get(i));
+		}
+		URI uri = URIBuilder.fromUri(baseGraphApiUrl).queryParam("ids", joinedIds.toString()).queryParams(queryParameters).build();
+		return restTemplate.execute(uri, HttpMethod.GET, null, new ObjectsByIdResponseExtractor(ids.size()));
+	}
+
+	// errors that Facebook reports for a bad ID in a multi-ID request: an unknown alias, or an object that can't be read
+	// ("Unsupported get request"); other errors, such as transient ones, would fail the single-ID requests just the same
+	private boolean isObjectError(RuntimeException e) {
+		if (e instanceof ResourceNotFoundException) {
+			return true;
+		}
+		FacebookError error = FacebookErrorException.findError(e);
+		return error != null && error.getCode() != null && error.getCode() == PARAM && "GraphMethodException".equals(error.getType());
+	}
+
+	private class ObjectsByIdResponseExtractor implements ResponseExtractor<Map<String, Object>> {
+
+		private final int size;
+
+		public ObjectsByIdResponseExtractor(int size) {
+			this.size = size;
+		}
+
+		public Map<String, Object> extractData(ClientHttpResponse response) throws IOException {
+			JsonParser parser = reader.getFactory().createParser(response.getBody());
+			try {
+				Map<String, Object> objects = new LinkedHashMap<String, Object>(size * 2);
+				if (parser.nextToken() != JsonToken.START_OBJECT) {
+					throw new UncategorizedApiException("facebook", "Expected a JSON object keyed by ID", null);
+				}
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String id = parser.getCurrentName();
+					parser.nextToken();
+					objects.put(id, reader.readValue(parser));
+				}
+				return objects;
+			} catch (JsonProcessingException e) {
+				throw new UncategorizedApiException("facebook", "Error deserializing data from Facebook: " + e.getMessage(), e);
+			} finally {
+				parser.close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.GraphQuery;
+import org.springframework.social.facebook.api.InstagramUser;
+import org.springframework.social.facebook.api.Page;
+import org.springframework.social.facebook.api.User;
+
+/**
+ * <p>In-process cache of the objects that rarely change: user profiles fetched by {@link UserTemplate#getUserProfile(String)},
+ * pages fetched by {@link PageTemplate#getPage(String)} and Instagram profiles fetched by {@link InstagramTemplate#getUserProfile(String)}.</p>
+ * <p>
+ * Objects are cached per access token, object ID, type and set of fields, for a time to live that can be set per type.
+ * The cache is bounded by the total weight of its objects, the weight of an object being the number of fields it was fetched with;
+ * the least recently used objects are evicted first. An object fetched by an alias (e.g., "me") is also known by its ID, so that
+ * it can be invalidated when a real-time update reports that the object changed, see {@link #invalidate(String, Collection)}.
+ * </p>
+ * <p>
+ * The cached objects are shared by all the callers that fetch them and must not be modified.
+ * One instance can be shared by the templates of different access tokens, as is done by {@link FacebookClientFactory}.
+ * </p>
+ * @see FacebookTemplate#setObjectCache(ObjectCache)
+ */
+public class ObjectCache {
+
+	public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(10);
+
+	public static final long DEFAULT_MAX_WEIGHT = 100000;
+
+	private final long maxWeight;
+
+	private final long defaultTimeToLive;
+
+	private final Map<Class<?>, Long> timesToLive = new HashMap<Class<?>, Long>();
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+	private final Map<String, Set<Key>> keysById = new HashMap<String, Set<Key>>();
+
+	private long weight;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Creates a cache with a time to live of {@link #DEFAULT_TIME_TO_LIVE} and a maximum weight of {@link #DEFAULT_MAX_WEIGHT}.
+	 */
+	public ObjectCache() {
+		this(DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_WEIGHT);
+	}
+
+	/**
+	 * @param defaultTimeToLive the time objects are cached for, in milliseconds, unless set for their type by {@link #setTimeToLive(Class, long)}
+	 * @param maxWeight the maximum total weight of the cached objects, counted in fields
+	 */
+	public ObjectCache(long defaultTimeToLive, long maxWeight) {
+		if (defaultTimeToLive < 0) {
+			throw new IllegalArgumentException("The time to live must not be negative");
+		}
+		if (maxWeight <= 0) {
+			throw new IllegalArgumentException("The maximum weight must be positive");
+		}
+		this.defaultTimeToLive = defaultTimeToLive;
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Sets the time objects of a type are cached for.
+	 * @param type the type of object, e.g. {@link User}
+	 * @param timeToLive the time to live in milliseconds. 0 to not cache objects of the type.
+	 */
+	public synchronized void setTimeToLive(Class<?> type, long timeToLive) {
+		if (timeToLive < 0) {
+			throw new IllegalArgumentException("The time to live must not be negative");
+		}
+		timesToLive.put(type, timeToLive);
+	}
+
+	/**
+	 * @return the number of objects returned from the cache.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of objects that were fetched because they weren't cached or had expired.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of objects in the cache, including any that have expired but haven't been removed yet.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes an object from the cache, whatever the fields it was fetched with.
+	 * @param objectId the object's ID
+	 */
+	public void invalidate(String objectId) {
+		invalidate(objectId, null);
+	}
+
+	/**
+	 * Removes an object from the cache if it was fetched with any of the fields that changed, as reported in the "changed_fields"
+	 * of a real-time update. Objects fetched with other fields are kept.
+	 * @param objectId the object's ID
+	 * @param changedFields the fields that changed. If null or empty, the object is removed whatever its fields.
+	 */
+	public synchronized void invalidate(String objectId, Collection<String> changedFields) {
+		Set<Key> keys = keysById.get(objectId);
+		if (keys == null) {
+			return;
+		}
+		for (Key key : keys.toArray(new Key[keys.size()])) {
+			if (changedFields == null || changedFields.isEmpty() || key.hasAnyField(changedFields)) {
+				remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Removes all the objects from the cache.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		keysById.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Fetches an object through the template's object cache, if it has one.
+	 */
+	static <T> T fetchObject(GraphApi graphApi, String objectId, GraphQuery<T> query) {
+		ObjectCache cache = graphApi instanceof FacebookTemplate ? ((FacebookTemplate) graphApi).getObjectCache() : null;
+		if (cache == null) {
+			return graphApi.fetchObject(objectId, query);
+		}
+		Key key = new Key(((FacebookTemplate) graphApi).getAccessToken(), objectId, query);
+		T object = cache.get(key, query.getType());
+		if (object == null) {
+			object = graphApi.fetchObject(objectId, query);
+			cache.put(key, object);
+		}
+		return object;
+	}
+
+	private synchronized <T> T get(Key key, Class<T> type) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.expiresAt - System.currentTimeMillis() > 0) {
+			hitCount.incrementAndGet();
+			return type.cast(entry.object);
+		}
+		if (entry != null) {
+			remove(key);
+		}
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	private synchronized void put(Key key, Object object) {
+		Long typeTimeToLive = timesToLive.get(key.type);
+		long timeToLive = typeTimeToLive != null ? typeTimeToLive : defaultTimeToLive;
+		if (object == null || timeToLive == 0 || key.weight() > maxWeight) {
+			return;
+		}
+		remove(key);
+		String id = getId(object);
+		entries.put(key, new Entry(object, System.currentTimeMillis() + timeToLive, id));
+		weight += key.weight();
+		index(key.objectId, key);
+		if (id != null && !id.equals(key.objectId)) {
+			index(id, key);
+		}
+		while (weight > maxWeight) {
+			remove(entries.keySet().iterator().next());
+		}
+	}
+
+	private void index(String objectId, Key key) {
+		Set<Key> keys = keysById.get(objectId);
+		if (keys == null) {
+			keys = new HashSet<Key>();
+			keysById.put(objectId, keys);
+		}
+		keys.add(key);
+	}
+
+	private void remove(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry == null) {
+			return;
+		}
+		weight -= key.weight();
+		unindex(key.objectId, key);
+		if (entry.id != null) {
+			unindex(entry.id, key);
+		}
+	}
+
+	private void unindex(String objectId, Key key) {
+		Set<Key> keys = keysById.get(objectId);
+		if (keys != null && keys.remove(key) && keys.isEmpty()) {
+			keysById.remove(objectId);
+		}
+	}
+
+	private static String getId(Object object) {
+		if (object instanceof User) {
+			return ((User) object).getId();
+		} else if (object instanceof Page) {
+			return ((Page) object).getId();
+		} else if (object instanceof InstagramUser) {
+			return ((InstagramUser) object).getId();
+		}
+		return null;
+	}
+
+	private static class Entry {
+
+		final Object object;
+
+		final long expiresAt;
+
+		final String id;
+
+		Entry(Object object, long expiresAt, String id) {
+			this.object = object;
+			this.expiresAt = expiresAt;
+			this.id = id;
+		}
+
+	}
+
+	private static class Key {
+
+		final String scope;
+
+		final String objectId;
+
+		final Class<?> type;
+
+		final GraphQuery<?> query;
+
+		private final int hash;
+
+		Key(String scope, String objectId, GraphQuery<?> query) {
+			this.scope = scope;
+			this.objectId = objectId;
+			this.type = query.getType();
+			this.query = query;
+			int hash = scope != null ? scope.hashCode() : 0;
+			hash = 31 * hash + objectId.hashCode();
+			this.hash = 31 * hash + query.hashCode();
+		}
+
+		long weight() {
+			return Math.max(1, query.getFieldNames().length);
+		}
+
+		// matches nested fields, such as "picture{url}", by their name
+		boolean hasAnyField(Collection<String> names) {
+			for (String name : query.getFieldNames()) {
+				if (names.contains(name)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && objectId.equals(other.objectId) && query.equals(other.query)
+					&& (scope == null ? other.scope == null : scope.equals(other.scope));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+}
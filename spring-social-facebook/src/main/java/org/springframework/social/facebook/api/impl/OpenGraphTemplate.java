@@ -30,42 +30,53 @@ class OpenGraphTemplate implements OpenGraphOperations {
 	
 	private GraphApi graphApi;
 	
-	private GeneralActions generalActions;
+	// action templates are created on first use
+	private volatile GeneralActions generalActions;
 	
-	private MusicActions musicActions;
+	private volatile MusicActions musicActions;
 	
-	private BookActions bookActions;
+	private volatile BookActions bookActions;
 	
-	private VideoActions videoActions;
+	private volatile VideoActions videoActions;
 	
-	private FitnessActions fitnessActions;
+	private volatile FitnessActions fitnessActions;
 
 	public OpenGraphTemplate(GraphApi graphApi) {
 		this.graphApi = graphApi;
-		this.generalActions = new GeneralActionsTemplate(this);
-		this.bookActions = new BookActionsTemplate(this);
-		this.musicActions = new MusicActionsTemplate(this);
-		this.videoActions = new VideoActionsTemplate(this);
-		this.fitnessActions = new FitnessActionsTemplate(this);
 	} 
 	
 	public GeneralActions generalActions() {
+		if (generalActions == null) {
+			generalActions = new GeneralActionsTemplate(this);
+		}
 		return generalActions;
 	}
 	
 	public MusicActions musicActions() {
+		if (musicActions == null) {
+			musicActions = new MusicActionsTemplate(this);
+		}
 		return musicActions;
 	}
 
 	public BookActions bookActions() {
+		if (bookActions == null) {
+			bookActions = new BookActionsTemplate(this);
+		}
 		return bookActions;
 	}
 
 	public VideoActions videoActions() {
+		if (videoActions == null) {
+			videoActions = new VideoActionsTemplate(this);
+		}
 		return videoActions;
 	}
 	
 	public FitnessActions fitnessActions() {
+		if (fitnessActions == null) {
+			fitnessActions = new FitnessActionsTemplate(this);
+		}
 		return fitnessActions;
 	}
 	
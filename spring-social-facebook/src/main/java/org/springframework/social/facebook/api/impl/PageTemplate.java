@@ -15,9 +15,9 @@
  */
 package org.springframework.social.facebook.api.impl;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.springframework.core.io.Resource;
 import org.springframework.social.facebook.api.*;
@@ -28,6 +28,14 @@ import static org.springframework.social.facebook.api.impl.PagedListUtils.getPag
 
 class PageTemplate implements PageOperations {
 
+	private static final GraphQuery<Page> PAGE = GraphQuery.select(Page.class).fields(ALL_PAGE_FIELDS).compile();
+
+	private static final GraphQuery<Conversation> CONVERSATIONS = GraphQuery.select(Conversation.class).fields(ALL_CONVERSATION_FIELDS).compile();
+
+	private static final GraphQuery<Message> MESSAGES = GraphQuery.select(Message.class).fields(ALL_MESSAGE_FIELDS).compile();
+
+	private static final GraphQuery<Message> IG_MESSAGES = GraphQuery.select(Message.class).fields(ALL_IG_MESSAGE_FIELDS).compile();
+
 	private final GraphApi graphApi;
 	
 	public PageTemplate(GraphApi graphApi) {
@@ -35,7 +43,7 @@ class PageTemplate implements PageOperations {
 	}
 
 	public Page getPage(String pageId) {
-		return graphApi.fetchObject(pageId, Page.class, ALL_PAGE_FIELDS);
+		return ObjectCache.fetchObject(graphApi, pageId, PAGE);
 	}
 
 	public void updatePage(PageUpdate pageUpdate) {
@@ -113,63 +121,66 @@ class PageTemplate implements PageOperations {
 	}
 
 	public Account getAccount(String pageId) {
-		if(!accountCache.containsKey(pageId)) {
-			// only bother fetching the account data in the event of a cache miss
-			List<Account> accounts = getAccounts();
-			for (Account account : accounts) {
-				accountCache.put(account.getId(), account);
-			}
+		if (graphApi instanceof FacebookTemplate) {
+			FacebookTemplate facebook = (FacebookTemplate) graphApi;
+			return facebook.getPageTokenCache().getAccount(facebook.getAccessToken(), pageId, allAccountsFetcher, facebook.getTaskExecutor());
+		}
+		PageTokenCache cache = accountCache;
+		if (cache == null) {
+			// a cache created by a racing thread only costs an extra fetch of the accounts
+			cache = new PageTokenCache();
+			accountCache = cache;
 		}
-		return accountCache.get(pageId);
+		return cache.getAccount("", pageId, allAccountsFetcher, null);
 	}
 
 	public PagedList<Conversation> getConversations(String pageId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		return graphApi.fetchConnections(pageId, "conversations", Conversation.class, params, ALL_CONVERSATION_FIELDS);
+		return graphApi.fetchConnections(pageId, "conversations", CONVERSATIONS, params);
 	}
 
 	public PagedList<Conversation> getIgConversations(String pageId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
 		params.set("platform", "instagram");
-		return graphApi.fetchConnections(pageId, "conversations", Conversation.class, params, ALL_CONVERSATION_FIELDS);
+		return graphApi.fetchConnections(pageId, "conversations", CONVERSATIONS, params);
 	}
 
 	public PagedList<Conversation> getConversations(String pageId, String userId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
 		params.set("user_id", userId);
-		return graphApi.fetchConnections(pageId, "conversations", Conversation.class, params, ALL_CONVERSATION_FIELDS);
+		return graphApi.fetchConnections(pageId, "conversations", CONVERSATIONS, params);
 	}
 
 	public PagedList<Conversation> getIgConversations(String pageId, String userId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
 		params.set("platform", "instagram");
 		params.set("user_id", userId);
-		return graphApi.fetchConnections(pageId, "conversations", Conversation.class, params, ALL_CONVERSATION_FIELDS);
+		return graphApi.fetchConnections(pageId, "conversations", CONVERSATIONS, params);
 	}
 
 	public PagedList<Message> getConversationMessages(String conversationId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		return graphApi.fetchConnections(conversationId, "messages", Message.class, params, ALL_MESSAGE_FIELDS);
+		return graphApi.fetchConnections(conversationId, "messages", MESSAGES, params);
 	}
 
 	public PagedList<Message> getIgConversationMessages(String conversationId, PagingParameters pagedListParameters) {
 		MultiValueMap<String, String> params = getPagingParameters(pagedListParameters);
-		return graphApi.fetchConnections(conversationId, "messages", Message.class, params, ALL_IG_MESSAGE_FIELDS);
+		return graphApi.fetchConnections(conversationId, "messages", IG_MESSAGES, params);
 	}
 
 	@Override
 	public Conversation getConversation(String conversationId) {
-		return graphApi.fetchObject(conversationId, Conversation.class, ALL_CONVERSATION_FIELDS);
+		return graphApi.fetchObject(conversationId, CONVERSATIONS);
 	}
 
 	@Override
 	public Message getMessage(String messageId) {
-		return graphApi.fetchObject(messageId, Message.class, ALL_MESSAGE_FIELDS);
+		return graphApi.fetchObject(messageId, MESSAGES);
 	}
 
 	@Override
 	public Message getIgMessage(String messageId) {
-		return graphApi.fetchObject(messageId, Message.class, ALL_IG_MESSAGE_FIELDS);
+		return graphApi.fetchObject(messageId, IG_MESSAGES);
 	}
 
 	public String postConversationMessage(String conversationId, String message) {
@@ -179,11 +190,32 @@ class PageTemplate implements PageOperations {
 	}
 
 	public Facebook facebookOperations(String pageId) {
+		if (graphApi instanceof FacebookTemplate) {
+			return ((FacebookTemplate) graphApi).withAccessToken(getAccessToken(pageId));
+		}
 		return new FacebookTemplate(getAccessToken(pageId));
 	}
 
 	// private helper methods
 	
-	private Map<String, Account> accountCache = new HashMap<String, Account>();
+	// only used when the accounts can't be cached on a FacebookTemplate
+	private volatile PageTokenCache accountCache;
+
+	private final Callable<List<Account>> allAccountsFetcher = new Callable<List<Account>>() {
+		public List<Account> call() {
+			return getAllAccounts();
+		}
+	};
+
+	// follows the paging of me/accounts, so that users with more pages than fit on one page have all of them found
+	private List<Account> getAllAccounts() {
+		PagedList<Account> page = getAccounts();
+		List<Account> accounts = new ArrayList<Account>(page);
+		while (!page.isEmpty() && page.getNextPage() != null) {
+			page = graphApi.fetchConnections("me", "accounts", Account.class, getPagingParameters(page.getNextPage()));
+			accounts.addAll(page);
+		}
+		return accounts;
+	}
 
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.social.facebook.api.Account;
+
+/**
+ * <p>Thread-safe cache of the page accounts, and so of the page access tokens, of user access tokens, used by
+ * {@link PageTemplate} to resolve the token of the page it posts to or updates.</p>
+ * <p>
+ * All the pages of a user's accounts are fetched at once and are kept for a time to live. Concurrent lookups of the same
+ * user's accounts are merged into a single fetch. Optionally, the accounts can be refreshed in the background once they are
+ * older than a refresh time, so that lookups aren't held up when they expire. A page that isn't among a user's accounts
+ * causes them to be fetched again, in case the page was added since, but no more often than the miss reload interval.
+ * </p>
+ * <p>
+ * Accounts are kept per user access token, so one instance can be shared by all the templates of an application,
+ * as is done by {@link FacebookClientFactory}.
+ * </p>
+ * @see FacebookTemplate#setPageTokenCache(PageTokenCache)
+ */
+public class PageTokenCache {
+
+	public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+
+	public static final long DEFAULT_MISS_RELOAD_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+	// expired accounts are swept once more users than this are cached
+	private static final int SWEEP_THRESHOLD = 1000;
+
+	private final ConcurrentMap<String, Accounts> accounts = new ConcurrentHashMap<String, Accounts>();
+
+	private final ConcurrentMap<String, FutureTask<Accounts>> fetches = new ConcurrentHashMap<String, FutureTask<Accounts>>();
+
+	private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+	private volatile long refreshAfter = Long.MAX_VALUE;
+
+	private volatile long missReloadInterval = DEFAULT_MISS_RELOAD_INTERVAL;
+
+	/**
+	 * Sets the time accounts are kept for.
+	 * @param timeToLive the time to live in milliseconds. Default is {@link #DEFAULT_TIME_TO_LIVE}.
+	 */
+	public void setTimeToLive(long timeToLive) {
+		if (timeToLive <= 0) {
+			throw new IllegalArgumentException("The time to live must be positive");
+		}
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the age at which accounts are fetched again in the background, while lookups are still answered from the cache.
+	 * @param refreshAfter the age in milliseconds, less than the time to live. 0 to only fetch accounts once they expire, which is the default.
+	 */
+	public void setRefreshAfter(long refreshAfter) {
+		if (refreshAfter < 0) {
+			throw new IllegalArgumentException("The refresh time must not be negative");
+		}
+		this.refreshAfter = refreshAfter > 0 ? refreshAfter : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Sets the minimum age of accounts that are fetched again when a page isn't among them.
+	 * @param missReloadInterval the interval in milliseconds. Default is {@link #DEFAULT_MISS_RELOAD_INTERVAL}.
+	 */
+	public void setMissReloadInterval(long missReloadInterval) {
+		if (missReloadInterval < 0) {
+			throw new IllegalArgumentException("The miss reload interval must not be negative");
+		}
+		this.missReloadInterval = missReloadInterval;
+	}
+
+	/**
+	 * Removes the accounts of a user, e.g. after the user was granted or denied a role on a page.
+	 * @param userAccessToken the user's access token
+	 */
+	public void invalidate(String userAccessToken) {
+		accounts.remove(userAccessToken);
+	}
+
+	/**
+	 * Removes the accounts of all users.
+	 */
+	public void clear() {
+		accounts.clear();
+	}
+
+	/**
+	 * Looks a page account up among a user's accounts, fetching them if they aren't cached or have expired.
+	 * @param userAccessToken the user's access token
+	 * @param pageId the page's ID
+	 * @param fetcher fetches all the user's accounts
+	 * @param refreshExecutor the executor to refresh accounts with ahead of their expiry. If null, they are refreshed by the calling thread.
+	 * @return the account, or null if the page isn't among the user's accounts
+	 */
+	Account getAccount(String userAccessToken, String pageId, Callable<List<Account>> fetcher, Executor refreshExecutor) {
+		long now = System.currentTimeMillis();
+		Accounts cached = accounts.get(userAccessToken);
+		if (cached == null || now - cached.fetchedAt >= timeToLive) {
+			cached = fetch(userAccessToken, cached, fetcher);
+		} else {
+			if (now - cached.fetchedAt >= refreshAfter) {
+				refresh(userAccessToken, cached, fetcher, refreshExecutor);
+			}
+			if (!cached.byPageId.containsKey(pageId) && now - cached.fetchedAt >= missReloadInterval) {
+				cached = fetch(userAccessToken, cached, fetcher);
+			}
+		}
+		return cached.byPageId.get(pageId);
+	}
+
+	private void refresh(final String userAccessToken, final Accounts stale, final Callable<List<Account>> fetcher, Executor refreshExecutor) {
+		if (fetches.containsKey(userAccessToken)) {
+			return;
+		}
+		if (refreshExecutor == null) {
+			fetch(userAccessToken, stale, fetcher);
+			return;
+		}
+		refreshExecutor.execute(new Runnable() {
+			public void run() {
+				try {
+					fetch(userAccessToken, stale, fetcher);
+				} catch (RuntimeException e) {
+					// the cached accounts are used until they expire, and fetched again then
+				}
+			}
+		});
+	}
+
+	// fetches the accounts unless another thread is already fetching them or has fetched them since they were found stale
+	private Accounts fetch(final String userAccessToken, final Accounts stale, final Callable<List<Account>> fetcher) {
+		FutureTask<Accounts> fetch = new FutureTask<Accounts>(new Callable<Accounts>() {
+			public Accounts call() throws Exception {
+				Accounts current = accounts.get(userAccessToken);
+				if (current != null && current != stale) {
+					return current;
+				}
+				Accounts fetched = new Accounts(fetcher.call(), System.currentTimeMillis());
+				accounts.put(userAccessToken, fetched);
+				return fetched;
+			}
+		});
+		FutureTask<Accounts> inFlight = fetches.putIfAbsent(userAccessToken, fetch);
+		if (inFlight == null) {
+			try {
+				fetch.run();
+			} finally {
+				fetches.remove(userAccessToken, fetch);
+			}
+			inFlight = fetch;
+			sweep();
+		}
+		try {
+			return inFlight.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new UncategorizedApiException("facebook", "Unable to fetch the page accounts: " + cause.getMessage(), cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncategorizedApiException("facebook", "Interrupted while fetching the page accounts", e);
+		}
+	}
+
+	private void sweep() {
+		if (accounts.size() <= SWEEP_THRESHOLD) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for (Iterator<Accounts> iterator = accounts.values().iterator(); iterator.hasNext();) {
+			if (now - iterator.next().fetchedAt >= timeToLive) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static class Accounts {
+
+		final Map<String, Account> byPageId;
+
+		final long fetchedAt;
+
+		Accounts(List<Account> accounts, long fetchedAt) {
+			this.byPageId = new HashMap<String, Account>(accounts.size() * 2);
+			for (Account account : accounts) {
+				byPageId.put(account.getId(), account);
+			}
+			this.fetchedAt = fetchedAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.objenesis.Objenesis;
+import org.springframework.objenesis.SpringObjenesis;
+import org.springframework.social.facebook.api.FacebookObject;
+import org.springframework.social.facebook.api.PagedList;
+import org.springframework.social.facebook.api.PagingParameters;
+import org.springframework.util.ClassUtils;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.ValueInstantiator;
+import com.fasterxml.jackson.databind.deser.ValueInstantiators;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * <p>Writes {@link PagedList}s of Facebook model objects (the types set up by {@link org.springframework.social.facebook.api.impl.json.FacebookModule})
+ * to a compact binary form and reads them back, for caching results or passing them between services.</p>
+ * <p>
+ * Objects are written field by field, so they read back in the state they were bound in, including their extra data.
+ * This form is not the Graph API's JSON and is only meant to be read by a codec of the same version of this library.
+ * The paging parameters and the total count of the list are kept. The raw JSON of the objects is only kept if {@link #setIncludeRawJson(boolean)} is set.
+ * Lazily bound objects (see {@link org.springframework.social.facebook.api.BindingMode#LAZY}) are bound fully before they're written.
+ * </p>
+ * <p>
+ * By default the codec writes Jackson's Smile format, which needs com.fasterxml.jackson.dataformat:jackson-dataformat-smile on the classpath.
+ * Any other Jackson format, such as JSON or CBOR, may be used by giving its factory.
+ * </p>
+ */
+public class PagedListCodec {
+
+	private static final boolean SMILE_AVAILABLE = ClassUtils.isPresent("com.fasterxml.jackson.dataformat.smile.SmileFactory", PagedListCodec.class.getClassLoader());
+
+	private static final String RAW_JSON_FILTER = "rawJson";
+
+	private static final FilterProvider WITHOUT_RAW_JSON = new SimpleFilterProvider().addFilter(RAW_JSON_FILTER, SimpleBeanPropertyFilter.serializeAllExcept("rawJson", "rawJsonBytes"));
+
+	private static final FilterProvider WITH_RAW_JSON = new SimpleFilterProvider().addFilter(RAW_JSON_FILTER, SimpleBeanPropertyFilter.serializeAll());
+
+	private final ObjectMapper objectMapper;
+
+	private boolean includeRawJson;
+
+	/**
+	 * Creates a codec that writes Smile.
+	 */
+	public PagedListCodec() {
+		this(createSmileFactory());
+	}
+
+	/**
+	 * Creates a codec that writes the format of the given factory.
+	 * @param factory the factory of the format to write, such as a {@link JsonFactory} or a CBORFactory
+	 */
+	public PagedListCodec(JsonFactory factory) {
+		this.objectMapper = createObjectMapper(factory);
+	}
+
+	/**
+	 * @param includeRawJson whether the raw JSON retained by the objects (see {@link FacebookObject#getRawJson()}) is written. Default is false.
+	 */
+	public void setIncludeRawJson(boolean includeRawJson) {
+		this.includeRawJson = includeRawJson;
+	}
+
+	/**
+	 * Writes a list.
+	 * @param list the list to write
+	 * @param type the type of the objects in the list
+	 * @param <T> the type of the objects in the list
+	 * @return the encoded list
+	 * @throws IOException if the list cannot be written
+	 */
+	public <T> byte[] encode(PagedList<T> list, Class<T> type) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+		encode(list, type, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Writes a list to a stream, which is left open.
+	 * @param list the list to write
+	 * @param type the type of the objects in the list
+	 * @param out the stream to write to
+	 * @param <T> the type of the objects in the list
+	 * @throws IOException if the list cannot be written
+	 */
+	public <T> void encode(PagedList<T> list, Class<T> type, OutputStream out) throws IOException {
+		ObjectWriter pagingWriter = objectMapper.writerFor(PagingParameters.class);
+		ObjectWriter elementWriter = objectMapper.writerFor(type).with(includeRawJson ? WITH_RAW_JSON : WITHOUT_RAW_JSON);
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+		try {
+			generator.writeStartObject();
+			if (list.getTotalCount() != null) {
+				generator.writeNumberField("totalCount", list.getTotalCount());
+			}
+			if (list.getPreviousPage() != null) {
+				generator.writeFieldName("previousPage");
+				pagingWriter.writeValue(generator, list.getPreviousPage());
+			}
+			if (list.getNextPage() != null) {
+				generator.writeFieldName("nextPage");
+				pagingWriter.writeValue(generator, list.getNextPage());
+			}
+			generator.writeArrayFieldStart("data");
+			for (T element : list) {
+				LazyObjectBinder.bindFully(element);
+				elementWriter.writeValue(generator, element);
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		} finally {
+			generator.close();
+		}
+	}
+
+	/**
+	 * Reads a list written by {@link #encode(PagedList, Class)}.
+	 * @param data the encoded list
+	 * @param type the type of the objects in the list
+	 * @param <T> the type of the objects in the list
+	 * @return the list
+	 * @throws IOException if the data isn't an encoded list of the given type
+	 */
+	public <T> PagedList<T> decode(byte[] data, Class<T> type) throws IOException {
+		return decode(objectMapper.getFactory().createParser(data), type);
+	}
+
+	/**
+	 * Reads a list written by {@link #encode(PagedList, Class, OutputStream)} from a stream, which is left open.
+	 * @param in the stream to read from
+	 * @param type the type of the objects in the list
+	 * @param <T> the type of the objects in the list
+	 * @return the list
+	 * @throws IOException if the stream doesn't hold an encoded list of the given type
+	 */
+	public <T> PagedList<T> decode(InputStream in, Class<T> type) throws IOException {
+		JsonParser parser = objectMapper.getFactory().createParser(in);
+		parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		return decode(parser, type);
+	}
+
+	private <T> PagedList<T> decode(JsonParser parser, Class<T> type) throws IOException {
+		ObjectReader pagingReader = objectMapper.readerFor(PagingParameters.class);
+		ObjectReader elementReader = objectMapper.readerFor(type);
+		try {
+			expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+			Integer totalCount = null;
+			PagingParameters previousPage = null;
+			PagingParameters nextPage = null;
+			List<T> data = new ArrayList<T>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ("totalCount".equals(fieldName)) {
+					totalCount = parser.getIntValue();
+				} else if ("previousPage".equals(fieldName)) {
+					previousPage = pagingReader.readValue(parser);
+				} else if ("nextPage".equals(fieldName)) {
+					nextPage = pagingReader.readValue(parser);
+				} else if ("data".equals(fieldName)) {
+					expect(parser, token, JsonToken.START_ARRAY);
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						data.add(elementReader.<T>readValue(parser));
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+			return new PagedList<T>(data, previousPage, nextPage, totalCount);
+		} finally {
+			parser.close();
+		}
+	}
+
+	private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws IOException {
+		if (token != expected) {
+			throw new IOException("Not an encoded PagedList: expected " + expected + " but found " + token + " at " + parser.getCurrentLocation());
+		}
+	}
+
+	private static ObjectMapper createObjectMapper(JsonFactory factory) {
+		ObjectMapper objectMapper = new ObjectMapper(factory);
+		objectMapper.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
+		objectMapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+		objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		objectMapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+		objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		objectMapper.setFilterProvider(WITHOUT_RAW_JSON);
+		SimpleModule module = new SimpleModule("PagedListCodec") {
+			private static final long serialVersionUID = 1L;
+			@Override
+			public void setupModule(SetupContext context) {
+				super.setupModule(context);
+				context.setMixInAnnotations(FacebookObject.class, FacebookObjectCodecMixin.class);
+				context.addValueInstantiators(new FieldStateInstantiators());
+			}
+		};
+		objectMapper.registerModule(module);
+		return objectMapper;
+	}
+
+	@JsonFilter(RAW_JSON_FILTER)
+	private static abstract class FacebookObjectCodecMixin {
+	}
+
+	// objects are read field by field, so types without a no-argument constructor (such as PagingParameters) are created without calling a constructor
+	private static class FieldStateInstantiators extends ValueInstantiators.Base {
+
+		private static final Objenesis OBJENESIS = new SpringObjenesis();
+
+		@Override
+		public ValueInstantiator findValueInstantiator(DeserializationConfig config, BeanDescription beanDesc, ValueInstantiator defaultInstantiator) {
+			final Class<?> type = beanDesc.getBeanClass();
+			if (defaultInstantiator.canCreateUsingDefault() || type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+				return defaultInstantiator;
+			}
+			return new ValueInstantiator.Base(type) {
+				@Override
+				public boolean canCreateUsingDefault() {
+					return true;
+				}
+
+				@Override
+				public Object createUsingDefault(DeserializationContext ctxt) {
+					return OBJENESIS.newInstance(type);
+				}
+			};
+		}
+
+	}
+
+	private static JsonFactory createSmileFactory() {
+		if (!SMILE_AVAILABLE) {
+			throw new IllegalStateException("The Smile format requires com.fasterxml.jackson.dataformat:jackson-dataformat-smile on the classpath");
+		}
+		return SmileFactoryCreator.create();
+	}
+
+	private static class SmileFactoryCreator {
+
+		static JsonFactory create() {
+			SmileFactory factory = new SmileFactory();
+			factory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+			return factory;
+		}
+
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.IOException;
+
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.social.facebook.api.PagedList;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResponseExtractor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * {@link ResponseExtractor} that binds a Graph API connection response to a {@link PagedList} straight from the response stream,
+ * without first reading the response into a tree.
+ */
+class PagedListResponseExtractor<T> implements ResponseExtractor<PagedList<T>> {
+
+	private final ObjectMapper objectMapper;
+
+	private final ObjectReader listReader;
+
+	private final LazyObjectBinder<T> lazyObjectBinder;
+
+	public PagedListResponseExtractor(ObjectMapper objectMapper, ObjectReader listReader) {
+		this.objectMapper = objectMapper;
+		this.listReader = listReader;
+		this.lazyObjectBinder = null;
+	}
+
+	public PagedListResponseExtractor(ObjectMapper objectMapper, LazyObjectBinder<T> lazyObjectBinder) {
+		this.objectMapper = objectMapper;
+		this.listReader = null;
+		this.lazyObjectBinder = lazyObjectBinder;
+	}
+
+	public PagedList<T> extractData(ClientHttpResponse response) throws IOException {
+		// lazily bound elements are views over the response bytes, so the response is read into memory first
+		byte[] json = lazyObjectBinder != null ? StreamUtils.copyToByteArray(response.getBody()) : null;
+		JsonParser parser = json != null ? objectMapper.getFactory().createParser(json) : objectMapper.getFactory().createParser(response.getBody());
+		try {
+			return lazyObjectBinder != null ? PagedListUtils.pagify(lazyObjectBinder, parser, json) : PagedListUtils.<T>pagify(listReader, parser);
+		} catch (JsonProcessingException e) {
+			throw new UncategorizedApiException("facebook", "Error deserializing data from Facebook: " + e.getMessage(), e);
+		} finally {
+			parser.close();
+		}
+	}
+
+}
@@ -18,15 +18,22 @@ package org.springframework.social.facebook.api.impl;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.type.CollectionType;
-import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptorModule;
 import org.springframework.social.UncategorizedApiException;
+import org.springframework.social.facebook.api.ConnectionPageSummary;
 import org.springframework.social.facebook.api.PagedList;
 import org.springframework.social.facebook.api.PagingParameters;
+import org.springframework.social.facebook.api.RawConnectionPage;
 import org.springframework.social.facebook.api.impl.json.FacebookModule;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -35,38 +42,155 @@ import com.fasterxml.jackson.databind.JsonNode;
 
 public class PagedListUtils {
 
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private static final ConcurrentMap<Class<?>, ObjectReader> LIST_READERS = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+	static {
+		MAPPER.registerModule(new FacebookModule());
+		MAPPER.registerModule(new JsonInterceptorModule());
+	}
+
 	public static <T> PagedList<T> pagify(Class<T> type, JsonNode jsonNode) {
 		List<T> data = deserializeDataList(jsonNode.get("data"), type);
-		if (!jsonNode.has("paging")) {
+		return pagify(data, jsonNode.get("paging"), jsonNode.get("summary"));
+	}
+
+	/**
+	 * Builds a {@link PagedList} from a Graph API connection response in a single streaming pass.
+	 * The "data" array is bound directly from the parser with the given list reader, while the
+	 * (small) "paging" and "summary" objects are read as trees.
+	 * @param listReader an {@link ObjectReader} for a {@link List} of the element type
+	 * @param parser a parser positioned before or at the start of the response object
+	 * @param <T> the element type
+	 * @return a {@link PagedList} of the elements in the response
+	 * @throws IOException if the response cannot be read
+	 */
+	public static <T> PagedList<T> pagify(ObjectReader listReader, JsonParser parser) throws IOException {
+		return pagify(parser, listReader, null, null);
+	}
+
+	/**
+	 * Builds a {@link PagedList} of lazily bound objects from a Graph API connection response in a single pass.
+	 * The elements are views over the response bytes, which they keep until they are fully bound.
+	 * @param lazyObjectBinder the binder for the element type
+	 * @param parser a parser positioned before or at the start of the response object
+	 * @param json the UTF-8 bytes of the response, read by the parser
+	 * @param <T> the element type
+	 * @return a {@link PagedList} of the elements in the response
+	 * @throws IOException if the response cannot be read
+	 */
+	static <T> PagedList<T> pagify(LazyObjectBinder<T> lazyObjectBinder, JsonParser parser, byte[] json) throws IOException {
+		return pagify(parser, null, lazyObjectBinder, json);
+	}
+
+	private static <T> PagedList<T> pagify(JsonParser parser, ObjectReader listReader, LazyObjectBinder<T> lazyObjectBinder, byte[] json) throws IOException {
+		JsonToken token = parser.getCurrentToken() != null ? parser.getCurrentToken() : parser.nextToken();
+		if (token != JsonToken.START_OBJECT) {
+			return new PagedList<T>(Collections.<T>emptyList(), null, null);
+		}
+		List<T> data = null;
+		JsonNode pagingNode = null;
+		JsonNode summaryNode = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken valueToken = parser.nextToken();
+			if ("data".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+				data = lazyObjectBinder != null ? lazyObjectBinder.readList(parser, json) : listReader.<List<T>>readValue(parser);
+			} else if ("paging".equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+				pagingNode = parser.readValueAsTree();
+			} else if ("summary".equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+				summaryNode = parser.readValueAsTree();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return pagify(data != null ? data : Collections.<T>emptyList(), pagingNode, summaryNode);
+	}
+
+	/**
+	 * Reads the paging parameters and total count of a Graph API connection response, skipping over its items without binding them.
+	 * @param parser a parser over the response body
+	 * @param body the response body, kept by the returned page
+	 * @return the response body and the paging parameters of the page
+	 * @throws IOException if the response cannot be read
+	 */
+	static RawConnectionPage rawPage(JsonParser parser, byte[] body) throws IOException {
+		JsonNode pagingNode = null;
+		JsonNode summaryNode = null;
+		try {
+			if (parser.nextToken() == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String fieldName = parser.getCurrentName();
+					JsonToken valueToken = parser.nextToken();
+					if ("paging".equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+						pagingNode = parser.readValueAsTree();
+					} else if ("summary".equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+						summaryNode = parser.readValueAsTree();
+					} else {
+						parser.skipChildren();
+					}
+				}
+			}
+		} finally {
+			parser.close();
+		}
+		PagedList<Object> page = pagify(Collections.emptyList(), pagingNode, summaryNode);
+		return new RawConnectionPage(body, page.getPreviousPage(), page.getNextPage(), page.getTotalCount());
+	}
+
+	/**
+	 * Builds the summary of a connection response whose items were handed to a callback.
+	 * @param itemCount the number of items handed to the callback
+	 * @param stopped whether the callback stopped before the last item
+	 * @param pagingNode the "paging" object of the response, or null if it wasn't read
+	 * @param summaryNode the "summary" object of the response, or null if it wasn't read
+	 * @return the summary of the response
+	 */
+	static ConnectionPageSummary summarize(int itemCount, boolean stopped, JsonNode pagingNode, JsonNode summaryNode) {
+		PagedList<Object> page = pagify(Collections.emptyList(), pagingNode, summaryNode);
+		return new ConnectionPageSummary(itemCount, stopped, page.getPreviousPage(), page.getNextPage(), page.getTotalCount());
+	}
+
+	private static <T> PagedList<T> pagify(List<T> data, JsonNode pagingNode, JsonNode summaryNode) {
+		if (pagingNode == null) {
 			return new PagedList<T>(data, null, null);
 		}
 
-		JsonNode pagingNode = jsonNode.get("paging");
 		PagingParameters previousPage = getPagedListParameters(pagingNode, "previous");
 		PagingParameters nextPage = getPagedListParameters(pagingNode, "next");
-		if (nextPage == null && previousPage == null && pagingNode != null && pagingNode.has("cursors")) {
+		if (nextPage == null && previousPage == null && pagingNode.has("cursors")) {
 			JsonNode cursorNode = pagingNode.get("cursors");
 			if (cursorNode.has("after")) {
 				nextPage = new PagingParameters(null, null, null, null,
-						cursorNode.get("after").asText(), null);;
+						cursorNode.get("after").asText(), null);
 			}
 			if (cursorNode.has("before")) {
 				previousPage = new PagingParameters(null, null, null, null,
-						null, cursorNode.get("before").asText());;
+						null, cursorNode.get("before").asText());
 			}
 		}
 
 		Integer totalCount = null;
-		if (jsonNode.has("summary")) {
-			JsonNode summaryNode = jsonNode.get("summary");
-			if (summaryNode.has("total_count")) {
-				totalCount = summaryNode.get("total_count").intValue();
-			}
+		if (summaryNode != null && summaryNode.has("total_count")) {
+			totalCount = summaryNode.get("total_count").intValue();
 		}
 
 		return new PagedList<T>(data, previousPage, nextPage, totalCount);
 	}
 
+	/**
+	 * Creates an {@link ObjectReader} that binds a JSON array to a {@link List} of the given element type.
+	 * Readers are immutable and thread-safe, so callers are expected to cache the returned reader.
+	 * @param objectMapper the mapper to derive the reader from
+	 * @param elementType the list element type
+	 * @return a reader for a list of the element type
+	 */
+	public static ObjectReader listReader(ObjectMapper objectMapper, Class<?> elementType) {
+		CollectionType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+		return objectMapper.readerFor(listType);
+	}
+
 	public static PagingParameters getPagedListParameters(JsonNode pagingNode, String pageKey) {
 		if (pagingNode == null || pagingNode.get(pageKey) == null) {
 			return null;
@@ -134,14 +258,17 @@ public class PagedListUtils {
 		return url.substring(startPos + paramName.length() + 1);
 	}
 
-	@SuppressWarnings("unchecked")
 	private static <T> List<T> deserializeDataList(JsonNode jsonNode, final Class<T> elementType) {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.registerModule(new FacebookModule());
-        mapper.registerModule(new JsonInterceptorModule());
+		if (jsonNode == null) {
+			return Collections.emptyList();
+		}
+		ObjectReader reader = LIST_READERS.get(elementType);
+		if (reader == null) {
+			reader = listReader(MAPPER, elementType);
+			LIST_READERS.putIfAbsent(elementType, reader);
+		}
 		try {
-			CollectionType listType = TypeFactory.defaultInstance().constructCollectionType(List.class, elementType);
-			return (List<T>) mapper.readerFor(listType).readValue(jsonNode.toString());
+			return reader.readValue(reader.treeAsTokens(jsonNode));
 		} catch (IOException e) {
 			throw new UncategorizedApiException("facebook", "Error deserializing data from Facebook: " + e.getMessage(), e);
 		}
@@ -0,0 +1,531 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.springframework.social.RateLimitExceededException;
+import org.springframework.social.ServerException;
+import org.springframework.social.facebook.api.BindingMode;
+import org.springframework.social.facebook.api.ConnectionPageSummary;
+import org.springframework.social.facebook.api.ConnectionStreamOptions;
+import org.springframework.social.facebook.api.FacebookError;
+import org.springframework.social.facebook.api.FacebookErrorException;
+import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.GraphBatch;
+import org.springframework.social.facebook.api.GraphQuery;
+import org.springframework.social.facebook.api.ImageType;
+import org.springframework.social.facebook.api.ObjectsById;
+import org.springframework.social.facebook.api.PagedList;
+import org.springframework.social.facebook.api.RawConnectionPage;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * <p>{@link GraphApi} decorator that retries operations failing with transient errors: Facebook service errors ({@link ServerException}),
+ * errors Facebook flags as transient ({@link FacebookError#isTransient()}), HTTP 5xx responses without a Graph API error and I/O errors
+ * such as timeouts. Rate limit errors ({@link RateLimitExceededException}) are never retried: Facebook's limits last from minutes to
+ * an hour, every retry counts against them, and {@link UsageThrottlingInterceptor} raises them on purpose to fail fast.</p>
+ * <p>
+ * Reads ({@link #fetchObject(String, Class)}, {@link #fetchConnections(String, String, Class, String...)}, {@link #fetchObjects(Collection, Class, String...)},
+ * their raw variants and the byte array variants of {@link #fetchImage(String, String, ImageType)}) are retried. Writes ({@code publish}, {@code post} and {@code delete})
+ * are only retried through the view returned by {@link #idempotent()}, for writes that are safe to repeat.
+ * Streaming operations, which may already have handed data to the caller when they fail, and batches are never retried.
+ * </p>
+ * <p>
+ * Retries are delayed with exponential backoff and jitter. A retry budget, shared by this decorator and its idempotent view, stops retrying
+ * when most operations fail, so that an outage isn't made worse by a multiplied request volume: every retry takes a token from the budget,
+ * every successful operation puts back a fraction of a token, and no retries are made while the budget is less than half full.
+ * </p>
+ */
+public class RetryingGraphApi implements GraphApi {
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	public static final long DEFAULT_INITIAL_BACKOFF = 200;
+
+	public static final long DEFAULT_MAX_BACKOFF = 10000;
+
+	public static final double DEFAULT_BACKOFF_MULTIPLIER = 2.0;
+
+	public static final double DEFAULT_JITTER = 0.5;
+
+	public static final int DEFAULT_RETRY_BUDGET = 10;
+
+	public static final double DEFAULT_RETRY_BUDGET_REFILL = 0.1;
+
+	private final GraphApi target;
+
+	private final Retrier retrier;
+
+	private final boolean retryWrites;
+
+	/**
+	 * Creates a retrying decorator for the given Graph API.
+	 * @param target the Graph API to decorate, typically a {@link FacebookTemplate}
+	 */
+	public RetryingGraphApi(GraphApi target) {
+		this.target = target;
+		this.retrier = new Retrier();
+		this.retryWrites = false;
+	}
+
+	private RetryingGraphApi(GraphApi target, Retrier retrier, boolean retryWrites) {
+		this.target = target;
+		this.retrier = retrier;
+		this.retryWrites = retryWrites;
+	}
+
+	/**
+	 * Returns a view of this decorator that also retries writes. Use it for writes that Facebook can safely apply more than once,
+	 * since a write that failed with a timeout or a server error may still have been applied.
+	 * The view shares this decorator's settings, retry budget and metrics.
+	 * @return a Graph API that retries reads and writes
+	 */
+	public GraphApi idempotent() {
+		return retryWrites ? this : new RetryingGraphApi(target, retrier, true);
+	}
+
+	/**
+	 * @param maxAttempts the maximum number of times an operation is attempted, including the first attempt. Default is {@link #DEFAULT_MAX_ATTEMPTS}.
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("The maximum number of attempts must be at least 1");
+		}
+		retrier.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Sets the delays between attempts. The first retry is delayed by the initial backoff, and each further retry by the previous
+	 * delay times the multiplier, up to the maximum backoff.
+	 * @param initialBackoff the delay before the first retry, in milliseconds. Default is {@link #DEFAULT_INITIAL_BACKOFF}.
+	 * @param multiplier the factor by which the delay grows with every retry. Default is {@link #DEFAULT_BACKOFF_MULTIPLIER}.
+	 * @param maxBackoff the longest delay between two attempts, in milliseconds. Default is {@link #DEFAULT_MAX_BACKOFF}.
+	 */
+	public void setBackoff(long initialBackoff, double multiplier, long maxBackoff) {
+		if (initialBackoff < 0 || multiplier < 1.0 || maxBackoff < initialBackoff) {
+			throw new IllegalArgumentException("Invalid backoff: initial " + initialBackoff + "ms, multiplier " + multiplier + ", maximum " + maxBackoff + "ms");
+		}
+		retrier.initialBackoff = initialBackoff;
+		retrier.multiplier = multiplier;
+		retrier.maxBackoff = maxBackoff;
+	}
+
+	/**
+	 * Sets how much of each delay is randomized, so that clients that failed together don't all retry at the same time.
+	 * @param jitter the fraction of the delay that may be taken off at random, between 0 (no jitter) and 1. Default is {@link #DEFAULT_JITTER}.
+	 */
+	public void setJitter(double jitter) {
+		if (jitter < 0 || jitter > 1) {
+			throw new IllegalArgumentException("The jitter must be between 0 and 1");
+		}
+		retrier.jitter = jitter;
+	}
+
+	/**
+	 * Sets the retry budget.
+	 * @param maxTokens the size of the budget, in retries. The budget starts full. Default is {@link #DEFAULT_RETRY_BUDGET}.
+	 * @param refill the fraction of a retry put back into the budget by each successful operation. Default is {@link #DEFAULT_RETRY_BUDGET_REFILL}.
+	 */
+	public void setRetryBudget(int maxTokens, double refill) {
+		if (maxTokens < 1 || refill < 0) {
+			throw new IllegalArgumentException("Invalid retry budget: " + maxTokens + " tokens, refill " + refill);
+		}
+		retrier.budget = new RetryBudget(maxTokens, refill);
+	}
+
+	/**
+	 * @return the number of operations performed, not counting retries.
+	 */
+	public long getOperationCount() {
+		return retrier.operations.get();
+	}
+
+	/**
+	 * @return the number of retries made.
+	 */
+	public long getRetryCount() {
+		return retrier.retries.get();
+	}
+
+	/**
+	 * @return the number of operations that succeeded after one or more retries.
+	 */
+	public long getRecoveredCount() {
+		return retrier.recovered.get();
+	}
+
+	/**
+	 * @return the number of operations that failed with a transient error after the maximum number of attempts.
+	 */
+	public long getExhaustedCount() {
+		return retrier.exhausted.get();
+	}
+
+	/**
+	 * @return the number of transient errors that were not retried because the retry budget was spent.
+	 */
+	public long getBudgetRejectedCount() {
+		return retrier.budgetRejected.get();
+	}
+
+	// reads
+
+	public <T> T fetchObject(final String objectId, final Class<T> type) {
+		return retrier.execute(new Attempt<T>() {
+			public T run() {
+				return target.fetchObject(objectId, type);
+			}
+		}, true);
+	}
+
+	public <T> T fetchObject(final String objectId, final Class<T> type, final String... fields) {
+		return retrier.execute(new Attempt<T>() {
+			public T run() {
+				return target.fetchObject(objectId, type, fields);
+			}
+		}, true);
+	}
+
+	public <T> T fetchObject(final String objectId, final Class<T> type, final MultiValueMap<String, String> queryParameters) {
+		return retrier.execute(new Attempt<T>() {
+			public T run() {
+				return target.fetchObject(objectId, type, queryParameters);
+			}
+		}, true);
+	}
+
+	public <T> T fetchObject(final String objectId, final GraphQuery<T> query) {
+		return retrier.execute(new Attempt<T>() {
+			public T run() {
+				return target.fetchObject(objectId, query);
+			}
+		}, true);
+	}
+
+	public byte[] fetchRawObject(final String objectId, final MultiValueMap<String, String> queryParameters) {
+		return retrier.execute(new Attempt<byte[]>() {
+			public byte[] run() {
+				return target.fetchRawObject(objectId, queryParameters);
+			}
+		}, true);
+	}
+
+	public <T> ObjectsById<T> fetchObjects(final Collection<String> objectIds, final Class<T> type, final String... fields) {
+		return retrier.execute(new Attempt<ObjectsById<T>>() {
+			public ObjectsById<T> run() {
+				return target.fetchObjects(objectIds, type, fields);
+			}
+		}, true);
+	}
+
+	public <T> PagedList<T> fetchConnections(final String objectId, final String connectionName, final Class<T> type, final String... fields) {
+		return retrier.execute(new Attempt<PagedList<T>>() {
+			public PagedList<T> run() {
+				return target.fetchConnections(objectId, connectionName, type, fields);
+			}
+		}, true);
+	}
+
+	public <T> PagedList<T> fetchConnections(final String objectId, final String connectionName, final Class<T> type, final MultiValueMap<String, String> queryParameters) {
+		return retrier.execute(new Attempt<PagedList<T>>() {
+			public PagedList<T> run() {
+				return target.fetchConnections(objectId, connectionName, type, queryParameters);
+			}
+		}, true);
+	}
+
+	public <T> PagedList<T> fetchConnections(final String objectId, final String connectionName, final Class<T> type, final MultiValueMap<String, String> queryParameters, final String... fields) {
+		return retrier.execute(new Attempt<PagedList<T>>() {
+			public PagedList<T> run() {
+				return target.fetchConnections(objectId, connectionName, type, queryParameters, fields);
+			}
+		}, true);
+	}
+
+	public <T> PagedList<T> fetchConnections(final String objectId, final String connectionName, final Class<T> type, final MultiValueMap<String, String> queryParameters, final BindingMode bindingMode, final String... fields) {
+		return retrier.execute(new Attempt<PagedList<T>>() {
+			public PagedList<T> run() {
+				return target.fetchConnections(objectId, connectionName, type, queryParameters, bindingMode, fields);
+			}
+		}, true);
+	}
+
+	public <T> PagedList<T> fetchConnections(final String objectId, final String connectionName, final GraphQuery<T> query, final MultiValueMap<String, String> queryParameters) {
+		return retrier.execute(new Attempt<PagedList<T>>() {
+			public PagedList<T> run() {
+				return target.fetchConnections(objectId, connectionName, query, queryParameters);
+			}
+		}, true);
+	}
+
+	public RawConnectionPage fetchRawConnections(final String objectId, final String connectionName, final MultiValueMap<String, String> queryParameters) {
+		return retrier.execute(new Attempt<RawConnectionPage>() {
+			public RawConnectionPage run() {
+				return target.fetchRawConnections(objectId, connectionName, queryParameters);
+			}
+		}, true);
+	}
+
+	public byte[] fetchImage(final String objectId, final String connectionName, final ImageType imageType) {
+		return retrier.execute(new Attempt<byte[]>() {
+			public byte[] run() {
+				return target.fetchImage(objectId, connectionName, imageType);
+			}
+		}, true);
+	}
+
+	public byte[] fetchImage(final String objectId, final String connectionName, final Integer width, final Integer height) {
+		return retrier.execute(new Attempt<byte[]>() {
+			public byte[] run() {
+				return target.fetchImage(objectId, connectionName, width, height);
+			}
+		}, true);
+	}
+
+	// streaming reads, not retried
+
+	public <T> Stream<T> streamConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters) {
+		return target.streamConnections(objectId, connectionName, type, queryParameters);
+	}
+
+	public <T> Stream<T> streamConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters, ConnectionStreamOptions options) {
+		return target.streamConnections(objectId, connectionName, type, queryParameters, options);
+	}
+
+	public <T> ConnectionPageSummary forEachConnection(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters, Predicate<? super T> callback) {
+		return target.forEachConnection(objectId, connectionName, type, queryParameters, callback);
+	}
+
+	public long fetchImage(String objectId, String connectionName, ImageType imageType, OutputStream out) {
+		return target.fetchImage(objectId, connectionName, imageType, out);
+	}
+
+	public long fetchImage(String objectId, String connectionName, Integer width, Integer height, OutputStream out) {
+		return target.fetchImage(objectId, connectionName, width, height, out);
+	}
+
+	public long fetchImage(String objectId, String connectionName, ImageType imageType, WritableByteChannel channel) {
+		return target.fetchImage(objectId, connectionName, imageType, channel);
+	}
+
+	public long fetchImage(String objectId, String connectionName, Integer width, Integer height, WritableByteChannel channel) {
+		return target.fetchImage(objectId, connectionName, width, height, channel);
+	}
+
+	// writes, retried only through the idempotent view
+
+	public String publish(final String objectId, final String connectionName, final MultiValueMap<String, Object> data) {
+		return retrier.execute(new Attempt<String>() {
+			public String run() {
+				return target.publish(objectId, connectionName, data);
+			}
+		}, retryWrites);
+	}
+
+	public void post(final String objectId, final MultiValueMap<String, Object> data) {
+		retrier.execute(new Attempt<Void>() {
+			public Void run() {
+				target.post(objectId, data);
+				return null;
+			}
+		}, retryWrites);
+	}
+
+	public void post(final String objectId, final String connectionName, final MultiValueMap<String, Object> data) {
+		retrier.execute(new Attempt<Void>() {
+			public Void run() {
+				target.post(objectId, connectionName, data);
+				return null;
+			}
+		}, retryWrites);
+	}
+
+	public void delete(final String objectId) {
+		retrier.execute(new Attempt<Void>() {
+			public Void run() {
+				target.delete(objectId);
+				return null;
+			}
+		}, retryWrites);
+	}
+
+	public void delete(final String objectId, final String connectionName) {
+		retrier.execute(new Attempt<Void>() {
+			public Void run() {
+				target.delete(objectId, connectionName);
+				return null;
+			}
+		}, retryWrites);
+	}
+
+	public void delete(final String objectId, final String connectionName, final MultiValueMap<String, String> data) {
+		retrier.execute(new Attempt<Void>() {
+			public Void run() {
+				target.delete(objectId, connectionName, data);
+				return null;
+			}
+		}, retryWrites);
+	}
+
+	public GraphBatch batch() {
+		return target.batch();
+	}
+
+	public String getApplicationNamespace() {
+		return target.getApplicationNamespace();
+	}
+
+	public String getBaseGraphApiUrl() {
+		return target.getBaseGraphApiUrl();
+	}
+
+	/**
+	 * Determines whether an operation that failed with the given exception may succeed if attempted again.
+	 * @param e the exception the operation failed with
+	 * @return true if the operation should be retried
+	 */
+	protected boolean isTransient(RuntimeException e) {
+		if (e instanceof RateLimitExceededException) {
+			// Facebook may flag rate limit errors as transient, but they don't clear within the backoff
+			return false;
+		}
+		return e instanceof ServerException
+				|| e instanceof HttpServerErrorException
+				|| e instanceof ResourceAccessException
+				|| isTransientFacebookError(e);
+	}
+
+	private static boolean isTransientFacebookError(RuntimeException e) {
+		FacebookError error = FacebookErrorException.findError(e);
+		return error != null && error.isTransient();
+	}
+
+	/**
+	 * Waits before an operation is retried.
+	 * @param millis the time to wait in milliseconds
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	protected void pause(long millis) throws InterruptedException {
+		Thread.sleep(millis);
+	}
+
+	private interface Attempt<T> {
+		T run();
+	}
+
+	// the settings, budget and metrics shared by a decorator and its idempotent view
+	private class Retrier {
+
+		volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+		volatile long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+
+		volatile double multiplier = DEFAULT_BACKOFF_MULTIPLIER;
+
+		volatile long maxBackoff = DEFAULT_MAX_BACKOFF;
+
+		volatile double jitter = DEFAULT_JITTER;
+
+		volatile RetryBudget budget = new RetryBudget(DEFAULT_RETRY_BUDGET, DEFAULT_RETRY_BUDGET_REFILL);
+
+		final AtomicLong operations = new AtomicLong();
+
+		final AtomicLong retries = new AtomicLong();
+
+		final AtomicLong recovered = new AtomicLong();
+
+		final AtomicLong exhausted = new AtomicLong();
+
+		final AtomicLong budgetRejected = new AtomicLong();
+
+		<T> T execute(Attempt<T> attempt, boolean retryable) {
+			operations.incrementAndGet();
+			long backoff = initialBackoff;
+			for (int attempts = 1; ; attempts++) {
+				try {
+					T result = attempt.run();
+					budget.succeeded();
+					if (attempts > 1) {
+						recovered.incrementAndGet();
+					}
+					return result;
+				} catch (RuntimeException e) {
+					if (!retryable || !isTransient(e)) {
+						throw e;
+					}
+					if (attempts >= maxAttempts) {
+						exhausted.incrementAndGet();
+						throw e;
+					}
+					if (!budget.tryRetry()) {
+						budgetRejected.incrementAndGet();
+						throw e;
+					}
+					retries.incrementAndGet();
+					long delay = backoff - (long) (backoff * jitter * ThreadLocalRandom.current().nextDouble());
+					if (delay > 0) {
+						try {
+							pause(delay);
+						} catch (InterruptedException interrupted) {
+							Thread.currentThread().interrupt();
+							throw e;
+						}
+					}
+					backoff = Math.min(maxBackoff, (long) (backoff * multiplier));
+				}
+			}
+		}
+
+	}
+
+	private static class RetryBudget {
+
+		private final double maxTokens;
+
+		private final double refill;
+
+		private double tokens;
+
+		RetryBudget(int maxTokens, double refill) {
+			this.maxTokens = maxTokens;
+			this.refill = refill;
+			this.tokens = maxTokens;
+		}
+
+		synchronized void succeeded() {
+			tokens = Math.min(maxTokens, tokens + refill);
+		}
+
+		synchronized boolean tryRetry() {
+			if (tokens - 1 < maxTokens / 2) {
+				return false;
+			}
+			tokens -= 1;
+			return true;
+		}
+
+	}
+
+}
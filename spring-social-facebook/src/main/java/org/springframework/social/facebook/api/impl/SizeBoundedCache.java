@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * In-memory {@link Cache} that evicts its least recently used entries once the total size of its entries exceeds a maximum.
+ * The size of an entry is given by {@link #sizeOf(Object, Object)}, which counts every entry as 1 unless overridden.
+ * Null values are not stored.
+ */
+class SizeBoundedCache implements Cache {
+
+	private final String name;
+
+	private final long maxSize;
+
+	private final LinkedHashMap<Object, Object> store = new LinkedHashMap<Object, Object>(16, 0.75f, true);
+
+	private long size;
+
+	public SizeBoundedCache(String name, long maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("The maximum size must be positive");
+		}
+		this.name = name;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the size of an entry, counted against the maximum size of the cache.
+	 */
+	protected long sizeOf(Object key, Object value) {
+		return 1;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Object getNativeCache() {
+		return store;
+	}
+
+	public synchronized ValueWrapper get(Object key) {
+		Object value = store.get(key);
+		return value != null ? new SimpleValueWrapper(value) : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public synchronized <T> T get(Object key, Class<T> type) {
+		Object value = store.get(key);
+		if (value != null && type != null && !type.isInstance(value)) {
+			throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+		}
+		return (T) value;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		synchronized (this) {
+			Object value = store.get(key);
+			if (value != null) {
+				return (T) value;
+			}
+		}
+		T value;
+		try {
+			value = valueLoader.call();
+		} catch (Exception e) {
+			throw new ValueRetrievalException(key, valueLoader, e);
+		}
+		put(key, value);
+		return value;
+	}
+
+	public synchronized void put(Object key, Object value) {
+		if (value == null) {
+			evict(key);
+			return;
+		}
+		long entrySize = sizeOf(key, value);
+		if (entrySize > maxSize) {
+			// would evict everything else and still not fit
+			evict(key);
+			return;
+		}
+		Object previous = store.put(key, value);
+		if (previous != null) {
+			size -= sizeOf(key, previous);
+		}
+		size += entrySize;
+		for (Iterator<Map.Entry<Object, Object>> iterator = store.entrySet().iterator(); size > maxSize && iterator.hasNext();) {
+			Map.Entry<Object, Object> eldest = iterator.next();
+			size -= sizeOf(eldest.getKey(), eldest.getValue());
+			iterator.remove();
+		}
+	}
+
+	public synchronized ValueWrapper putIfAbsent(Object key, Object value) {
+		Object existing = store.get(key);
+		if (existing != null) {
+			return new SimpleValueWrapper(existing);
+		}
+		put(key, value);
+		return null;
+	}
+
+	public synchronized void evict(Object key) {
+		Object previous = store.remove(key);
+		if (previous != null) {
+			size -= sizeOf(key, previous);
+		}
+	}
+
+	public synchronized void clear() {
+		store.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return the total size of the entries in the cache.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+}
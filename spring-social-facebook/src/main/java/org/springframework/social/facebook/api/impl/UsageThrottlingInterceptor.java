@@ -0,0 +1,387 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.social.RateLimitExceededException;
+import org.springframework.social.facebook.api.ApiUsage;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>Slows requests down before Facebook's rate limits are reached, based on the usage Facebook reports in the X-App-Usage,
+ * X-Page-Usage and X-Business-Use-Case-Usage headers of every response.</p>
+ * <p>
+ * The usage is tracked per application, per access token (page usage is reported for the page whose token made the request) and
+ * per business; the usage of the 10000 most recently used access tokens is kept. Before a request is sent, the highest usage that applies to its access token is compared with the throttle threshold:
+ * below the threshold the request is sent right away; above it the request is delayed by up to the maximum delay, in proportion to
+ * how close the usage is to the limit. Once a limit is reached, or while Facebook reports an estimated time to regain access, requests
+ * fail with {@link RateLimitExceededException} without being sent, since Facebook would reject them anyway and count them against the
+ * application. Because Facebook's limits apply to a rolling one-hour window, a reported usage is assumed to decrease linearly over
+ * the hour after it was reported until a newer response reports it again.
+ * </p>
+ * <p>
+ * To be effective, one instance should be shared by all the templates that use the same application's access tokens, as is done by
+ * {@link FacebookClientFactory}. Synchronous requests are delayed on the calling thread; asynchronous requests are scheduled to
+ * be sent after the delay without blocking.
+ * </p>
+ */
+public class UsageThrottlingInterceptor implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor {
+
+	public static final int DEFAULT_THROTTLE_THRESHOLD = 75;
+
+	public static final long DEFAULT_MAX_DELAY = 5000;
+
+	static final String APP_USAGE_HEADER = "X-App-Usage";
+
+	static final String PAGE_USAGE_HEADER = "X-Page-Usage";
+
+	static final String BUSINESS_USE_CASE_USAGE_HEADER = "X-Business-Use-Case-Usage";
+
+	private static final long USAGE_WINDOW = TimeUnit.HOURS.toMillis(1);
+
+	private static final int MAX_TRACKED_TOKENS = 10000;
+
+	private static final ObjectMapper USAGE_MAPPER = new ObjectMapper();
+
+	private volatile Observation appUsage;
+
+	// least recently used tokens are forgotten first
+	@SuppressWarnings("serial")
+	private final Map<String, TokenUsage> tokenUsage = Collections.synchronizedMap(new LinkedHashMap<String, TokenUsage>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, TokenUsage> eldest) {
+			return size() > MAX_TRACKED_TOKENS;
+		}
+	});
+
+	private final ConcurrentMap<String, List<Observation>> businessUsage = new ConcurrentHashMap<String, List<Observation>>();
+
+	private volatile int throttleThreshold = DEFAULT_THROTTLE_THRESHOLD;
+
+	private volatile long maxDelay = DEFAULT_MAX_DELAY;
+
+	/**
+	 * Sets the usage percentage above which requests are delayed.
+	 * @param throttleThreshold the usage percentage, between 0 and 100. Default is {@link #DEFAULT_THROTTLE_THRESHOLD}.
+	 */
+	public void setThrottleThreshold(int throttleThreshold) {
+		if (throttleThreshold < 0 || throttleThreshold > 100) {
+			throw new IllegalArgumentException("The throttle threshold must be a percentage between 0 and 100");
+		}
+		this.throttleThreshold = throttleThreshold;
+	}
+
+	/**
+	 * Sets the delay of requests made just below the rate limit. Requests made at lower usages are delayed proportionally less.
+	 * @param maxDelay the maximum delay in milliseconds. Default is {@link #DEFAULT_MAX_DELAY}.
+	 */
+	public void setMaxDelay(long maxDelay) {
+		if (maxDelay < 0) {
+			throw new IllegalArgumentException("The maximum delay must not be negative");
+		}
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 * @return the application usage last reported in an X-App-Usage header, or null if none has been reported.
+	 */
+	public ApiUsage getAppUsage() {
+		Observation observation = appUsage;
+		return observation != null ? observation.usage : null;
+	}
+
+	/**
+	 * @param accessToken a page access token
+	 * @return the page usage last reported in an X-Page-Usage header for requests made with the access token, or null if none has been reported.
+	 */
+	public ApiUsage getPageUsage(String accessToken) {
+		TokenUsage usage = tokenUsage.get(accessToken);
+		Observation observation = usage != null ? usage.pageUsage : null;
+		return observation != null ? observation.usage : null;
+	}
+
+	/**
+	 * @return the business use case usages last reported in X-Business-Use-Case-Usage headers, keyed by business ID.
+	 */
+	public Map<String, List<ApiUsage>> getBusinessUseCaseUsage() {
+		Map<String, List<ApiUsage>> usages = new LinkedHashMap<String, List<ApiUsage>>();
+		for (Map.Entry<String, List<Observation>> entry : businessUsage.entrySet()) {
+			List<ApiUsage> businessUsages = new ArrayList<ApiUsage>(entry.getValue().size());
+			for (Observation observation : entry.getValue()) {
+				businessUsages.add(observation.usage);
+			}
+			usages.put(entry.getKey(), businessUsages);
+		}
+		return Collections.unmodifiableMap(usages);
+	}
+
+	/**
+	 * The usage percentage that requests made with the given access token are currently throttled by:
+	 * the highest of the application's usage, the token's page usage and the usages of the businesses the token has made requests for,
+	 * each decreased by the time elapsed since it was reported.
+	 * @param accessToken the access token. May be null to only take the application usage into account.
+	 * @return the usage percentage
+	 */
+	public int getEffectiveUsage(String accessToken) {
+		long now = System.currentTimeMillis();
+		int percentage = 0;
+		for (Observation observation : observationsFor(accessToken)) {
+			percentage = Math.max(percentage, observation.percentageAt(now));
+		}
+		return percentage;
+	}
+
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		String accessToken = getAccessToken(request);
+		long delay = getDelay(accessToken);
+		if (delay > 0) {
+			pause(delay);
+		}
+		ClientHttpResponse response = execution.execute(request, body);
+		recordUsage(accessToken, response.getHeaders());
+		return response;
+	}
+
+	public ListenableFuture<ClientHttpResponse> intercept(final HttpRequest request, final byte[] body, final AsyncClientHttpRequestExecution execution) throws IOException {
+		final String accessToken = getAccessToken(request);
+		long delay = getDelay(accessToken);
+		if (delay == 0) {
+			return recordingUsage(accessToken, execution.executeAsync(request, body));
+		}
+		final SettableListenableFuture<ClientHttpResponse> delayed = new SettableListenableFuture<ClientHttpResponse>();
+		DelaySchedulerHolder.SCHEDULER.schedule(new Runnable() {
+			public void run() {
+				try {
+					recordingUsage(accessToken, execution.executeAsync(request, body)).addCallback(new ListenableFutureCallback<ClientHttpResponse>() {
+						public void onSuccess(ClientHttpResponse response) {
+							delayed.set(response);
+						}
+						public void onFailure(Throwable ex) {
+							delayed.setException(ex);
+						}
+					});
+				} catch (Throwable ex) {
+					delayed.setException(ex);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+		return delayed;
+	}
+
+	/**
+	 * Waits before a synchronous request is sent.
+	 * @param millis the time to wait in milliseconds
+	 * @throws InterruptedIOException if the thread is interrupted while waiting
+	 */
+	protected void pause(long millis) throws InterruptedIOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while throttling a request to Facebook");
+		}
+	}
+
+	// private helpers
+
+	private long getDelay(String accessToken) {
+		long now = System.currentTimeMillis();
+		int percentage = 0;
+		for (Observation observation : observationsFor(accessToken)) {
+			if (now < observation.regainAccessAt) {
+				throw new RateLimitExceededException("facebook");
+			}
+			percentage = Math.max(percentage, observation.percentageAt(now));
+		}
+		if (percentage >= 100) {
+			throw new RateLimitExceededException("facebook");
+		}
+		int threshold = throttleThreshold;
+		if (percentage <= threshold) {
+			return 0;
+		}
+		return maxDelay * (percentage - threshold) / (100 - threshold);
+	}
+
+	private List<Observation> observationsFor(String accessToken) {
+		List<Observation> observations = new ArrayList<Observation>();
+		Observation app = appUsage;
+		if (app != null) {
+			observations.add(app);
+		}
+		TokenUsage usage = accessToken != null ? tokenUsage.get(accessToken) : null;
+		if (usage != null) {
+			Observation page = usage.pageUsage;
+			if (page != null) {
+				observations.add(page);
+			}
+			for (String businessId : usage.businessIds) {
+				List<Observation> business = businessUsage.get(businessId);
+				if (business != null) {
+					observations.addAll(business);
+				}
+			}
+		}
+		return observations;
+	}
+
+	private ListenableFuture<ClientHttpResponse> recordingUsage(final String accessToken, ListenableFuture<ClientHttpResponse> future) {
+		future.addCallback(new ListenableFutureCallback<ClientHttpResponse>() {
+			public void onSuccess(ClientHttpResponse response) {
+				recordUsage(accessToken, response.getHeaders());
+			}
+			public void onFailure(Throwable ex) {
+			}
+		});
+		return future;
+	}
+
+	void recordUsage(String accessToken, HttpHeaders headers) {
+		long now = System.currentTimeMillis();
+		JsonNode app = readHeader(headers, APP_USAGE_HEADER);
+		if (app != null) {
+			appUsage = new Observation(toUsage(null, app), now);
+		}
+		JsonNode page = readHeader(headers, PAGE_USAGE_HEADER);
+		if (page != null && accessToken != null) {
+			getTokenUsage(accessToken).pageUsage = new Observation(toUsage(null, page), now);
+		}
+		JsonNode businesses = readHeader(headers, BUSINESS_USE_CASE_USAGE_HEADER);
+		if (businesses != null) {
+			Iterator<Map.Entry<String, JsonNode>> fields = businesses.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> business = fields.next();
+				List<Observation> observations = new ArrayList<Observation>();
+				for (JsonNode useCase : business.getValue()) {
+					observations.add(new Observation(toUsage(useCase.path("type").asText(null), useCase), now));
+				}
+				businessUsage.put(business.getKey(), observations);
+				if (accessToken != null) {
+					getTokenUsage(accessToken).businessIds.add(business.getKey());
+				}
+			}
+		}
+	}
+
+	private TokenUsage getTokenUsage(String accessToken) {
+		synchronized (tokenUsage) {
+			TokenUsage usage = tokenUsage.get(accessToken);
+			if (usage == null) {
+				usage = new TokenUsage();
+				tokenUsage.put(accessToken, usage);
+			}
+			return usage;
+		}
+	}
+
+	private static JsonNode readHeader(HttpHeaders headers, String name) {
+		String value = headers.getFirst(name);
+		if (value == null) {
+			return null;
+		}
+		try {
+			JsonNode node = USAGE_MAPPER.readTree(value);
+			return node != null && node.isObject() ? node : null;
+		} catch (IOException e) {
+			// a malformed usage header shouldn't fail the request it came with
+			return null;
+		}
+	}
+
+	private static ApiUsage toUsage(String type, JsonNode node) {
+		return new ApiUsage(type, node.path("call_count").asInt(), node.path("total_cputime").asInt(), node.path("total_time").asInt(),
+				node.path("estimated_time_to_regain_access").asInt());
+	}
+
+	private static String getAccessToken(HttpRequest request) {
+		String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+		if (authorization == null) {
+			return null;
+		}
+		int space = authorization.indexOf(' ');
+		return space >= 0 ? authorization.substring(space + 1) : authorization;
+	}
+
+	private static class Observation {
+
+		final ApiUsage usage;
+
+		final long observedAt;
+
+		final long regainAccessAt;
+
+		Observation(ApiUsage usage, long observedAt) {
+			this.usage = usage;
+			this.observedAt = observedAt;
+			this.regainAccessAt = observedAt + TimeUnit.MINUTES.toMillis(usage.getEstimatedTimeToRegainAccess());
+		}
+
+		int percentageAt(long now) {
+			long age = Math.max(0, now - observedAt);
+			if (age >= USAGE_WINDOW) {
+				return 0;
+			}
+			return (int) ((usage.getPercentage() * (USAGE_WINDOW - age) + USAGE_WINDOW - 1) / USAGE_WINDOW);
+		}
+
+	}
+
+	private static class TokenUsage {
+
+		volatile Observation pageUsage;
+
+		final Set<String> businessIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	}
+
+	private static class DelaySchedulerHolder {
+		static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "facebook-usage-throttle");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+}
@@ -15,11 +15,13 @@
  */
 package org.springframework.social.facebook.api.impl;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 import org.springframework.social.facebook.api.GraphApi;
+import org.springframework.social.facebook.api.GraphQuery;
 import org.springframework.social.facebook.api.ImageType;
 import org.springframework.social.facebook.api.PagedList;
 import org.springframework.social.facebook.api.Permission;
@@ -36,6 +38,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 
 class UserTemplate implements UserOperations {
 
+	private static final GraphQuery<User> PROFILE = GraphQuery.select(User.class).fields(PROFILE_FIELDS).compile();
+
 	private final GraphApi graphApi;
 	
 	private final RestTemplate restTemplate;
@@ -50,7 +54,7 @@ class UserTemplate implements UserOperations {
 	}
 
 	public User getUserProfile(String facebookId) {
-		return graphApi.fetchObject(facebookId, User.class, PROFILE_FIELDS);
+		return ObjectCache.fetchObject(graphApi, facebookId, PROFILE);
 	}
 	
 	public byte[] getUserProfileImage() {
@@ -77,6 +81,14 @@ class UserTemplate implements UserOperations {
 		return graphApi.fetchImage(userId, "picture", width, height);
 	}
 
+	public long getUserProfileImage(String userId, ImageType imageType, OutputStream out) {
+		return graphApi.fetchImage(userId, "picture", imageType, out);
+	}
+
+	public long getUserProfileImage(String userId, Integer width, Integer height, OutputStream out) {
+		return graphApi.fetchImage(userId, "picture", width, height, out);
+	}
+
 	public List<Permission> getUserPermissions() {
 		JsonNode responseNode = restTemplate.getForObject(graphApi.getBaseGraphApiUrl() + "me/permissions", JsonNode.class);
 		return deserializePermissionsNodeToList(responseNode);
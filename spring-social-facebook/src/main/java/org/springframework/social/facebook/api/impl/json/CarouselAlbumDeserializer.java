@@ -15,32 +15,12 @@
  */
 package org.springframework.social.facebook.api.impl.json;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.social.facebook.api.InstagramMedia;
 
-import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
+class CarouselAlbumDeserializer extends DataListDeserializer<InstagramMedia> {
 
-class CarouselAlbumDeserializer extends JsonDeserializer<List<InstagramMedia>> {
-    @SuppressWarnings("unchecked")
-    @Override
-    public List<InstagramMedia> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new FacebookModule());
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            JsonNode dataNode = jp.readValueAs(JsonNode.class).get("data");
-            if (dataNode != null) {
-                return (List<InstagramMedia>) mapper.readerFor(new TypeReference<List<InstagramMedia>>() {}).readValue(dataNode);
-            }
-        }
+	public CarouselAlbumDeserializer() {
+		super(InstagramMedia.class);
+	}
 
-        return Collections.emptyList();
-    }
 }
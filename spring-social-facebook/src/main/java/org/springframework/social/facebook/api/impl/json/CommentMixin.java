@@ -18,7 +18,6 @@ package org.springframework.social.facebook.api.impl.json;
 import java.util.Date;
 import java.util.List;
 
-import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptors;
 import org.springframework.social.facebook.api.*;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -29,7 +28,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * @author Craig Walls
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
-@JsonInterceptors(beforeDeserialization = RawJsonDeserializationInterceptor.class)
+@RetainsRawJson
 abstract class CommentMixin extends FacebookObjectMixin {
 
 	@JsonProperty("id")
@@ -18,7 +18,6 @@ package org.springframework.social.facebook.api.impl.json;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptors;
 import org.springframework.social.facebook.api.ExtendedReference;
 
 import java.util.Date;
@@ -30,7 +29,7 @@ import java.util.List;
  * @author Gurkan Vural
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
-@JsonInterceptors(beforeDeserialization = RawJsonDeserializationInterceptor.class)
+@RetainsRawJson
 abstract class ConversationMixin extends FacebookObjectMixin {
 
     @JsonProperty
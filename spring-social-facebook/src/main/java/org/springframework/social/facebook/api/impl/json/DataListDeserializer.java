@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl.json;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Deserializer for lists that the Graph API wraps in an object's "data" field (e.g., {"data":[...], "paging":{...}}).
+ * The list is bound as it is read, with the list deserializer resolved from the enclosing {@link DeserializationContext},
+ * so no intermediate tree or object mapper is created. An object without a "data" field is bound to an empty list.
+ * <p>
+ * The list deserializer is resolved on first use rather than in {@code createContextual()}: some element types contain lists
+ * of their own type (e.g., a story attachment's subattachments), and contextualizing them eagerly would never end.
+ * Deserializer instances belong to the object mapper that created them, so the resolved deserializer can be kept.
+ * </p>
+ * @param <T> the element type
+ */
+class DataListDeserializer<T> extends JsonDeserializer<List<T>> {
+
+	private final Class<T> elementType;
+
+	private volatile JsonDeserializer<Object> listDeserializer;
+
+	protected DataListDeserializer(Class<T> elementType) {
+		this.elementType = elementType;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<T> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+		JsonToken token = jp.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = jp.nextToken();
+		} else if (token != JsonToken.FIELD_NAME) {
+			jp.skipChildren();
+			return Collections.emptyList();
+		}
+		List<T> list = Collections.emptyList();
+		for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+			String fieldName = jp.getCurrentName();
+			if (jp.nextToken() != JsonToken.VALUE_NULL && "data".equals(fieldName)) {
+				list = (List<T>) getListDeserializer(ctxt).deserialize(jp, ctxt);
+			} else {
+				jp.skipChildren();
+			}
+		}
+		return list;
+	}
+
+	private JsonDeserializer<Object> getListDeserializer(DeserializationContext ctxt) throws JsonMappingException {
+		JsonDeserializer<Object> deserializer = listDeserializer;
+		if (deserializer == null) {
+			deserializer = ctxt.findRootValueDeserializer(ctxt.getTypeFactory().constructCollectionType(List.class, elementType));
+			listDeserializer = deserializer;
+		}
+		return deserializer;
+	}
+
+}
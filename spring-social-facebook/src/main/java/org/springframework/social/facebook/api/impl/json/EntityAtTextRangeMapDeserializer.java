@@ -16,45 +16,71 @@
 package org.springframework.social.facebook.api.impl.json;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import org.springframework.social.facebook.api.EntityAtTextRange;
 
 import java.io.IOException;
 import java.util.*;
 
-public class EntityAtTextRangeMapDeserializer extends JsonDeserializer<Map<Integer, List<EntityAtTextRange>>> {
+public class EntityAtTextRangeMapDeserializer extends JsonDeserializer<Map<Integer, List<EntityAtTextRange>>> implements ContextualDeserializer {
 
-    @SuppressWarnings({"unchecked", "deprecation"})
+    private final JsonDeserializer<Object> mapDeserializer;
+
+    private final JsonDeserializer<Object> listDeserializer;
+
+    public EntityAtTextRangeMapDeserializer() {
+        this(null, null);
+    }
+
+    private EntityAtTextRangeMapDeserializer(JsonDeserializer<Object> mapDeserializer, JsonDeserializer<Object> listDeserializer) {
+        this.mapDeserializer = mapDeserializer;
+        this.listDeserializer = listDeserializer;
+    }
+
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) throws JsonMappingException {
+        return new EntityAtTextRangeMapDeserializer(ctxt.findContextualValueDeserializer(mapType(ctxt), property),
+                ctxt.findContextualValueDeserializer(listType(ctxt), property));
+    }
+
+    @SuppressWarnings("unchecked")
     @Override
-    public Map<Integer, List<EntityAtTextRange>> deserialize(JsonParser jp, DeserializationContext ctxt)
-            throws IOException, JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new FacebookModule());
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            JsonNode dataNode = jp.readValueAs(JsonNode.class);
-            if (dataNode != null) {
-                if (dataNode.getNodeType().equals(JsonNodeType.OBJECT)) { // OLD STYLE, SUPPORTED IN GRAPH API 2.3
-                    return (Map<Integer, List<EntityAtTextRange>>) mapper.reader(new TypeReference<Map<Integer, List<EntityAtTextRange>>>() {
-                    }).readValue(dataNode);
-                } else if (dataNode.getNodeType().equals(JsonNodeType.ARRAY)) { // NEW STYLE 2.4/2.5-ish
-                    List<EntityAtTextRange> tagList = (List<EntityAtTextRange>) mapper.reader(new TypeReference<List<EntityAtTextRange>>() {
-                    }).readValue(dataNode);
-                    Map<Integer, List<EntityAtTextRange>> messageTagMap = new HashMap<Integer, List<EntityAtTextRange>>();
-                    for (EntityAtTextRange entityAtTextRange : tagList) {
-                        messageTagMap.put(entityAtTextRange.getOffset(), Arrays.asList(entityAtTextRange));
-                    }
+    public Map<Integer, List<EntityAtTextRange>> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.FIELD_NAME) { // OLD STYLE, SUPPORTED IN GRAPH API 2.3
+            JsonDeserializer<Object> deserializer = mapDeserializer != null ? mapDeserializer : ctxt.findRootValueDeserializer(mapType(ctxt));
+            return (Map<Integer, List<EntityAtTextRange>>) deserializer.deserialize(jp, ctxt);
+        } else if (token == JsonToken.START_ARRAY) { // NEW STYLE 2.4/2.5-ish
+            JsonDeserializer<Object> deserializer = listDeserializer != null ? listDeserializer : ctxt.findRootValueDeserializer(listType(ctxt));
+            List<EntityAtTextRange> tagList = (List<EntityAtTextRange>) deserializer.deserialize(jp, ctxt);
+            Map<Integer, List<EntityAtTextRange>> messageTagMap = new HashMap<Integer, List<EntityAtTextRange>>();
+            for (EntityAtTextRange entityAtTextRange : tagList) {
+                List<EntityAtTextRange> entities = messageTagMap.get(entityAtTextRange.getOffset());
+                if (entities == null) {
+                    entities = new ArrayList<EntityAtTextRange>(1);
+                    messageTagMap.put(entityAtTextRange.getOffset(), entities);
                 }
+                entities.add(entityAtTextRange);
             }
+            return messageTagMap;
         }
-
+        jp.skipChildren();
         return Collections.emptyMap();
     }
 
+    private static JavaType mapType(DeserializationContext ctxt) {
+        TypeFactory typeFactory = ctxt.getTypeFactory();
+        return typeFactory.constructMapType(Map.class, typeFactory.constructType(Integer.class), listType(ctxt));
+    }
+
+    private static JavaType listType(DeserializationContext ctxt) {
+        return ctxt.getTypeFactory().constructCollectionType(List.class, EntityAtTextRange.class);
+    }
+
 }
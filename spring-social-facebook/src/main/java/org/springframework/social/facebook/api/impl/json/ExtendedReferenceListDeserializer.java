@@ -15,34 +15,12 @@
  */
 package org.springframework.social.facebook.api.impl.json;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.social.facebook.api.ExtendedReference;
 
-import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
+class ExtendedReferenceListDeserializer extends DataListDeserializer<ExtendedReference> {
 
-class ExtendedReferenceListDeserializer extends JsonDeserializer<List<ExtendedReference>> {
-    @SuppressWarnings("unchecked")
-    @Override
-    public List<ExtendedReference> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new FacebookModule());
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            JsonNode dataNode = jp.readValueAs(JsonNode.class).get("data");
-            if (dataNode != null) {
-                return mapper.readerFor(new TypeReference<List<ExtendedReference>>() {
-                }).readValue(dataNode);
-            }
-        }
+	public ExtendedReferenceListDeserializer() {
+		super(ExtendedReference.class);
+	}
 
-        return Collections.emptyList();
-    }
 }
@@ -15,6 +15,8 @@
  */
 package org.springframework.social.facebook.api.impl.json;
 
+import java.util.Date;
+
 import org.springframework.social.facebook.api.*;
 import org.springframework.social.facebook.api.Photo.Image;
 import org.springframework.social.facebook.api.Video.VideoFormat;
@@ -23,6 +25,11 @@ import org.springframework.social.facebook.api.impl.json.PhotoMixin.ImageMixin;
 import org.springframework.social.facebook.api.impl.json.VideoMixin.VideoFormatMixin;
 import org.springframework.social.facebook.api.impl.json.WorkEntryMixin.ProjectMixin;
 
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.module.SimpleDeserializers;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 
 /**
@@ -34,12 +41,42 @@ public class FacebookModule extends SimpleModule {
 
 	private static final long serialVersionUID = 1L;
 
+	private final RawJsonRetention rawJsonRetention;
+
+	/**
+	 * Creates a module that keeps the raw JSON of posts, comments and messages as bytes, parsed only when needed.
+	 */
 	public FacebookModule() {
+		this(RawJsonRetention.LAZY);
+	}
+
+	/**
+	 * Creates a module that keeps the raw JSON of posts, comments and messages according to the given policy.
+	 * @param rawJsonRetention how much of the raw JSON to keep
+	 */
+	public FacebookModule(RawJsonRetention rawJsonRetention) {
 		super("FacebookModule");
+		this.rawJsonRetention = rawJsonRetention;
 	}
 	
 	@Override
 	public void setupModule(SetupContext context) {
+		if (rawJsonRetention != RawJsonRetention.OFF) {
+			context.addBeanDeserializerModifier(new BeanDeserializerModifier() {
+				@Override
+				public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+					if (FacebookObject.class.isAssignableFrom(beanDesc.getBeanClass()) && beanDesc.getClassAnnotations().get(RetainsRawJson.class) != null) {
+						return new RawJsonRetainingDeserializer(deserializer, rawJsonRetention);
+					}
+					return deserializer;
+				}
+			});
+		}
+
+		SimpleDeserializers deserializers = new SimpleDeserializers();
+		deserializers.addDeserializer(Date.class, new TimestampDeserializer());
+		context.addDeserializers(deserializers);
+
 		context.setMixInAnnotations(Achievement.class, AchievementMixin.class);
 		context.setMixInAnnotations(AchievementType.class, AchievementTypeMixin.class);
 		context.setMixInAnnotations(AchievementType.Image.class, AchievementTypeMixin.ImageMixin.class);
@@ -36,4 +36,7 @@ abstract class FacebookObjectMixin {
 
 	@JsonProperty("rawJson")
 	abstract void setRawJson(JsonNode rawJson);
+
+	@JsonIgnore
+	abstract void setRawJsonBytes(byte[] rawJsonBytes);
 }
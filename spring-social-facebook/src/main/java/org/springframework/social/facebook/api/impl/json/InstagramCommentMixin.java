@@ -17,14 +17,13 @@ package org.springframework.social.facebook.api.impl.json;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptors;
 import org.springframework.social.facebook.api.InstagramMedia;
 import org.springframework.social.facebook.api.InstagramUser;
 
 import java.util.Date;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
-@JsonInterceptors(beforeDeserialization = RawJsonDeserializationInterceptor.class)
+@RetainsRawJson
 abstract class InstagramCommentMixin extends FacebookObjectMixin {
 
     @JsonProperty("id")
@@ -18,7 +18,6 @@ package org.springframework.social.facebook.api.impl.json;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptors;
 import org.springframework.social.facebook.api.InstagramComment;
 import org.springframework.social.facebook.api.InstagramMedia;
 import org.springframework.social.facebook.api.InstagramUser;
@@ -27,7 +26,7 @@ import java.util.Date;
 import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
-@JsonInterceptors(beforeDeserialization = RawJsonDeserializationInterceptor.class)
+@RetainsRawJson
 abstract class InstagramMediaMixin extends FacebookObjectMixin {
 
     @JsonProperty("id")
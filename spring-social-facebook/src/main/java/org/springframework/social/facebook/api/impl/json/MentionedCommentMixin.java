@@ -17,11 +17,10 @@ package org.springframework.social.facebook.api.impl.json;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptors;
 import org.springframework.social.facebook.api.InstagramComment;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
-@JsonInterceptors(beforeDeserialization = RawJsonDeserializationInterceptor.class)
+@RetainsRawJson
 abstract class MentionedCommentMixin extends FacebookObjectMixin {
 
     @JsonProperty("id")
@@ -20,7 +20,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
-import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptors;
 import org.springframework.social.facebook.api.*;
 import org.springframework.social.facebook.api.Post.AdminCreator;
 import org.springframework.social.facebook.api.Post.FriendsPrivacyType;
@@ -44,7 +43,7 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
  * @author Craig Walls
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
-@JsonInterceptors(beforeDeserialization = RawJsonDeserializationInterceptor.class)
+@RetainsRawJson
 abstract class PostMixin extends FacebookObjectMixin {
 	
 	@JsonProperty("id")
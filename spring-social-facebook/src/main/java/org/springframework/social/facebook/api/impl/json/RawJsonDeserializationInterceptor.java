@@ -5,6 +5,12 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.jonpeterson.jackson.module.interceptor.JsonInterceptor;
 
+/**
+ * {@link JsonInterceptor} that copies an object's JSON tree into its "rawJson" property before the object is bound.
+ * @deprecated {@link FacebookModule} now keeps the raw JSON of Facebook types according to its
+ * {@link org.springframework.social.facebook.api.RawJsonRetention}, without copying the tree.
+ */
+@Deprecated
 public class RawJsonDeserializationInterceptor implements JsonInterceptor {
     public JsonNode intercept(JsonNode jsonNode, JsonNodeFactory jsonNodeFactory) {
         ((ObjectNode) jsonNode).set("rawJson", ((ObjectNode) jsonNode).deepCopy());
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl.json;
+
+import java.io.IOException;
+
+import org.springframework.social.facebook.api.FacebookObject;
+import org.springframework.social.facebook.api.RawJsonRetention;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Wraps the deserializer of a {@link FacebookObject} type to keep the JSON each object is bound from.
+ * With {@link RawJsonRetention#FULL}, the object is bound from a tree that is then kept as is.
+ * With {@link RawJsonRetention#LAZY}, the object is bound from a token buffer that is then written out as compact UTF-8 bytes,
+ * so no tree is built unless {@link FacebookObject#getRawJson()} is called.
+ */
+class RawJsonRetainingDeserializer extends DelegatingDeserializer {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final JsonFactory RAW_JSON_FACTORY = new JsonFactory();
+
+	private final RawJsonRetention retention;
+
+	public RawJsonRetainingDeserializer(JsonDeserializer<?> delegate, RawJsonRetention retention) {
+		super(delegate);
+		this.retention = retention;
+	}
+
+	@Override
+	protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+		return new RawJsonRetainingDeserializer(newDelegatee, retention);
+	}
+
+	@Override
+	public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+		JsonToken token = p.getCurrentToken();
+		if (token != JsonToken.START_OBJECT && token != JsonToken.FIELD_NAME) {
+			return _delegatee.deserialize(p, ctxt);
+		}
+		if (retention == RawJsonRetention.FULL) {
+			JsonNode tree = ctxt.readValue(p, JsonNode.class);
+			JsonParser treeParser = p.getCodec().treeAsTokens(tree);
+			treeParser.nextToken();
+			Object value = _delegatee.deserialize(treeParser, ctxt);
+			if (value instanceof FacebookObject) {
+				((FacebookObject) value).setRawJson(tree);
+			}
+			return value;
+		}
+		TokenBuffer buffer = new TokenBuffer(p, ctxt);
+		if (token == JsonToken.FIELD_NAME) {
+			buffer.writeStartObject();
+			do {
+				buffer.copyCurrentStructure(p);
+			} while (p.nextToken() == JsonToken.FIELD_NAME);
+			buffer.writeEndObject();
+		} else {
+			buffer.copyCurrentStructure(p);
+		}
+		JsonParser bufferParser = buffer.asParser(p);
+		bufferParser.nextToken();
+		Object value = _delegatee.deserialize(bufferParser, ctxt);
+		if (value instanceof FacebookObject) {
+			((FacebookObject) value).setRawJsonBytes(toBytes(buffer));
+		}
+		return value;
+	}
+
+	private static byte[] toBytes(TokenBuffer buffer) throws IOException {
+		ByteArrayBuilder bytes = new ByteArrayBuilder(RAW_JSON_FACTORY._getBufferRecycler());
+		JsonGenerator generator = RAW_JSON_FACTORY.createGenerator(bytes, JsonEncoding.UTF8);
+		try {
+			buffer.serialize(generator);
+		} finally {
+			generator.close();
+		}
+		byte[] json = bytes.toByteArray();
+		bytes.release();
+		return json;
+	}
+
+}
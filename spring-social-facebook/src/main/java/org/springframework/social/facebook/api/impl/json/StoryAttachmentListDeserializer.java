@@ -15,34 +15,12 @@
  */
 package org.springframework.social.facebook.api.impl.json;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.social.facebook.api.StoryAttachment;
 
-import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
+class StoryAttachmentListDeserializer extends DataListDeserializer<StoryAttachment> {
 
-class StoryAttachmentListDeserializer extends JsonDeserializer<List<StoryAttachment>> {
-    @SuppressWarnings("unchecked")
-    @Override
-    public List<StoryAttachment> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new FacebookModule());
-        jp.setCodec(mapper);
-        if (jp.hasCurrentToken()) {
-            JsonNode dataNode = (JsonNode) jp.readValueAs(JsonNode.class).get("data");
-            if (dataNode != null) {
-                return (List<StoryAttachment>) mapper.readerFor(new TypeReference<List<StoryAttachment>>() {
-                }).readValue(dataNode);
-            }
-        }
+	public StoryAttachmentListDeserializer() {
+		super(StoryAttachment.class);
+	}
 
-        return Collections.emptyList();
-    }
 }
@@ -15,31 +15,12 @@
  */
 package org.springframework.social.facebook.api.impl.json;
 
-import java.io.IOException;
-import java.util.List;
-
 import org.springframework.social.facebook.api.Tag;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+class TagListDeserializer extends DataListDeserializer<Tag> {
 
-class TagListDeserializer extends JsonDeserializer<List<Tag>> {
-	@SuppressWarnings("unchecked")
-	@Override
-	public List<Tag> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.registerModule(new FacebookModule());
-		jp.setCodec(mapper);
-		if(jp.hasCurrentToken()) {
-			JsonNode dataNode = (JsonNode) jp.readValueAs(JsonNode.class).get("data");
-			return (List<Tag>) mapper.readerFor(new TypeReference<List<Tag>>() {}).readValue(dataNode);
-		}
-		
-		return null;
+	public TagListDeserializer() {
+		super(Tag.class);
 	}
+
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api.impl.json;
+
+import java.io.IOException;
+import java.util.Date;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.DateDeserializers.DateDeserializer;
+
+/**
+ * Deserializer for the Graph API's timestamps (e.g., "2011-03-24T21:26:29+0000"), registered for all {@link Date} properties by {@link FacebookModule}.
+ * Timestamps of the form yyyy-MM-dd'T'HH:mm:ss, with optional fractional seconds and a "Z", "+hhmm", "+hh:mm" or "+hh" offset, are parsed
+ * straight from the parser's character buffer, without creating a String, a calendar or a date format. Anything else (dates without a time
+ * or an offset, epoch milliseconds, properties with a {@code @JsonFormat} pattern) is left to Jackson's date handling, as before.
+ */
+class TimestampDeserializer extends DateDeserializer {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long NOT_PARSED = Long.MIN_VALUE;
+
+	@Override
+	protected Date _parseDate(JsonParser p, DeserializationContext ctxt) throws IOException {
+		if (_customFormat == null && p.getCurrentToken() == JsonToken.VALUE_STRING) {
+			long millis = parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+			if (millis != NOT_PARSED) {
+				return new Date(millis);
+			}
+		}
+		return super._parseDate(p, ctxt);
+	}
+
+	/**
+	 * Parses a timestamp of the form yyyy-MM-dd'T'HH:mm:ss[.SSS](Z|+hh[[:]mm]).
+	 * Out of range fields roll over (e.g., February 30th is March 1st or 2nd), as with a lenient date format.
+	 * @return the timestamp in milliseconds since the epoch, or {@link #NOT_PARSED} if the text isn't of this form
+	 */
+	static long parse(char[] text, int offset, int length) {
+		int end = offset + length;
+		if (length < 20 || text[offset + 4] != '-' || text[offset + 7] != '-' || text[offset + 10] != 'T' || text[offset + 13] != ':' || text[offset + 16] != ':') {
+			return NOT_PARSED;
+		}
+		int year = digits(text, offset, 4);
+		int month = digits(text, offset + 5, 2);
+		int day = digits(text, offset + 8, 2);
+		int hour = digits(text, offset + 11, 2);
+		int minute = digits(text, offset + 14, 2);
+		int second = digits(text, offset + 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+			return NOT_PARSED;
+		}
+		int i = offset + 19;
+		int millis = 0;
+		if (text[i] == '.') {
+			int scale = 100;
+			while (++i < end && text[i] >= '0' && text[i] <= '9') {
+				millis += (text[i] - '0') * scale;
+				scale /= 10;
+			}
+		}
+		if (i >= end) {
+			return NOT_PARSED;
+		}
+		int offsetMinutes;
+		char sign = text[i];
+		if (sign == 'Z' && i + 1 == end) {
+			offsetMinutes = 0;
+		} else if (sign == '+' || sign == '-') {
+			int zoneLength = end - i - 1;
+			int offsetHours = zoneLength >= 2 ? digits(text, i + 1, 2) : -1;
+			int offsetMins;
+			if (zoneLength == 2) {
+				offsetMins = 0;
+			} else if (zoneLength == 4) {
+				offsetMins = digits(text, i + 3, 2);
+			} else if (zoneLength == 5 && text[i + 3] == ':') {
+				offsetMins = digits(text, i + 4, 2);
+			} else {
+				return NOT_PARSED;
+			}
+			if (offsetHours < 0 || offsetMins < 0) {
+				return NOT_PARSED;
+			}
+			offsetMinutes = (offsetHours * 60 + offsetMins) * (sign == '-' ? -1 : 1);
+		} else {
+			return NOT_PARSED;
+		}
+		long seconds = daysFromCivil(year, month, 1) * 86400L + (day - 1) * 86400L + hour * 3600L + minute * 60L + second - offsetMinutes * 60L;
+		return seconds * 1000L + millis;
+	}
+
+	// the non-negative number of the given digits, or -1 if they're not all digits
+	private static int digits(char[] text, int start, int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			char c = text[i];
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	// days since 1970-01-01 of a date in the proleptic Gregorian calendar
+	private static long daysFromCivil(int year, int month, int day) {
+		year -= month <= 2 ? 1 : 0;
+		long era = (year >= 0 ? year : year - 399) / 400;
+		long yearOfEra = year - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+}
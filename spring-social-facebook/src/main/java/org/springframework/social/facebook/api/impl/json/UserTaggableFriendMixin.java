@@ -25,10 +25,9 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
@@ -50,10 +49,17 @@ abstract class UserTaggableFriendMixin extends FacebookObject {
 	private static class PictureDeserializer extends JsonDeserializer<ProfilePictureSource> {
 		@Override
 		public ProfilePictureSource deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.registerModule(new FacebookModule());
-			JsonNode dataNode = (JsonNode) jp.readValueAs(JsonNode.class).get("data");
-			return (ProfilePictureSource) mapper.readerFor(ProfilePictureSource.class).readValue(dataNode);
+			ProfilePictureSource picture = null;
+			JsonToken token = jp.getCurrentToken() == JsonToken.START_OBJECT ? jp.nextToken() : jp.getCurrentToken();
+			for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+				String fieldName = jp.getCurrentName();
+				if (jp.nextToken() != JsonToken.VALUE_NULL && "data".equals(fieldName)) {
+					picture = ctxt.readValue(jp, ProfilePictureSource.class);
+				} else {
+					jp.skipChildren();
+				}
+			}
+			return picture;
 		}
 	}
 
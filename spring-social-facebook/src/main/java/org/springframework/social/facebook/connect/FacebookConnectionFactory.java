@@ -17,6 +17,7 @@ package org.springframework.social.facebook.connect;
 
 import org.springframework.social.connect.support.OAuth2ConnectionFactory;
 import org.springframework.social.facebook.api.Facebook;
+import org.springframework.social.facebook.api.impl.FacebookClientFactory;
 
 /**
  * Facebook ConnectionFactory implementation.
@@ -45,4 +46,16 @@ public class FacebookConnectionFactory extends OAuth2ConnectionFactory<Facebook>
 		super("facebook", new FacebookServiceProvider(appId, appSecret, appNamespace), new FacebookAdapter());
 	}
 
+	/**
+	 * Creates a FacebookConnectionFactory for the given application ID, secret, and namespace whose API instances are created by the
+	 * given factory. The factory is owned by the caller, who is responsible for destroying it.
+	 * @param appId The application's App ID as assigned by Facebook
+	 * @param appSecret The application's App Secret as assigned by Facebook
+	 * @param appNamespace The application's App Namespace as configured with Facebook. Enables use of Open Graph operations.
+	 * @param clientFactory the factory creating the API instances with this connection factory's application settings
+	 */
+	public FacebookConnectionFactory(String appId, String appSecret, String appNamespace, FacebookClientFactory clientFactory) {
+		super("facebook", new FacebookServiceProvider(appId, appSecret, appNamespace, clientFactory), new FacebookAdapter());
+	}
+
 }
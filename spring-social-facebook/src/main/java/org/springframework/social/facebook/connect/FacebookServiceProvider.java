@@ -16,6 +16,7 @@
 package org.springframework.social.facebook.connect;
 
 import org.springframework.social.facebook.api.Facebook;
+import org.springframework.social.facebook.api.impl.FacebookClientFactory;
 import org.springframework.social.facebook.api.impl.FacebookTemplate;
 import org.springframework.social.oauth2.AbstractOAuth2ServiceProvider;
 import org.springframework.social.oauth2.OAuth2Template;
@@ -33,6 +34,8 @@ public class FacebookServiceProvider extends AbstractOAuth2ServiceProvider<Faceb
 
 	private String appId;
 
+	private final FacebookClientFactory clientFactory;
+
 	private static final String API_VERSION = Facebook.DEFAULT_API_VERSION;
 
 	private static final String GRAPH_API_URL = "https://graph.facebook.com/v" + API_VERSION + "/";
@@ -45,10 +48,25 @@ public class FacebookServiceProvider extends AbstractOAuth2ServiceProvider<Faceb
 	 * @param appNamespace The application's App Namespace as configured with Facebook. Enables use of Open Graph operations.
 	 */
 	public FacebookServiceProvider(String appId, String appSecret, String appNamespace) {
+		this(appId, appSecret, appNamespace, null);
+	}
+
+	/**
+	 * Creates a FacebookServiceProvider for the given application ID, secret, and namespace whose API instances are created by the given
+	 * factory, sharing its pooled transport and object mapper. The API instances use this provider's application settings, including
+	 * the App Secret that signs each request, in place of the factory's own.
+	 * The factory is owned by the caller, who is responsible for destroying it once the provider is no longer used.
+	 * @param appId The application's App ID as assigned by Facebook
+	 * @param appSecret The application's App Secret as assigned by Facebook
+	 * @param appNamespace The application's App Namespace as configured with Facebook. Enables use of Open Graph operations.
+	 * @param clientFactory the factory creating the API instances. If null, each API instance is a standalone {@link FacebookTemplate}.
+	 */
+	public FacebookServiceProvider(String appId, String appSecret, String appNamespace, FacebookClientFactory clientFactory) {
 		super(getOAuth2Template(appId, appSecret));
 		this.appNamespace = appNamespace;
 		this.appSecret = appSecret;
 		this.appId = appId;
+		this.clientFactory = clientFactory;
 	}
 	
 	private static OAuth2Template getOAuth2Template(String appId, String appSecret) {
@@ -60,6 +78,9 @@ public class FacebookServiceProvider extends AbstractOAuth2ServiceProvider<Faceb
 	}
 
 	public Facebook getApi(String accessToken) {
+		if (clientFactory != null) {
+			return clientFactory.getFacebook(accessToken, appNamespace, appId, appSecret);
+		}
 		return new FacebookTemplate(accessToken, appNamespace, appId, appSecret);
 	}
 	
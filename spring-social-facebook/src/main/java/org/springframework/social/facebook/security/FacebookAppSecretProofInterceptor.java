@@ -1,11 +1,14 @@
 package org.springframework.social.facebook.security;
 
 import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.security.crypto.codec.Hex;
 import org.springframework.social.support.HttpRequestDecorator;
+import org.springframework.util.concurrent.ListenableFuture;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -30,7 +33,7 @@ import java.io.IOException;
 /**
  * @author Ariel Himmelstern
  */
-public class FacebookAppSecretProofInterceptor implements ClientHttpRequestInterceptor {
+public class FacebookAppSecretProofInterceptor implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor {
 
     private final String appSecret;
     private final String appToken;
@@ -49,6 +52,14 @@ public class FacebookAppSecretProofInterceptor implements ClientHttpRequestInter
         return execution.execute(protectedResourceRequest, body);
     }
 
+    public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body, AsyncClientHttpRequestExecution execution) throws IOException {
+        HttpRequestDecorator protectedResourceRequest = new HttpRequestDecorator(request);
+
+        String appSecreteProof = calculateAppSecretProof(appToken, appSecret);
+        protectedResourceRequest.addParameter("appsecret_proof", appSecreteProof);
+        return execution.executeAsync(protectedResourceRequest, body);
+    }
+
     private String calculateAppSecretProof(String token, String appSecret) {
         try {
             Mac mac = Mac.getInstance(algorithm);
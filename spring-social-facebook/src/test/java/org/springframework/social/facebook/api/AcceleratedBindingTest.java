@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.junit.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class AcceleratedBindingTest extends AbstractFacebookApiTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+
+	@Test
+	public void post() throws Exception {
+		assertSameBinding("123456_78901234", Post.class, jsonResource("post"));
+	}
+
+	@Test
+	public void page() throws Exception {
+		assertSameBinding("11803178355", Page.class, jsonResource("page-with-extra-data"));
+	}
+
+	@Test
+	public void feed() throws Exception {
+		mockServer.expect(requestTo(fbUrl("me/feed"))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("feed"), MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/feed"))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("feed"), MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/feed"))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("feed"), MediaType.APPLICATION_JSON));
+		PagedList<Post> reflective = facebook.fetchConnections("me", "feed", Post.class);
+		facebook.setAcceleratedBinding(true);
+		PagedList<Post> accelerated = facebook.fetchConnections("me", "feed", Post.class);
+		PagedList<Post> lazy = facebook.fetchConnections("me", "feed", Post.class, null, BindingMode.LAZY);
+		assertEquals(reflective.size(), accelerated.size());
+		for (int i = 0; i < reflective.size(); i++) {
+			assertSameGetters(Post.class, reflective.get(i), accelerated.get(i));
+			assertNotSame(Post.class, lazy.get(i).getClass());
+			assertSameGetters(Post.class, reflective.get(i), lazy.get(i));
+		}
+	}
+
+	@Test
+	public void rawJsonRetentionIsKept() throws Exception {
+		facebook.setRawJsonRetention(RawJsonRetention.OFF);
+		facebook.setAcceleratedBinding(true);
+		mockServer.expect(requestTo(fbUrl("123456_78901234"))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("post"), MediaType.APPLICATION_JSON));
+		Post post = facebook.fetchObject("123456_78901234", Post.class);
+		assertNull(post.getRawJson());
+		assertNotNull(post.getMessage());
+	}
+
+	private <T> void assertSameBinding(String id, Class<T> type, Resource json) throws Exception {
+		mockServer.expect(requestTo(fbUrl(id))).andExpect(method(GET))
+			.andRespond(withSuccess(json, MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl(id))).andExpect(method(GET))
+			.andRespond(withSuccess(json, MediaType.APPLICATION_JSON));
+		T reflective = facebook.fetchObject(id, type);
+		facebook.setAcceleratedBinding(true);
+		T accelerated = facebook.fetchObject(id, type);
+		assertSameGetters(type, reflective, accelerated);
+	}
+
+	private <T> void assertSameGetters(Class<T> type, T expected, T actual) throws Exception {
+		for (Method getter : type.getMethods()) {
+			if (getter.getParameterTypes().length == 0 && !Modifier.isStatic(getter.getModifiers()) && getter.getDeclaringClass() != Object.class
+					&& (getter.getName().startsWith("get") || getter.getName().startsWith("is"))) {
+				assertEquals(getter.getName(), objectMapper.writeValueAsString(getter.invoke(expected)), objectMapper.writeValueAsString(getter.invoke(actual)));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.social.ExpiredAuthorizationException;
+import org.springframework.social.facebook.api.impl.AsyncFacebookTemplate;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+public class AsyncFacebookTemplateTest extends AbstractFacebookApiTest {
+
+	private AsyncFacebookTemplate asyncFacebook;
+
+	private MockRestServiceServer asyncMockServer;
+
+	@Before
+	public void setupAsync() {
+		asyncFacebook = new AsyncFacebookTemplate(ACCESS_TOKEN);
+		asyncMockServer = MockRestServiceServer.createServer(asyncFacebook.getAsyncRestTemplate());
+	}
+
+	@Test
+	public void fetchObject() throws Exception {
+		asyncMockServer.expect(requestTo(fbUrl("me?fields=id%2Cname")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(jsonResource("minimal-profile"), MediaType.APPLICATION_JSON));
+		User user = asyncFacebook.fetchObject("me", User.class, "id", "name").get();
+		assertEquals("123456789", user.getId());
+		asyncMockServer.verify();
+	}
+
+	@Test
+	public void fetchConnections_followingNextPage() throws Exception {
+		asyncMockServer.expect(requestTo(fbUrl("me/feed?limit=2")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(jsonResource("feedPage1"), MediaType.APPLICATION_JSON));
+		asyncMockServer.expect(requestTo(fbUrl("100001387295207/feed?format=json&limit=2&access_token=fakeToken&__paging_token=fakePage2Token")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("feedPage2"), MediaType.APPLICATION_JSON));
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		parameters.set("limit", "2");
+		PagedList<Post> page1 = asyncFacebook.fetchConnections("me", "feed", Post.class, parameters).get();
+		assertEquals(2, page1.size());
+		PagedList<Post> page2 = asyncFacebook.fetchNextPagedConnections(page1, Post.class).get();
+		assertEquals(2, page2.size());
+		asyncMockServer.verify();
+	}
+
+	@Test
+	public void publish() throws Exception {
+		asyncMockServer.expect(requestTo(fbUrl("me/feed")))
+			.andExpect(method(POST))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andExpect(content().string("message=Hello+world%21"))
+			.andRespond(withSuccess("{\"id\":\"123_456\"}", MediaType.APPLICATION_JSON));
+		MultiValueMap<String, Object> data = new LinkedMultiValueMap<String, Object>();
+		data.set("message", "Hello world!");
+		assertEquals("123_456", asyncFacebook.publish("me", "feed", data).get());
+		asyncMockServer.verify();
+	}
+
+	@Test
+	public void delete() throws Exception {
+		asyncMockServer.expect(requestTo(fbUrl("123_456")))
+			.andExpect(method(POST))
+			.andExpect(content().string("method=delete"))
+			.andRespond(withSuccess("{\"success\":true}", MediaType.APPLICATION_JSON));
+		assertNull(asyncFacebook.delete("123_456").get());
+		asyncMockServer.verify();
+	}
+
+	@Test
+	public void errorTranslation() throws Exception {
+		asyncMockServer.expect(requestTo(fbUrl("me")))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-190-tokenExpired")).contentType(MediaType.APPLICATION_JSON));
+		CompletableFuture<User> future = asyncFacebook.fetchObject("me", User.class);
+		try {
+			future.get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ExpiredAuthorizationException);
+		}
+	}
+
+	@Test
+	public void maxConcurrentRequests() throws Exception {
+		asyncFacebook.setMaxConcurrentRequests(1);
+		asyncMockServer.expect(requestTo(fbUrl("1"))).andRespond(withSuccess("{\"id\":\"1\"}", MediaType.APPLICATION_JSON));
+		asyncMockServer.expect(requestTo(fbUrl("2"))).andRespond(withSuccess("{\"id\":\"2\"}", MediaType.APPLICATION_JSON));
+		CompletableFuture<User> first = asyncFacebook.fetchObject("1", User.class);
+		CompletableFuture<User> second = asyncFacebook.fetchObject("2", User.class);
+		assertEquals("1", first.get().getId());
+		assertEquals("2", second.get().getId());
+		assertEquals(0, asyncFacebook.getRequestsInFlight());
+		assertEquals(0, asyncFacebook.getPendingRequests());
+		asyncMockServer.verify();
+	}
+
+	@Test
+	public void futuresCompletedOnCallbackExecutor() throws Exception {
+		final List<Runnable> callbacks = new ArrayList<Runnable>();
+		asyncFacebook.setCallbackExecutor(new Executor() {
+			public void execute(Runnable command) {
+				callbacks.add(command);
+			}
+		});
+		asyncMockServer.expect(requestTo(fbUrl("1"))).andRespond(withSuccess("{\"id\":\"1\"}", MediaType.APPLICATION_JSON));
+		CompletableFuture<User> user = asyncFacebook.fetchObject("1", User.class);
+		assertFalse(user.isDone());
+		assertEquals(1, callbacks.size());
+		callbacks.remove(0).run();
+		assertEquals("1", user.getNow(null).getId());
+		assertEquals(0, asyncFacebook.getRequestsInFlight());
+		asyncMockServer.verify();
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.social.facebook.api.impl.ConditionalRequestCache;
+import org.springframework.social.facebook.api.impl.FacebookTemplate;
+import org.springframework.social.facebook.api.impl.UsageThrottlingInterceptor;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.RequestMatcher;
+
+public class ConditionalRequestCacheTest extends AbstractFacebookApiTest {
+
+	private ConditionalRequestCache cache;
+
+	@Before
+	public void setupCache() {
+		cache = new ConditionalRequestCache();
+		facebook.setConditionalRequestCache(cache);
+	}
+
+	@Test
+	public void servesCachedResponseWhenNotModified() {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andExpect(noIfNoneMatch())
+			.andRespond(withSuccess(jsonResource("full-profile"), MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andExpect(header("If-None-Match", "\"v1\""))
+			.andRespond(withStatus(HttpStatus.NOT_MODIFIED).headers(etag("\"v1\"")));
+		User first = facebook.fetchObject("me", User.class);
+		User second = facebook.fetchObject("me", User.class);
+		mockServer.verify();
+		assertEquals(first.getId(), second.getId());
+		assertEquals(first.getName(), second.getName());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getRevalidationCount());
+	}
+
+	@Test
+	public void replacesModifiedResponse() {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(noIfNoneMatch())
+			.andRespond(withSuccess("{\"id\":\"123456789\",\"name\":\"Craig\"}", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(header("If-None-Match", "\"v1\""))
+			.andRespond(withSuccess("{\"id\":\"123456789\",\"name\":\"Habuma\"}", MediaType.APPLICATION_JSON).headers(etag("\"v2\"")));
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(header("If-None-Match", "\"v2\""))
+			.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+		assertEquals("Craig", facebook.fetchObject("me", User.class).getName());
+		assertEquals("Habuma", facebook.fetchObject("me", User.class).getName());
+		assertEquals("Habuma", facebook.fetchObject("me", User.class).getName());
+		mockServer.verify();
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getRevalidationCount());
+	}
+
+	@Test
+	public void keyedByFields() {
+		mockServer.expect(requestTo(fbUrl("me?fields=id%2Cname")))
+			.andExpect(noIfNoneMatch())
+			.andRespond(withSuccess("{\"id\":\"123456789\",\"name\":\"Craig\"}", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+		mockServer.expect(requestTo(fbUrl("me?fields=id")))
+			.andExpect(noIfNoneMatch())
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON).headers(etag("\"v2\"")));
+		facebook.fetchObject("me", User.class, "id", "name");
+		facebook.fetchObject("me", User.class, "id");
+		mockServer.verify();
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0, cache.getRevalidationCount());
+	}
+
+	@Test
+	public void keyedByAccessToken() {
+		FacebookTemplate otherFacebook = new FacebookTemplate("otherAccessToken");
+		otherFacebook.setConditionalRequestCache(cache);
+		MockRestServiceServer otherMockServer = MockRestServiceServer.createServer(otherFacebook.getRestTemplate());
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+		otherMockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(header("Authorization", "OAuth otherAccessToken"))
+			.andExpect(noIfNoneMatch())
+			.andRespond(withSuccess("{\"id\":\"987654321\"}", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+		assertEquals("123456789", facebook.fetchObject("me", User.class).getId());
+		assertEquals("987654321", otherFacebook.fetchObject("me", User.class).getId());
+		mockServer.verify();
+		otherMockServer.verify();
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void responsesWithoutETagNotCached() {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(noIfNoneMatch())
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON));
+		facebook.fetchObject("me", User.class);
+		facebook.fetchObject("me", User.class);
+		mockServer.verify();
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void postsNotCached() {
+		mockServer.expect(requestTo(fbUrl("me/feed")))
+			.andExpect(method(POST))
+			.andExpect(noIfNoneMatch())
+			.andRespond(withSuccess("{\"id\":\"123_456\"}", MediaType.APPLICATION_JSON).headers(etag("\"v1\"")));
+		mockServer.expect(requestTo(fbUrl("me/feed")))
+			.andExpect(method(POST))
+			.andExpect(noIfNoneMatch())
+			.andRespond(withSuccess("{\"id\":\"123_457\"}", MediaType.APPLICATION_JSON).headers(etag("\"v2\"")));
+		facebook.feedOperations().updateStatus("Hello");
+		facebook.feedOperations().updateStatus("Hello");
+		mockServer.verify();
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedResponses() {
+		cache = new ConditionalRequestCache(40);
+		facebook.setConditionalRequestCache(cache);
+		String body = "{\"id\":\"123456789\"}"; // 18 bytes, so two responses fit
+		mockServer.expect(requestTo(fbUrl("1"))).andRespond(withSuccess(body, MediaType.APPLICATION_JSON).headers(etag("\"1\"")));
+		mockServer.expect(requestTo(fbUrl("2"))).andRespond(withSuccess(body, MediaType.APPLICATION_JSON).headers(etag("\"2\"")));
+		mockServer.expect(requestTo(fbUrl("1"))).andExpect(header("If-None-Match", "\"1\"")).andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+		mockServer.expect(requestTo(fbUrl("3"))).andRespond(withSuccess(body, MediaType.APPLICATION_JSON).headers(etag("\"3\"")));
+		mockServer.expect(requestTo(fbUrl("2"))).andExpect(noIfNoneMatch()).andRespond(withSuccess(body, MediaType.APPLICATION_JSON).headers(etag("\"2\"")));
+		facebook.fetchObject("1", User.class);
+		facebook.fetchObject("2", User.class);
+		facebook.fetchObject("1", User.class);
+		facebook.fetchObject("3", User.class);
+		facebook.fetchObject("2", User.class);
+		mockServer.verify();
+		assertEquals(1, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	public void consultedBeforeUsageThrottling() {
+		UsageThrottlingInterceptor throttle = new UsageThrottlingInterceptor();
+		facebook.setUsageThrottlingInterceptor(throttle);
+		facebook.setConditionalRequestCache(cache);
+		HttpHeaders headers = etag("\"v1\"");
+		headers.set("X-App-Usage", "{\"call_count\":28,\"total_time\":25,\"total_cputime\":10}");
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON).headers(headers));
+		HttpHeaders notModifiedHeaders = etag("\"v1\"");
+		notModifiedHeaders.set("X-App-Usage", "{\"call_count\":30,\"total_time\":25,\"total_cputime\":10}");
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andRespond(withStatus(HttpStatus.NOT_MODIFIED).headers(notModifiedHeaders));
+		facebook.fetchObject("me", User.class);
+		facebook.fetchObject("me", User.class);
+		mockServer.verify();
+		assertEquals(30, throttle.getAppUsage().getCallCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	private static HttpHeaders etag(String etag) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag(etag);
+		return headers;
+	}
+
+	private static RequestMatcher noIfNoneMatch() {
+		return new RequestMatcher() {
+			public void match(ClientHttpRequest request) throws IOException, AssertionError {
+				assertFalse(request.getHeaders().containsKey("If-None-Match"));
+			}
+		};
+	}
+
+}
@@ -31,6 +31,7 @@ import org.springframework.social.ResourceNotFoundException;
 import org.springframework.social.RevokedAuthorizationException;
 import org.springframework.social.ServerException;
 import org.springframework.social.UncategorizedApiException;
+import org.springframework.web.client.HttpServerErrorException;
 
 public class ErrorHandlingTest extends AbstractFacebookApiTest {
 	
@@ -44,6 +45,57 @@ public class ErrorHandlingTest extends AbstractFacebookApiTest {
 		fail();
 	}
 	
+	@Test
+	public void code1Transient() throws Exception {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR).body(jsonResource("error-1-transient")).contentType(MediaType.APPLICATION_JSON));
+		try {
+			facebook.fetchObject("me", User.class);
+			fail();
+		} catch (UncategorizedApiException e) {
+			assertEquals("An unexpected error has occurred. Please retry your request later.", e.getMessage());
+			FacebookError error = FacebookErrorException.findError(e);
+			assertEquals(1, (int) error.getCode());
+			assertEquals(99, (int) error.getSubcode());
+			assertEquals("OAuthException", error.getType());
+			assertEquals("AbCdEf12345", error.getTraceId());
+			assertTrue(error.isTransient());
+		}
+	}
+
+	@Test
+	public void code190TokenExpired_errorDetailsCarried() throws Exception {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-190-tokenExpired")).contentType(MediaType.APPLICATION_JSON));
+		try {
+			facebook.fetchObject("me", User.class);
+			fail();
+		} catch (ExpiredAuthorizationException e) {
+			FacebookError error = FacebookErrorException.findError(e);
+			assertEquals(190, (int) error.getCode());
+			assertEquals(463, (int) error.getSubcode());
+			assertNull(error.getTraceId());
+			assertFalse(error.isTransient());
+			assertEquals(0, e.getSuppressed()[0].getStackTrace().length);
+		}
+	}
+
+	@Test
+	public void notAnErrorResponse() throws Exception {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withStatus(HttpStatus.BAD_GATEWAY).body("[\"not\", \"an\", \"error\"]").contentType(MediaType.APPLICATION_JSON));
+		try {
+			facebook.fetchObject("me", User.class);
+			fail();
+		} catch (HttpServerErrorException e) {
+			assertNull(FacebookErrorException.findError(e));
+		}
+	}
+
 	@Test(expected=ServerException.class)
 	public void code2Service() throws Exception {
 		mockServer.expect(requestTo(fbUrl("me")))
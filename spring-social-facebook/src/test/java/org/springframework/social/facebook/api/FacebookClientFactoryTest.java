@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.social.facebook.api.impl.FacebookClientFactory;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+public class FacebookClientFactoryTest {
+
+	private FacebookClientFactory clientFactory;
+
+	private MockRestServiceServer mockServer;
+
+	@Before
+	public void setup() {
+		RestTemplate transport = new RestTemplate();
+		mockServer = MockRestServiceServer.createServer(transport);
+		clientFactory = new FacebookClientFactory(transport.getRequestFactory());
+	}
+
+	@Test
+	public void getFacebook_sharedTransport() {
+		Facebook facebook1 = clientFactory.getFacebook("token1");
+		Facebook facebook2 = clientFactory.getFacebook("token2");
+		mockServer.expect(requestTo(facebook1.getBaseGraphApiUrl() + "me"))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth token1"))
+			.andRespond(withSuccess("{\"id\":\"1\"}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(facebook2.getBaseGraphApiUrl() + "me"))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth token2"))
+			.andRespond(withSuccess("{\"id\":\"2\"}", MediaType.APPLICATION_JSON));
+		assertEquals("1", facebook1.fetchObject("me", User.class).getId());
+		assertEquals("2", facebook2.fetchObject("me", User.class).getId());
+		mockServer.verify();
+	}
+
+	@Test
+	public void facebookOperations_sharesTransport() {
+		Facebook facebook = clientFactory.getFacebook("userToken");
+		mockServer.expect(requestTo(facebook.getBaseGraphApiUrl() + "me/accounts"))
+			.andExpect(header("Authorization", "OAuth userToken"))
+			.andRespond(withSuccess(new ClassPathResource("accounts.json", getClass()), MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(facebook.getBaseGraphApiUrl() + "987654321"))
+			.andExpect(header("Authorization", "OAuth pageAccessToken"))
+			.andRespond(withSuccess("{\"id\":\"987654321\"}", MediaType.APPLICATION_JSON));
+		Facebook page = facebook.pageOperations().facebookOperations("987654321");
+		assertEquals("987654321", page.fetchObject("987654321", Page.class).getId());
+		mockServer.verify();
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class FacebookObjectTest {
+
+	@Test
+	public void extraData_emptyByDefault() {
+		SampleObject object = new SampleObject();
+		assertTrue(object.getExtraData().isEmpty());
+		object.getExtraData().put("foo", "bar");
+		assertEquals("bar", object.getExtraData().get("foo"));
+	}
+
+	@Test
+	public void extraData_add() {
+		SampleObject object = new SampleObject();
+		object.add("a", 1);
+		object.add("b", "two");
+		object.add("a", 3);
+		Map<String, Object> extraData = object.getExtraData();
+		assertEquals(2, extraData.size());
+		assertEquals(3, extraData.get("a"));
+		assertEquals("two", extraData.get("b"));
+		assertTrue(extraData.containsKey("b"));
+		assertFalse(extraData.containsKey("c"));
+		assertNull(extraData.get("c"));
+	}
+
+	@Test
+	public void extraData_growsBeyondArrayLimit() {
+		SampleObject object = new SampleObject();
+		Map<String, Object> expected = new HashMap<String, Object>();
+		List<String> keys = new ArrayList<String>();
+		for (int i = 0; i < ExtraDataMap.ARRAY_LIMIT * 2; i++) {
+			object.add("key" + i, i);
+			expected.put("key" + i, i);
+			keys.add("key" + i);
+			assertEquals(expected, object.getExtraData());
+		}
+		assertEquals(expected.hashCode(), object.getExtraData().hashCode());
+		assertEquals(keys, new ArrayList<String>(object.getExtraData().keySet()));
+		assertEquals(5, object.getExtraData().remove("key5"));
+		assertNull(object.getExtraData().remove("key5"));
+		assertEquals(ExtraDataMap.ARRAY_LIMIT * 2 - 1, object.getExtraData().size());
+	}
+
+	@Test
+	public void extraData_removeAndIterate() {
+		SampleObject object = new SampleObject();
+		object.add("a", 1);
+		object.add("b", 2);
+		object.add("c", 3);
+		object.add("d", 4);
+		Map<String, Object> extraData = object.getExtraData();
+		assertEquals(2, extraData.remove("b"));
+		assertNull(extraData.remove("b"));
+		Iterator<Map.Entry<String, Object>> entries = extraData.entrySet().iterator();
+		assertEquals("a", entries.next().getKey());
+		Map.Entry<String, Object> c = entries.next();
+		assertEquals("c", c.getKey());
+		c.setValue(30);
+		entries.remove();
+		Map.Entry<String, Object> d = entries.next();
+		assertEquals("d", d.getKey());
+		assertFalse(entries.hasNext());
+		assertEquals(2, extraData.size());
+		assertEquals(1, extraData.get("a"));
+		assertEquals(4, extraData.get("d"));
+		assertFalse(extraData.containsKey("c"));
+		extraData.clear();
+		assertTrue(extraData.isEmpty());
+		extraData.put("e", 5);
+		assertEquals(5, extraData.get("e"));
+	}
+
+	@Test
+	public void construction_doesNotAllocateExtraDataMap() {
+		java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+		Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+		allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+		int count = 10000;
+		Object[] objects = new Object[count];
+		Object[] controls = new Object[count * 2];
+		long objectBytes = Long.MAX_VALUE;
+		long controlBytes = Long.MAX_VALUE;
+		for (int round = 0; round < 5; round++) {
+			long start = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			for (int i = 0; i < count; i++) {
+				objects[i] = new SampleObject();
+			}
+			long middle = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			for (int i = 0; i < count; i++) {
+				controls[i * 2] = new Object();
+				controls[i * 2 + 1] = new HashMap<String, Object>();
+			}
+			long end = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			objectBytes = Math.min(objectBytes, middle - start);
+			controlBytes = Math.min(controlBytes, end - middle);
+		}
+		// an object with no extra data should cost less than a bare object plus an empty HashMap
+		assertTrue("FacebookObject allocated " + objectBytes / count + " bytes, an Object and a HashMap " + controlBytes / count,
+				objectBytes < controlBytes);
+	}
+
+	private static class SampleObject extends FacebookObject {
+	}
+
+}
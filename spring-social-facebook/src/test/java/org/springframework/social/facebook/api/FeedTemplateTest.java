@@ -205,6 +205,22 @@ public class FeedTemplateTest extends AbstractFacebookApiTest {
 		assertEquals("Art Names", feedEntry.getFrom().getName());
 	}
 
+	@Test
+	public void getFeedEntry_messageTagsArray() {
+		mockServer.expect(requestTo(fbUrl("100001387295207_123939024341978?fields=" + ALL_POST_FIELDS_STR)))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"100001387295207_123939024341978\",\"message\":\"Hi Chuck and Roy\","
+					+ "\"to\":{\"data\":[{\"id\":\"738140579\",\"name\":\"Chuck Wagon\"}]},"
+					+ "\"message_tags\":[{\"id\":\"738140579\",\"name\":\"Chuck\",\"type\":\"user\",\"offset\":3,\"length\":5},"
+					+ "{\"id\":\"1533260333\",\"name\":\"Roy\",\"type\":\"user\",\"offset\":13,\"length\":3}]}", MediaType.APPLICATION_JSON));
+		Post feedEntry = facebook.feedOperations().getPost("100001387295207_123939024341978");
+		assertEquals(1, feedEntry.getTo().size());
+		assertEquals("Chuck Wagon", feedEntry.getTo().get(0).getName());
+		assertEquals(2, feedEntry.getMessageTags().size());
+		assertEquals("738140579", feedEntry.getMessageTags().get(3).get(0).getId());
+		assertEquals("Roy", feedEntry.getMessageTags().get(13).get(0).getName());
+	}
+
 	@Test
 	public void updateStatus() throws Exception {
 		String requestBody = "message=Hello+Facebook+World";
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.social.ResourceNotFoundException;
+import org.springframework.social.UncategorizedApiException;
+
+public class FetchObjectsTest extends AbstractFacebookApiTest {
+
+	@Test
+	public void fetchObjects() {
+		mockServer.expect(requestTo(fbUrl("?ids=1%2C2&fields=id%2Cname")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess("{\"2\":{\"id\":\"2\",\"name\":\"Two\"},\"1\":{\"id\":\"1\",\"name\":\"One\"}}", MediaType.APPLICATION_JSON));
+		ObjectsById<User> users = facebook.fetchObjects(Arrays.asList("1", "2", "1"), User.class, "id", "name");
+		assertEquals(Arrays.asList("1", "2"), new ArrayList<String>(users.keySet()));
+		assertEquals("One", users.get("1").getName());
+		assertEquals("Two", users.get("2").getName());
+		assertFalse(users.hasErrors());
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchObjects_empty() {
+		ObjectsById<User> users = facebook.fetchObjects(Collections.<String>emptyList(), User.class);
+		assertTrue(users.isEmpty());
+		assertFalse(users.hasErrors());
+	}
+
+	@Test
+	public void fetchObjects_badIdIsolated() {
+		mockServer.expect(requestTo(fbUrl("?ids=1%2Cbogus")))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-803-unknownAlias")).contentType(MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("?ids=1")))
+			.andRespond(withSuccess("{\"1\":{\"id\":\"1\",\"name\":\"One\"}}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("?ids=bogus")))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-803-unknownAlias")).contentType(MediaType.APPLICATION_JSON));
+		ObjectsById<User> users = facebook.fetchObjects(Arrays.asList("1", "bogus"), User.class);
+		assertEquals(1, users.size());
+		assertEquals("One", users.get("1").getName());
+		assertEquals(1, users.getErrors().size());
+		assertTrue(users.getErrors().get("bogus") instanceof ResourceNotFoundException);
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchObjects_unreadableIdIsolated() {
+		mockServer.expect(requestTo(fbUrl("?ids=1%2C2")))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-100-badRequestUrl")).contentType(MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("?ids=1")))
+			.andRespond(withSuccess("{\"1\":{\"id\":\"1\",\"name\":\"One\"}}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("?ids=2")))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-100-badRequestUrl")).contentType(MediaType.APPLICATION_JSON));
+		ObjectsById<User> users = facebook.fetchObjects(Arrays.asList("1", "2"), User.class);
+		assertEquals("One", users.get("1").getName());
+		assertTrue(users.getErrors().get("2") instanceof UncategorizedApiException);
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchObjects_transientErrorNotRefetched() {
+		mockServer.expect(requestTo(fbUrl("?ids=1%2C2")))
+			.andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR).body(jsonResource("error-1-transient")).contentType(MediaType.APPLICATION_JSON));
+		ObjectsById<User> users = facebook.fetchObjects(Arrays.asList("1", "2"), User.class);
+		assertTrue(users.isEmpty());
+		assertEquals(2, users.getErrors().size());
+		assertSame(users.getErrors().get("1"), users.getErrors().get("2"));
+		assertTrue(users.getErrors().get("1") instanceof UncategorizedApiException);
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchObjects_malformedResponseNotRefetched() {
+		mockServer.expect(requestTo(fbUrl("?ids=1%2C2")))
+			.andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+		ObjectsById<User> users = facebook.fetchObjects(Arrays.asList("1", "2"), User.class);
+		assertTrue(users.isEmpty());
+		assertEquals(2, users.getErrors().size());
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchObjects_chunked() {
+		facebook.setTaskExecutor(new SyncTaskExecutor());
+		List<String> ids = new ArrayList<String>();
+		StringBuilder firstChunk = new StringBuilder();
+		StringBuilder firstResponse = new StringBuilder("{");
+		for (int i = 1; i <= GraphApi.MAX_OBJECT_IDS + 1; i++) {
+			ids.add(String.valueOf(i));
+			if (i <= GraphApi.MAX_OBJECT_IDS) {
+				firstChunk.append(i > 1 ? "%2C" : "").append(i);
+				firstResponse.append(i > 1 ? "," : "").append("\"" + i + "\":{\"id\":\"" + i + "\"}");
+			}
+		}
+		firstResponse.append("}");
+		mockServer.expect(requestTo(fbUrl("?ids=" + firstChunk)))
+			.andRespond(withSuccess(firstResponse.toString(), MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("?ids=51")))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		ObjectsById<User> users = facebook.fetchObjects(ids, User.class);
+		assertEquals(GraphApi.MAX_OBJECT_IDS, users.size());
+		assertEquals("50", users.get("50").getId());
+		assertTrue(users.getErrors().containsKey("51"));
+		mockServer.verify();
+	}
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.social.ResourceNotFoundException;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Exercises the default methods of {@link GraphApi} through an implementation of only its original methods.
+ */
+public class GraphApiDefaultMethodsTest extends AbstractFacebookApiTest {
+
+	private GraphApi graphApi;
+
+	@Before
+	public void setupGraphApi() {
+		graphApi = new OriginalGraphApi(facebook);
+	}
+
+	@Test
+	public void fetchObject_query() {
+		mockServer.expect(requestTo(fbUrl("me?fields=id%2Cname")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"1\",\"name\":\"One\"}", MediaType.APPLICATION_JSON));
+		Reference me = graphApi.fetchObject("me", GraphQuery.select(Reference.class).fields("id", "name").compile());
+		assertEquals("One", me.getName());
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchObjects() {
+		mockServer.expect(requestTo(fbUrl("1")))
+			.andRespond(withSuccess("{\"id\":\"1\",\"name\":\"One\"}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("bogus")))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-803-unknownAlias")).contentType(MediaType.APPLICATION_JSON));
+		ObjectsById<Reference> objects = graphApi.fetchObjects(Arrays.asList("1", "bogus", "1"), Reference.class);
+		assertEquals(1, objects.size());
+		assertEquals("One", objects.get("1").getName());
+		assertTrue(objects.getErrors().get("bogus") instanceof ResourceNotFoundException);
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchRawConnections() {
+		mockServer.expect(requestTo(fbUrl("me/friends")))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1\"}],\"paging\":{\"cursors\":{\"after\":\"a\"}},\"summary\":{\"total_count\":42}}", MediaType.APPLICATION_JSON));
+		RawConnectionPage page = graphApi.fetchRawConnections("me", "friends", null);
+		assertEquals("{\"data\":[{\"id\":\"1\"}]}", new String(page.getBody()));
+		assertEquals("a", page.getNextPage().getAfter());
+		assertEquals(42, (int) page.getTotalCount());
+		mockServer.verify();
+	}
+
+	@Test
+	public void streamConnections() {
+		mockServer.expect(requestTo(fbUrl("me/friends")))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}],\"paging\":{\"cursors\":{\"after\":\"a\"}}}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/friends?after=a")))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"3\"}],\"paging\":{\"cursors\":{\"after\":\"b\"}}}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/friends?after=b")))
+			.andRespond(withSuccess("{\"data\":[]}", MediaType.APPLICATION_JSON));
+		List<Reference> friends = graphApi.streamConnections("me", "friends", Reference.class, null)
+				.collect(Collectors.<Reference>toList());
+		assertEquals(3, friends.size());
+		assertEquals("3", friends.get(2).getId());
+		mockServer.verify();
+	}
+
+	@Test
+	public void streamConnections_maxItems() {
+		mockServer.expect(requestTo(fbUrl("me/friends")))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}],\"paging\":{\"cursors\":{\"after\":\"a\"}}}", MediaType.APPLICATION_JSON));
+		List<Reference> friends = graphApi.streamConnections("me", "friends", Reference.class, null, new ConnectionStreamOptions().maxItems(1))
+				.collect(Collectors.<Reference>toList());
+		assertEquals(1, friends.size());
+		mockServer.verify();
+	}
+
+	@Test
+	public void forEachConnection_stopped() {
+		mockServer.expect(requestTo(fbUrl("me/friends")))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}],\"paging\":{\"cursors\":{\"after\":\"a\"}}}", MediaType.APPLICATION_JSON));
+		ConnectionPageSummary page = graphApi.forEachConnection("me", "friends", Reference.class, null, new Predicate<Reference>() {
+			public boolean test(Reference friend) {
+				return false;
+			}
+		});
+		assertEquals(1, page.getItemCount());
+		assertTrue(page.isStopped());
+		assertEquals("a", page.getNextPage().getAfter());
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchImage_outputStream() {
+		byte[] image = { 1, 2, 3 };
+		mockServer.expect(requestTo(fbUrl("me/picture?type=normal")))
+			.andRespond(withSuccess(image, MediaType.IMAGE_JPEG));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(3, graphApi.fetchImage("me", "picture", ImageType.NORMAL, out));
+		assertArrayEquals(image, out.toByteArray());
+		mockServer.verify();
+	}
+
+	@Test
+	public void batch() {
+		mockServer.expect(requestTo(fbUrl("me/feed")))
+			.andExpect(method(POST))
+			.andExpect(content().string("message=Hello"))
+			.andRespond(withSuccess("{\"id\":\"123_456\"}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("123_456?fields=message")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"123_456\",\"message\":\"Hello\"}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("123_456")))
+			.andExpect(method(POST))
+			.andExpect(content().string("method=delete"))
+			.andRespond(withSuccess("{\"success\":true}", MediaType.APPLICATION_JSON));
+		GraphBatch batch = graphApi.batch();
+		MultiValueMap<String, Object> data = new LinkedMultiValueMap<String, Object>();
+		data.set("message", "Hello");
+		BatchResult<String> published = batch.publish("me", "feed", data);
+		BatchResult<Post> fetched = batch.fetchObject(published.reference("$.id"), Post.class, "message");
+		BatchResult<Void> deleted = batch.delete(published.reference("$.id")).dependsOn(fetched);
+		List<BatchResult<?>> results = batch.execute();
+		assertEquals(3, results.size());
+		assertEquals("123_456", published.get());
+		assertEquals("Hello", fetched.get().getMessage());
+		assertTrue(deleted.isSuccessful());
+		assertNull(deleted.getStatusCode());
+		mockServer.verify();
+	}
+
+	@Test
+	public void batch_referenceToEachItem() {
+		mockServer.expect(requestTo(fbUrl("me/friends")))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}]}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("?ids=1%2C2")))
+			.andRespond(withSuccess("{\"1\":{\"id\":\"1\"},\"2\":{\"id\":\"2\"}}", MediaType.APPLICATION_JSON));
+		GraphBatch batch = graphApi.batch();
+		BatchResult<PagedList<Reference>> friends = batch.fetchConnections("me", "friends", Reference.class);
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		parameters.set("ids", friends.reference("$.data.*.id"));
+		BatchResult<JsonNode> byId = batch.fetchObject("", JsonNode.class, parameters);
+		batch.execute();
+		assertEquals(2, friends.get().size());
+		assertTrue(byId.get().has("2"));
+		mockServer.verify();
+	}
+
+	@Test
+	public void batch_dependencyFailed() {
+		mockServer.expect(requestTo(fbUrl("bogus")))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-803-unknownAlias")).contentType(MediaType.APPLICATION_JSON));
+		GraphBatch batch = graphApi.batch();
+		BatchResult<Reference> bogus = batch.fetchObject("bogus", Reference.class);
+		BatchResult<Reference> dependent = batch.fetchObject(bogus.reference("$.id"), Reference.class);
+		BatchResult<Void> deleted = batch.delete("1").dependsOn(bogus);
+		batch.execute();
+		assertTrue(bogus.getException() instanceof ResourceNotFoundException);
+		assertTrue(dependent.isDone());
+		assertFalse(dependent.isSuccessful());
+		assertFalse(deleted.isSuccessful());
+		assertTrue(deleted.getException() instanceof UncategorizedApiException);
+		mockServer.verify();
+	}
+
+	// implements only the methods GraphApi had before the default methods were added
+	private static class OriginalGraphApi implements GraphApi {
+
+		private final GraphApi delegate;
+
+		public OriginalGraphApi(GraphApi delegate) {
+			this.delegate = delegate;
+		}
+
+		public <T> T fetchObject(String objectId, Class<T> type) {
+			return delegate.fetchObject(objectId, type);
+		}
+
+		public <T> T fetchObject(String objectId, Class<T> type, String... fields) {
+			return delegate.fetchObject(objectId, type, fields);
+		}
+
+		public <T> T fetchObject(String objectId, Class<T> type, MultiValueMap<String, String> queryParameters) {
+			return delegate.fetchObject(objectId, type, queryParameters);
+		}
+
+		public <T> PagedList<T> fetchConnections(String objectId, String connectionName, Class<T> type, String... fields) {
+			return delegate.fetchConnections(objectId, connectionName, type, fields);
+		}
+
+		public <T> PagedList<T> fetchConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters) {
+			return delegate.fetchConnections(objectId, connectionName, type, queryParameters);
+		}
+
+		public <T> PagedList<T> fetchConnections(String objectId, String connectionName, Class<T> type, MultiValueMap<String, String> queryParameters, String... fields) {
+			return delegate.fetchConnections(objectId, connectionName, type, queryParameters, fields);
+		}
+
+		public byte[] fetchImage(String objectId, String connectionName, ImageType imageType) {
+			return delegate.fetchImage(objectId, connectionName, imageType);
+		}
+
+		public byte[] fetchImage(String objectId, String connectionName, Integer width, Integer height) {
+			return delegate.fetchImage(objectId, connectionName, width, height);
+		}
+
+		public String publish(String objectId, String connectionName, MultiValueMap<String, Object> data) {
+			return delegate.publish(objectId, connectionName, data);
+		}
+
+		public void post(String objectId, MultiValueMap<String, Object> data) {
+			delegate.post(objectId, data);
+		}
+
+		public void post(String objectId, String connectionName, MultiValueMap<String, Object> data) {
+			delegate.post(objectId, connectionName, data);
+		}
+
+		public void delete(String objectId) {
+			delegate.delete(objectId);
+		}
+
+		public void delete(String objectId, String connectionName) {
+			delegate.delete(objectId, connectionName);
+		}
+
+		public void delete(String objectId, String connectionName, MultiValueMap<String, String> data) {
+			delegate.delete(objectId, connectionName, data);
+		}
+
+		public String getApplicationNamespace() {
+			return delegate.getApplicationNamespace();
+		}
+
+		public String getBaseGraphApiUrl() {
+			return delegate.getBaseGraphApiUrl();
+		}
+
+	}
+
+}
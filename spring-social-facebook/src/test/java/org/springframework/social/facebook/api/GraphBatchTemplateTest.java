@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.net.URLEncoder;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.social.ResourceNotFoundException;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+public class GraphBatchTemplateTest extends AbstractFacebookApiTest {
+
+	@Test
+	public void execute() throws Exception {
+		String batchJson = "[" +
+				"{\"method\":\"GET\",\"relative_url\":\"me?fields=id%2Cname\",\"name\":\"me\",\"omit_response_on_success\":false}," +
+				"{\"method\":\"GET\",\"relative_url\":\"{result=me:$.id}/feed?limit=1\",\"depends_on\":\"me\"}," +
+				"{\"method\":\"POST\",\"relative_url\":\"me/feed\",\"body\":\"message=Hello+world%21\"}," +
+				"{\"method\":\"GET\",\"relative_url\":\"bogus\"}," +
+				"{\"method\":\"DELETE\",\"relative_url\":\"100001387295207_123\"}" +
+				"]";
+		mockServer.expect(requestTo(fbUrl("")))
+			.andExpect(method(POST))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andExpect(content().string("batch=" + URLEncoder.encode(batchJson, "UTF-8") + "&include_headers=false"))
+			.andRespond(withSuccess(jsonResource("batch-response"), MediaType.APPLICATION_JSON));
+
+		GraphBatch batch = facebook.batch();
+		BatchResult<User> me = batch.fetchObject("me", User.class, "id", "name").name("me").omitResponseOnSuccess(false);
+		MultiValueMap<String, String> feedParameters = new LinkedMultiValueMap<String, String>();
+		feedParameters.set("limit", "1");
+		BatchResult<PagedList<Post>> feed = batch.fetchConnections(me.reference("$.id"), "feed", Post.class, feedParameters).dependsOn(me);
+		MultiValueMap<String, Object> data = new LinkedMultiValueMap<String, Object>();
+		data.set("message", "Hello world!");
+		BatchResult<String> published = batch.publish("me", "feed", data);
+		BatchResult<User> missing = batch.fetchObject("bogus", User.class);
+		BatchResult<Void> deleted = batch.delete("100001387295207_123");
+		assertFalse(me.isDone());
+		assertEquals(5, batch.size());
+
+		List<BatchResult<?>> results = batch.execute();
+		assertEquals(5, results.size());
+		assertSame(me, results.get(0));
+
+		assertTrue(me.isSuccessful());
+		assertEquals(200, me.getStatusCode().intValue());
+		assertEquals("100001387295207", me.get().getId());
+		assertEquals("Craig Walls", me.get().getName());
+
+		assertEquals(1, feed.get().size());
+		assertEquals("Hello world", feed.get().get(0).getMessage());
+		assertEquals("QVFIUn", feed.get().getNextPage().getAfter());
+
+		assertEquals("100001387295207_123456789", published.get());
+
+		assertFalse(missing.isSuccessful());
+		assertEquals(404, missing.getStatusCode().intValue());
+		assertTrue(missing.getException() instanceof ResourceNotFoundException);
+		try {
+			missing.get();
+			fail();
+		} catch (ResourceNotFoundException e) {
+			assertSame(missing.getException(), e);
+		}
+
+		assertTrue(deleted.isDone());
+		assertFalse(deleted.isSuccessful());
+		assertNull(deleted.getStatusCode());
+		assertTrue(deleted.getException() instanceof UncategorizedApiException);
+		mockServer.verify();
+	}
+
+	@Test
+	public void omittedResponseOnSuccess() throws Exception {
+		String batchJson = "[{\"method\":\"DELETE\",\"relative_url\":\"100001387295207_123\",\"omit_response_on_success\":true}]";
+		mockServer.expect(requestTo(fbUrl("")))
+			.andExpect(method(POST))
+			.andExpect(content().string("batch=" + URLEncoder.encode(batchJson, "UTF-8") + "&include_headers=false"))
+			.andRespond(withSuccess("[null]", MediaType.APPLICATION_JSON));
+		GraphBatch batch = facebook.batch();
+		BatchResult<Void> deleted = batch.delete("100001387295207_123").omitResponseOnSuccess(true);
+		batch.execute();
+		assertTrue(deleted.isSuccessful());
+		assertNull(deleted.getStatusCode());
+		assertNull(deleted.get());
+		mockServer.verify();
+	}
+
+	@Test
+	public void referencedOperationKeepsItsResponse() throws Exception {
+		String batchJson = "[" +
+				"{\"method\":\"GET\",\"relative_url\":\"me?fields=id\",\"name\":\"operation0\",\"omit_response_on_success\":false}," +
+				"{\"method\":\"GET\",\"relative_url\":\"{result=operation0:$.id}/feed\",\"depends_on\":\"operation0\"}" +
+				"]";
+		mockServer.expect(requestTo(fbUrl("")))
+			.andExpect(method(POST))
+			.andExpect(content().string("batch=" + URLEncoder.encode(batchJson, "UTF-8") + "&include_headers=false"))
+			.andRespond(withSuccess("[{\"code\":200,\"body\":\"{\\\"id\\\":\\\"100001387295207\\\"}\"},{\"code\":200,\"body\":\"{\\\"data\\\":[]}\"}]", MediaType.APPLICATION_JSON));
+		GraphBatch batch = facebook.batch();
+		BatchResult<User> me = batch.fetchObject("me", User.class, "id");
+		BatchResult<PagedList<Post>> feed = batch.fetchConnections(me.reference("$.id"), "feed", Post.class).dependsOn(me);
+		batch.execute();
+		assertTrue(me.isSuccessful());
+		assertEquals("100001387295207", me.get().getId());
+		assertTrue(feed.isSuccessful());
+		assertEquals(0, feed.get().size());
+		mockServer.verify();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void tooManyOperations() {
+		GraphBatch batch = facebook.batch();
+		for (int i = 0; i <= GraphBatch.MAX_OPERATIONS; i++) {
+			batch.fetchObject("object" + i, User.class);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void getBeforeExecute() {
+		facebook.batch().fetchObject("me", User.class).get();
+	}
+
+}
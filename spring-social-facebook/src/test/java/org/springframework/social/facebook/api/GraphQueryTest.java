@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+public class GraphQueryTest extends AbstractFacebookApiTest {
+
+	private static final GraphQuery<Post> POSTS = GraphQuery.select(Post.class)
+			.fields("id", "message")
+			.field(GraphQuery.field("comments").modifier("limit", 0).modifier("summary", true))
+			.field(GraphQuery.field("from").fields("id", "name").field(GraphQuery.field("picture").fields("url")))
+			.compile();
+
+	@Test
+	public void rendersModifiersAndSubfields() {
+		assertEquals("id,message,comments.limit(0).summary(true),from{id,name,picture{url}}", POSTS.getFields());
+		assertEquals("id%2Cmessage%2Ccomments.limit%280%29.summary%28true%29%2Cfrom%7Bid%2Cname%2Cpicture%7Burl%7D%7D", POSTS.getEncodedFields());
+		assertArrayEquals(new String[] { "id", "message", "comments", "from" }, POSTS.getFieldNames());
+		assertSame(Post.class, POSTS.getType());
+	}
+
+	@Test
+	public void compiledQueriesAreValues() {
+		GraphQuery.Builder<Post> builder = GraphQuery.select(Post.class).fields("id");
+		GraphQuery<Post> query = builder.compile();
+		builder.fields("message");
+		assertEquals("id", query.getFields());
+		assertEquals(query, GraphQuery.select(Post.class).fields("id").compile());
+		assertEquals(query.hashCode(), GraphQuery.select(Post.class).fields("id").compile().hashCode());
+		assertFalse(query.equals(GraphQuery.select(Comment.class).fields("id").compile()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyFieldName() {
+		GraphQuery.field("");
+	}
+
+	@Test
+	public void fetchObject() {
+		mockServer.expect(requestTo(fbUrl("10150146071791729?fields=" + POSTS.getEncodedFields())))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(jsonResource("post"), MediaType.APPLICATION_JSON));
+		Post post = facebook.fetchObject("10150146071791729", POSTS);
+		assertNotNull(post.getId());
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchConnections_queryFieldsReplaceFieldsParameter() {
+		mockServer.expect(requestTo(fbUrl("me/feed?limit=2&fields=" + POSTS.getEncodedFields())))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(jsonResource("post-list"), MediaType.APPLICATION_JSON));
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		parameters.set("fields", "id");
+		parameters.set("limit", "2");
+		PagedList<Post> posts = facebook.fetchConnections("me", "feed", POSTS, parameters);
+		assertFalse(posts.isEmpty());
+		mockServer.verify();
+	}
+
+}
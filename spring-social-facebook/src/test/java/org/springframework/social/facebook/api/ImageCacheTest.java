@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.social.facebook.api.impl.FacebookTemplate;
+import org.springframework.social.facebook.api.impl.ImageCache;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+public class ImageCacheTest extends AbstractFacebookApiTest {
+
+	private static final byte[] IMAGE = { (byte) 0xff, (byte) 0xd8, (byte) 0xff, (byte) 0xe0, 1, 2, 3, 4, 5, 6, 7, 8, (byte) 0xff, (byte) 0xd9 };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void servesRepeatFetchesFromMemory() {
+		ImageCache cache = new ImageCache(1024);
+		facebook.setImageCache(cache);
+		expectImage("1234567/picture?type=normal", IMAGE, null);
+		assertArrayEquals(IMAGE, facebook.userOperations().getUserProfileImage("1234567"));
+		assertArrayEquals(IMAGE, facebook.userOperations().getUserProfileImage("1234567"));
+		mockServer.verify();
+		assertEquals(1, cache.getMemoryHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRatio(), 0.0001);
+		assertEquals(IMAGE.length, cache.getMemorySize());
+	}
+
+	@Test
+	public void keyedByImageTypeAndDimensions() {
+		facebook.setImageCache(new ImageCache(1024));
+		expectImage("1234567/picture?type=normal", IMAGE, null);
+		expectImage("1234567/picture?type=large", IMAGE, null);
+		expectImage("1234567/picture?width=100&height=100", IMAGE, null);
+		facebook.userOperations().getUserProfileImage("1234567", ImageType.NORMAL);
+		facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE);
+		facebook.userOperations().getUserProfileImage("1234567", 100, 100);
+		facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE);
+		mockServer.verify();
+	}
+
+	@Test
+	public void meKeyedByAccessToken() {
+		ImageCache cache = new ImageCache(1024);
+		facebook.setImageCache(cache);
+		FacebookTemplate otherFacebook = new FacebookTemplate("otherAccessToken");
+		otherFacebook.setImageCache(cache);
+		MockRestServiceServer otherMockServer = MockRestServiceServer.createServer(otherFacebook.getRestTemplate());
+		expectImage("me/picture?type=normal", IMAGE, null);
+		otherMockServer.expect(requestTo(fbUrl("me/picture?type=normal")))
+			.andRespond(withSuccess(IMAGE, MediaType.IMAGE_JPEG));
+		facebook.userOperations().getUserProfileImage();
+		otherFacebook.userOperations().getUserProfileImage();
+		mockServer.verify();
+		otherMockServer.verify();
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void keyedByAccessTokenUnlessShared() {
+		ImageCache cache = new ImageCache(1024);
+		facebook.setImageCache(cache);
+		FacebookTemplate otherFacebook = new FacebookTemplate("otherAccessToken");
+		otherFacebook.setImageCache(cache);
+		MockRestServiceServer otherMockServer = MockRestServiceServer.createServer(otherFacebook.getRestTemplate());
+		expectImage("1234567/picture?type=normal", IMAGE, null);
+		otherMockServer.expect(requestTo(fbUrl("1234567/picture?type=normal")))
+			.andRespond(withSuccess(IMAGE, MediaType.IMAGE_JPEG));
+		facebook.userOperations().getUserProfileImage("1234567");
+		otherFacebook.userOperations().getUserProfileImage("1234567");
+		mockServer.verify();
+		otherMockServer.verify();
+		assertEquals(2, cache.getMissCount());
+
+		ImageCache sharedCache = new ImageCache(1024);
+		sharedCache.setSharedAcrossTokens(true);
+		facebook.setImageCache(sharedCache);
+		otherFacebook.setImageCache(sharedCache);
+		mockServer.reset();
+		expectImage("1234567/picture?type=normal", IMAGE, null);
+		facebook.userOperations().getUserProfileImage("1234567");
+		assertArrayEquals(IMAGE, otherFacebook.userOperations().getUserProfileImage("1234567"));
+		mockServer.verify();
+		assertEquals(1, sharedCache.getMemoryHitCount());
+	}
+
+	@Test
+	public void servesImagesFromDirectoryAfterRestart() throws Exception {
+		File directory = folder.newFolder("images");
+		facebook.setImageCache(new ImageCache(1024, directory, 1024 * 1024));
+		expectImage("1234567/picture?type=large", IMAGE, null);
+		facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE);
+		mockServer.verify();
+
+		ImageCache restarted = new ImageCache(1024, directory, 1024 * 1024);
+		assertTrue(restarted.getDiskSize() > IMAGE.length);
+		facebook.setImageCache(restarted);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(IMAGE.length, facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE, out));
+		assertArrayEquals(IMAGE, out.toByteArray());
+		out.reset();
+		assertEquals(IMAGE.length, facebook.fetchImage("1234567", "picture", ImageType.LARGE, Channels.newChannel(out)));
+		assertArrayEquals(IMAGE, out.toByteArray());
+		assertArrayEquals(IMAGE, facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE));
+		assertEquals(3, restarted.getDiskHitCount());
+		assertEquals(0, restarted.getMissCount());
+	}
+
+	@Test
+	public void revalidatesExpiredImages() throws Exception {
+		File directory = folder.newFolder("images");
+		ImageCache cache = new ImageCache(1024, directory, 1024 * 1024);
+		cache.setTimeToLive(0);
+		facebook.setImageCache(cache);
+		expectImage("1234567/picture?type=large", IMAGE, "\"abc\"");
+		mockServer.expect(requestTo(fbUrl("1234567/picture?type=large")))
+			.andExpect(method(GET))
+			.andExpect(header("If-None-Match", "\"abc\""))
+			.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+		facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE);
+		assertArrayEquals(IMAGE, facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE));
+		mockServer.verify();
+		assertEquals(1, cache.getNotModifiedCount());
+		assertEquals(1, cache.getMissCount());
+
+		// the renewed expiry is kept in the directory
+		cache.setTimeToLive(ImageCache.DEFAULT_TIME_TO_LIVE);
+		mockServer.reset();
+		mockServer.expect(requestTo(fbUrl("1234567/picture?type=large")))
+			.andExpect(header("If-None-Match", "\"abc\""))
+			.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+		facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE);
+		mockServer.verify();
+		ImageCache restarted = new ImageCache(1024, directory, 1024 * 1024);
+		facebook.setImageCache(restarted);
+		facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE);
+		assertEquals(1, restarted.getDiskHitCount());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedFiles() throws Exception {
+		File directory = folder.newFolder("images");
+		// room for one image file
+		facebook.setImageCache(new ImageCache(1024, directory, 60));
+		expectImage("1/picture?type=large", IMAGE, "\"1\"");
+		expectImage("2/picture?type=large", IMAGE, "\"2\"");
+		facebook.fetchImage("1", "picture", ImageType.LARGE);
+		facebook.fetchImage("2", "picture", ImageType.LARGE);
+		mockServer.verify();
+
+		ImageCache restarted = new ImageCache(1024, directory, 60);
+		assertTrue(restarted.getDiskSize() <= 60);
+		facebook.setImageCache(restarted);
+		mockServer.reset();
+		expectImage("1/picture?type=large", IMAGE, "\"1\"");
+		facebook.fetchImage("2", "picture", ImageType.LARGE);
+		facebook.fetchImage("1", "picture", ImageType.LARGE);
+		mockServer.verify();
+		assertEquals(1, restarted.getDiskHitCount());
+		assertEquals(1, restarted.getMissCount());
+	}
+
+	private void expectImage(String path, byte[] image, String etag) {
+		HttpHeaders headers = new HttpHeaders();
+		if (etag != null) {
+			headers.setETag(etag);
+		}
+		mockServer.expect(requestTo(fbUrl(path)))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(image, MediaType.IMAGE_JPEG).headers(headers));
+	}
+
+}
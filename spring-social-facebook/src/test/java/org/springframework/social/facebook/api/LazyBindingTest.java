@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.social.UncategorizedApiException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class LazyBindingTest extends AbstractFacebookApiTest {
+
+	@Test
+	public void lazyPostsMatchEagerPosts() throws Exception {
+		mockServer.expect(requestTo(fbUrl("me/feed"))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("feed"), MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/feed"))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("feed"), MediaType.APPLICATION_JSON));
+		PagedList<Post> eager = facebook.fetchConnections("me", "feed", Post.class, null, BindingMode.EAGER);
+		PagedList<Post> lazy = facebook.fetchConnections("me", "feed", Post.class, null, BindingMode.LAZY);
+		assertEquals(eager.size(), lazy.size());
+		assertEquals(eager.getNextPage().getUntil(), lazy.getNextPage().getUntil());
+		ObjectMapper objectMapper = new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+		for (int i = 0; i < eager.size(); i++) {
+			assertTrue(lazy.get(i) instanceof Post);
+			assertNotSame(Post.class, lazy.get(i).getClass());
+			for (Method getter : Post.class.getMethods()) {
+				if (getter.getParameterTypes().length == 0 && !Modifier.isStatic(getter.getModifiers()) && getter.getDeclaringClass() != Object.class
+						&& (getter.getName().startsWith("get") || getter.getName().startsWith("is"))) {
+					assertEquals(getter.getName(), objectMapper.writeValueAsString(getter.invoke(eager.get(i))), objectMapper.writeValueAsString(getter.invoke(lazy.get(i))));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void derivedGettersBindWholeObject() {
+		mockServer.expect(requestTo(fbUrl("me/feed"))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("feed"), MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/feed"))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("feed"), MediaType.APPLICATION_JSON));
+		PagedList<Post> eager = facebook.fetchConnections("me", "feed", Post.class, null, BindingMode.EAGER);
+		PagedList<Post> lazy = facebook.fetchConnections("me", "feed", Post.class, null, BindingMode.LAZY);
+		for (int i = 0; i < eager.size(); i++) {
+			assertEquals(eager.get(i).getType(), lazy.get(i).getType());
+			assertEquals(eager.get(i).getCaption(), lazy.get(i).getCaption());
+			assertEquals(eager.get(i).getExtraData(), lazy.get(i).getExtraData());
+			assertEquals(eager.get(i).getRawJson(), lazy.get(i).getRawJson());
+		}
+	}
+
+	@Test
+	public void propertiesAreBoundWhenRead() {
+		mockServer.expect(requestTo(fbUrl("me/feed?fields=id%2Cmessage%2Ccreated_time"))).andExpect(method(GET))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1_2\",\"message\":\"Hello\",\"created_time\":\"not a date\"}]}", MediaType.APPLICATION_JSON));
+		PagedList<Post> posts = facebook.fetchConnections("me", "feed", Post.class, null, BindingMode.LAZY, "id", "message", "created_time");
+		assertEquals(1, posts.size());
+		Post post = posts.get(0);
+		assertEquals("1_2", post.getId());
+		assertEquals("Hello", post.getMessage());
+		assertNull(post.getStory());
+		try {
+			post.getCreatedTime();
+			fail("Expected the malformed created_time to fail when read");
+		} catch (UncategorizedApiException e) {
+			// expected
+		}
+		assertEquals("Hello", post.getMessage());
+	}
+
+	@Test
+	public void queryParametersAreKept() {
+		mockServer.expect(requestTo(fbUrl("me/feed?limit=2&fields=id%2Cmessage"))).andExpect(method(GET))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1_2\",\"message\":\"Hello\"}]}", MediaType.APPLICATION_JSON));
+		PagedList<Post> posts = facebook.fetchConnections("me", "feed", Post.class, new PagingParameters(2, null, null, null).toMap(), BindingMode.LAZY, "id", "message");
+		assertEquals("Hello", posts.get(0).getMessage());
+	}
+
+	@Test
+	public void typesBoundThroughCreatorsAreBoundEagerly() {
+		mockServer.expect(requestTo(fbUrl("me/friends"))).andExpect(method(GET))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1\",\"name\":\"Art Names\"}]}", MediaType.APPLICATION_JSON));
+		PagedList<Reference> friends = facebook.fetchConnections("me", "friends", Reference.class, null, BindingMode.LAZY);
+		assertSame(Reference.class, friends.get(0).getClass());
+		assertEquals("Art Names", friends.get(0).getName());
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static java.util.Arrays.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.social.facebook.api.impl.FacebookTemplate;
+import org.springframework.social.facebook.api.impl.ObjectCache;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+public class ObjectCacheTest extends AbstractFacebookApiTest {
+
+	private ObjectCache cache;
+
+	@Before
+	public void setupCache() {
+		cache = new ObjectCache();
+		facebook.setObjectCache(cache);
+	}
+
+	@Test
+	public void cachesUserProfile() {
+		expectProfile("me");
+		User first = facebook.userOperations().getUserProfile();
+		User second = facebook.userOperations().getUserProfile();
+		mockServer.verify();
+		assertSame(first, second);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void cachesPage() {
+		mockServer.expect(requestTo(startsWith(fbUrl("220817147947513?fields="))))
+			.andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("place-with-hours-page"), MediaType.APPLICATION_JSON));
+		Page page = facebook.pageOperations().getPage("220817147947513");
+		assertSame(page, facebook.pageOperations().getPage("220817147947513"));
+		mockServer.verify();
+	}
+
+	@Test
+	public void aliasInvalidatedByObjectId() {
+		expectProfile("me");
+		expectProfile("me");
+		facebook.userOperations().getUserProfile();
+		cache.invalidate("123456789", asList("email"));
+		facebook.userOperations().getUserProfile();
+		mockServer.verify();
+		assertEquals(0, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void keptWhenOtherFieldsChange() {
+		expectProfile("123456789");
+		facebook.userOperations().getUserProfile("123456789");
+		cache.invalidate("123456789", asList("feed", "friends"));
+		facebook.userOperations().getUserProfile("123456789");
+		mockServer.verify();
+		assertEquals(1, cache.getHitCount());
+		cache.invalidate("123456789");
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void expiresAfterTimeToLive() throws Exception {
+		cache.setTimeToLive(User.class, 1);
+		expectProfile("me");
+		expectProfile("me");
+		facebook.userOperations().getUserProfile();
+		Thread.sleep(10);
+		facebook.userOperations().getUserProfile();
+		mockServer.verify();
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void typesWithoutTimeToLiveNotCached() {
+		cache.setTimeToLive(User.class, 0);
+		expectProfile("me");
+		expectProfile("me");
+		facebook.userOperations().getUserProfile();
+		facebook.userOperations().getUserProfile();
+		mockServer.verify();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void keyedByAccessToken() {
+		FacebookTemplate otherFacebook = new FacebookTemplate("otherAccessToken");
+		otherFacebook.setObjectCache(cache);
+		MockRestServiceServer otherMockServer = MockRestServiceServer.createServer(otherFacebook.getRestTemplate());
+		expectProfile("me");
+		otherMockServer.expect(requestTo(startsWith(fbUrl("me?fields="))))
+			.andExpect(header("Authorization", "OAuth otherAccessToken"))
+			.andRespond(withSuccess(jsonResource("minimal-profile"), MediaType.APPLICATION_JSON));
+		facebook.userOperations().getUserProfile();
+		otherFacebook.userOperations().getUserProfile();
+		mockServer.verify();
+		otherMockServer.verify();
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedObjects() {
+		// room for two profiles
+		cache = new ObjectCache(ObjectCache.DEFAULT_TIME_TO_LIVE, 30);
+		facebook.setObjectCache(cache);
+		expectProfile("1");
+		expectProfile("2");
+		expectProfile("3");
+		expectProfile("2");
+		facebook.userOperations().getUserProfile("1");
+		facebook.userOperations().getUserProfile("2");
+		facebook.userOperations().getUserProfile("1");
+		facebook.userOperations().getUserProfile("3");
+		facebook.userOperations().getUserProfile("2");
+		mockServer.verify();
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.size());
+	}
+
+	private void expectProfile(String userId) {
+		mockServer.expect(requestTo(startsWith(fbUrl(userId + "?fields="))))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(jsonResource("full-profile"), MediaType.APPLICATION_JSON));
+	}
+
+}
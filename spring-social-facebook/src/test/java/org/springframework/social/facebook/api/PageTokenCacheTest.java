@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.social.facebook.api.impl.FacebookTemplate;
+import org.springframework.social.facebook.api.impl.PageTokenCache;
+import org.springframework.test.web.client.ResponseCreator;
+
+public class PageTokenCacheTest extends AbstractFacebookApiTest {
+
+	@Test
+	public void followsAccountsPaging() {
+		mockServer.expect(requestTo(fbUrl("me/accounts")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess(accountsPage("1111", "tokenOne", fbUrl("me/accounts?limit=1&after=MTExMQ%3D%3D")), MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/accounts?limit=1&after=MTExMQ%3D%3D")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess(accountsPage("2222", "tokenTwo", null), MediaType.APPLICATION_JSON));
+		assertEquals("tokenTwo", facebook.pageOperations().getAccessToken("2222"));
+		assertEquals("tokenOne", facebook.pageOperations().getAccessToken("1111"));
+		mockServer.verify();
+	}
+
+	@Test
+	public void concurrentLookupsFetchOnce() throws Exception {
+		mockServer.expect(requestTo(fbUrl("me/accounts")))
+			.andRespond(new ResponseCreator() {
+				public ClientHttpResponse createResponse(ClientHttpRequest request) throws IOException {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return withSuccess(jsonResource("accounts"), MediaType.APPLICATION_JSON).createResponse(request);
+				}
+			});
+		final PageOperations pageOperations = facebook.pageOperations();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> tokens = new ArrayList<Future<String>>();
+			for (int i = 0; i < 8; i++) {
+				tokens.add(executor.submit(new Callable<String>() {
+					public String call() {
+						return pageOperations.getAccessToken("987654321");
+					}
+				}));
+			}
+			for (Future<String> token : tokens) {
+				assertEquals("pageAccessToken", token.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		mockServer.verify();
+	}
+
+	@Test
+	public void unknownPageFetchedAgainOnlyAfterInterval() {
+		expectFetchAccounts();
+		assertFalse(facebook.pageOperations().isPageAdmin("5555"));
+		assertFalse(facebook.pageOperations().isPageAdmin("5555"));
+		assertTrue(facebook.pageOperations().isPageAdmin("987654321"));
+		mockServer.verify();
+	}
+
+	@Test
+	public void expiredAccountsFetchedAgain() throws Exception {
+		PageTokenCache cache = new PageTokenCache();
+		cache.setTimeToLive(1);
+		facebook.setPageTokenCache(cache);
+		expectFetchAccounts();
+		expectFetchAccounts();
+		facebook.pageOperations().getAccessToken("987654321");
+		Thread.sleep(10);
+		facebook.pageOperations().getAccessToken("987654321");
+		mockServer.verify();
+	}
+
+	@Test
+	public void refreshedAheadOfExpiry() throws Exception {
+		PageTokenCache cache = new PageTokenCache();
+		cache.setRefreshAfter(1);
+		facebook.setPageTokenCache(cache);
+		// refreshes only run when the test runs them, so later lookups can't trigger more of them
+		final List<Runnable> refreshes = new ArrayList<Runnable>();
+		facebook.setTaskExecutor(new Executor() {
+			public void execute(Runnable command) {
+				refreshes.add(command);
+			}
+		});
+		expectFetchAccounts();
+		mockServer.expect(requestTo(fbUrl("me/accounts")))
+			.andRespond(withSuccess(accountsPage("987654321", "newPageAccessToken", null), MediaType.APPLICATION_JSON));
+		assertEquals("pageAccessToken", facebook.pageOperations().getAccessToken("987654321"));
+		Thread.sleep(10);
+		// answered from the cache while the accounts are refreshed
+		assertEquals("pageAccessToken", facebook.pageOperations().getAccessToken("987654321"));
+		assertEquals(1, refreshes.size());
+		refreshes.remove(0).run();
+		assertEquals("newPageAccessToken", facebook.pageOperations().getAccessToken("987654321"));
+		mockServer.verify();
+	}
+
+	@Test
+	public void sharedByTemplatesOfSameUser() {
+		PageTokenCache cache = new PageTokenCache();
+		facebook.setPageTokenCache(cache);
+		FacebookTemplate otherFacebook = new FacebookTemplate(ACCESS_TOKEN);
+		otherFacebook.setPageTokenCache(cache);
+		expectFetchAccounts();
+		assertEquals("pageAccessToken", facebook.pageOperations().getAccessToken("987654321"));
+		assertEquals("page2AccessToken", otherFacebook.pageOperations().getAccessToken("1212121212"));
+		mockServer.verify();
+		cache.invalidate(ACCESS_TOKEN);
+		mockServer.reset();
+		expectFetchAccounts();
+		facebook.pageOperations().getAccessToken("987654321");
+		mockServer.verify();
+	}
+
+	private void expectFetchAccounts() {
+		mockServer.expect(requestTo(fbUrl("me/accounts")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(jsonResource("accounts"), MediaType.APPLICATION_JSON));
+	}
+
+	private static String accountsPage(String pageId, String accessToken, String next) {
+		String paging = next != null ? ",\"paging\":{\"cursors\":{\"after\":\"MTExMQ==\"},\"next\":\"" + next + "\"}" : "";
+		return "{\"data\":[{\"id\":\"" + pageId + "\",\"name\":\"Page " + pageId + "\",\"category\":\"Page\",\"access_token\":\"" + accessToken + "\"}]" + paging + "}";
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.social.facebook.api.impl.PagedListCodec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class PagedListCodecTest extends AbstractFacebookApiTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+
+	@Test
+	public void posts() throws Exception {
+		PagedList<Post> posts = fetch("feed", Post.class, BindingMode.EAGER);
+		PagedList<Post> decoded = roundTrip(new PagedListCodec(), posts, Post.class);
+		assertEquals(posts.getPreviousPage().getSince(), decoded.getPreviousPage().getSince());
+		assertEquals(posts.getNextPage().getUntil(), decoded.getNextPage().getUntil());
+		assertEquals(posts.getNextPage().getLimit(), decoded.getNextPage().getLimit());
+		assertNull(decoded.getTotalCount());
+		assertNull(decoded.get(0).getRawJson());
+	}
+
+	@Test
+	public void lazyPosts() throws Exception {
+		PagedList<Post> posts = fetch("feed", Post.class, BindingMode.LAZY);
+		PagedList<Post> decoded = roundTrip(new PagedListCodec(), posts, Post.class);
+		assertSame(Post.class, decoded.get(0).getClass());
+	}
+
+	@Test
+	public void totalCount() throws Exception {
+		PagedList<Reference> friends = fetch("friends", Reference.class, BindingMode.EAGER);
+		PagedList<Reference> decoded = roundTrip(new PagedListCodec(), friends, Reference.class);
+		assertEquals(477, (int) decoded.getTotalCount());
+		assertNull(decoded.getPreviousPage());
+		assertEquals(25, (int) decoded.getNextPage().getOffset());
+		assertEquals(friends.getNextPage().getFullUrl(), decoded.getNextPage().getFullUrl());
+	}
+
+	@Test
+	public void otherModelTypes() throws Exception {
+		PagedListCodec codec = new PagedListCodec();
+		roundTrip(codec, fetch("comments", Comment.class, BindingMode.EAGER), Comment.class);
+		roundTrip(codec, fetch("albums", Album.class, BindingMode.EAGER), Album.class);
+		roundTrip(codec, fetch("photos", Photo.class, BindingMode.EAGER), Photo.class);
+		roundTrip(codec, fetch("user-events", Event.class, BindingMode.EAGER), Event.class);
+		roundTrip(codec, fetch("user-likes", Page.class, BindingMode.EAGER), Page.class);
+	}
+
+	@Test
+	public void extraData() throws Exception {
+		mockServer.expect(requestTo(fbUrl("me/feed"))).andExpect(method(GET))
+			.andRespond(withSuccess("{\"data\":[{\"id\":\"1_2\",\"message\":\"Hello\",\"unmapped\":{\"count\":3,\"list\":[1,\"two\"]}}]}", MediaType.APPLICATION_JSON));
+		PagedList<Post> posts = facebook.fetchConnections("me", "feed", Post.class);
+		PagedList<Post> decoded = roundTrip(new PagedListCodec(), posts, Post.class);
+		assertEquals(posts.get(0).getExtraData(), decoded.get(0).getExtraData());
+		assertEquals(3, ((java.util.Map<?, ?>) decoded.get(0).getExtraData().get("unmapped")).get("count"));
+	}
+
+	@Test
+	public void rawJsonIncludedWhenEnabled() throws Exception {
+		PagedList<Post> posts = fetch("feed", Post.class, BindingMode.EAGER);
+		PagedListCodec codec = new PagedListCodec();
+		codec.setIncludeRawJson(true);
+		PagedList<Post> decoded = roundTrip(codec, posts, Post.class);
+		for (int i = 0; i < posts.size(); i++) {
+			assertNotNull(decoded.get(i).getRawJson());
+			assertEquals(posts.get(i).getRawJson(), decoded.get(i).getRawJson());
+		}
+		assertTrue(codec.encode(posts, Post.class).length > new PagedListCodec().encode(posts, Post.class).length);
+	}
+
+	@Test
+	public void json() throws Exception {
+		PagedList<Post> posts = fetch("feed", Post.class, BindingMode.EAGER);
+		PagedListCodec smile = new PagedListCodec();
+		PagedListCodec json = new PagedListCodec(new JsonFactory());
+		roundTrip(json, posts, Post.class);
+		assertTrue(smile.encode(posts, Post.class).length < json.encode(posts, Post.class).length);
+	}
+
+	@Test
+	public void emptyList() throws Exception {
+		PagedList<Post> empty = new PagedList<Post>(Collections.<Post>emptyList(), null, null);
+		PagedList<Post> decoded = new PagedListCodec().decode(new PagedListCodec().encode(empty, Post.class), Post.class);
+		assertTrue(decoded.isEmpty());
+		assertNull(decoded.getPreviousPage());
+		assertNull(decoded.getNextPage());
+	}
+
+	@Test(expected=java.io.IOException.class)
+	public void decodeNotAList() throws Exception {
+		new PagedListCodec(new JsonFactory()).decode("[]".getBytes("UTF-8"), Post.class);
+	}
+
+	private <T> PagedList<T> fetch(String resource, Class<T> type, BindingMode bindingMode) {
+		mockServer.reset();
+		mockServer.expect(requestTo(fbUrl("me/" + resource))).andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource(resource), MediaType.APPLICATION_JSON));
+		return facebook.fetchConnections("me", resource, type, null, bindingMode);
+	}
+
+	// every getter of every decoded object returns what it returned before the list was encoded
+	private <T> PagedList<T> roundTrip(PagedListCodec codec, PagedList<T> list, Class<T> type) throws Exception {
+		PagedList<T> decoded = codec.decode(codec.encode(list, type), type);
+		assertEquals(list.size(), decoded.size());
+		assertEquals(list.getTotalCount(), decoded.getTotalCount());
+		for (int i = 0; i < list.size(); i++) {
+			for (Method getter : type.getMethods()) {
+				if (getter.getParameterTypes().length == 0 && !Modifier.isStatic(getter.getModifiers()) && getter.getDeclaringClass() != Object.class
+						&& !getter.getName().equals("getRawJson") && (getter.getName().startsWith("get") || getter.getName().startsWith("is"))) {
+					assertEquals(type.getSimpleName() + "." + getter.getName(),
+							objectMapper.writeValueAsString(getter.invoke(list.get(i))), objectMapper.writeValueAsString(getter.invoke(decoded.get(i))));
+				}
+			}
+		}
+		return decoded;
+	}
+
+}
@@ -15,14 +15,23 @@
  */
 package org.springframework.social.facebook.api;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
 import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.http.HttpMethod.GET;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
@@ -99,6 +108,158 @@ public class PagedListTest extends AbstractFacebookApiTest {
 		assertEquals(0, feedsPreviousPage1.size());
 	}
 
+	@Test
+	public void streamConnections() {
+		expectFeedPages(4);
+		Stream<Post> feed = facebook.streamConnections("me", "feed", Post.class, limit(2));
+		List<Post> posts = feed.collect(Collectors.<Post>toList());
+		feed.close();
+		assertEquals(5, posts.size());
+		assertFeedEntriesPage1(posts.subList(0, 2));
+		assertFeedEntriesPage2(posts.subList(2, 4));
+		assertFeedEntriesPage3(posts.subList(4, 5));
+		mockServer.verify();
+	}
+
+	@Test
+	public void streamConnections_maxItems() {
+		expectFeedPages(2);
+		Stream<Post> feed = facebook.streamConnections("me", "feed", Post.class, limit(2), new ConnectionStreamOptions().maxItems(3).lookahead(2));
+		List<Post> posts = feed.collect(Collectors.<Post>toList());
+		feed.close();
+		assertEquals(3, posts.size());
+		assertFeedEntriesPage1(posts.subList(0, 2));
+		assertEquals("100001387295207_153453231377586", posts.get(2).getId());
+		mockServer.verify();
+	}
+
+	@Test
+	public void streamConnections_maxPages() {
+		expectFeedPages(1);
+		Stream<Post> feed = facebook.streamConnections("me", "feed", Post.class, limit(2), new ConnectionStreamOptions().maxPages(1).lookahead(0));
+		List<Post> posts = feed.collect(Collectors.<Post>toList());
+		assertEquals(2, posts.size());
+		assertFeedEntriesPage1(posts);
+		mockServer.verify();
+	}
+
+	@Test
+	public void streamConnections_cursors() {
+		mockServer.expect(requestTo(fbUrl("me/feed?limit=2")))
+				.andExpect(method(GET))
+				.andRespond(withSuccess("{\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}],\"paging\":{\"cursors\":{\"before\":\"MQ\",\"after\":\"Mg\"}}}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/feed?limit=2&after=Mg")))
+				.andExpect(method(GET))
+				.andRespond(withSuccess("{\"data\":[{\"id\":\"3\"}],\"paging\":{\"cursors\":{\"before\":\"Mw\",\"after\":\"Mw\"}}}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me/feed?limit=2&after=Mw")))
+				.andExpect(method(GET))
+				.andRespond(withSuccess("{\"data\":[]}", MediaType.APPLICATION_JSON));
+		List<Post> posts = facebook.streamConnections("me", "feed", Post.class, limit(2)).collect(Collectors.<Post>toList());
+		assertEquals(3, posts.size());
+		assertEquals("3", posts.get(2).getId());
+		mockServer.verify();
+	}
+
+	@Test
+	public void forEachConnection() {
+		expectFeedPages(1);
+		final List<Post> posts = new ArrayList<Post>();
+		ConnectionPageSummary page = facebook.forEachConnection("me", "feed", Post.class, limit(2), new Predicate<Post>() {
+			public boolean test(Post post) {
+				return posts.add(post);
+			}
+		});
+		assertFeedEntriesPage1(posts);
+		assertEquals(2, page.getItemCount());
+		assertFalse(page.isStopped());
+		assertEquals("fakePage2Token", page.getNextPage().getPagingToken());
+		assertEquals("fakePage0Token", page.getPreviousPage().getPagingToken());
+		assertNull(page.getTotalCount());
+		mockServer.verify();
+	}
+
+	@Test
+	public void forEachConnection_stopped() {
+		expectFeedPages(1);
+		final List<Post> posts = new ArrayList<Post>();
+		ConnectionPageSummary page = facebook.forEachConnection("me", "feed", Post.class, limit(2), new Predicate<Post>() {
+			public boolean test(Post post) {
+				posts.add(post);
+				return false;
+			}
+		});
+		assertEquals(1, posts.size());
+		assertEquals("100001387295207_160065090716400", posts.get(0).getId());
+		assertEquals(1, page.getItemCount());
+		assertTrue(page.isStopped());
+		assertEquals("fakePage2Token", page.getNextPage().getPagingToken());
+		assertEquals("fakePage0Token", page.getPreviousPage().getPagingToken());
+		mockServer.verify();
+	}
+
+	@Test
+	public void forEachConnection_stoppedWithTotalCountAndCursors() {
+		mockServer.expect(requestTo(fbUrl("me/friends")))
+				.andExpect(method(GET))
+				.andRespond(withSuccess("{\"data\":[{\"id\":\"1\",\"name\":\"One\"},{\"id\":\"2\",\"name\":{\"not\":[\"bound\"]}},null],"
+						+ "\"paging\":{\"cursors\":{\"before\":\"b\",\"after\":\"a\"}},\"summary\":{\"total_count\":42}}", MediaType.APPLICATION_JSON));
+		final List<Reference> friends = new ArrayList<Reference>();
+		ConnectionPageSummary page = facebook.forEachConnection("me", "friends", Reference.class, null, new Predicate<Reference>() {
+			public boolean test(Reference friend) {
+				friends.add(friend);
+				return false;
+			}
+		});
+		assertEquals(1, friends.size());
+		assertEquals(1, page.getItemCount());
+		assertTrue(page.isStopped());
+		assertEquals(42, (int) page.getTotalCount());
+		assertEquals("a", page.getNextPage().getAfter());
+		assertEquals("b", page.getPreviousPage().getBefore());
+		mockServer.verify();
+	}
+
+	@Test
+	public void forEachConnection_totalCountAndCursors() {
+		mockServer.expect(requestTo(fbUrl("me/friends")))
+				.andExpect(method(GET))
+				.andRespond(withSuccess("{\"summary\":{\"total_count\":42},\"data\":[{\"id\":\"1\",\"name\":\"One\"},null,{\"id\":\"2\",\"name\":\"Two\"}],"
+						+ "\"paging\":{\"cursors\":{\"before\":\"b\",\"after\":\"a\"}}}", MediaType.APPLICATION_JSON));
+		final List<Reference> friends = new ArrayList<Reference>();
+		ConnectionPageSummary page = facebook.forEachConnection("me", "friends", Reference.class, null, new Predicate<Reference>() {
+			public boolean test(Reference friend) {
+				return friends.add(friend);
+			}
+		});
+		assertEquals(2, friends.size());
+		assertEquals("Two", friends.get(1).getName());
+		assertEquals(2, page.getItemCount());
+		assertEquals(42, (int) page.getTotalCount());
+		assertEquals("a", page.getNextPage().getAfter());
+		assertEquals("b", page.getPreviousPage().getBefore());
+		mockServer.verify();
+	}
+
+	private MultiValueMap<String, String> limit(int limit) {
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		parameters.set("limit", String.valueOf(limit));
+		return parameters;
+	}
+
+	private void expectFeedPages(int pages) {
+		String[] responses = { "feedPage1", "feedPage2", "feedPage3", "emptyFeed" };
+		mockServer.expect(requestTo(fbUrl("me/feed?limit=2")))
+				.andExpect(method(GET))
+				.andExpect(header("Authorization", "OAuth someAccessToken"))
+				.andRespond(withSuccess(jsonResource(responses[0]), MediaType.APPLICATION_JSON));
+		for (int page = 2; page <= pages; page++) {
+			mockServer.expect(requestTo(fbUrl("100001387295207/feed?format=json&limit=2&access_token=fakeToken&__paging_token=fakePage" + page + "Token")))
+					.andExpect(method(GET))
+					.andExpect(header("Authorization", "OAuth someAccessToken"))
+					.andRespond(withSuccess(jsonResource(responses[page - 1]), MediaType.APPLICATION_JSON));
+		}
+	}
+
 	private void assertFeedEntriesPage1(List<Post> feed) {
 		assertEquals("100001387295207_160065090716400", feed.get(0).getId());
 		assertEquals("100001387295207_160064384049804", feed.get(1).getId());
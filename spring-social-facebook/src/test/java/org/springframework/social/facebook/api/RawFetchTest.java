@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.social.ExpiredAuthorizationException;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+public class RawFetchTest extends AbstractFacebookApiTest {
+
+	@Test
+	public void fetchRawObject() throws Exception {
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		parameters.set("fields", "id,name");
+		mockServer.expect(requestTo(fbUrl("me?fields=id%2Cname")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(jsonResource("full-profile"), MediaType.APPLICATION_JSON));
+		byte[] body = facebook.fetchRawObject("me", parameters);
+		assertArrayEquals(FileCopyUtils.copyToByteArray(jsonResource("full-profile").getInputStream()), body);
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchRawObject_contentLength() throws Exception {
+		assertArrayEquals("{\"id\":\"1\"}".getBytes("UTF-8"), fetchRawObjectWithContentLength("{\"id\":\"1\"}", 10));
+	}
+
+	@Test
+	public void fetchRawObject_contentLengthWrong() throws Exception {
+		assertArrayEquals("{\"id\":\"1\"}".getBytes("UTF-8"), fetchRawObjectWithContentLength("{\"id\":\"1\"}", 20));
+		assertArrayEquals("{\"id\":\"1\"}".getBytes("UTF-8"), fetchRawObjectWithContentLength("{\"id\":\"1\"}", 4));
+	}
+
+	@Test
+	public void fetchRawObject_contentLengthNotPreallocated() throws Exception {
+		assertArrayEquals("{\"id\":\"1\"}".getBytes("UTF-8"), fetchRawObjectWithContentLength("{\"id\":\"1\"}", Integer.MAX_VALUE - 1));
+	}
+
+	@Test(expected=ExpiredAuthorizationException.class)
+	public void fetchRawObject_error() {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-190-tokenExpired")).contentType(MediaType.APPLICATION_JSON));
+		facebook.fetchRawObject("me", null);
+	}
+
+	@Test
+	public void fetchRawConnections() throws Exception {
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<String, String>();
+		parameters.set("limit", "2");
+		mockServer.expect(requestTo(fbUrl("me/feed?limit=2")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(jsonResource("feedPage1"), MediaType.APPLICATION_JSON));
+		RawConnectionPage page = facebook.fetchRawConnections("me", "feed", parameters);
+		byte[] expected = FileCopyUtils.copyToByteArray(jsonResource("feedPage1").getInputStream());
+		assertArrayEquals(expected, page.getBody());
+		ByteBuffer buffer = page.getBodyAsByteBuffer();
+		assertTrue(buffer.isReadOnly());
+		assertEquals(expected.length, buffer.remaining());
+		assertEquals("fakePage2Token", page.getNextPage().getPagingToken());
+		assertEquals(2, (int) page.getNextPage().getLimit());
+		assertEquals("fakePage0Token", page.getPreviousPage().getPagingToken());
+		assertNull(page.getTotalCount());
+		mockServer.verify();
+	}
+
+	@Test
+	public void fetchRawConnections_totalCountAndCursors() throws Exception {
+		String json = "{\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}],\"paging\":{\"cursors\":{\"before\":\"b\",\"after\":\"a\"}},\"summary\":{\"total_count\":42}}";
+		mockServer.expect(requestTo(fbUrl("me/friends")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess(json, MediaType.APPLICATION_JSON));
+		RawConnectionPage page = facebook.fetchRawConnections("me", "friends", null);
+		assertEquals(json, new String(page.getBody(), "UTF-8"));
+		assertEquals(42, (int) page.getTotalCount());
+		assertEquals("a", page.getNextPage().getAfter());
+		assertEquals("b", page.getPreviousPage().getBefore());
+		mockServer.verify();
+	}
+
+	private byte[] fetchRawObjectWithContentLength(String body, long contentLength) {
+		mockServer.reset();
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentLength(contentLength);
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andRespond(withSuccess(body, MediaType.APPLICATION_JSON).headers(headers));
+		byte[] raw = facebook.fetchRawObject("me", null);
+		mockServer.verify();
+		return raw;
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class RawJsonRetentionTest extends AbstractFacebookApiTest {
+
+	private static final String POST_ID = "100001387295207_123939024341978";
+
+	@Test
+	public void lazyByDefault() {
+		Post post = fetchPost();
+		JsonNode rawJson = post.getRawJson();
+		assertNotNull(rawJson);
+		assertEquals(POST_ID, rawJson.get("id").asText());
+		assertEquals("Hello world!", rawJson.get("message").asText());
+		assertEquals("Art Names", rawJson.get("from").get("name").asText());
+		assertSame(rawJson, post.getRawJson());
+		assertFalse(rawJson.has("rawJson"));
+		assertEquals("Hello world!", post.getMessage());
+	}
+
+	@Test
+	public void full() {
+		facebook.setRawJsonRetention(RawJsonRetention.FULL);
+		Post post = fetchPost();
+		JsonNode rawJson = post.getRawJson();
+		assertEquals(POST_ID, rawJson.get("id").asText());
+		assertEquals("Hello world!", rawJson.get("message").asText());
+		assertFalse(rawJson.has("rawJson"));
+		assertEquals("Hello world!", post.getMessage());
+	}
+
+	@Test
+	public void off() {
+		facebook.setRawJsonRetention(RawJsonRetention.OFF);
+		Post post = fetchPost();
+		assertNull(post.getRawJson());
+		assertEquals(POST_ID, post.getId());
+		assertEquals("Hello world!", post.getMessage());
+	}
+
+	@Test
+	public void lazyAndFullProduceSameJson() {
+		JsonNode lazy = fetchPost().getRawJson();
+		facebook.setRawJsonRetention(RawJsonRetention.FULL);
+		assertEquals(lazy, fetchPost().getRawJson());
+	}
+
+	@Test
+	public void instagramMediaSetChildren_retentionOff() {
+		facebook.setRawJsonRetention(RawJsonRetention.OFF);
+		mockServer.expect(requestTo(fbUrl("17895695668004550")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"17895695668004550\",\"media_type\":\"CAROUSEL_ALBUM\"}", MediaType.APPLICATION_JSON));
+		InstagramMedia media = facebook.fetchObject("17895695668004550", InstagramMedia.class);
+		assertNull(media.getRawJson());
+		InstagramMedia child = new InstagramMedia();
+		media.setChildren(Arrays.asList(child));
+		assertEquals(1, media.getChildren().size());
+		assertNull(media.getRawJson());
+	}
+
+	@Test
+	public void instagramMediaSetChildren_lazy() {
+		mockServer.expect(requestTo(fbUrl("17895695668004550")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"17895695668004550\",\"media_type\":\"CAROUSEL_ALBUM\"}", MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("17880997618081620")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"17880997618081620\",\"media_type\":\"IMAGE\"}", MediaType.APPLICATION_JSON));
+		InstagramMedia media = facebook.fetchObject("17895695668004550", InstagramMedia.class);
+		InstagramMedia child = facebook.fetchObject("17880997618081620", InstagramMedia.class);
+		media.setChildren(Arrays.asList(child));
+		assertEquals("17880997618081620", media.getRawJson().get("children").get(0).get("id").asText());
+	}
+
+	private Post fetchPost() {
+		mockServer.expect(requestTo(fbUrl(POST_ID)))
+			.andExpect(method(GET))
+			.andRespond(withSuccess(jsonResource("post"), MediaType.APPLICATION_JSON));
+		Post post = facebook.fetchObject(POST_ID, Post.class);
+		mockServer.verify();
+		mockServer.reset();
+		return post;
+	}
+
+}
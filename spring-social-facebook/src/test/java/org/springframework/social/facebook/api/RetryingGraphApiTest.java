@@ -0,0 +1,223 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.social.RateLimitExceededException;
+import org.springframework.social.ServerException;
+import org.springframework.social.UncategorizedApiException;
+import org.springframework.social.facebook.api.impl.RetryingGraphApi;
+import org.springframework.social.facebook.api.impl.UsageThrottlingInterceptor;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpServerErrorException;
+
+public class RetryingGraphApiTest extends AbstractFacebookApiTest {
+
+	private final List<Long> pauses = new ArrayList<Long>();
+
+	private RetryingGraphApi graphApi;
+
+	@Before
+	public void setupRetries() {
+		graphApi = new RetryingGraphApi(facebook) {
+			@Override
+			protected void pause(long millis) {
+				pauses.add(millis);
+			}
+		};
+	}
+
+	@Test
+	public void fetchObject_retriedAfterServiceError() {
+		expectServiceError(fbUrl("me"));
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON));
+		assertEquals("123456789", graphApi.fetchObject("me", User.class).getId());
+		mockServer.verify();
+		assertEquals(1, graphApi.getOperationCount());
+		assertEquals(1, graphApi.getRetryCount());
+		assertEquals(1, graphApi.getRecoveredCount());
+		assertEquals(1, pauses.size());
+		assertTrue(pauses.get(0) <= RetryingGraphApi.DEFAULT_INITIAL_BACKOFF);
+		assertTrue(pauses.get(0) >= RetryingGraphApi.DEFAULT_INITIAL_BACKOFF / 2);
+	}
+
+	@Test
+	public void fetchConnections_exhaustsAttemptsWithBackoff() {
+		graphApi.setJitter(0);
+		for (int i = 0; i < RetryingGraphApi.DEFAULT_MAX_ATTEMPTS; i++) {
+			mockServer.expect(requestTo(fbUrl("me/feed")))
+				.andExpect(method(GET))
+				.andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+		}
+		try {
+			graphApi.fetchConnections("me", "feed", Post.class);
+			fail();
+		} catch (HttpServerErrorException e) {
+			// expected
+		}
+		mockServer.verify();
+		assertEquals(2, graphApi.getRetryCount());
+		assertEquals(1, graphApi.getExhaustedCount());
+		assertEquals(0, graphApi.getRecoveredCount());
+		assertEquals(RetryingGraphApi.DEFAULT_INITIAL_BACKOFF, pauses.get(0).longValue());
+		assertEquals((long) (RetryingGraphApi.DEFAULT_INITIAL_BACKOFF * RetryingGraphApi.DEFAULT_BACKOFF_MULTIPLIER), pauses.get(1).longValue());
+	}
+
+	@Test
+	public void fetchObject_permanentErrorNotRetried() {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-100-badRequestUrl")).contentType(MediaType.APPLICATION_JSON));
+		try {
+			graphApi.fetchObject("me", User.class);
+			fail();
+		} catch (UncategorizedApiException e) {
+			// expected
+		}
+		mockServer.verify();
+		assertEquals(0, graphApi.getRetryCount());
+		assertTrue(pauses.isEmpty());
+	}
+
+	@Test
+	public void fetchObject_retriedAfterErrorFlaggedTransient() {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR).body(jsonResource("error-1-transient")).contentType(MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON));
+		assertEquals("123456789", graphApi.fetchObject("me", User.class).getId());
+		mockServer.verify();
+		assertEquals(1, graphApi.getRetryCount());
+	}
+
+	@Test
+	public void fetchObject_rateLimitNotRetried() {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST)
+				.body("{\"error\":{\"message\":\"Application request limit reached\",\"type\":\"OAuthException\",\"code\":4,\"is_transient\":true}}")
+				.contentType(MediaType.APPLICATION_JSON));
+		try {
+			graphApi.fetchObject("me", User.class);
+			fail();
+		} catch (RateLimitExceededException e) {
+			// expected
+		}
+		mockServer.verify();
+		assertEquals(0, graphApi.getRetryCount());
+		assertTrue(pauses.isEmpty());
+	}
+
+	@Test
+	public void fetchObject_notRetriedWhileThrottled() {
+		facebook.setUsageThrottlingInterceptor(new UsageThrottlingInterceptor());
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-Business-Use-Case-Usage", "{\"112233\":[{\"type\":\"pages\",\"call_count\":100,\"total_cputime\":4,\"total_time\":6,\"estimated_time_to_regain_access\":30}]}");
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON).headers(headers));
+		assertEquals("123456789", graphApi.fetchObject("me", User.class).getId());
+		try {
+			graphApi.fetchObject("me", User.class);
+			fail();
+		} catch (RateLimitExceededException e) {
+			// expected
+		}
+		mockServer.verify();
+		assertEquals(0, graphApi.getRetryCount());
+		assertTrue(pauses.isEmpty());
+	}
+
+	@Test
+	public void post_notRetriedUnlessIdempotent() {
+		MultiValueMap<String, Object> data = new LinkedMultiValueMap<String, Object>();
+		data.set("message", "Hello");
+		mockServer.expect(requestTo(fbUrl("me/feed")))
+			.andExpect(method(POST))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-2-serviceUnavailable")).contentType(MediaType.APPLICATION_JSON));
+		try {
+			graphApi.post("me", "feed", data);
+			fail();
+		} catch (ServerException e) {
+			// expected
+		}
+		mockServer.verify();
+		assertEquals(0, graphApi.getRetryCount());
+	}
+
+	@Test
+	public void delete_retriedThroughIdempotentView() {
+		mockServer.expect(requestTo(fbUrl("123456")))
+			.andExpect(method(POST))
+			.andExpect(content().string("method=delete"))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-2-serviceUnavailable")).contentType(MediaType.APPLICATION_JSON));
+		mockServer.expect(requestTo(fbUrl("123456")))
+			.andExpect(method(POST))
+			.andExpect(content().string("method=delete"))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		graphApi.idempotent().delete("123456");
+		mockServer.verify();
+		assertEquals(1, graphApi.getRetryCount());
+		assertEquals(1, graphApi.getRecoveredCount());
+	}
+
+	@Test
+	public void retryBudgetStopsRetries() {
+		graphApi.setRetryBudget(2, 0.1);
+		expectServiceError(fbUrl("me"));
+		expectServiceError(fbUrl("me"));
+		expectServiceError(fbUrl("me"));
+		try {
+			graphApi.fetchObject("me", User.class);
+			fail();
+		} catch (ServerException e) {
+			// expected
+		}
+		try {
+			graphApi.fetchObject("me", User.class);
+			fail();
+		} catch (ServerException e) {
+			// expected
+		}
+		mockServer.verify();
+		assertEquals(1, graphApi.getRetryCount());
+		assertEquals(2, graphApi.getBudgetRejectedCount());
+	}
+
+	private void expectServiceError(String url) {
+		mockServer.expect(requestTo(url))
+			.andExpect(method(GET))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-2-serviceUnavailable")).contentType(MediaType.APPLICATION_JSON));
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.springframework.social.facebook.api.impl.json.FacebookModule;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TimestampBindingTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new FacebookModule());
+
+	// Jackson's own date handling, which the Graph API timestamps were bound with before
+	private final ObjectMapper plainObjectMapper = new ObjectMapper();
+
+	@Test
+	public void timestampsMatchJacksonDateHandling() throws Exception {
+		String[] timestamps = {
+			"2011-03-24T21:26:29+0000",
+			"2015-04-14T20:00:00-0700",
+			"2015-04-14T20:00:00+05:30",
+			"2015-04-14T20:00:00+02",
+			"2015-04-14T20:00:00Z",
+			"2015-04-14T20:00:00.123Z",
+			"2015-04-14T20:00:00.5+0100",
+			"2016-02-29T23:59:59+0000",
+			"2000-01-01T00:00:00+0000",
+			"1969-12-31T23:59:59+0000",
+			"1900-03-01T12:00:00+0000",
+			"2100-12-31T12:00:00-1200",
+			"2015-03-10",
+			"2015-03-10T14:30:00",
+		};
+		for (String timestamp : timestamps) {
+			assertEquals(timestamp, plainObjectMapper.readValue("\"" + timestamp + "\"", Date.class), createdTime(timestamp));
+		}
+	}
+
+	@Test
+	public void epochMillis() throws Exception {
+		Post post = objectMapper.readValue("{\"id\":\"1\",\"created_time\":1301002000000}", Post.class);
+		assertEquals(new Date(1301002000000L), post.getCreatedTime());
+	}
+
+	@Test
+	public void nullTimestamp() throws Exception {
+		Post post = objectMapper.readValue("{\"id\":\"1\",\"created_time\":null}", Post.class);
+		assertNull(post.getCreatedTime());
+	}
+
+	@Test
+	public void datesOfOtherTypes() throws Exception {
+		Comment comment = objectMapper.readValue("{\"id\":\"1\",\"created_time\":\"2011-03-24T21:26:29+0000\"}", Comment.class);
+		assertEquals(new Date(1301001989000L), comment.getCreatedTime());
+		InstagramMedia media = objectMapper.readValue("{\"id\":\"1\",\"timestamp\":\"2018-01-02T03:04:05+0000\"}", InstagramMedia.class);
+		assertEquals(new Date(1514862245000L), media.getTimestamp());
+	}
+
+	private Date createdTime(String timestamp) throws Exception {
+		return objectMapper.readValue("{\"id\":\"1\",\"created_time\":\"" + timestamp + "\"}", Post.class).getCreatedTime();
+	}
+
+}
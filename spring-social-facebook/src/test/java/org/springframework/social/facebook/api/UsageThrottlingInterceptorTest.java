@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.api;
+
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.social.RateLimitExceededException;
+import org.springframework.social.facebook.api.impl.FacebookClientFactory;
+import org.springframework.social.facebook.api.impl.UsageThrottlingInterceptor;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+public class UsageThrottlingInterceptorTest extends AbstractFacebookApiTest {
+
+	private final List<Long> pauses = new ArrayList<Long>();
+
+	private UsageThrottlingInterceptor throttle;
+
+	@Before
+	public void setupThrottle() {
+		throttle = new UsageThrottlingInterceptor() {
+			@Override
+			protected void pause(long millis) {
+				pauses.add(millis);
+			}
+		};
+		facebook.setUsageThrottlingInterceptor(throttle);
+	}
+
+	@Test
+	public void recordsReportedUsage() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-App-Usage", "{\"call_count\":28,\"total_time\":25,\"total_cputime\":10}");
+		headers.set("X-Page-Usage", "{\"call_count\":40,\"total_time\":5,\"total_cputime\":3}");
+		headers.set("X-Business-Use-Case-Usage", "{\"112233\":[{\"type\":\"pages\",\"call_count\":12,\"total_cputime\":4,\"total_time\":6,\"estimated_time_to_regain_access\":0}]}");
+		expectMe(headers);
+		facebook.fetchObject("me", User.class);
+		mockServer.verify();
+
+		ApiUsage app = throttle.getAppUsage();
+		assertEquals(28, app.getCallCount());
+		assertEquals(10, app.getTotalCputime());
+		assertEquals(25, app.getTotalTime());
+		assertEquals(28, app.getPercentage());
+		assertEquals(40, throttle.getPageUsage(ACCESS_TOKEN).getCallCount());
+		assertNull(throttle.getPageUsage("otherToken"));
+		Map<String, List<ApiUsage>> business = throttle.getBusinessUseCaseUsage();
+		assertEquals(1, business.get("112233").size());
+		assertEquals("pages", business.get("112233").get(0).getType());
+		assertEquals(12, business.get("112233").get(0).getCallCount());
+		assertEquals(40, throttle.getEffectiveUsage(ACCESS_TOKEN));
+		assertEquals(28, throttle.getEffectiveUsage("otherToken"));
+		assertTrue(pauses.isEmpty());
+	}
+
+	@Test
+	public void delaysRequestsAboveThreshold() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-App-Usage", "{\"call_count\":90,\"total_time\":25,\"total_cputime\":10}");
+		expectMe(headers);
+		expectMe(new HttpHeaders());
+		facebook.fetchObject("me", User.class);
+		assertTrue(pauses.isEmpty());
+		facebook.fetchObject("me", User.class);
+		mockServer.verify();
+		assertEquals(1, pauses.size());
+		assertEquals(UsageThrottlingInterceptor.DEFAULT_MAX_DELAY * 15 / 25, pauses.get(0).longValue());
+	}
+
+	@Test
+	public void failsWithoutSendingWhileAccessIsBlocked() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-Business-Use-Case-Usage", "{\"112233\":[{\"type\":\"pages\",\"call_count\":100,\"total_cputime\":4,\"total_time\":6,\"estimated_time_to_regain_access\":30}]}");
+		expectMe(headers);
+		facebook.fetchObject("me", User.class);
+		try {
+			facebook.fetchObject("me", User.class);
+			fail();
+		} catch (RateLimitExceededException e) {
+			// expected
+		}
+		mockServer.verify();
+	}
+
+	@Test
+	public void ignoresMalformedUsage() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-App-Usage", "not json");
+		expectMe(headers);
+		facebook.fetchObject("me", User.class);
+		mockServer.verify();
+		assertNull(throttle.getAppUsage());
+	}
+
+	@Test
+	public void pageUsageIsTrackedPerAccessToken() {
+		RestTemplate transport = new RestTemplate();
+		MockRestServiceServer transportServer = MockRestServiceServer.createServer(transport);
+		FacebookClientFactory clientFactory = new FacebookClientFactory(transport.getRequestFactory());
+		assertNull(clientFactory.getUsageThrottlingInterceptor());
+		clientFactory.setUsageThrottlingInterceptor(new UsageThrottlingInterceptor());
+		Facebook page1 = clientFactory.getFacebook("pageToken1");
+		Facebook page2 = clientFactory.getFacebook("pageToken2");
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("X-Page-Usage", "{\"call_count\":100,\"total_time\":25,\"total_cputime\":10}");
+		transportServer.expect(requestTo(fbUrl("me")))
+			.andExpect(header("Authorization", "OAuth pageToken1"))
+			.andRespond(withSuccess("{\"id\":\"1\"}", MediaType.APPLICATION_JSON).headers(headers));
+		transportServer.expect(requestTo(fbUrl("me")))
+			.andExpect(header("Authorization", "OAuth pageToken2"))
+			.andRespond(withSuccess("{\"id\":\"2\"}", MediaType.APPLICATION_JSON));
+		page1.fetchObject("me", Page.class);
+		try {
+			page1.fetchObject("me", Page.class);
+			fail();
+		} catch (RateLimitExceededException e) {
+			// expected
+		}
+		assertEquals("2", page2.fetchObject("me", Page.class).getId());
+		transportServer.verify();
+		assertEquals(100, clientFactory.getUsageThrottlingInterceptor().getPageUsage("pageToken1").getCallCount());
+	}
+
+	private void expectMe(HttpHeaders headers) {
+		mockServer.expect(requestTo(fbUrl("me")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON).headers(headers));
+	}
+
+}
@@ -20,6 +20,8 @@ import static org.springframework.http.HttpMethod.*;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -27,7 +29,10 @@ import java.util.Map;
 
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.social.ResourceNotFoundException;
+import org.springframework.util.FileCopyUtils;
 
 /**
  * @author Craig Walls
@@ -233,6 +238,42 @@ public class UserTemplateTest extends AbstractFacebookApiTest {
 		// TODO: Fix mock server handle binary data so we can test contents (or at least size) of image data.
 		mockServer.verify();
 	}
+
+	@Test
+	public void getUserProfileImage_streamed() throws Exception {
+		mockServer.expect(requestTo(fbUrl("1234567/picture?type=large")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(new ClassPathResource("tinyrod.jpg", getClass()), MediaType.IMAGE_JPEG));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long written = facebook.userOperations().getUserProfileImage("1234567", ImageType.LARGE, out);
+		byte[] expected = FileCopyUtils.copyToByteArray(new ClassPathResource("tinyrod.jpg", getClass()).getInputStream());
+		assertEquals(expected.length, written);
+		assertArrayEquals(expected, out.toByteArray());
+		mockServer.verify();
+	}
+
+	@Test
+	public void getUserProfileImage_streamedToChannel() throws Exception {
+		mockServer.expect(requestTo(fbUrl("1234567/picture?type=normal")))
+			.andExpect(method(GET))
+			.andExpect(header("Authorization", "OAuth someAccessToken"))
+			.andRespond(withSuccess(new ClassPathResource("tinyrod.jpg", getClass()), MediaType.IMAGE_JPEG));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long written = facebook.fetchImage("1234567", "picture", ImageType.NORMAL, Channels.newChannel(out));
+		byte[] expected = FileCopyUtils.copyToByteArray(new ClassPathResource("tinyrod.jpg", getClass()).getInputStream());
+		assertEquals(expected.length, written);
+		assertArrayEquals(expected, out.toByteArray());
+		mockServer.verify();
+	}
+
+	@Test(expected=ResourceNotFoundException.class)
+	public void getUserProfileImage_streamedErrorIsTranslated() {
+		mockServer.expect(requestTo(fbUrl("1234567/picture?type=normal")))
+			.andExpect(method(GET))
+			.andRespond(withStatus(HttpStatus.BAD_REQUEST).body(jsonResource("error-803-unknownAlias")).contentType(MediaType.APPLICATION_JSON));
+		facebook.userOperations().getUserProfileImage("1234567", ImageType.NORMAL, new ByteArrayOutputStream());
+	}
 	
 	@Test
 	public void getUserPermissions() {
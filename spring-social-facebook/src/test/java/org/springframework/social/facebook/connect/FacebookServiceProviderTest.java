@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.social.facebook.connect;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.springframework.http.HttpMethod.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.social.facebook.api.impl.FacebookClientFactory;
+import org.springframework.social.facebook.api.impl.FacebookTemplate;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+public class FacebookServiceProviderTest {
+
+	@Test
+	public void getApi_clientFactorySignsRequestsWithProviderAppSecret() throws Exception {
+		FacebookClientFactory clientFactory = new FacebookClientFactory(new SimpleClientHttpRequestFactory());
+		clientFactory.setAppSecret("someOtherSecret");
+		FacebookServiceProvider serviceProvider = new FacebookServiceProvider("appId", "appSecret", "namespace", clientFactory);
+		FacebookTemplate facebook = (FacebookTemplate) serviceProvider.getApi("someAccessToken");
+		assertEquals("namespace", facebook.getApplicationNamespace());
+
+		MockRestServiceServer mockServer = MockRestServiceServer.createServer(facebook.getRestTemplate());
+		mockServer.expect(requestTo(containsString("appsecret_proof=" + appSecretProof("someAccessToken", "appSecret"))))
+			.andExpect(method(GET))
+			.andRespond(withSuccess("{\"id\":\"123456789\"}", MediaType.APPLICATION_JSON));
+		facebook.fetchObject("me", String.class);
+		mockServer.verify();
+	}
+
+	private String appSecretProof(String accessToken, String appSecret) throws Exception {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(appSecret.getBytes("UTF-8"), "HmacSHA256"));
+		return new String(Hex.encode(mac.doFinal(accessToken.getBytes("UTF-8"))));
+	}
+
+}